@@ -0,0 +1,156 @@
+package com.example.h_cas;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
+import com.example.h_cas.utils.StartupOrchestrator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cold start to the dashboard against {@link StartupOrchestrator#TARGET_COLD_START_MS}.
+ * The test process is the app process, so it cannot be restarted from here; the time is
+ * taken in two parts and added up:
+ *
+ * 1. Process start to the "session" startup task finishing, from the orchestrator. The
+ *    instrumentation starts this process cold, so HCasApplication ran its startup as it
+ *    does on a launch from the launcher.
+ * 2. Launching SplashActivity with a saved session to the admin dashboard having drawn.
+ *
+ * On a real launch the splash inflates while the startup tasks run, so the sum is an
+ * upper bound. The breakdown is logged under "StartupBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmarkTest {
+    private static final String TAG = "StartupBenchmark";
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private Application application;
+    private final AtomicReference<Activity> dashboard = new AtomicReference<>();
+
+    @Before
+    public void signIn() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        application = (Application) context.getApplicationContext();
+        Employee admin = HCasDatabaseHelper.getInstance(context).getEmployeeByUsername("admin");
+        assertNotNull("Default admin missing", admin);
+        SessionManager.getInstance(context).start(admin);
+    }
+
+    @After
+    public void signOut() {
+        Activity activity = dashboard.get();
+        if (activity != null) {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(activity::finish);
+        }
+        SessionManager.getInstance(application).end();
+    }
+
+    @Test
+    public void coldStartToDashboard() throws InterruptedException {
+        StartupOrchestrator startup = ((HCasApplication) application).getStartup();
+        CountDownLatch sessionReady = new CountDownLatch(1);
+        startup.whenDone(HCasApplication.TASK_SESSION, sessionReady::countDown);
+        assertTrue("Session task never finished", sessionReady.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        long sessionMs = startup.getFinishedMs(HCasApplication.TASK_SESSION);
+
+        CountDownLatch drawn = new CountDownLatch(1);
+        AtomicLong drawnAt = new AtomicLong();
+        Application.ActivityLifecycleCallbacks tracker = new DashboardTracker(activity -> {
+            dashboard.set(activity);
+            // Posted behind the first traversal, so it runs once the dashboard has drawn
+            activity.getWindow().getDecorView().post(() -> {
+                drawnAt.set(SystemClock.elapsedRealtime());
+                drawn.countDown();
+            });
+        });
+        application.registerActivityLifecycleCallbacks(tracker);
+        try {
+            Intent splash = new Intent(application, SplashActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            long launchedAt = SystemClock.elapsedRealtime();
+            application.startActivity(splash);
+            assertTrue("Dashboard never drew", drawn.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            long splashToDashboardMs = drawnAt.get() - launchedAt;
+            long coldStartMs = sessionMs + splashToDashboardMs;
+            Log.d(TAG, "Cold start to dashboard: " + coldStartMs + "ms (target " +
+                       StartupOrchestrator.TARGET_COLD_START_MS + "ms) = process start to session " + sessionMs +
+                       "ms + splash to dashboard drawn " + splashToDashboardMs + "ms\n" + startup.report());
+            assertTrue("Cold start to dashboard took " + coldStartMs + "ms",
+                       coldStartMs <= StartupOrchestrator.TARGET_COLD_START_MS);
+        } finally {
+            application.unregisterActivityLifecycleCallbacks(tracker);
+        }
+    }
+
+    private interface OnDashboardResumed {
+        void onResumed(Activity activity);
+    }
+
+    /**
+     * Reports the first AdminDashboardActivity to resume
+     */
+    private static final class DashboardTracker implements Application.ActivityLifecycleCallbacks {
+        private final OnDashboardResumed listener;
+        private boolean seen;
+
+        DashboardTracker(OnDashboardResumed listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+            if (!seen && activity instanceof AdminDashboardActivity) {
+                seen = true;
+                listener.onResumed(activity);
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.h_cas.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.models.Prescription;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmark for reader latency while a bulk inbound sync writes: two reader threads
+ * page the patient history while upsertPrescriptions writes 20k rows, once with
+ * write-ahead logging and once in rollback-journal mode. Latency percentiles are
+ * logged under "ContentionBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class ContentionBenchmarkTest {
+    private static final String TAG = "ContentionBenchmark";
+    private static final String DB_NAME = "contention_benchmark.db";
+
+    private static final int PATIENTS = 20_000;
+    private static final int SYNCED_PRESCRIPTIONS = 20_000;
+    private static final int READERS = 2;
+    private static final int PAGE_SIZE = 20;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void readersKeepGoingDuringBulkSync() throws Exception {
+        Result journal = run(false);
+        Result wal = run(true);
+
+        Log.d(TAG, String.format(Locale.US, "%d readers, %d synced prescriptions%n  journal: %s%n  wal:     %s",
+                                 READERS, SYNCED_PRESCRIPTIONS, journal, wal));
+
+        // With WAL a reader never waits for the writer's chunk transactions to commit
+        assertTrue("No reads finished during the sync: " + wal, wal.readsDuringWrite > 0);
+    }
+
+    private Result run(boolean writeAheadLogging) throws Exception {
+        context.deleteDatabase(DB_NAME);
+        HCasDatabaseHelper helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+        try {
+            helper.setWriteAheadLoggingEnabled(writeAheadLogging);
+            SeedData.patients(helper.getWritableDatabase(), PATIENTS);
+            SeedData.prescriptions(helper.getWritableDatabase(), PATIENTS, PATIENTS);
+
+            List<Prescription> batch = syncedBatch();
+            AtomicBoolean writing = new AtomicBoolean(true);
+            CountDownLatch started = new CountDownLatch(READERS);
+            List<Long> idleMicros = Collections.synchronizedList(new ArrayList<>());
+            List<Long> busyMicros = Collections.synchronizedList(new ArrayList<>());
+
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                Thread reader = new Thread(() -> {
+                    // A few reads before the writer starts give the uncontended baseline
+                    for (int run = 0; run < 20; run++) {
+                        idleMicros.add(timeRead(helper));
+                    }
+                    started.countDown();
+                    while (writing.get()) {
+                        long micros = timeRead(helper);
+                        if (writing.get()) {
+                            busyMicros.add(micros);
+                        }
+                    }
+                }, "contention-reader-" + i);
+                readers.add(reader);
+                reader.start();
+            }
+
+            started.await();
+            long start = System.nanoTime();
+            helper.upsertPrescriptions(batch);
+            long writeMillis = (System.nanoTime() - start) / 1_000_000;
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            return new Result(writeAheadLogging, writeMillis, idleMicros, busyMicros);
+        } finally {
+            helper.close();
+        }
+    }
+
+    private static long timeRead(HCasDatabaseHelper helper) {
+        long start = System.nanoTime();
+        helper.getPatientHistoryPage(null, PAGE_SIZE);
+        return (System.nanoTime() - start) / 1000;
+    }
+
+    /**
+     * Updates of every seeded prescription, as an inbound sync after a long offline spell delivers them
+     */
+    private static List<Prescription> syncedBatch() {
+        List<Prescription> batch = new ArrayList<>(SYNCED_PRESCRIPTIONS);
+        for (int i = 0; i < SYNCED_PRESCRIPTIONS; i++) {
+            Prescription prescription = new Prescription("PRE" + i, "P" + (i % PATIENTS), "Synced patient",
+                                                         "Paracetamol", "500mg", "Twice daily", "7 days");
+            prescription.setDoctorId("DOC001");
+            prescription.setDoctorName("Dr. John Smith");
+            prescription.setCreatedDate("2025-07-01 08:00:00");
+            batch.add(prescription);
+        }
+        return batch;
+    }
+
+    private static final class Result {
+        final boolean writeAheadLogging;
+        final long writeMillis;
+        final List<Long> idle;
+        final List<Long> busy;
+        final int readsDuringWrite;
+
+        Result(boolean writeAheadLogging, long writeMillis, List<Long> idle, List<Long> busy) {
+            this.writeAheadLogging = writeAheadLogging;
+            this.writeMillis = writeMillis;
+            this.idle = sorted(idle);
+            this.busy = sorted(busy);
+            this.readsDuringWrite = busy.size();
+        }
+
+        private static List<Long> sorted(List<Long> values) {
+            List<Long> copy = new ArrayList<>(values);
+            Collections.sort(copy);
+            return copy;
+        }
+
+        private static long percentile(List<Long> values, int percent) {
+            return values.isEmpty() ? -1 : values.get(Math.min(values.size() - 1, values.size() * percent / 100));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "wal=%b write=%dms idle p50=%dus | during write n=%d p50=%dus p95=%dus max=%dus",
+                                 writeAheadLogging, writeMillis, percentile(idle, 50), readsDuringWrite,
+                                 percentile(busy, 50), percentile(busy, 95), percentile(busy, 100));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.h_cas.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.models.DispenseResult;
+import com.example.h_cas.models.InventoryEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Concurrency stress test for HCasDatabaseHelper.dispense: many threads released at
+ * once against the same tag, and against more tags than there are units left. The
+ * conditional updates must let exactly the right number through and never take stock
+ * below zero.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DispenseStressTest {
+    private static final String DB_NAME = "dispense_stress.db";
+    private static final String MEDICINE_ID = "MEDSTRESS";
+    private static final String MEDICINE_NAME = "Stressamol";
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    private Context context;
+    private HCasDatabaseHelper helper;
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+        threads = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void sameTagIsDispensedOnce() throws Exception {
+        insertMedicine(ROUNDS * THREADS);
+        for (int round = 0; round < ROUNDS; round++) {
+            String tagId = "STRESS" + round;
+            insertTag(tagId);
+
+            List<String> tagIds = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                tagIds.add(tagId);
+            }
+            Map<DispenseResult.Status, Integer> results = dispenseAtOnce(tagIds);
+
+            assertEquals("round " + round + ": " + results, 1, count(results, DispenseResult.Status.DISPENSED));
+            assertEquals("round " + round + ": " + results, THREADS - 1,
+                         count(results, DispenseResult.Status.TAG_NOT_AVAILABLE));
+        }
+        assertEquals(ROUNDS * THREADS - ROUNDS, stock());
+        assertEquals(ROUNDS, dispenseEvents());
+    }
+
+    @Test
+    public void lastUnitsAreNeverOversold() throws Exception {
+        int units = 5;
+        insertMedicine(units);
+        List<String> tagIds = new ArrayList<>();
+        for (int i = 0; i < THREADS * 3; i++) {
+            tagIds.add("LAST" + i);
+            insertTag("LAST" + i);
+        }
+
+        Map<DispenseResult.Status, Integer> results = dispenseAtOnce(tagIds);
+
+        assertEquals(results.toString(), units, count(results, DispenseResult.Status.DISPENSED));
+        assertEquals(results.toString(), tagIds.size() - units,
+                     count(results, DispenseResult.Status.INSUFFICIENT_STOCK));
+        assertEquals(0, stock());
+        assertEquals(units, dispenseEvents());
+        // A failed dispense rolls back its tag update, so those prescriptions can still be given
+        assertEquals(tagIds.size() - units, DatabaseUtils.queryNumEntries(
+            helper.getReadableDatabase(), HCasDatabaseHelper.TABLE_RFID_DATA,
+            HCasDatabaseHelper.COLUMN_IS_DISPENSED + " = 0"));
+    }
+
+    /**
+     * Release one dispense per tag id at the same moment and tally the outcomes
+     */
+    private Map<DispenseResult.Status, Integer> dispenseAtOnce(List<String> tagIds) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DispenseResult>> futures = new ArrayList<>();
+        for (String tagId : tagIds) {
+            futures.add(threads.submit(() -> {
+                start.await();
+                return helper.dispense(tagId, "Stress Tester", 1);
+            }));
+        }
+        start.countDown();
+
+        Map<DispenseResult.Status, Integer> results = new EnumMap<>(DispenseResult.Status.class);
+        for (Future<DispenseResult> future : futures) {
+            DispenseResult result = future.get(30, TimeUnit.SECONDS);
+            results.merge(result.getStatus(), 1, Integer::sum);
+            assertTrue("negative stock " + result.getRemainingStock(),
+                       !result.isDispensed() || result.getRemainingStock() >= 0);
+        }
+        return results;
+    }
+
+    private static int count(Map<DispenseResult.Status, Integer> results, DispenseResult.Status status) {
+        Integer count = results.get(status);
+        return count != null ? count : 0;
+    }
+
+    private void insertMedicine(int stock) {
+        ContentValues values = new ContentValues();
+        values.put(HCasDatabaseHelper.COLUMN_MEDICINE_ID, MEDICINE_ID);
+        values.put(HCasDatabaseHelper.COLUMN_MEDICINE_NAME, MEDICINE_NAME);
+        values.put(HCasDatabaseHelper.COLUMN_MEDICINE_DOSAGE, "500mg");
+        values.put(HCasDatabaseHelper.COLUMN_STOCK_QUANTITY, stock);
+        values.put(HCasDatabaseHelper.COLUMN_UNIT, "tablets");
+        helper.getWritableDatabase().insertOrThrow(HCasDatabaseHelper.TABLE_MEDICINES, null, values);
+    }
+
+    private void insertTag(String tagId) {
+        ContentValues values = new ContentValues();
+        values.put(HCasDatabaseHelper.COLUMN_RFID_TAG_ID, tagId);
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_ID, "P" + tagId);
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_NAME, "Stress Patient");
+        values.put(HCasDatabaseHelper.COLUMN_PRESCRIPTION_ID, "PRE" + tagId);
+        values.put(HCasDatabaseHelper.COLUMN_MEDICATION, MEDICINE_NAME);
+        values.put(HCasDatabaseHelper.COLUMN_DOSAGE, "500mg");
+        values.put(HCasDatabaseHelper.COLUMN_FREQUENCY, "Once daily");
+        values.put(HCasDatabaseHelper.COLUMN_DURATION, "1 day");
+        values.put(HCasDatabaseHelper.COLUMN_DOCTOR_NAME, "Dr. John Smith");
+        helper.getWritableDatabase().insertOrThrow(HCasDatabaseHelper.TABLE_RFID_DATA, null, values);
+    }
+
+    private long stock() {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        return DatabaseUtils.longForQuery(db, "SELECT " + HCasDatabaseHelper.COLUMN_STOCK_QUANTITY + " FROM " +
+                                              HCasDatabaseHelper.TABLE_MEDICINES + " WHERE " +
+                                              HCasDatabaseHelper.COLUMN_MEDICINE_ID + " = ?",
+                                          new String[]{MEDICINE_ID});
+    }
+
+    private long dispenseEvents() {
+        return DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), HCasDatabaseHelper.TABLE_INVENTORY_EVENTS,
+                                             HCasDatabaseHelper.COLUMN_EVENT_TYPE + " = ?",
+                                             new String[]{InventoryEvent.TYPE_DISPENSE});
+    }
+}
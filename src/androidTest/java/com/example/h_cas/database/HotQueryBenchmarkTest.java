@@ -0,0 +1,170 @@
+package com.example.h_cas.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmark for the schema version 7 indexes: seeds 100k prescriptions, RFID tags and
+ * patients, then records the query plan and median latency of each hot query with the
+ * indexes, and again after dropping them. The before/after table is logged under
+ * "HotQueryBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class HotQueryBenchmarkTest {
+    private static final String TAG = "HotQueryBenchmark";
+    private static final String DB_NAME = "hot_query_benchmark.db";
+
+    private static final int ROWS = 100_000;
+    private static final int RUNS = 7;
+
+    private static final Pattern INDEX_NAME = Pattern.compile("IF NOT EXISTS (\\S+) ON");
+    // A plan step reading a whole table: "SCAN prescriptions" ("SCAN TABLE ..." before SQLite 3.36)
+    private static final Pattern TABLE_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\S+)");
+
+    private Context context;
+    private HCasDatabaseHelper helper;
+
+    @Before
+    public void seed() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long start = System.nanoTime();
+        SeedData.patients(db, ROWS);
+        SeedData.prescriptions(db, ROWS, ROWS / 2);
+        SeedData.rfidTags(db, ROWS);
+        SeedData.medicines(db, ROWS / 10);
+        SeedData.employees(db, ROWS / 100);
+        Log.d(TAG, "Seeded in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @After
+    public void delete() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void hotQueriesSeekIndexes() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("ANALYZE");
+        List<Measurement> indexed = measureAll(db);
+
+        for (String name : versionSevenIndexes()) {
+            db.execSQL("DROP INDEX IF EXISTS " + name);
+        }
+        db.execSQL("ANALYZE");
+        List<Measurement> unindexed = measureAll(db);
+
+        StringBuilder report = new StringBuilder(String.format(Locale.US, "%d rows, median of %d runs%n", ROWS, RUNS));
+        for (int i = 0; i < indexed.size(); i++) {
+            Measurement before = unindexed.get(i);
+            Measurement after = indexed.get(i);
+            report.append(String.format(Locale.US, "%8dus -> %6dus  rows=%d%n    before: %s%n    after:  %s%n",
+                                        before.medianMicros, after.medianMicros, after.rows,
+                                        before.plan, after.plan));
+        }
+        Log.d(TAG, report.toString());
+
+        for (Measurement after : indexed) {
+            // Every table of every hot path is read through an index (or the primary key)
+            // once they exist, not just one step of the plan
+            List<String> scans = tableScans(after.plan);
+            assertTrue("Full scan of " + scans + ": " + after.plan + " for " + after.sql, scans.isEmpty());
+        }
+    }
+
+    /**
+     * The tables a plan reads without any index
+     */
+    private static List<String> tableScans(String plan) {
+        List<String> tables = new ArrayList<>();
+        for (String step : plan.split("; ")) {
+            Matcher matcher = TABLE_SCAN.matcher(step.trim());
+            if (matcher.find() && !step.contains(" USING ")) {
+                tables.add(matcher.group(1));
+            }
+        }
+        return tables;
+    }
+
+    private static List<Measurement> measureAll(SQLiteDatabase db) {
+        List<Measurement> results = new ArrayList<>();
+        for (String[] entry : HCasDatabaseHelper.HOT_QUERIES) {
+            results.add(measure(db, entry[0], entry[1] != null ? new String[]{entry[1]} : null));
+        }
+        return results;
+    }
+
+    private static Measurement measure(SQLiteDatabase db, String sql, String[] args) {
+        long[] micros = new long[RUNS];
+        int rows = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            Cursor cursor = db.rawQuery(sql, args);
+            try {
+                rows = 0;
+                while (cursor.moveToNext()) {
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            micros[run] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        return new Measurement(sql, HCasDatabaseHelper.explainQueryPlan(db, sql, args), micros[RUNS / 2], rows);
+    }
+
+    private static List<String> versionSevenIndexes() {
+        List<String> statements = new ArrayList<>();
+        Collections.addAll(statements, HCasDatabaseHelper.CREATE_INDEXES);
+        Collections.addAll(statements, HCasDatabaseHelper.CREATE_KEYSET_INDEXES);
+        statements.add(HCasDatabaseHelper.CREATE_PRESCRIPTION_STATUS_INDEX);
+
+        List<String> names = new ArrayList<>();
+        for (String statement : statements) {
+            Matcher matcher = INDEX_NAME.matcher(statement);
+            if (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        }
+        return names;
+    }
+
+    private static final class Measurement {
+        final String sql;
+        final String plan;
+        final long medianMicros;
+        final int rows;
+
+        Measurement(String sql, String plan, long medianMicros, int rows) {
+            this.sql = sql;
+            this.plan = plan;
+            this.medianMicros = medianMicros;
+            this.rows = rows;
+        }
+    }
+}
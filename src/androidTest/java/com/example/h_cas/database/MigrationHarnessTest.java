@@ -0,0 +1,293 @@
+package com.example.h_cas.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.utils.PasswordHasher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Upgrade harness for DatabaseMigrations: builds a seeded database at each legacy
+ * version 1..6, opens it with the current helper and checks that every seeded row is
+ * still there and that the schema matches a fresh install's. Each step is also run a
+ * second time, which must leave every row count and the schema as they were.
+ *
+ * Versions 1-5 were never published as migrations, so their layouts here are the ones
+ * the v6 reconciliation step handles: tables added one release at a time, patients
+ * without the extended columns and employees without the profile picture column.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationHarnessTest {
+    private static final String LEGACY_DB = "migration_harness.db";
+    private static final String FRESH_DB = "migration_harness_fresh.db";
+    private static final int ROWS = 500;
+    // Every seeded employee is re-hashed by the v15 step, so keep them few
+    private static final int EMPLOYEES = 50;
+
+    private static final String LEGACY_EMPLOYEES =
+        "CREATE TABLE employees (employee_id TEXT PRIMARY KEY, first_name TEXT NOT NULL, " +
+        "last_name TEXT NOT NULL, email TEXT UNIQUE NOT NULL, phone TEXT NOT NULL, role TEXT NOT NULL, " +
+        "username TEXT UNIQUE NOT NULL, password TEXT NOT NULL, created_date DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+        "is_active INTEGER DEFAULT 1)";
+    private static final String LEGACY_PATIENTS =
+        "CREATE TABLE patients (patient_id TEXT PRIMARY KEY, first_name TEXT NOT NULL, last_name TEXT NOT NULL, " +
+        "date_of_birth TEXT, gender TEXT, address TEXT, phone TEXT, email TEXT, emergency_contact_name TEXT, " +
+        "emergency_contact_phone TEXT, created_date DATETIME DEFAULT CURRENT_TIMESTAMP)";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(LEGACY_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(LEGACY_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @Test
+    public void upgradesKeepRowsFromEveryLegacyVersion() {
+        Set<String> freshSchema = schemaOf(FRESH_DB);
+        for (int version = 1; version <= 6; version++) {
+            context.deleteDatabase(LEGACY_DB);
+            Map<String, Long> seeded = createLegacyDatabase(version);
+
+            HCasDatabaseHelper helper = HCasDatabaseHelper.openForTesting(context, LEGACY_DB);
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                for (Map.Entry<String, Long> table : seeded.entrySet()) {
+                    assertEquals("v" + version + " " + table.getKey() + " rows",
+                                 (long) table.getValue(), SeedData.count(db, table.getKey()));
+                }
+                assertEquals("v" + version + " schema", freshSchema, schemaOf(db));
+                assertPasswordsHashed(db, version);
+            } finally {
+                helper.close();
+            }
+        }
+    }
+
+    @Test
+    public void rerunningAStepChangesNothing() {
+        int currentVersion;
+        HCasDatabaseHelper fresh = HCasDatabaseHelper.openForTesting(context, FRESH_DB);
+        try {
+            currentVersion = fresh.getWritableDatabase().getVersion();
+        } finally {
+            fresh.close();
+        }
+
+        // The last legacy layout that still needs the v6 reconciliation
+        createLegacyDatabase(5);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(context.getDatabasePath(LEGACY_DB).getPath(), null,
+                                                        SQLiteDatabase.OPEN_READWRITE);
+        try {
+            for (int version = 6; version <= currentVersion; version++) {
+                DatabaseMigrations.migrate(db, version - 1, version);
+                Map<String, Long> rows = rowCounts(db);
+                Set<String> schema = schemaOf(db);
+
+                DatabaseMigrations.migrate(db, version - 1, version);
+                assertEquals("v" + version + " re-run rows", rows, rowCounts(db));
+                assertEquals("v" + version + " re-run schema", schema, schemaOf(db));
+            }
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Create and seed the layout of a legacy version, returning the row count of every table
+     */
+    private Map<String, Long> createLegacyDatabase(int version) {
+        Map<String, Long> seeded = new LinkedHashMap<>();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(LEGACY_DB), null);
+        try {
+            db.execSQL(version >= 6 ? HCasDatabaseHelper.CREATE_EMPLOYEES_TABLE : LEGACY_EMPLOYEES);
+            db.execSQL(HCasDatabaseHelper.CREATE_CASES_TABLE);
+            SeedData.employees(db, EMPLOYEES);
+            seeded.put(HCasDatabaseHelper.TABLE_EMPLOYEES, (long) EMPLOYEES);
+            seedCases(db);
+            seeded.put(HCasDatabaseHelper.TABLE_CASES, (long) ROWS);
+
+            if (version >= 2) {
+                if (version >= 6) {
+                    db.execSQL(HCasDatabaseHelper.CREATE_PATIENTS_TABLE);
+                    SeedData.patients(db, ROWS);
+                } else {
+                    db.execSQL(LEGACY_PATIENTS);
+                    seedLegacyPatients(db);
+                }
+                seeded.put(HCasDatabaseHelper.TABLE_PATIENTS, (long) ROWS);
+            }
+            if (version >= 3) {
+                db.execSQL(HCasDatabaseHelper.CREATE_PRESCRIPTIONS_TABLE);
+                SeedData.prescriptions(db, ROWS, ROWS);
+                seeded.put(HCasDatabaseHelper.TABLE_PRESCRIPTIONS, (long) ROWS);
+            }
+            if (version >= 4) {
+                db.execSQL(HCasDatabaseHelper.CREATE_MEDICINES_TABLE);
+                SeedData.medicines(db, ROWS);
+                seeded.put(HCasDatabaseHelper.TABLE_MEDICINES, (long) ROWS);
+            }
+            if (version >= 5) {
+                db.execSQL(HCasDatabaseHelper.CREATE_RFID_DATA_TABLE);
+                SeedData.rfidTags(db, ROWS);
+                seeded.put(HCasDatabaseHelper.TABLE_RFID_DATA, (long) ROWS);
+            }
+            db.setVersion(version);
+        } finally {
+            db.close();
+        }
+        return seeded;
+    }
+
+    /**
+     * Legacy patients have no full_name, so SeedData.patients cannot fill them
+     */
+    private static void seedLegacyPatients(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                db.execSQL("INSERT INTO " + HCasDatabaseHelper.TABLE_PATIENTS + " (" +
+                           HCasDatabaseHelper.COLUMN_PATIENT_ID + ", " + HCasDatabaseHelper.COLUMN_PATIENT_FIRST_NAME +
+                           ", " + HCasDatabaseHelper.COLUMN_PATIENT_LAST_NAME + ") VALUES (?, ?, ?)",
+                           new Object[]{"P" + i, "First" + i, "Last" + i});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void seedCases(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                db.execSQL("INSERT INTO " + HCasDatabaseHelper.TABLE_CASES + " (" +
+                           HCasDatabaseHelper.COLUMN_PATIENT_NAME + ", " + HCasDatabaseHelper.COLUMN_CASE_TYPE + ", " +
+                           HCasDatabaseHelper.COLUMN_PRIORITY + ", " + HCasDatabaseHelper.COLUMN_STATUS +
+                           ") VALUES (?, 'General', 'Normal', 'Open')", new Object[]{"Patient " + i});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The v15 step hashes the seeded plaintext passwords
+     */
+    private static void assertPasswordsHashed(SQLiteDatabase db, int version) {
+        Cursor cursor = db.rawQuery("SELECT " + HCasDatabaseHelper.COLUMN_PASSWORD + " FROM " +
+                                    HCasDatabaseHelper.TABLE_EMPLOYEES, null);
+        try {
+            while (cursor.moveToNext()) {
+                assertTrue("v" + version + " plaintext password left", PasswordHasher.isHash(cursor.getString(0)));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Set<String> schemaOf(String name) {
+        HCasDatabaseHelper helper = HCasDatabaseHelper.openForTesting(context, name);
+        try {
+            return schemaOf(helper.getWritableDatabase());
+        } finally {
+            helper.close();
+        }
+    }
+
+    /**
+     * Every table, index and trigger with its columns, e.g. "table patients(patient_id, ...)"
+     */
+    private static Set<String> schemaOf(SQLiteDatabase db) {
+        Set<String> schema = new TreeSet<>();
+        Cursor objects = db.rawQuery("SELECT type, name FROM sqlite_master WHERE name NOT LIKE 'sqlite_%' " +
+                                     "AND name NOT LIKE 'android_%'", null);
+        try {
+            while (objects.moveToNext()) {
+                String type = objects.getString(0);
+                String name = objects.getString(1);
+                schema.add(type.equals("table") ? type + " " + name + columnsOf(db, name) : type + " " + name);
+            }
+        } finally {
+            objects.close();
+        }
+        return schema;
+    }
+
+    /**
+     * Row count of every table. The shadow tables of a full-text index are left out: a
+     * rebuild may reorganise them without changing what the index holds, which the
+     * count of the virtual table itself covers.
+     */
+    private static Map<String, Long> rowCounts(SQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        List<String> virtualTables = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT name, sql FROM sqlite_master WHERE type = 'table' " +
+                                    "AND name NOT LIKE 'sqlite_%' AND name NOT LIKE 'android_%'", null);
+        try {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+                String sql = cursor.getString(1);
+                if (sql != null && sql.toUpperCase(Locale.US).startsWith("CREATE VIRTUAL TABLE")) {
+                    virtualTables.add(cursor.getString(0));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<String, Long> counts = new TreeMap<>();
+        for (String table : tables) {
+            boolean shadow = false;
+            for (String virtualTable : virtualTables) {
+                shadow |= table.startsWith(virtualTable + "_");
+            }
+            if (!shadow) {
+                counts.put(table, SeedData.count(db, table));
+            }
+        }
+        return counts;
+    }
+
+    private static String columnsOf(SQLiteDatabase db, String table) {
+        Set<String> columns = new TreeSet<>();
+        Cursor cursor = db.rawQuery("PRAGMA table_info(\"" + table + "\")", null);
+        try {
+            int nameIdx = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(nameIdx));
+            }
+        } finally {
+            cursor.close();
+        }
+        return columns.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.h_cas.database;
+
+import android.content.Context;
+import android.graphics.pdf.PdfRenderer;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.utils.ReportExporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Exports of a large prescription cursor through ReportExporter: every row reaches the
+ * CSV, a PDF is split into parts of at most PDF_PAGES_PER_PART pages, and a cancelled
+ * export stops early without completing.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportExportTest {
+    private static final String DB_NAME = "report_export.db";
+    private static final int PRESCRIPTIONS = 12_000;
+    private static final int PATIENTS = 500;
+    private static final int CANCEL_AFTER = 1_000;
+    private static final String[] COLUMNS = {"ID", "Patient", "Medication", "Doctor", "Status"};
+
+    private Context context;
+    private HCasDatabaseHelper helper;
+    private File exportDir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+        SeedData.patients(helper.getWritableDatabase(), PATIENTS);
+        SeedData.prescriptions(helper.getWritableDatabase(), PRESCRIPTIONS, PATIENTS);
+        exportDir = new File(context.getCacheDir(), "report_export");
+        exportDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+        File[] files = exportDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        exportDir.delete();
+    }
+
+    @Test
+    public void csvHasEveryRow() throws Exception {
+        ReportExporter.FileDestination destination =
+            new ReportExporter.FileDestination(new File(exportDir, "prescriptions.csv"));
+        Outcome outcome = export(ReportExporter.Format.CSV, destination, Integer.MAX_VALUE);
+
+        assertEquals("complete", outcome.state);
+        assertEquals(PRESCRIPTIONS, outcome.rows);
+        assertEquals(1, outcome.parts);
+        assertEquals(1, destination.getFiles().size());
+
+        int detailRows = 0;
+        boolean header = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(destination.getFiles().get(0)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("PRE")) {
+                    detailRows++;
+                } else if (line.startsWith("ID,")) {
+                    header = true;
+                }
+            }
+        }
+        assertTrue("header row", header);
+        assertEquals(PRESCRIPTIONS, detailRows);
+    }
+
+    @Test
+    public void pdfIsSplitIntoBoundedParts() throws Exception {
+        ReportExporter.FileDestination destination =
+            new ReportExporter.FileDestination(new File(exportDir, "prescriptions.pdf"));
+        Outcome outcome = export(ReportExporter.Format.PDF, destination, Integer.MAX_VALUE);
+
+        assertEquals("complete", outcome.state);
+        assertEquals(PRESCRIPTIONS, outcome.rows);
+        List<File> files = destination.getFiles();
+        assertEquals(outcome.parts, files.size());
+        assertTrue(files.size() + " parts", files.size() > 1);
+        assertEquals("prescriptions_part2.pdf", files.get(1).getName());
+
+        for (File file : files) {
+            assertTrue(file.getName(), startsWithPdfHeader(file));
+            int pages = pageCount(file);
+            assertTrue(file.getName() + ": " + pages + " pages",
+                       pages > 0 && pages <= ReportExporter.PDF_PAGES_PER_PART);
+        }
+    }
+
+    @Test
+    public void cancelledExportStopsEarly() throws Exception {
+        ReportExporter.FileDestination destination =
+            new ReportExporter.FileDestination(new File(exportDir, "cancelled.pdf"));
+        Outcome outcome = export(ReportExporter.Format.PDF, destination, CANCEL_AFTER);
+
+        assertEquals("cancelled", outcome.state);
+        assertTrue(outcome.delivered.get() + " rows read",
+                   outcome.delivered.get() <= CANCEL_AFTER + 1);
+
+        destination.delete();
+        for (File file : destination.getFiles()) {
+            assertTrue(file.getName(), !file.exists());
+        }
+    }
+
+    /**
+     * Export every prescription, cancelling the task once cancelAfter rows have been read
+     */
+    private Outcome export(ReportExporter.Format format, ReportExporter.Destination destination,
+                           int cancelAfter) throws InterruptedException {
+        Outcome outcome = new Outcome();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<ReportExporter.Task> task = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        ReportExporter.Source source = new ReportExporter.Source() {
+            @Override
+            public String getTitle() {
+                return "Prescription Report";
+            }
+
+            @Override
+            public List<String> getSummary() {
+                return Collections.singletonList("Total Prescriptions: " + PRESCRIPTIONS);
+            }
+
+            @Override
+            public String[] getColumns() {
+                return COLUMNS;
+            }
+
+            @Override
+            public int getExpectedRows() {
+                return PRESCRIPTIONS;
+            }
+
+            @Override
+            public void forEachRow(RowCallback<String[]> sink) {
+                awaitQuietly(started);
+                helper.forEachPrescription(null, null, null, prescription -> {
+                    if (outcome.delivered.incrementAndGet() == cancelAfter) {
+                        task.get().cancel();
+                    }
+                    return sink.onRow(new String[]{
+                        prescription.getPrescriptionId(), prescription.getPatientName(),
+                        prescription.getMedication(), prescription.getDoctorName(), prescription.getStatus()});
+                });
+            }
+        };
+
+        task.set(ReportExporter.export(source, format, destination, new ReportExporter.Listener() {
+            @Override
+            public void onProgress(int rowsWritten, int expectedRows) {
+            }
+
+            @Override
+            public void onComplete(int rowsWritten, int parts) {
+                outcome.state = "complete";
+                outcome.rows = rowsWritten;
+                outcome.parts = parts;
+                done.countDown();
+            }
+
+            @Override
+            public void onCancelled() {
+                outcome.state = "cancelled";
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                outcome.state = "error: " + e;
+                done.countDown();
+            }
+        }));
+        started.countDown();
+
+        assertTrue("export timed out", done.await(5, TimeUnit.MINUTES));
+        return outcome;
+    }
+
+    private static boolean startsWithPdfHeader(File file) throws IOException {
+        byte[] header = new byte[5];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read(header) == header.length &&
+                   Arrays.equals(header, "%PDF-".getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static int pageCount(File file) throws IOException {
+        try (ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+             PdfRenderer renderer = new PdfRenderer(descriptor)) {
+            return renderer.getPageCount();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Outcome {
+        final AtomicInteger delivered = new AtomicInteger();
+        volatile String state;
+        volatile int rows;
+        volatile int parts;
+    }
+}
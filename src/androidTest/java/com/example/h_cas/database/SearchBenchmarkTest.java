@@ -0,0 +1,108 @@
+package com.example.h_cas.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.models.Patient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmark for patient search: seeds 100k named patients, then times searchPatients
+ * for a prefix, a multi-word and a misspelt query at the screens' limit of 100 rows.
+ * Each query is run once to warm the statement cache and the correction vocabulary,
+ * and the median of the following runs must stay within the as-you-type budget. The
+ * timings are logged under "SearchBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchBenchmarkTest {
+    private static final String TAG = "SearchBenchmark";
+    private static final String DB_NAME = "search_benchmark.db";
+
+    private static final int ROWS = 100_000;
+    private static final int RUNS = 15;
+    private static final int LIMIT = 100;
+    private static final long BUDGET_MICROS = 20_000;
+
+    private Context context;
+    private HCasDatabaseHelper helper;
+
+    @Before
+    public void seed() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+
+        long start = System.nanoTime();
+        SeedData.namedPatients(helper.getWritableDatabase(), ROWS);
+        helper.getWritableDatabase().execSQL("ANALYZE");
+        Log.d(TAG, "Seeded in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @After
+    public void delete() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void prefixQuery() {
+        List<Patient> found = measure("prefix", "sant");
+        for (Patient patient : found) {
+            assertTrue(patient.getLastName(), patient.getLastName().startsWith("Sant"));
+        }
+    }
+
+    @Test
+    public void multiWordQuery() {
+        List<Patient> found = measure("multi-word", "maria santos");
+        for (Patient patient : found) {
+            assertEquals("Maria Santos", patient.getFirstName() + " " + patient.getLastName());
+        }
+    }
+
+    @Test
+    public void misspeltQuery() {
+        List<Patient> found = measure("typo", "maria sntos");
+        for (Patient patient : found) {
+            assertEquals("Maria Santos", patient.getFirstName() + " " + patient.getLastName());
+        }
+    }
+
+    /**
+     * Search query RUNS times after a warm-up, check the median against the budget and
+     * return the last result, which must be a full page
+     */
+    private List<Patient> measure(String label, String query) {
+        helper.searchPatients(query, false, LIMIT);
+
+        long[] micros = new long[RUNS];
+        List<Patient> found = null;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            found = helper.searchPatients(query, false, LIMIT);
+            micros[run] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        long median = micros[RUNS / 2];
+        Log.d(TAG, String.format(Locale.US, "%-10s \"%s\": median %dus, max %dus, %d rows",
+                                 label, query, median, micros[RUNS - 1], found.size()));
+
+        assertEquals(label + " rows", LIMIT, found.size());
+        assertTrue(label + " median " + median + "us over budget", median <= BUDGET_MICROS);
+        return found;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.h_cas.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.h_cas.models.Patient;
+import com.example.h_cas.models.Prescription;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Search results come newest first by created date, not in the order rows were written
+ * locally: an old record written last must not jump to the top.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchOrderTest {
+    private static final String DB_NAME = "search_order.db";
+    private static final int ROWS = 50;
+
+    private Context context;
+    private HCasDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        helper = HCasDatabaseHelper.openForTesting(context, DB_NAME);
+        SeedData.patients(helper.getWritableDatabase(), ROWS);
+        SeedData.prescriptions(helper.getWritableDatabase(), ROWS, ROWS);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void oldPatientWrittenLastSortsLast() {
+        ContentValues values = new ContentValues();
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_ID, "POLD");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_FIRST_NAME, "FirstOld");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_LAST_NAME, "Synced");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_FULL_NAME, "FirstOld Synced");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_CREATED_DATE, "2020-01-01 00:00:00");
+        helper.getWritableDatabase().insertOrThrow(HCasDatabaseHelper.TABLE_PATIENTS, null, values);
+
+        List<Patient> all = helper.searchPatients("first", false, ROWS + 1);
+        assertEquals(ROWS + 1, all.size());
+        assertEquals("P0", all.get(0).getPatientId());
+        assertEquals("POLD", all.get(ROWS).getPatientId());
+
+        List<Patient> top = helper.searchPatients("first", false, 5);
+        assertEquals("P0", top.get(0).getPatientId());
+        assertEquals("P4", top.get(4).getPatientId());
+    }
+
+    @Test
+    public void oldPrescriptionWrittenLastSortsLast() {
+        ContentValues values = new ContentValues();
+        values.put(HCasDatabaseHelper.COLUMN_PRESCRIPTION_ID, "PREOLD");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_ID, "P0");
+        values.put(HCasDatabaseHelper.COLUMN_PATIENT_NAME, "First0 Last0");
+        values.put(HCasDatabaseHelper.COLUMN_MEDICATION, "Paracetamol");
+        values.put(HCasDatabaseHelper.COLUMN_DOSAGE, "500mg");
+        values.put(HCasDatabaseHelper.COLUMN_FREQUENCY, "Twice daily");
+        values.put(HCasDatabaseHelper.COLUMN_DURATION, "7 days");
+        values.put(HCasDatabaseHelper.COLUMN_DOCTOR_NAME, "Dr. John Smith");
+        values.put(HCasDatabaseHelper.COLUMN_CREATED_DATE, "2020-01-01 00:00:00");
+        helper.getWritableDatabase().insertOrThrow(HCasDatabaseHelper.TABLE_PRESCRIPTIONS, null, values);
+
+        List<Prescription> all = helper.searchPrescriptions("smith", null, ROWS + 1);
+        assertEquals(ROWS + 1, all.size());
+        assertEquals("PRE0", all.get(0).getPrescriptionId());
+        assertEquals("PREOLD", all.get(ROWS).getPrescriptionId());
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.h_cas.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Locale;
+
+/**
+ * Bulk synthetic rows for the instrumented tests and benchmarks. Inserts go through
+ * compiled statements in one transaction per call, so the triggers on each table fire
+ * as they would for real writes.
+ */
+final class SeedData {
+
+    private static final String[] MEDICATIONS = {
+        "Paracetamol", "Amoxicillin", "Ibuprofen", "Metformin", "Amlodipine",
+        "Omeprazole", "Losartan", "Salbutamol", "Cetirizine", "Atorvastatin"
+    };
+    private static final String[] STATUSES = {"Pending", "Active", "Dispensed", "Rejected"};
+    private static final String[] FIRST_NAMES = {
+        "Maria", "Jose", "Juan", "Ana", "Rosa", "Pedro", "Carmen", "Luis", "Elena", "Miguel",
+        "Teresa", "Carlos", "Isabel", "Antonio", "Lucia", "Ramon", "Sofia", "Manuel", "Gloria", "Roberto"
+    };
+    private static final String[] LAST_NAMES = {
+        "Santos", "Reyes", "Cruz", "Bautista", "Ocampo", "Garcia", "Mendoza", "Torres", "Tomas", "Andrada",
+        "Castillo", "Flores", "Villanueva", "Ramos", "Castro", "Rivera", "Aquino", "Navarro", "Salazar",
+        "Mercado", "Aguilar", "Santiago", "Pascual", "Valdez", "Gonzales"
+    };
+
+    private SeedData() {
+    }
+
+    /**
+     * patients P0..P(count-1), one created per minute going back from 2025-06-30
+     */
+    static void patients(SQLiteDatabase db, int count) {
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_PATIENTS + " (" +
+            HCasDatabaseHelper.COLUMN_PATIENT_ID + ", " + HCasDatabaseHelper.COLUMN_PATIENT_FIRST_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_LAST_NAME + ", " + HCasDatabaseHelper.COLUMN_PATIENT_FULL_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_CREATED_DATE + ") VALUES (?, ?, ?, ?, datetime('2025-06-30', ?))");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                insert.bindString(1, "P" + i);
+                insert.bindString(2, "First" + i);
+                insert.bindString(3, "Last" + (i % 997));
+                insert.bindString(4, "First" + i + " Last" + (i % 997));
+                insert.bindString(5, "-" + i + " minutes");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * patients N0..N(count-1) named from lists of common first and last names, so searches
+     * (and spelling corrections) see real words; created one per minute like patients()
+     */
+    static void namedPatients(SQLiteDatabase db, int count) {
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_PATIENTS + " (" +
+            HCasDatabaseHelper.COLUMN_PATIENT_ID + ", " + HCasDatabaseHelper.COLUMN_PATIENT_FIRST_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_LAST_NAME + ", " + HCasDatabaseHelper.COLUMN_PATIENT_FULL_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_CREATED_DATE + ") VALUES (?, ?, ?, ?, datetime('2025-06-30', ?))");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                String first = FIRST_NAMES[i % FIRST_NAMES.length];
+                String last = LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+                insert.bindString(1, "N" + i);
+                insert.bindString(2, first);
+                insert.bindString(3, last);
+                insert.bindString(4, first + " " + last);
+                insert.bindString(5, "-" + i + " minutes");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * prescriptions PRE0..PRE(count-1), spread over patients P0..P(patients-1)
+     */
+    static void prescriptions(SQLiteDatabase db, int count, int patients) {
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_PRESCRIPTIONS + " (" +
+            HCasDatabaseHelper.COLUMN_PRESCRIPTION_ID + ", " + HCasDatabaseHelper.COLUMN_PATIENT_ID + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_NAME + ", " + HCasDatabaseHelper.COLUMN_MEDICATION + ", " +
+            HCasDatabaseHelper.COLUMN_DOSAGE + ", " + HCasDatabaseHelper.COLUMN_FREQUENCY + ", " +
+            HCasDatabaseHelper.COLUMN_DURATION + ", " + HCasDatabaseHelper.COLUMN_DOCTOR_ID + ", " +
+            HCasDatabaseHelper.COLUMN_DOCTOR_NAME + ", " + HCasDatabaseHelper.COLUMN_STATUS + ", " +
+            HCasDatabaseHelper.COLUMN_CREATED_DATE + ") VALUES (?, ?, ?, ?, '500mg', 'Twice daily', '7 days', " +
+            "'DOC001', 'Dr. John Smith', ?, datetime('2025-06-30', ?))");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                int patient = i % patients;
+                insert.bindString(1, "PRE" + i);
+                insert.bindString(2, "P" + patient);
+                insert.bindString(3, "First" + patient + " Last" + (patient % 997));
+                insert.bindString(4, MEDICATIONS[i % MEDICATIONS.length]);
+                insert.bindString(5, STATUSES[i % STATUSES.length]);
+                insert.bindString(6, "-" + i + " minutes");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * RFID tags RFID0..RFID(count-1) for prescriptions PRE0.., every other one dispensed
+     */
+    static void rfidTags(SQLiteDatabase db, int count) {
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_RFID_DATA + " (" +
+            HCasDatabaseHelper.COLUMN_RFID_TAG_ID + ", " + HCasDatabaseHelper.COLUMN_PATIENT_ID + ", " +
+            HCasDatabaseHelper.COLUMN_PATIENT_NAME + ", " + HCasDatabaseHelper.COLUMN_PRESCRIPTION_ID + ", " +
+            HCasDatabaseHelper.COLUMN_MEDICATION + ", " + HCasDatabaseHelper.COLUMN_DOSAGE + ", " +
+            HCasDatabaseHelper.COLUMN_FREQUENCY + ", " + HCasDatabaseHelper.COLUMN_DURATION + ", " +
+            HCasDatabaseHelper.COLUMN_DOCTOR_NAME + ", " + HCasDatabaseHelper.COLUMN_IS_DISPENSED +
+            ") VALUES (?, ?, 'Seeded patient', ?, ?, '500mg', 'Twice daily', '7 days', 'Dr. John Smith', ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                insert.bindString(1, "RFID" + i);
+                insert.bindString(2, "P" + i);
+                insert.bindString(3, "PRE" + i);
+                insert.bindString(4, MEDICATIONS[i % MEDICATIONS.length]);
+                insert.bindLong(5, i % 2);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * medicines MED0..MED(count-1) with varied stock and expiry dates
+     */
+    static void medicines(SQLiteDatabase db, int count) {
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_MEDICINES + " (" +
+            HCasDatabaseHelper.COLUMN_MEDICINE_ID + ", " + HCasDatabaseHelper.COLUMN_MEDICINE_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_MEDICINE_DOSAGE + ", " + HCasDatabaseHelper.COLUMN_STOCK_QUANTITY + ", " +
+            HCasDatabaseHelper.COLUMN_UNIT + ", " + HCasDatabaseHelper.COLUMN_CATEGORY + ", " +
+            HCasDatabaseHelper.COLUMN_EXPIRY_DATE + ", " + HCasDatabaseHelper.COLUMN_PRICE +
+            ") VALUES (?, ?, '500mg', ?, 'tablets', ?, date('2025-10-01', ?), 1.5)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                insert.bindString(1, "MED" + i);
+                insert.bindString(2, MEDICATIONS[i % MEDICATIONS.length] + " " + i);
+                insert.bindLong(3, i % 500);
+                insert.bindString(4, "Category" + (i % 12));
+                insert.bindString(5, "+" + (i % 1500) + " days");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * employees E0..E(count-1) across the clinical roles, with placeholder passwords
+     */
+    static void employees(SQLiteDatabase db, int count) {
+        String[] roles = {"Doctor", "Nurse", "Pharmacist"};
+        SQLiteStatement insert = db.compileStatement(
+            "INSERT INTO " + HCasDatabaseHelper.TABLE_EMPLOYEES + " (" +
+            HCasDatabaseHelper.COLUMN_EMPLOYEE_ID + ", " + HCasDatabaseHelper.COLUMN_FIRST_NAME + ", " +
+            HCasDatabaseHelper.COLUMN_LAST_NAME + ", " + HCasDatabaseHelper.COLUMN_EMAIL + ", " +
+            HCasDatabaseHelper.COLUMN_PHONE + ", " + HCasDatabaseHelper.COLUMN_ROLE + ", " +
+            HCasDatabaseHelper.COLUMN_USERNAME + ", " + HCasDatabaseHelper.COLUMN_PASSWORD + ", " +
+            HCasDatabaseHelper.COLUMN_IS_ACTIVE + ") VALUES (?, 'Staff', ?, ?, '0000000000', ?, ?, 'unused', ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                insert.bindString(1, "E" + i);
+                insert.bindString(2, "Member" + i);
+                insert.bindString(3, String.format(Locale.US, "staff%d@hcas.test", i));
+                insert.bindString(4, roles[i % roles.length]);
+                insert.bindString(5, "staff" + i);
+                insert.bindLong(6, i % 10 == 0 ? 0 : 1);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    static long count(SQLiteDatabase db, String table) {
+        return DatabaseUtils.queryNumEntries(db, table);
+    }
+}
@@ -1,20 +1,16 @@
 package com.example.h_cas;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.ImageLoader;
+import com.example.h_cas.utils.SessionManager;
 
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
@@ -109,9 +105,13 @@ public class AdminDashboardActivity extends AppCompatActivity implements Navigat
         TextView adminRoleTextView = headerView.findViewById(R.id.adminRoleTextView);
         ImageView adminAvatarImageView = headerView.findViewById(R.id.adminAvatarImageView);
         
-        // Load admin data from database
-        HCasDatabaseHelper databaseHelper = new HCasDatabaseHelper(this);
-        Employee admin = databaseHelper.getEmployeeByUsername("admin");
+        // The signed-in admin from the session; the database only if it does not hold them
+        SessionManager session = SessionManager.getInstance(this);
+        Employee admin = session.getEmployee("admin");
+        if (admin == null) {
+            admin = HCasDatabaseHelper.getInstance(this).getEmployeeByUsername("admin");
+            session.updateEmployee(admin);
+        }
         
         if (admin != null) {
             adminNameTextView.setText(admin.getFullName());
@@ -138,29 +138,10 @@ public class AdminDashboardActivity extends AppCompatActivity implements Navigat
     }
     
     /**
-     * Load profile picture from URL
+     * Load profile picture from URL, scaled to the avatar and cached
      */
     private void loadProfilePicture(ImageView imageView, String imageUrl) {
-        if (imageUrl != null && !imageUrl.isEmpty()) {
-            new Thread(() -> {
-                try {
-                    URL url = new URL(imageUrl);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setDoInput(true);
-                    connection.connect();
-                    InputStream input = connection.getInputStream();
-                    Bitmap bitmap = BitmapFactory.decodeStream(input);
-                    
-                    runOnUiThread(() -> {
-                        if (bitmap != null) {
-                            imageView.setImageBitmap(bitmap);
-                        }
-                    });
-                } catch (Exception e) {
-                    // Keep default avatar on error
-                }
-            }).start();
-        }
+        ImageLoader.getInstance(this).load(imageUrl, imageView, 0);
     }
 
     /**
@@ -209,7 +190,7 @@ public class AdminDashboardActivity extends AppCompatActivity implements Navigat
      * Handle admin logout
      */
     private void handleLogout() {
-        // Clear any admin session data here
+        SessionManager.getInstance(this).end();
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
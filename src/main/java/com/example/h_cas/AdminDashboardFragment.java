@@ -16,6 +16,8 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DashboardStats;
+import com.example.h_cas.utils.DatabaseExecutor;
 
 /**
  * AdminDashboardFragment displays the main dashboard with system overview
@@ -50,7 +52,7 @@ public class AdminDashboardFragment extends Fragment {
         generateReportsButton = view.findViewById(R.id.generateReportsButton);
         
         welcomeTextView.setText("Welcome to H-CAS Admin Dashboard");
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupQuickActionButtons() {
@@ -80,29 +82,32 @@ public class AdminDashboardFragment extends Fragment {
     }
 
     private void setupStatsRecyclerView() {
-        // Get real data from database
-        int totalEmployees = databaseHelper.getTotalEmployeesCount();
-        int nurses = databaseHelper.getEmployeesCountByRole("Nurse");
-        int doctors = databaseHelper.getEmployeesCountByRole("Doctor");
-        int pharmacists = databaseHelper.getEmployeesCountByRole("Pharmacist");
-        int todaysCases = databaseHelper.getTodaysCasesCount();
-        int pendingReviews = databaseHelper.getPendingReviewsCount();
-        
-        // Create stats data from database
-        String[] statsLabels = {"Total Employees", "Active Nurses", "Doctors", "Pharmacists", "Today's Cases", "Pending Reviews"};
-        String[] statsValues = {
-            String.valueOf(totalEmployees),
-            String.valueOf(nurses),
-            String.valueOf(doctors),
-            String.valueOf(pharmacists),
-            String.valueOf(todaysCases),
-            String.valueOf(pendingReviews)
-        };
-        int[] statsColors = {R.color.primary_blue, R.color.success_green, R.color.warning_orange, R.color.accent_blue, R.color.error_red, R.color.text_secondary};
-
-        StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
-        statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
-        statsRecyclerView.setAdapter(adapter);
+        // Load stats in background to avoid blocking UI; the snapshot is usually already in memory
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            DashboardStats stats = databaseHelper.getDashboardStats();
+
+            // Create stats data from database
+            final String[] statsLabels = {"Total Employees", "Active Nurses", "Doctors", "Pharmacists", "Today's Cases", "Pending Reviews"};
+            final String[] statsValues = {
+                String.valueOf(stats.getTotalEmployees()),
+                String.valueOf(stats.getEmployeesCountByRole("Nurse")),
+                String.valueOf(stats.getEmployeesCountByRole("Doctor")),
+                String.valueOf(stats.getEmployeesCountByRole("Pharmacist")),
+                String.valueOf(stats.getTotalPatients()),
+                String.valueOf(stats.getPatientsWithoutPrescriptions())
+            };
+            final int[] statsColors = {R.color.primary_blue, R.color.success_green, R.color.warning_orange, R.color.accent_blue, R.color.error_red, R.color.text_secondary};
+
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) {
+                    return; // Fragment is detached
+                }
+
+                StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
+                statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
+                statsRecyclerView.setAdapter(adapter);
+            });
+        });
     }
 
     // Simple RecyclerView adapter for stats cards
@@ -3,7 +3,6 @@ package com.example.h_cas;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -21,9 +20,6 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import android.graphics.drawable.BitmapDrawable;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.storage.FirebaseStorage;
@@ -32,8 +28,9 @@ import com.google.firebase.storage.UploadTask;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.ImageLoader;
+import com.example.h_cas.utils.SessionManager;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -64,6 +61,7 @@ public class AdminProfileFragment extends Fragment {
     // Data
     private Employee currentAdmin;
     private HCasDatabaseHelper databaseHelper;
+    private SessionManager session;
     private String loggedInUsername;
     private String loggedInEmployeeId;
     
@@ -125,7 +123,8 @@ public class AdminProfileFragment extends Fragment {
      * Initialize data from database
      */
     private void initializeData() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
+        session = SessionManager.getInstance(requireContext());
         
         // Get admin username (default is "admin")
         loggedInUsername = "admin";
@@ -163,8 +162,13 @@ public class AdminProfileFragment extends Fragment {
      */
     private void loadAdminProfile() {
         try {
-            // Load admin data from database
-            Employee adminData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+            // The session holds the signed-in admin; read the row only if it does not
+            // (e.g. after a restart) and keep it there for the next visit
+            Employee adminData = session.getEmployee(loggedInUsername);
+            if (adminData == null) {
+                adminData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+                session.updateEmployee(adminData);
+            }
             if (adminData != null) {
                 currentAdmin = adminData;
                 
@@ -197,45 +201,11 @@ public class AdminProfileFragment extends Fragment {
     }
 
     /**
-     * Load profile picture from URL
+     * Load profile picture from URL, scaled to the view and cached
      */
     private void loadProfilePicture(String imageUrl) {
-        if (getContext() != null && imageUrl != null && !imageUrl.isEmpty()) {
-            try {
-                // Load image in background thread
-                new Thread(() -> {
-                    try {
-                        URL url = new URL(imageUrl);
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                        connection.setDoInput(true);
-                        connection.connect();
-                        InputStream input = connection.getInputStream();
-                        Bitmap bitmap = BitmapFactory.decodeStream(input);
-                        
-                        // Update UI on main thread
-                        if (getActivity() != null) {
-                            getActivity().runOnUiThread(() -> {
-                                if (bitmap != null) {
-                                    profileImageView.setImageBitmap(bitmap);
-                                } else {
-                                    profileImageView.setImageResource(R.drawable.ic_admin_avatar);
-                                }
-                            });
-                        }
-                    } catch (Exception e) {
-                        // Fallback to default avatar on error
-                        if (getActivity() != null) {
-                            getActivity().runOnUiThread(() -> {
-                                profileImageView.setImageResource(R.drawable.ic_admin_avatar);
-                            });
-                        }
-                    }
-                }).start();
-            } catch (Exception e) {
-                profileImageView.setImageResource(R.drawable.ic_admin_avatar);
-            }
-        } else {
-            profileImageView.setImageResource(R.drawable.ic_admin_avatar);
+        if (getContext() != null) {
+            ImageLoader.getInstance(getContext()).load(imageUrl, profileImageView, R.drawable.ic_admin_avatar);
         }
     }
 
@@ -305,37 +275,35 @@ public class AdminProfileFragment extends Fragment {
         
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == getActivity().RESULT_OK) {
             if (data != null) {
+                ImageLoader.UploadListener upload = new ImageLoader.UploadListener() {
+                    @Override
+                    public void onReady(byte[] jpeg) {
+                        uploadProfilePicture(jpeg);
+                    }
+
+                    @Override
+                    public void onFailed(Exception error) {
+                        showToast("❌ Error reading image: " + error.getMessage());
+                    }
+                };
                 if (data.getExtras() != null && data.getExtras().get("data") != null) {
                     // Photo taken from camera
                     Bitmap photo = (Bitmap) data.getExtras().get("data");
-                    imageUri = getImageUri(photo);
+                    ImageLoader.getInstance(requireContext()).prepareUpload(photo, getViewLifecycleOwner(), upload);
                 } else if (data.getData() != null) {
                     // Image selected from gallery
                     imageUri = data.getData();
-                }
-                
-                if (imageUri != null) {
-                    uploadProfilePicture(imageUri);
+                    ImageLoader.getInstance(requireContext()).prepareUpload(imageUri, getViewLifecycleOwner(), upload);
                 }
             }
         }
     }
 
     /**
-     * Convert Bitmap to Uri
-     */
-    private Uri getImageUri(Bitmap bitmap) {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, bytes);
-        String path = MediaStore.Images.Media.insertImage(getContext().getContentResolver(), bitmap, "Title", null);
-        return Uri.parse(path);
-    }
-
-    /**
-     * Upload profile picture to Firebase Storage
+     * Upload a resized, recompressed profile picture to Firebase Storage
      */
-    private void uploadProfilePicture(Uri imageUri) {
-        if (imageUri == null || getContext() == null) {
+    private void uploadProfilePicture(byte[] imageData) {
+        if (imageData == null || getContext() == null) {
             showToast("Error: Invalid image");
             return;
         }
@@ -347,8 +315,8 @@ public class AdminProfileFragment extends Fragment {
             String fileName = "profile_" + loggedInEmployeeId + "_" + System.currentTimeMillis() + ".jpg";
             StorageReference profileRef = storageReference.child("profile_pictures/" + fileName);
             
-            // Upload file
-            UploadTask uploadTask = profileRef.putFile(imageUri);
+            // Upload the recompressed image
+            UploadTask uploadTask = profileRef.putBytes(imageData);
             
             uploadTask.addOnSuccessListener(taskSnapshot -> {
                 // Get download URL
@@ -361,8 +329,12 @@ public class AdminProfileFragment extends Fragment {
                     if (updated) {
                         // Update current admin object
                         currentAdmin.setProfilePictureUrl(downloadUrl);
+                        session.updateEmployee(currentAdmin);
                         
-                        // Load the new image
+                        // Load the new image from the bytes just sent
+                        if (getContext() != null) {
+                            ImageLoader.getInstance(getContext()).put(downloadUrl, imageData);
+                        }
                         loadProfilePicture(downloadUrl);
                         
                         showToast("✅ Profile picture updated successfully!");
@@ -394,6 +366,8 @@ public class AdminProfileFragment extends Fragment {
             
             if (updated) {
                 currentAdmin.setProfilePictureUrl(null);
+                session.updateEmployee(currentAdmin);
+                ImageLoader.getInstance(requireContext()).cancel(profileImageView);
                 profileImageView.setImageResource(R.drawable.ic_admin_avatar);
                 showToast("✅ Profile picture removed");
             } else {
@@ -441,6 +415,8 @@ public class AdminProfileFragment extends Fragment {
             boolean updated = databaseHelper.updateEmployee(currentAdmin);
             
             if (updated) {
+                session.updateEmployee(currentAdmin);
+                
                 // Update UI
                 adminNameTextView.setText(currentAdmin.getFullName());
                 
@@ -18,6 +18,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
+import com.example.h_cas.database.FirebaseSyncManager;
 import com.example.h_cas.database.HCasDatabaseHelper;
 
 import java.io.File;
@@ -90,7 +91,7 @@ public class AdminSettingsFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
         sharedPreferences = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
@@ -231,6 +232,13 @@ public class AdminSettingsFragment extends Fragment {
                 return;
             }
 
+            // Recent commits sit in the -wal file until a checkpoint; copying only the
+            // database file would leave them out
+            if (!databaseHelper.checkpoint()) {
+                showToast("❌ Database is busy, try the backup again");
+                return;
+            }
+
             // Create backup file name with timestamp
             SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
             String backupFileName = "hcas_backup_" + sdf.format(new Date()) + ".db";
@@ -302,10 +310,11 @@ public class AdminSettingsFragment extends Fragment {
             csvContent.append("Summary Statistics\n");
             csvContent.append("Total Patients,Total Employees,Total Prescriptions,Total Medicines\n");
             
-            int totalPatients = databaseHelper.getAllPatients().size();
-            int totalEmployees = databaseHelper.getAllEmployees().size();
-            int totalPrescriptions = databaseHelper.getPrescriptionsCount();
-            int totalMedicines = databaseHelper.getAllMedicines().size();
+            com.example.h_cas.models.DashboardStats stats = databaseHelper.getDashboardStats();
+            int totalPatients = stats.getTotalPatients();
+            int totalEmployees = stats.getTotalEmployees();
+            int totalPrescriptions = stats.getTotalPrescriptions();
+            int totalMedicines = stats.getTotalMedicines();
             
             csvContent.append(totalPatients).append(",")
                       .append(totalEmployees).append(",")
@@ -344,17 +353,16 @@ public class AdminSettingsFragment extends Fragment {
                 return;
             }
 
-            // Get database instance and clear all tables (except employees to maintain admin access)
-            android.database.sqlite.SQLiteDatabase db = databaseHelper.getWritableDatabase();
-            
-            // Delete all data from tables (keeping employees table for admin access)
-            db.delete("patients", null, null);
-            db.delete("prescriptions", null, null);
-            db.delete("medicines", null, null);
-            db.delete("healthcare_cases", null, null);
-            db.delete("rfid_data", null, null);
-            
-            db.close();
+            // Clear all tables except employees to maintain admin access. The listeners
+            // resume from the sync marks this resets, so restart them to fetch everything again
+            FirebaseSyncManager syncManager = ((HCasApplication) requireActivity().getApplication()).getSyncManager();
+            if (syncManager != null) {
+                syncManager.stopListening();
+            }
+            databaseHelper.clearClinicalData();
+            if (syncManager != null) {
+                syncManager.startListeningToUpdates();
+            }
 
             showToast("⚠️ All patient and medical data has been cleared\n(Employee accounts preserved for system access)");
             updateDatabaseInfo();
@@ -408,10 +416,11 @@ public class AdminSettingsFragment extends Fragment {
         }
 
         try {
-            int totalPatients = databaseHelper.getAllPatients().size();
-            int totalEmployees = databaseHelper.getAllEmployees().size();
-            int totalPrescriptions = databaseHelper.getPrescriptionsCount();
-            int totalMedicines = databaseHelper.getAllMedicines().size();
+            com.example.h_cas.models.DashboardStats stats = databaseHelper.getDashboardStats();
+            int totalPatients = stats.getTotalPatients();
+            int totalEmployees = stats.getTotalEmployees();
+            int totalPrescriptions = stats.getTotalPrescriptions();
+            int totalMedicines = stats.getTotalMedicines();
 
             String info = "Total Patients: " + totalPatients + "\n"
                     + "Total Employees: " + totalEmployees + "\n"
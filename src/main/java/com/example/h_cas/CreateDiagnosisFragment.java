@@ -67,7 +67,7 @@ public class CreateDiagnosisFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupClickListeners() {
@@ -85,7 +85,7 @@ public class CreateEmployeeFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRoleSpinner() {
@@ -1,6 +1,10 @@
 package com.example.h_cas;
 
+import android.app.AlertDialog;
+import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,17 +18,24 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DrugInteraction;
 import com.example.h_cas.models.Prescription;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.DrugInteractionIndex;
+import com.example.h_cas.utils.IdGenerator;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
  * CreatePrescriptionFragment allows doctors to create prescriptions for patients.
  */
 public class CreatePrescriptionFragment extends Fragment {
+    private static final String TAG = "CreatePrescription";
 
     private TextInputEditText patientIdInput;
     private TextInputEditText medicationInput;
@@ -75,7 +86,10 @@ public class CreatePrescriptionFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
+        // Load the interaction table now so the check on save does not wait for it
+        Context context = requireContext().getApplicationContext();
+        DatabaseExecutor.getInstance().execute(() -> DrugInteractionIndex.getInstance(context));
     }
 
     private void getCurrentDoctorInfo() {
@@ -105,33 +119,109 @@ public class CreatePrescriptionFragment extends Fragment {
         String instructions = getText(instructionsInput);
 
         if (validateInputs(patientId, medication, frequency, duration)) {
-            // Get patient name from database
-            String patientName = getPatientName(patientId);
-            
-            // Create prescription object
-            Prescription prescription = new Prescription();
-            prescription.setPrescriptionId("PRE" + System.currentTimeMillis());
-            prescription.setPatientId(patientId);
-            prescription.setPatientName(patientName);
-            prescription.setMedication(medication);
-            prescription.setDosage(""); // Empty dosage since field is removed
-            prescription.setFrequency(frequency);
-            prescription.setDuration(duration);
-            prescription.setInstructions(instructions);
-            prescription.setDoctorId(currentDoctorId);
-            prescription.setDoctorName(currentDoctorName);
-            prescription.setCreatedDate(getCurrentDateTime());
-            prescription.setStatus("Active");
-            
-            // Save prescription to database
-            boolean success = databaseHelper.addPrescription(prescription);
-            
-            if (success) {
-                showToast("✅ Prescription created successfully!");
-                clearForm();
-            } else {
-                showToast("❌ Failed to create prescription. Please try again.");
+            checkInteractionsThenSave(patientId, medication, frequency, duration, instructions);
+        }
+    }
+
+    /**
+     * Check the new medication against the patient's active prescriptions off the main
+     * thread, and save straight away unless something interacts. The button is disabled
+     * while the check runs and enabled again however it ends; if the view is destroyed
+     * first the check is cancelled along with the button.
+     */
+    private void checkInteractionsThenSave(String patientId, String medication, String frequency, String duration,
+                                           String instructions) {
+        createPrescriptionButton.setEnabled(false);
+        Context context = requireContext().getApplicationContext();
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            try {
+                DrugInteractionIndex interactionIndex = DrugInteractionIndex.getInstance(context);
+                List<String> activeMedications = new ArrayList<>();
+                for (Prescription active : databaseHelper.getPrescriptionsForPatient(patientId)) {
+                    if (isActive(active)) {
+                        activeMedications.add(active.getMedication());
+                    }
+                }
+                long start = SystemClock.elapsedRealtimeNanos();
+                List<DrugInteraction> interactions = interactionIndex.check(medication, activeMedications);
+                Log.d(TAG, "Checked " + medication + " against " + activeMedications.size() +
+                           " active prescriptions in " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us");
+
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                    if (getContext() == null || getView() == null) return; // Fragment is detached
+                    if (interactions.isEmpty()) {
+                        savePrescription(patientId, medication, frequency, duration, instructions);
+                    } else {
+                        showInteractionWarning(interactions, () ->
+                            savePrescription(patientId, medication, frequency, duration, instructions));
+                    }
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Drug interaction check failed", e);
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                    if (getContext() == null || getView() == null) return; // Fragment is detached
+                    showToast("❌ Could not check drug interactions. Please try again.");
+                });
+            } finally {
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                    if (getView() != null) {
+                        createPrescriptionButton.setEnabled(true);
+                    }
+                });
             }
+        });
+    }
+
+    private boolean isActive(Prescription prescription) {
+        String status = prescription.getStatus();
+        return !"Cancelled".equalsIgnoreCase(status) && !"Completed".equalsIgnoreCase(status) &&
+               !"Rejected".equalsIgnoreCase(status);
+    }
+
+    private void showInteractionWarning(List<DrugInteraction> interactions, Runnable onSaveAnyway) {
+        StringBuilder message = new StringBuilder();
+        for (DrugInteraction interaction : interactions) {
+            message.append("⚠️ ").append(interaction.getSeverity().getLabel()).append(": ")
+                   .append(interaction.getCombination()).append("\n")
+                   .append(interaction.getEffect()).append("\n")
+                   .append("Recommendation: ").append(interaction.getRecommendation()).append("\n\n");
+        }
+        new AlertDialog.Builder(getContext())
+            .setTitle("Drug Interaction Warning")
+            .setMessage(message.toString().trim())
+            .setPositiveButton("Save Anyway", (dialog, which) -> onSaveAnyway.run())
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void savePrescription(String patientId, String medication, String frequency, String duration,
+                                  String instructions) {
+        // Get patient name from database
+        String patientName = getPatientName(patientId);
+        
+        // Create prescription object
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(IdGenerator.getInstance(requireContext()).next(IdGenerator.PREFIX_PRESCRIPTION));
+        prescription.setPatientId(patientId);
+        prescription.setPatientName(patientName);
+        prescription.setMedication(medication);
+        prescription.setDosage(""); // Empty dosage since field is removed
+        prescription.setFrequency(frequency);
+        prescription.setDuration(duration);
+        prescription.setInstructions(instructions);
+        prescription.setDoctorId(currentDoctorId);
+        prescription.setDoctorName(currentDoctorName);
+        prescription.setCreatedDate(getCurrentDateTime());
+        prescription.setStatus("Active");
+        
+        // Save prescription to database
+        boolean success = databaseHelper.addPrescription(prescription);
+        
+        if (success) {
+            showToast("✅ Prescription created successfully!");
+            clearForm();
+        } else {
+            showToast("❌ Failed to create prescription. Please try again.");
         }
     }
 
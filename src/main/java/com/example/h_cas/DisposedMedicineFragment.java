@@ -78,7 +78,7 @@ public class DisposedMedicineFragment extends Fragment {
         if (getContext() == null) {
             return;
         }
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
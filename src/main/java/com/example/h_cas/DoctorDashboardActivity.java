@@ -26,6 +26,7 @@ import com.google.android.material.navigation.NavigationView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * DoctorDashboardActivity provides the main interface for doctors.
@@ -70,7 +71,7 @@ public class DoctorDashboardActivity extends AppCompatActivity implements Naviga
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(this);
+        databaseHelper = HCasDatabaseHelper.getInstance(this);
         
         // Get employee data from intent
         Intent intent = getIntent();
@@ -325,6 +326,7 @@ public class DoctorDashboardActivity extends AppCompatActivity implements Naviga
      * Handle doctor logout
      */
     private void handleLogout() {
+        SessionManager.getInstance(this).end();
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
@@ -55,7 +55,7 @@ public class DoctorDashboardFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void initializeViews(View view) {
@@ -117,12 +117,13 @@ public class DoctorDashboardFragment extends Fragment {
 
     private void setupStatsRecyclerView() {
         // Load stats in background to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            // Get real statistics from database
-            int activePatients = getActivePatientsCount();
-            int todaysCases = databaseHelper.getTodaysCasesCount();
-            int pendingDiagnoses = databaseHelper.getPendingReviewsCount();
-            int prescriptionsWritten = getPrescriptionsCount();
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            // Get real statistics from database (one in-memory snapshot)
+            com.example.h_cas.models.DashboardStats stats = databaseHelper.getDashboardStats();
+            int activePatients = stats.getPatientsWithoutPrescriptions();
+            int todaysCases = stats.getTotalPatients();
+            int pendingDiagnoses = stats.getPatientsWithoutPrescriptions();
+            int prescriptionsWritten = stats.getTotalPrescriptions();
             
             // Create doctor-specific stats data with real values (removed Follow-ups Due and Emergency Cases)
             final String[] statsLabels = {"Active Patients", "Total Patients", "Pending Diagnoses", "Prescriptions Written"};
@@ -149,20 +150,6 @@ public class DoctorDashboardFragment extends Fragment {
         });
     }
     
-    /**
-     * Get count of active patients (patients without prescriptions)
-     */
-    private int getActivePatientsCount() {
-        return databaseHelper.getPendingReviewsCount();
-    }
-    
-    /**
-     * Get total prescriptions count (optimized - uses count query instead of loading all)
-     */
-    private int getPrescriptionsCount() {
-        return databaseHelper.getPrescriptionsCount();
-    }
-
     // Simple RecyclerView adapter for stats cards
     private class StatsAdapter extends RecyclerView.Adapter<StatsAdapter.StatsViewHolder> {
         private String[] labels;
@@ -20,6 +20,7 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * DoctorProfileFragment handles doctor profile management functionality.
@@ -55,6 +56,7 @@ public class DoctorProfileFragment extends Fragment {
     // Data
     private Employee currentDoctor;
     private HCasDatabaseHelper databaseHelper;
+    private SessionManager session;
     private String loggedInFullName;
     private String loggedInUsername;
     private String loggedInRole;
@@ -115,7 +117,8 @@ public class DoctorProfileFragment extends Fragment {
      * Initialize data from parent activity
      */
     private void initializeData() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
+        session = SessionManager.getInstance(requireContext());
         
         // Get employee data from arguments or parent activity
         Bundle args = getArguments();
@@ -164,8 +167,13 @@ public class DoctorProfileFragment extends Fragment {
      */
     private void loadDoctorProfile() {
         try {
-            // Load doctor data from database
-            Employee doctorData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+            // The session holds the signed-in doctor; read the row only if it does not
+            // (e.g. after a restart) and keep it there for the next visit
+            Employee doctorData = session.getEmployee(loggedInUsername);
+            if (doctorData == null) {
+                doctorData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+                session.updateEmployee(doctorData);
+            }
             if (doctorData != null) {
                 currentDoctor = doctorData;
                 
@@ -286,6 +294,8 @@ public class DoctorProfileFragment extends Fragment {
             boolean updated = databaseHelper.updateEmployee(currentDoctor);
             
             if (updated) {
+                session.updateEmployee(currentDoctor);
+                
                 showToast("✅ Profile updated successfully!");
                 
                 // Update header with the exact name from admin registration
@@ -1,6 +1,7 @@
 package com.example.h_cas;
 
 import android.app.AlertDialog;
+import android.content.Context;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,6 +20,10 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
 
+import com.example.h_cas.models.DrugInteraction;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.DrugInteractionIndex;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -50,7 +55,6 @@ public class DrugInteractionsFragment extends Fragment {
             initializeViews(view);
             setupRecyclerView();
             setupClickListeners();
-            loadSampleInteractions();
             
             return view;
         } catch (Exception e) {
@@ -104,65 +108,28 @@ public class DrugInteractionsFragment extends Fragment {
         }
     }
 
-    private void loadSampleInteractions() {
-        try {
-            if (drugInteractions == null) {
-                drugInteractions = new ArrayList<>();
-            }
-            
-            drugInteractions.clear();
-            
-            // Add sample drug interactions
-            drugInteractions.add(new DrugInteraction(
-                "Warfarin + Aspirin",
-                "Major",
-                "Increased risk of bleeding",
-                "Monitor INR closely, consider dose adjustment",
-                "⚠️"
-            ));
-            
-            drugInteractions.add(new DrugInteraction(
-                "Metformin + Alcohol",
-                "Moderate",
-                "Increased risk of lactic acidosis",
-                "Avoid alcohol consumption while taking metformin",
-                "🔶"
-            ));
-            
-            drugInteractions.add(new DrugInteraction(
-                "ACE Inhibitors + Potassium",
-                "Major",
-                "Hyperkalemia risk",
-                "Monitor potassium levels, avoid potassium supplements",
-                "⚠️"
-            ));
-            
-            drugInteractions.add(new DrugInteraction(
-                "Digoxin + Amiodarone",
-                "Major",
-                "Increased digoxin levels",
-                "Reduce digoxin dose by 50%, monitor levels",
-                "⚠️"
-            ));
-            
-            drugInteractions.add(new DrugInteraction(
-                "Statins + Grapefruit",
-                "Moderate",
-                "Increased statin levels",
-                "Avoid grapefruit juice, monitor for muscle pain",
-                "🔶"
-            ));
-            
-            if (interactionsAdapter != null) {
-                interactionsAdapter.notifyDataSetChanged();
-            }
-            updateEmptyState();
-        } catch (Exception e) {
-            e.printStackTrace();
-            if (getContext() != null) {
-                Toast.makeText(getContext(), "Error loading interactions: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
+    /**
+     * Show the bundled interaction table, most severe first
+     */
+    private void loadInteractions() {
+        if (getContext() == null) {
+            return;
         }
+        Context context = getContext().getApplicationContext();
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            List<DrugInteraction> interactions = DrugInteractionIndex.getInstance(context).getInteractions();
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null || drugInteractions == null) {
+                    return; // Fragment is detached
+                }
+                drugInteractions.clear();
+                drugInteractions.addAll(interactions);
+                if (interactionsAdapter != null) {
+                    interactionsAdapter.notifyDataSetChanged();
+                }
+                updateEmptyState();
+            });
+        });
     }
 
     private void updateEmptyState() {
@@ -198,20 +165,24 @@ public class DrugInteractionsFragment extends Fragment {
 
     private void checkForSpecificInteractions(String med1, String med2) {
         String combination = med1 + " + " + med2;
-        
-        // Check for known interactions
-        if ((med1.toLowerCase().contains("warfarin") && med2.toLowerCase().contains("aspirin")) ||
-            (med2.toLowerCase().contains("warfarin") && med1.toLowerCase().contains("aspirin"))) {
-            showInteractionResult(combination, "Major", "Increased risk of bleeding", "Monitor INR closely");
-        } else if ((med1.toLowerCase().contains("metformin") && med2.toLowerCase().contains("alcohol")) ||
-                   (med2.toLowerCase().contains("metformin") && med1.toLowerCase().contains("alcohol"))) {
-            showInteractionResult(combination, "Moderate", "Increased risk of lactic acidosis", "Avoid alcohol consumption");
-        } else if ((med1.toLowerCase().contains("ace") && med2.toLowerCase().contains("potassium")) ||
-                   (med2.toLowerCase().contains("ace") && med1.toLowerCase().contains("potassium"))) {
-            showInteractionResult(combination, "Major", "Hyperkalemia risk", "Monitor potassium levels");
-        } else {
-            showInteractionResult(combination, "None Found", "No known interactions detected", "Continue with normal monitoring");
-        }
+        Context context = getContext().getApplicationContext();
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            DrugInteractionIndex interactionIndex = DrugInteractionIndex.getInstance(context);
+            List<DrugInteraction> found = interactionIndex.check(med1, med2);
+            boolean bothKnown = interactionIndex.isKnown(med1) && interactionIndex.isKnown(med2);
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (!found.isEmpty()) {
+                    DrugInteraction interaction = found.get(0);
+                    showInteractionResult(combination, interaction.getSeverity().getLabel(), interaction.getEffect(),
+                                          interaction.getRecommendation());
+                } else if (bothKnown) {
+                    showInteractionResult(combination, "None Found", "No known interactions detected", "Continue with normal monitoring");
+                } else {
+                    showInteractionResult(combination, "Unknown", "One or both medicines are not in the interaction table",
+                                          "Check a drug reference before dispensing");
+                }
+            });
+        });
     }
 
     private void showInteractionResult(String combination, String severity, String effect, String recommendation) {
@@ -246,29 +217,6 @@ public class DrugInteractionsFragment extends Fragment {
         Toast.makeText(getContext(), "Interaction check cleared", Toast.LENGTH_SHORT).show();
     }
 
-    // Drug Interaction class
-    private static class DrugInteraction {
-        private String combination;
-        private String severity;
-        private String effect;
-        private String recommendation;
-        private String icon;
-
-        public DrugInteraction(String combination, String severity, String effect, String recommendation, String icon) {
-            this.combination = combination;
-            this.severity = severity;
-            this.effect = effect;
-            this.recommendation = recommendation;
-            this.icon = icon;
-        }
-
-        public String getCombination() { return combination; }
-        public String getSeverity() { return severity; }
-        public String getEffect() { return effect; }
-        public String getRecommendation() { return recommendation; }
-        public String getIcon() { return icon; }
-    }
-
     // RecyclerView Adapter for interactions
     private class InteractionsAdapter extends RecyclerView.Adapter<InteractionsAdapter.InteractionViewHolder> {
         private List<DrugInteraction> interactions;
@@ -393,13 +341,13 @@ public class DrugInteractionsFragment extends Fragment {
                 
                 // Safely set text with null checks
                 if (interactionIconText != null) {
-                    interactionIconText.setText(interaction.getIcon() != null ? interaction.getIcon() : "");
+                    interactionIconText.setText(interaction.getSeverity() == DrugInteraction.Severity.MAJOR ? "⚠️" : "🔶");
                 }
                 if (combinationText != null) {
                     combinationText.setText(interaction.getCombination() != null ? interaction.getCombination() : "");
                 }
                 if (severityText != null) {
-                    severityText.setText(interaction.getSeverity() != null ? interaction.getSeverity() : "");
+                    severityText.setText(interaction.getSeverity() != null ? interaction.getSeverity().getLabel() : "");
                 }
                 if (effectText != null) {
                     effectText.setText(interaction.getEffect() != null ? interaction.getEffect() : "");
@@ -411,10 +359,10 @@ public class DrugInteractionsFragment extends Fragment {
                 // Color code severity
                 try {
                     if (severityText != null) {
-                        String severity = interaction.getSeverity();
-                        if ("Major".equals(severity)) {
+                        DrugInteraction.Severity severity = interaction.getSeverity();
+                        if (severity == DrugInteraction.Severity.MAJOR) {
                             severityText.setTextColor(getContext().getColor(R.color.error_red));
-                        } else if ("Moderate".equals(severity)) {
+                        } else if (severity == DrugInteraction.Severity.MODERATE) {
                             severityText.setTextColor(getContext().getColor(R.color.warning_orange));
                         } else {
                             severityText.setTextColor(getContext().getColor(R.color.success_green));
@@ -437,6 +385,7 @@ public class DrugInteractionsFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        loadInteractions();
         
         try {
             // Enable back navigation with safer implementation
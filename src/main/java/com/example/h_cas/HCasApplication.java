@@ -1,82 +1,144 @@
 package com.example.h_cas;
 
+import android.app.Activity;
 import android.app.Application;
+import android.os.Bundle;
 import android.util.Log;
 
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.h_cas.database.FirebaseHelper;
 import com.example.h_cas.database.FirebaseSyncManager;
+import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.IdGenerator;
+import com.example.h_cas.utils.PasswordHasher;
+import com.example.h_cas.utils.SessionManager;
+import com.example.h_cas.utils.StartupOrchestrator;
 
 /**
- * HCasApplication initializes Firebase and other app-wide components
+ * HCasApplication initializes Firebase and other app-wide components. Startup work runs
+ * as dependency-ordered tasks on the background pools, see {@link StartupOrchestrator};
+ * the splash screen waits only for {@link #TASK_SESSION}.
  */
 public class HCasApplication extends Application {
     
     private static final String TAG = "HCasApplication";
-    private FirebaseSyncManager syncManager;
+    
+    // Startup tasks
+    public static final String TASK_DATABASE = "database";
+    public static final String TASK_SESSION = "session";
+    public static final String TASK_DASHBOARD_STATS = "dashboard-stats";
+    public static final String TASK_RFID_INDEX = "rfid-index";
+    public static final String TASK_CREDENTIALS = "credentials";
+    public static final String TASK_FIREBASE = "firebase";
+    public static final String TASK_SYNC = "sync";
+    public static final String TASK_FIRESTORE_CHECK = "firestore-check";
+    
+    private volatile FirebaseSyncManager syncManager;
+    private volatile boolean firebaseReady;
+    private StartupOrchestrator startup;
     
     @Override
     public void onCreate() {
         super.onCreate();
         
-        // Initialize Firebase with comprehensive error handling to prevent crashes
-        // Firebase initialization is completely optional - app works fine without it
-        initializeFirebaseAsync();
+        // Firebase is optional - the app works fine without it, so nothing on the
+        // path to the first screen waits for it
+        startup = new StartupOrchestrator()
+            .add(TASK_DATABASE, DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.UI,
+                 this::openDatabase)
+            .add(TASK_SESSION, DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.UI,
+                 this::restoreSession, TASK_DATABASE)
+            // Warm the dashboard counters so the first dashboard renders from memory
+            .add(TASK_DASHBOARD_STATS, DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.DEFAULT,
+                 () -> HCasDatabaseHelper.getInstance(this).getDashboardStats(), TASK_DATABASE)
+            // Index the undispensed RFID tags so the first scan does not wait on a query
+            .add(TASK_RFID_INDEX, DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.BACKGROUND,
+                 () -> HCasDatabaseHelper.getInstance(this).preloadRfidTags(), TASK_DATABASE)
+            // Tune the password hash on a new install now rather than during the first login
+            .add(TASK_CREDENTIALS, DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.BACKGROUND,
+                 () -> PasswordHasher.getInstance(this))
+            .add(TASK_FIREBASE, DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.DEFAULT,
+                 this::initializeFirebase)
+            .add(TASK_SYNC, DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.DEFAULT,
+                 this::authenticateFirebaseAnonymouslyAndStartSync, TASK_FIREBASE, TASK_DATABASE)
+            .add(TASK_FIRESTORE_CHECK, DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.BACKGROUND,
+                 this::testFirebaseConnection, TASK_FIREBASE);
+        startup.start();
+        
+        registerActivityLifecycleCallbacks(new FirstScreenTracker());
+    }
+    
+    /**
+     * The startup tasks, e.g. to wait for one with {@link StartupOrchestrator#whenDone}
+     */
+    public StartupOrchestrator getStartup() {
+        return startup;
+    }
+    
+    /**
+     * Open the database, running any pending migrations
+     */
+    private void openDatabase() {
+        HCasDatabaseHelper.getInstance(this).getWritableDatabase();
+    }
+    
+    /**
+     * Bring back the profile of a session that is still valid, so the splash can go
+     * straight to the dashboard without a login
+     */
+    private void restoreSession() {
+        SessionManager session = SessionManager.getInstance(this);
+        SessionManager.Claims claims = session.getClaims();
+        if (claims == null || session.getEmployee() != null) {
+            return;
+        }
+        Employee employee = HCasDatabaseHelper.getInstance(this).getEmployeeById(claims.employeeId);
+        if (employee != null && employee.isActive() && claims.username.equals(employee.getUsername())) {
+            session.updateEmployee(employee);
+        } else {
+            // Deactivated or changed since the token was issued
+            session.end();
+        }
     }
     
     /**
-     * Initialize Firebase asynchronously to prevent blocking the main thread
+     * Initialize Firebase on a background thread
      * This method is safe and won't crash the app even if Firebase fails
      */
-    private void initializeFirebaseAsync() {
-        // Run in background thread to avoid blocking app startup
-        new Thread(() -> {
+    private void initializeFirebase() {
+        try {
+            // Check if Firebase is already initialized
+            if (FirebaseApp.getApps(this).isEmpty()) {
+                // Try to initialize Firebase
+                FirebaseApp.initializeApp(this);
+                Log.d(TAG, "Firebase initialized successfully");
+            } else {
+                Log.d(TAG, "Firebase already initialized");
+            }
+            
+            // Enable persistence BEFORE any other FirebaseDatabase usage
+            // This must be done before any getInstance() calls that use the database
             try {
-                // Check if Firebase is already initialized
-                try {
-                    if (FirebaseApp.getApps(this).isEmpty()) {
-                        // Try to initialize Firebase
-                        FirebaseApp.initializeApp(this);
-                        Log.d(TAG, "Firebase initialized successfully");
-                    } else {
-                        Log.d(TAG, "Firebase already initialized");
-                    }
-                    
-                    // Enable persistence BEFORE any other FirebaseDatabase usage
-                    // This must be done before any getInstance() calls that use the database
-                    try {
-                        FirebaseDatabase database = FirebaseDatabase.getInstance("https://hcas-c83fa-default-rtdb.asia-southeast1.firebasedatabase.app/");
-                        database.setPersistenceEnabled(true);
-                        Log.d(TAG, "✅ Firebase Realtime Database persistence enabled");
-                    } catch (Exception e) {
-                        Log.w(TAG, "Could not enable persistence (may already be set): " + e.getMessage());
-                    }
-                    
-                    // Authenticate with Firebase anonymously (for Realtime Database access)
-                    // Wait for authentication to complete before starting sync
-                    authenticateFirebaseAnonymouslyAndStartSync();
-                    
-                    // Test Firebase connectivity (non-blocking)
-                    testFirebaseConnection();
-                    
-                } catch (IllegalStateException e) {
-                    // Firebase not configured - this is OK, app works without it
-                    Log.w(TAG, "Firebase not configured - app will work without Firebase sync");
-                    syncManager = null;
-                } catch (Exception e) {
-                    Log.e(TAG, "Firebase initialization failed - app will continue without Firebase", e);
-                    syncManager = null;
-                }
+                FirebaseDatabase database = FirebaseDatabase.getInstance("https://hcas-c83fa-default-rtdb.asia-southeast1.firebasedatabase.app/");
+                database.setPersistenceEnabled(true);
+                Log.d(TAG, "✅ Firebase Realtime Database persistence enabled");
             } catch (Exception e) {
-                // Catch-all to prevent any crash
-                Log.e(TAG, "Error in Firebase initialization - app continues normally", e);
-                syncManager = null;
+                Log.w(TAG, "Could not enable persistence (may already be set): " + e.getMessage());
             }
-        }).start();
+            firebaseReady = true;
+        } catch (IllegalStateException e) {
+            // Firebase not configured - this is OK, app works without it
+            Log.w(TAG, "Firebase not configured - app will work without Firebase sync");
+        } catch (Exception e) {
+            Log.e(TAG, "Firebase initialization failed - app will continue without Firebase", e);
+        }
     }
-    
+
     /**
      * Get Firebase Sync Manager instance
      */
@@ -89,6 +151,9 @@ public class HCasApplication extends Application {
      * This ensures authentication is complete before starting listeners
      */
     private void authenticateFirebaseAnonymouslyAndStartSync() {
+        if (!firebaseReady) {
+            return;
+        }
         try {
             FirebaseAuth auth = FirebaseAuth.getInstance();
             if (auth != null) {
@@ -133,7 +198,10 @@ public class HCasApplication extends Application {
     /**
      * Start Firebase sync manager and listeners
      */
-    private void startFirebaseSync() {
+    private synchronized void startFirebaseSync() {
+        if (syncManager != null) {
+            return; // Already running; one listener set per process
+        }
         try {
             syncManager = new FirebaseSyncManager(this);
             
@@ -148,12 +216,42 @@ public class HCasApplication extends Application {
             Log.e(TAG, "Failed to initialize FirebaseSyncManager - app will continue without sync", e);
             syncManager = null;
         }
+        registerIdNode();
+    }
+    
+    /**
+     * Claim a node id from the Firebase registry if this installation is still on its
+     * provisional one, so record ids cannot collide with another tablet's
+     */
+    private void registerIdNode() {
+        if (IdGenerator.isNodeRegistered(this)) {
+            return;
+        }
+        try {
+            new FirebaseHelper().claimIdNode(IdGenerator.getInstallationId(this), IdGenerator.MAX_NODE_ID,
+                new FirebaseHelper.IdNodeCallback() {
+                    @Override
+                    public void onClaimed(int nodeId) {
+                        IdGenerator.setNodeId(HCasApplication.this, nodeId);
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "Could not claim a node id - keeping the provisional one", e);
+                    }
+                });
+        } catch (Exception e) {
+            Log.w(TAG, "Could not reach the node id registry", e);
+        }
     }
     
     /**
      * Test Firebase connection by attempting to access Firestore
      */
     private void testFirebaseConnection() {
+        if (!firebaseReady) {
+            return;
+        }
         try {
             FirebaseFirestore db = FirebaseFirestore.getInstance();
             if (db != null) {
@@ -173,6 +271,44 @@ public class HCasApplication extends Application {
             // Don't crash - app can work without Firebase
         }
     }
-}
+    
+    /**
+     * Marks the first screen after the splash as drawn, for the startup report
+     */
+    private final class FirstScreenTracker implements ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityResumed(Activity activity) {
+            if (activity instanceof SplashActivity) {
+                return;
+            }
+            unregisterActivityLifecycleCallbacks(this);
+            String screen = activity.getClass().getSimpleName();
+            // Posted behind the first traversal, so it runs once the screen has drawn
+            activity.getWindow().getDecorView().post(() -> startup.markFirstScreen(screen));
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
 
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
 
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.h_cas;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.TextUtils;
@@ -19,6 +20,8 @@ import com.google.android.material.textfield.TextInputLayout;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * LoginActivity handles user authentication for the H-CAS healthcare application.
@@ -91,10 +94,7 @@ public class LoginActivity extends AppCompatActivity {
      */
     private void initializeDatabase() {
         try {
-            databaseHelper = new HCasDatabaseHelper(this);
-            
-            // Debug: Check if employees exist in database
-            databaseHelper.debugCheckEmployees();
+            databaseHelper = HCasDatabaseHelper.getInstance(this);
         } catch (Exception e) {
             System.err.println("Error initializing database: " + e.getMessage());
             e.printStackTrace();
@@ -134,8 +134,6 @@ public class LoginActivity extends AppCompatActivity {
         loginButton.setEnabled(false);
         loginButton.setText("Signing in...");
 
-        // Simulate authentication process
-        // In a real app, this would make an API call
         authenticateUser(username, password);
     }
 
@@ -176,83 +174,97 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * Authenticates user using database
+     * Authenticates user using database. The password hash runs on a background thread,
+     * and the signed-in employee is kept in the session so the dashboards do not query it again.
      * @param username The username/email
      * @param password The password
      */
     private void authenticateUser(String username, String password) {
-        // Simulate network delay for better UX
-        loginButton.postDelayed(() -> {
+        DatabaseExecutor executor = DatabaseExecutor.getInstance();
+        executor.execute(this, () -> {
+            Employee employee;
             try {
-                // Debug: Check if database helper is working
-                System.out.println("DEBUG: Attempting to authenticate user: " + username);
-                
-                // Authenticate user from database
-                Employee employee = databaseHelper.authenticateUser(username, password);
-                
-                System.out.println("DEBUG: Authentication result: " + (employee != null ? "SUCCESS" : "FAILED"));
-                
+                employee = databaseHelper.authenticateUser(username, password);
                 if (employee != null) {
-                    System.out.println("DEBUG: Employee role: " + employee.getRole());
-                    System.out.println("DEBUG: Employee active: " + employee.isActive());
-                    
-                    // Successful login
-                    if (employee.isAdmin()) {
-                        // Admin login
-                        Toast.makeText(this, "Welcome, Administrator!", Toast.LENGTH_SHORT).show();
-                        
-                        Intent intent = new Intent(LoginActivity.this, AdminDashboardActivity.class);
-                        startActivity(intent);
-                        finish();
-                    } else {
-                        // Regular employee login - route to role-specific dashboard
-                        String welcomeMessage = "Welcome, " + employee.getFullName() + "!";
-                        Toast.makeText(this, welcomeMessage, Toast.LENGTH_SHORT).show();
-                        
-                        Intent intent;
-                        switch (employee.getRole()) {
-                            case "Doctor":
-                                intent = new Intent(LoginActivity.this, DoctorDashboardActivity.class);
-                                break;
-                            case "Nurse":
-                                intent = new Intent(LoginActivity.this, NurseDashboardActivity.class);
-                                break;
-                            case "Pharmacist":
-                                intent = new Intent(LoginActivity.this, PharmacistDashboardActivity.class);
-                                break;
-                            default:
-                                // For other roles (Lab Technician, Receptionist, etc.)
-                                intent = new Intent(LoginActivity.this, MainActivity.class);
-                                break;
-                        }
-                        // Pass employee data to the dashboard
-                        intent.putExtra("EMPLOYEE_ID", employee.getEmployeeId());
-                        intent.putExtra("FIRST_NAME", employee.getFirstName());
-                        intent.putExtra("LAST_NAME", employee.getLastName());
-                        intent.putExtra("FULL_NAME", employee.getFullName());
-                        intent.putExtra("USERNAME", employee.getUsername());
-                        intent.putExtra("ROLE", employee.getRole());
-                        intent.putExtra("EMAIL", employee.getEmail());
-                        startActivity(intent);
-                        finish();
-                    }
-                } else {
-                    // Failed login
-                    Toast.makeText(this, "Invalid credentials. Please try again.", Toast.LENGTH_LONG).show();
+                    SessionManager.getInstance(this).start(employee);
+                }
+            } catch (RuntimeException e) {
+                executor.executeOnMainThread(() -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    Toast.makeText(this, "Login error: " + e.getMessage(), Toast.LENGTH_LONG).show();
                     
                     // Reset button state
                     loginButton.setEnabled(true);
                     loginButton.setText("Sign In");
-                }
-            } catch (Exception e) {
-                System.out.println("DEBUG: Authentication error: " + e.getMessage());
-                Toast.makeText(this, "Login error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                
-                // Reset button state
-                loginButton.setEnabled(true);
-                loginButton.setText("Sign In");
+                });
+                return;
+            }
+            executor.executeOnMainThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                onAuthenticated(employee);
+            });
+        });
+    }
+
+    /**
+     * Route a signed-in employee to their dashboard, or report failed credentials
+     */
+    private void onAuthenticated(Employee employee) {
+        if (employee != null) {
+            // Successful login
+            if (employee.isAdmin()) {
+                Toast.makeText(this, "Welcome, Administrator!", Toast.LENGTH_SHORT).show();
+            } else {
+                String welcomeMessage = "Welcome, " + employee.getFullName() + "!";
+                Toast.makeText(this, welcomeMessage, Toast.LENGTH_SHORT).show();
             }
-        }, 1000); // 1 second delay for better UX
+            startActivity(dashboardIntent(this, employee));
+            finish();
+        } else {
+            // Failed login
+            Toast.makeText(this, "Invalid credentials. Please try again.", Toast.LENGTH_LONG).show();
+            
+            // Reset button state
+            loginButton.setEnabled(true);
+            loginButton.setText("Sign In");
+        }
+    }
+
+    /**
+     * The dashboard for a signed-in employee's role, also used when the splash screen
+     * restores a session
+     */
+    static Intent dashboardIntent(Context context, Employee employee) {
+        if (employee.isAdmin()) {
+            return new Intent(context, AdminDashboardActivity.class);
+        }
+        
+        // Regular employee login - route to role-specific dashboard
+        Intent intent;
+        switch (employee.getRole()) {
+            case "Doctor":
+                intent = new Intent(context, DoctorDashboardActivity.class);
+                break;
+            case "Nurse":
+                intent = new Intent(context, NurseDashboardActivity.class);
+                break;
+            case "Pharmacist":
+                intent = new Intent(context, PharmacistDashboardActivity.class);
+                break;
+            default:
+                // For other roles (Lab Technician, Receptionist, etc.)
+                intent = new Intent(context, MainActivity.class);
+                break;
+        }
+        // Pass employee data to the dashboard
+        intent.putExtra("EMPLOYEE_ID", employee.getEmployeeId());
+        intent.putExtra("FIRST_NAME", employee.getFirstName());
+        intent.putExtra("LAST_NAME", employee.getLastName());
+        intent.putExtra("FULL_NAME", employee.getFullName());
+        intent.putExtra("USERNAME", employee.getUsername());
+        intent.putExtra("ROLE", employee.getRole());
+        intent.putExtra("EMAIL", employee.getEmail());
+        return intent;
     }
 
     /**
@@ -21,6 +21,7 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import com.example.h_cas.database.FirebaseHelper;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * MainActivity serves as the main dashboard for regular healthcare staff
@@ -109,6 +110,7 @@ public class MainActivity extends AppCompatActivity {
     private void handleLogout() {
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
         
+        SessionManager.getInstance(this).end();
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
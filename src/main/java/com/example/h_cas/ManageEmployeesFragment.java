@@ -20,6 +20,7 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.IdGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -59,7 +60,7 @@ public class ManageEmployeesFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -81,7 +82,7 @@ public class ManageEmployeesFragment extends Fragment {
         employeesRecyclerView.setVisibility(View.GONE);
         
         // Load employees in background thread to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
             List<Employee> employees = databaseHelper.getAllEmployees();
             
             // Update UI on main thread
@@ -144,7 +145,7 @@ public class ManageEmployeesFragment extends Fragment {
         
         // Create new employee
         Employee newEmployee = new Employee();
-        newEmployee.setEmployeeId("EMP" + System.currentTimeMillis());
+        newEmployee.setEmployeeId(IdGenerator.getInstance(requireContext()).next(IdGenerator.PREFIX_EMPLOYEE));
         newEmployee.setFirstName(firstName);
         newEmployee.setLastName(lastName);
         newEmployee.setUsername(username);
@@ -18,19 +18,35 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DispenseResult;
 import com.example.h_cas.models.RFIDData;
 import com.example.h_cas.models.Medicine;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.RFIDScanPipeline;
+import com.example.h_cas.utils.RFIDScanReplay;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
 
 /**
  * MedicationDispensingFragment handles RFID reading and medication dispensing for pharmacists
  */
-public class MedicationDispensingFragment extends Fragment {
+public class MedicationDispensingFragment extends Fragment implements RFIDScanPipeline.Listener {
+
+    // Tag read by the simulated scan on devices without a reader
+    private static final String SIMULATED_RFID_TAG_ID = "RFID1759590975147";
 
     private HCasDatabaseHelper databaseHelper;
     private MaterialButton scanRFIDButton;
     private MaterialCardView prescriptionCard;
     private TextView emptyStateText;
 
+    private RFIDScanPipeline scanPipeline;
+    private boolean readerActive;
+    // Prescriptions scanned while another one is on screen, shown in scan order
+    private final ArrayDeque<RFIDData> pendingPrescriptions = new ArrayDeque<>();
+    private AlertDialog prescriptionDialog;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -54,7 +70,8 @@ public class MedicationDispensingFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
+        scanPipeline = new RFIDScanPipeline(databaseHelper, this);
     }
 
     private void setupClickListeners() {
@@ -65,7 +82,9 @@ public class MedicationDispensingFragment extends Fragment {
         // Show RFID scanning dialog
         AlertDialog.Builder scanBuilder = new AlertDialog.Builder(getContext());
         scanBuilder.setTitle("Scan RFID Tag");
-        scanBuilder.setMessage("Please scan the patient's RFID tag to read prescription data.");
+        scanBuilder.setMessage(readerActive
+                               ? "Hold the patient's RFID tag to the back of the device to read prescription data."
+                               : "Please scan the patient's RFID tag to read prescription data.");
         
         scanBuilder.setPositiveButton("Simulate Scan", (dialog, which) -> {
             // For demo purposes, simulate scanning an RFID tag
@@ -81,23 +100,62 @@ public class MedicationDispensingFragment extends Fragment {
     }
 
     private void simulateRFIDScan() {
-        // Simulate scanning an RFID tag (in real implementation, this would come from RFID reader)
-        String simulatedRFIDTagId = "RFID1759590975147"; // Use a realistic RFID tag ID
-        
-        // Read prescription data from RFID
-        RFIDData rfidData = databaseHelper.readPrescriptionFromRFID(simulatedRFIDTagId);
-        
-        if (rfidData != null) {
-            showPrescriptionData(rfidData);
-        } else {
-            Toast.makeText(getContext(), "❌ No prescription found for this RFID tag or already dispensed.", Toast.LENGTH_LONG).show();
+        // Replay one tap of a tag held to the reader (three reads) through the same
+        // pipeline a real reader feeds; the duplicate reads are debounced
+        RFIDScanReplay.replay(scanPipeline,
+                              RFIDScanReplay.burst(Collections.singletonList(SIMULATED_RFID_TAG_ID), 3, 0), null);
+    }
+
+    @Override
+    public void onPrescriptionScanned(RFIDData rfidData) {
+        if (getContext() == null || getView() == null) return; // Fragment is detached
+        if (prescriptionDialog != null) {
+            // Queue it behind the prescription on screen unless it is already waiting
+            for (RFIDData pending : pendingPrescriptions) {
+                if (pending.getRfidTagId().equals(rfidData.getRfidTagId())) return;
+            }
+            pendingPrescriptions.add(rfidData);
+            return;
+        }
+        showPrescriptionData(rfidData);
+    }
+
+    @Override
+    public void onUnknownTag(String tagId) {
+        if (getContext() == null) return; // Fragment is detached
+        Toast.makeText(getContext(), "❌ No prescription found for this RFID tag or already dispensed.", Toast.LENGTH_LONG).show();
+    }
+
+    @Override
+    public void onTagOnlyPrescription(RFIDData rfidData) {
+        if (getContext() == null || getView() == null) return; // Fragment is detached
+        if (prescriptionDialog != null) {
+            // Only registered prescriptions are queued; tap again once this one is closed
+            scanPipeline.forget(rfidData.getRfidTagId());
+            return;
+        }
+        showPrescriptionData(rfidData, false);
+    }
+
+    private void showNextPrescription() {
+        RFIDData next = pendingPrescriptions.poll();
+        if (next != null && getContext() != null && getView() != null) {
+            showPrescriptionData(next);
         }
     }
 
     private void showPrescriptionData(RFIDData rfidData) {
+        showPrescriptionData(rfidData, true);
+    }
+
+    /**
+     * @param registered false for a prescription read from the tag alone, which is shown
+     *                   without the dispense button
+     */
+    private void showPrescriptionData(RFIDData rfidData, boolean registered) {
         // Show prescription details
         AlertDialog.Builder prescriptionBuilder = new AlertDialog.Builder(getContext());
-        prescriptionBuilder.setTitle("Prescription Found");
+        prescriptionBuilder.setTitle(registered ? "Prescription Found" : "Prescription on Tag (Not Registered Here)");
         
         // Inflate custom dialog layout
         View dialogView = LayoutInflater.from(getContext()).inflate(R.layout.dialog_rfid_prescription, null);
@@ -124,8 +182,19 @@ public class MedicationDispensingFragment extends Fragment {
         // Set up buttons
         MaterialButton dispenseButton = dialogView.findViewById(R.id.dispenseButton);
         ImageButton closeButton = dialogView.findViewById(R.id.closeRFIDButton);
+        if (!registered) {
+            // This device has no undispensed record of the tag to dispense against
+            dispenseButton.setVisibility(View.GONE);
+        }
         
         AlertDialog dialog = prescriptionBuilder.create();
+        prescriptionDialog = dialog;
+        dialog.setOnDismissListener(d -> {
+            prescriptionDialog = null;
+            // A new tap of the same tag should open it again
+            scanPipeline.forget(rfidData.getRfidTagId());
+            showNextPrescription();
+        });
         
         // Dispense medication button
         dispenseButton.setOnClickListener(v -> {
@@ -141,8 +210,16 @@ public class MedicationDispensingFragment extends Fragment {
 
     private void dispenseMedication(RFIDData rfidData) {
         // Check if medicine is available in stock
-        Medicine medicine = databaseHelper.getMedicineByName(rfidData.getMedicineName());
-        
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            Medicine medicine = databaseHelper.getMedicineByName(rfidData.getMedicineName());
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) return; // Fragment is detached
+                confirmDispense(rfidData, medicine);
+            });
+        });
+    }
+
+    private void confirmDispense(RFIDData rfidData, Medicine medicine) {
         if (medicine == null) {
             Toast.makeText(getContext(), "❌ Medicine not found in inventory: " + rfidData.getMedicineName(), Toast.LENGTH_LONG).show();
             return;
@@ -160,23 +237,16 @@ public class MedicationDispensingFragment extends Fragment {
                                  "Current Stock: " + medicine.getStockQuantity() + " " + medicine.getUnit());
         
         dispenseBuilder.setPositiveButton("Dispense", (dialog, which) -> {
-            // Deduct from stock (assuming 1 unit per prescription)
-            int newStock = medicine.getStockQuantity() - 1;
-            boolean stockUpdated = databaseHelper.updateMedicineStock(rfidData.getMedicineName(), newStock);
-            
-            if (stockUpdated) {
-                // Mark prescription as dispensed
-                String pharmacistName = "Pharmacist"; // In real implementation, get from logged-in user
-                boolean dispensed = databaseHelper.markPrescriptionAsDispensed(rfidData.getRfidTagId(), pharmacistName);
-                
-                if (dispensed) {
-                    Toast.makeText(getContext(), "✅ Medication dispensed successfully!\nStock remaining: " + newStock + " " + medicine.getUnit(), Toast.LENGTH_LONG).show();
-                } else {
-                    Toast.makeText(getContext(), "❌ Failed to mark prescription as dispensed.", Toast.LENGTH_LONG).show();
-                }
-            } else {
-                Toast.makeText(getContext(), "❌ Failed to update medicine stock.", Toast.LENGTH_LONG).show();
-            }
+            // One unit per prescription. Stock is checked again inside the transaction, so
+            // the count shown above may have changed without anything being oversold.
+            String pharmacistName = "Pharmacist"; // In real implementation, get from logged-in user
+            DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.UI, null, () -> {
+                DispenseResult result = databaseHelper.dispense(rfidData.getRfidTagId(), pharmacistName, 1);
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                    if (getContext() == null) return; // Fragment is detached
+                    showDispenseResult(rfidData, result);
+                });
+            });
         });
         
         dispenseBuilder.setNegativeButton("Cancel", (dialog, which) -> {
@@ -186,10 +256,50 @@ public class MedicationDispensingFragment extends Fragment {
         dispenseBuilder.show();
     }
 
+    private void showDispenseResult(RFIDData rfidData, DispenseResult result) {
+        String message;
+        switch (result.getStatus()) {
+            case DISPENSED:
+                message = "✅ Medication dispensed successfully!\nStock remaining: " + result.getRemainingStock() + " " + result.getUnit();
+                break;
+            case TAG_NOT_AVAILABLE:
+                message = "❌ This prescription has already been dispensed.";
+                break;
+            case NOT_IN_INVENTORY:
+                message = "❌ Medicine not found in inventory: " + rfidData.getMedicineName();
+                break;
+            case INSUFFICIENT_STOCK:
+                message = "❌ Medicine out of stock: " + rfidData.getMedicineName();
+                break;
+            default:
+                message = "❌ Failed to dispense medication.";
+        }
+        Toast.makeText(getContext(), message, Toast.LENGTH_LONG).show();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
-        // Refresh data when returning to this fragment
+        // Read tags in reader mode only while this screen is in the foreground
+        if (getActivity() != null) {
+            readerActive = scanPipeline.start(getActivity());
+        }
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (getActivity() != null) {
+            scanPipeline.stop(getActivity());
+        }
+        readerActive = false;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        pendingPrescriptions.clear();
+        prescriptionDialog = null;
     }
 
     @Override
@@ -18,23 +18,25 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
-import com.example.h_cas.models.Medicine;
-import com.example.h_cas.models.Prescription;
+import com.example.h_cas.database.Page;
+import com.example.h_cas.models.InventoryEvent;
+import com.example.h_cas.utils.DatabaseExecutor;
+import com.example.h_cas.utils.LoadMoreScrollListener;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
- * MedicineHistoryFragment shows complete history of all medicines including:
- * - Entered/Added medicines
- * - Disposed medicines
- * - Dispensed medicines
- * - Expired medicines
+ * MedicineHistoryFragment shows the inventory ledger, newest first: medicines received,
+ * dispensed, disposed and stock adjustments. Events are paged from the database
+ * already sorted and filtered.
  */
 public class MedicineHistoryFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 30;
+
     private RecyclerView historyRecyclerView;
     private View emptyStateText;
     private MaterialButton refreshButton;
@@ -46,8 +48,10 @@ public class MedicineHistoryFragment extends Fragment {
     
     private HCasDatabaseHelper databaseHelper;
     private MedicineHistoryAdapter historyAdapter;
-    private List<MedicineHistoryEvent> allHistoryEvents;
-    private List<MedicineHistoryEvent> filteredHistoryEvents;
+    private List<InventoryEvent> historyEvents;
+    private Page.Key nextPageKey;
+    private boolean isLoadingPage;
+    private int loadGeneration;
     
     private String currentFilter = "all"; // all, active, expired, disposed, dispensed
 
@@ -65,7 +69,7 @@ public class MedicineHistoryFragment extends Fragment {
             initializeDatabase();
             setupRecyclerView();
             setupClickListeners();
-            loadMedicineHistory();
+            updateButtonStates();
             
             return view;
         } catch (Exception e) {
@@ -88,15 +92,14 @@ public class MedicineHistoryFragment extends Fragment {
         filterDisposedButton = view.findViewById(R.id.filterDisposedButton);
         filterDispensedButton = view.findViewById(R.id.filterDispensedButton);
         
-        allHistoryEvents = new ArrayList<>();
-        filteredHistoryEvents = new ArrayList<>();
+        historyEvents = new ArrayList<>();
     }
 
     private void initializeDatabase() {
         if (getContext() == null) {
             return;
         }
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -105,13 +108,17 @@ public class MedicineHistoryFragment extends Fragment {
         }
         
         try {
-            if (filteredHistoryEvents == null) {
-                filteredHistoryEvents = new ArrayList<>();
-            }
-            
-            historyAdapter = new MedicineHistoryAdapter(filteredHistoryEvents);
+            historyAdapter = new MedicineHistoryAdapter(historyEvents);
             historyRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
             historyRecyclerView.setAdapter(historyAdapter);
+            historyRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+                @Override
+                protected void onLoadMore() {
+                    if (!isLoadingPage && nextPageKey != null) {
+                        loadPage(nextPageKey);
+                    }
+                }
+            });
         } catch (Exception e) {
             e.printStackTrace();
             if (getContext() != null) {
@@ -142,307 +149,66 @@ public class MedicineHistoryFragment extends Fragment {
     }
 
     private void loadMedicineHistory() {
-        try {
-            if (databaseHelper == null || allHistoryEvents == null) {
-                return;
-            }
-            
-            allHistoryEvents.clear();
-            
-            // Get all medicines from database (including expired ones)
-            List<Medicine> allMedicines = databaseHelper.getAllMedicines();
-            
-            // Add medicine events
-            if (allMedicines != null) {
-                for (Medicine medicine : allMedicines) {
-                    if (medicine != null) {
-                        // Check status
-                        String status = getMedicineStatus(medicine);
-                        String eventType = getEventType(status);
-                        String description = getEventDescription(medicine, status);
-                        String date = getEventDate(medicine, status);
-                        
-                        allHistoryEvents.add(new MedicineHistoryEvent(
-                            medicine.getMedicineName(),
-                            medicine.getDosage(),
-                            medicine.getStockQuantity(),
-                            medicine.getUnit(),
-                            medicine.getExpiryDate(),
-                            status,
-                            eventType,
-                            description,
-                            date,
-                            medicine.getMedicineId()
-                        ));
-                    }
-                }
-            }
-            
-            // Get dispensed medicines from RFID data (more accurate for dispensed medicines)
-            try {
-                android.database.sqlite.SQLiteDatabase db = databaseHelper.getReadableDatabase();
-                String query = "SELECT * FROM rfid_data WHERE is_dispensed = 1";
-                android.database.Cursor cursor = db.rawQuery(query, null);
-                
-                if (cursor.moveToFirst()) {
-                    do {
-                        String medicineName = cursor.getString(4); // medicine_name column
-                        String dosage = cursor.getString(5);
-                        String patientName = cursor.getString(2);
-                        String dispensedDate = cursor.getString(12);
-                        String pharmacistName = cursor.getString(13);
-                        String duration = cursor.getString(7); // duration column
-                        
-                        // Calculate quantity based on duration if available
-                        int quantity = 1; // Default to 1 unit
-                        try {
-                            if (duration != null && !duration.isEmpty()) {
-                                // Try to extract number from duration (e.g., "5 days" -> 5, "1 week" -> 7)
-                                String[] parts = duration.trim().split("\\s+");
-                                if (parts.length > 0) {
-                                    int days = Integer.parseInt(parts[0]);
-                                    // Estimate quantity based on typical daily frequency
-                                    // Assuming 1 unit per day (can be adjusted)
-                                    quantity = days;
-                                }
-                            }
-                        } catch (Exception e) {
-                            // If parsing fails, use default quantity
-                        }
-                        
-                        if (medicineName != null && !medicineName.isEmpty()) {
-                            String patientDisplayName = patientName != null && !patientName.isEmpty() ? patientName : "Unknown Patient";
-                            String description = "Given to " + patientDisplayName;
-                            if (pharmacistName != null && !pharmacistName.isEmpty()) {
-                                description += " by " + pharmacistName;
-                            }
-                            
-                            allHistoryEvents.add(new MedicineHistoryEvent(
-                                medicineName,
-                                dosage != null ? dosage : "N/A",
-                                quantity,
-                                "units",
-                                null,
-                                "Dispensed",
-                                "DISPENSED",
-                                description,
-                                dispensedDate != null ? dispensedDate : "N/A",
-                                cursor.getString(3) // prescription_id
-                            ));
-                        }
-                    } while (cursor.moveToNext());
-                }
-                
-                cursor.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            
-            // Sort by date (most recent first)
-            Collections.sort(allHistoryEvents, (e1, e2) -> {
-                // Simple date comparison - newer first
-                if (e1.getDate() == null && e2.getDate() == null) return 0;
-                if (e1.getDate() == null) return 1;
-                if (e2.getDate() == null) return -1;
-                return e2.getDate().compareTo(e1.getDate());
-            });
-            
-            // Apply current filter
-            filterHistory(currentFilter);
-            
-            if (getContext() != null) {
-                Toast.makeText(getContext(), "📋 Loaded " + allHistoryEvents.size() + " medicine events", Toast.LENGTH_SHORT).show();
-            }
-        } catch (Exception e) {
-            if (getContext() != null) {
-                Toast.makeText(getContext(), "Error loading medicine history: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-            e.printStackTrace();
-        }
-    }
-
-    private String getMedicineStatus(Medicine medicine) {
-        if (medicine == null || medicine.getExpiryDate() == null || medicine.getExpiryDate().isEmpty()) {
-            return "Active";
-        }
-        
-        if (isExpired(medicine)) {
-            return "Expired";
-        }
-        
-        if (isExpiringSoon(medicine)) {
-            return "Expiring Soon";
+        if (databaseHelper == null) {
+            return;
         }
-        
-        return "Active";
+        // Start again from the first page; results of any in-flight load are discarded
+        loadGeneration++;
+        nextPageKey = null;
+        loadPage(null);
     }
 
-    private boolean isExpired(Medicine medicine) {
-        if (medicine == null || medicine.getExpiryDate() == null || medicine.getExpiryDate().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            String expiryDateStr = medicine.getExpiryDate().trim();
-            String[] dateParts = expiryDateStr.split("-");
-            
-            if (dateParts.length != 3) {
-                return false;
-            }
-            
-            int expiryYear = Integer.parseInt(dateParts[0]);
-            int expiryMonth = Integer.parseInt(dateParts[1]);
-            int expiryDay = Integer.parseInt(dateParts[2]);
+    private void loadPage(Page.Key after) {
+        isLoadingPage = true;
+        final int generation = loadGeneration;
+        final String filter = currentFilter;
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            Page<InventoryEvent> page = databaseHelper.getInventoryEventsPage(
+                null, eventTypesFor(filter), "expired".equals(filter), after, PAGE_SIZE);
             
-            java.util.Calendar currentCal = java.util.Calendar.getInstance();
-            int currentYear = currentCal.get(java.util.Calendar.YEAR);
-            int currentMonth = currentCal.get(java.util.Calendar.MONTH) + 1;
-            int currentDay = currentCal.get(java.util.Calendar.DAY_OF_MONTH);
-            
-            if (expiryYear < currentYear) {
-                return true;
-            } else if (expiryYear == currentYear) {
-                if (expiryMonth < currentMonth) {
-                    return true;
-                } else if (expiryMonth == currentMonth && expiryDay < currentDay) {
-                    return true;
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null || generation != loadGeneration) {
+                    return; // Fragment is detached or a refresh superseded this load
                 }
-            }
-            
-            return false;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean isExpiringSoon(Medicine medicine) {
-        if (medicine == null || medicine.getExpiryDate() == null || medicine.getExpiryDate().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
-            String expiryDateStr = medicine.getExpiryDate().trim();
-            String[] dateParts = expiryDateStr.split("-");
-            
-            if (dateParts.length != 3) {
-                return false;
-            }
-            
-            int expiryYear = Integer.parseInt(dateParts[0]);
-            int expiryMonth = Integer.parseInt(dateParts[1]);
-            int expiryDay = Integer.parseInt(dateParts[2]);
-            
-            java.util.Calendar currentCal = java.util.Calendar.getInstance();
-            int currentYear = currentCal.get(java.util.Calendar.YEAR);
-            int currentMonth = currentCal.get(java.util.Calendar.MONTH) + 1;
-            int currentDay = currentCal.get(java.util.Calendar.DAY_OF_MONTH);
-            
-            int yearDiff = expiryYear - currentYear;
-            int monthDiff = (yearDiff * 12) + (expiryMonth - currentMonth);
-            
-            if (monthDiff > 0 && expiryDay < currentDay) {
-                monthDiff--;
-            }
-            
-            return monthDiff >= 0 && monthDiff <= thresholdMonths;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private String getEventType(String status) {
-        switch (status) {
-            case "Active":
-                return "ENTERED";
-            case "Expired":
-                return "EXPIRED";
-            case "Expiring Soon":
-                return "EXPIRING_SOON";
-            case "Dispensed":
-                return "DISPENSED";
-            default:
-                return "ENTERED";
-        }
+                isLoadingPage = false;
+                nextPageKey = page.getNextKey();
+                
+                if (after == null) {
+                    historyEvents.clear();
+                    historyEvents.addAll(page.getItems());
+                    historyAdapter.notifyDataSetChanged();
+                } else {
+                    int start = historyEvents.size();
+                    historyEvents.addAll(page.getItems());
+                    historyAdapter.notifyItemRangeInserted(start, page.getItems().size());
+                }
+                updateEmptyState();
+            });
+        });
     }
 
-    private String getEventDescription(Medicine medicine, String status) {
-        if (medicine == null) {
-            return "";
-        }
-        
-        switch (status) {
-            case "Active":
-                return "Medicine entered into inventory";
-            case "Expired":
-                return "Medicine expired - ready for disposal";
-            case "Expiring Soon":
-                return "Medicine expiring soon - monitor closely";
-            case "Dispensed":
-                return "Medicine dispensed to patient";
+    /**
+     * Ledger event types shown by a filter button, or null for every type. "Active" is
+     * stock coming in or corrected; "Expired" is disposals of stock past its expiry date.
+     */
+    private static List<String> eventTypesFor(String filter) {
+        switch (filter) {
+            case "active":
+                return Arrays.asList(InventoryEvent.TYPE_RECEIVE, InventoryEvent.TYPE_ADJUST);
+            case "expired":
+            case "disposed":
+                return Collections.singletonList(InventoryEvent.TYPE_DISPOSE);
+            case "dispensed":
+                return Collections.singletonList(InventoryEvent.TYPE_DISPENSE);
             default:
-                return "Medicine in inventory";
-        }
-    }
-
-    private String getEventDate(Medicine medicine, String status) {
-        // For now, use current date or expiry date
-        // In a real system, you'd have created_date field
-        if (medicine != null && medicine.getExpiryDate() != null) {
-            return medicine.getExpiryDate();
+                return null;
         }
-        return java.text.SimpleDateFormat.getDateInstance().format(new java.util.Date());
     }
 
     private void filterHistory(String filter) {
         currentFilter = filter;
-        
-        if (allHistoryEvents == null || filteredHistoryEvents == null) {
-            return;
-        }
-        
-        filteredHistoryEvents.clear();
-        
-        for (MedicineHistoryEvent event : allHistoryEvents) {
-            if (event == null) continue;
-            
-            boolean shouldInclude = false;
-            switch (filter) {
-                case "all":
-                    shouldInclude = true;
-                    break;
-                case "active":
-                    shouldInclude = "Active".equals(event.getStatus()) || "Expiring Soon".equals(event.getStatus());
-                    break;
-                case "expired":
-                    shouldInclude = "Expired".equals(event.getStatus());
-                    break;
-                case "disposed":
-                    shouldInclude = "Expired".equals(event.getStatus());
-                    break;
-                case "dispensed":
-                    shouldInclude = "Dispensed".equals(event.getStatus());
-                    break;
-                default:
-                    shouldInclude = true;
-            }
-            
-            if (shouldInclude) {
-                filteredHistoryEvents.add(event);
-            }
-        }
-        
-        if (historyAdapter != null) {
-            historyAdapter.notifyDataSetChanged();
-        }
-        
         updateButtonStates();
-        updateEmptyState();
-        
-        String filterText = filter.equals("all") ? "All" : filter.substring(0, 1).toUpperCase() + filter.substring(1);
-        if (getContext() != null) {
-            Toast.makeText(getContext(), "Showing " + filteredHistoryEvents.size() + " " + filterText.toLowerCase() + " medicines", Toast.LENGTH_SHORT).show();
-        }
+        loadMedicineHistory();
     }
 
     private void updateButtonStates() {
@@ -480,7 +246,7 @@ public class MedicineHistoryFragment extends Fragment {
             return;
         }
         
-        if (filteredHistoryEvents == null || filteredHistoryEvents.isEmpty()) {
+        if (historyEvents == null || historyEvents.isEmpty()) {
             emptyStateText.setVisibility(View.VISIBLE);
             historyRecyclerView.setVisibility(View.GONE);
         } else {
@@ -489,51 +255,11 @@ public class MedicineHistoryFragment extends Fragment {
         }
     }
 
-    // Medicine History Event class
-    private static class MedicineHistoryEvent {
-        private String medicineName;
-        private String dosage;
-        private int quantity;
-        private String unit;
-        private String expiryDate;
-        private String status;
-        private String eventType;
-        private String description;
-        private String date;
-        private String id;
-
-        public MedicineHistoryEvent(String medicineName, String dosage, int quantity, String unit,
-                                   String expiryDate, String status, String eventType, String description,
-                                   String date, String id) {
-            this.medicineName = medicineName;
-            this.dosage = dosage;
-            this.quantity = quantity;
-            this.unit = unit;
-            this.expiryDate = expiryDate;
-            this.status = status;
-            this.eventType = eventType;
-            this.description = description;
-            this.date = date;
-            this.id = id;
-        }
-
-        public String getMedicineName() { return medicineName; }
-        public String getDosage() { return dosage; }
-        public int getQuantity() { return quantity; }
-        public String getUnit() { return unit; }
-        public String getExpiryDate() { return expiryDate; }
-        public String getStatus() { return status; }
-        public String getEventType() { return eventType; }
-        public String getDescription() { return description; }
-        public String getDate() { return date; }
-        public String getId() { return id; }
-    }
-
     // RecyclerView Adapter
     private class MedicineHistoryAdapter extends RecyclerView.Adapter<MedicineHistoryAdapter.HistoryViewHolder> {
-        private List<MedicineHistoryEvent> events;
+        private List<InventoryEvent> events;
 
-        public MedicineHistoryAdapter(List<MedicineHistoryEvent> events) {
+        public MedicineHistoryAdapter(List<InventoryEvent> events) {
             this.events = events != null ? events : new ArrayList<>();
         }
 
@@ -571,7 +297,7 @@ public class MedicineHistoryFragment extends Fragment {
             }
             
             try {
-                MedicineHistoryEvent event = events.get(position);
+                InventoryEvent event = events.get(position);
                 if (holder != null && event != null) {
                     holder.bind(event);
                 }
@@ -611,31 +337,35 @@ public class MedicineHistoryFragment extends Fragment {
                 }
             }
 
-            public void bind(MedicineHistoryEvent event) {
+            public void bind(InventoryEvent event) {
                 if (event == null || getContext() == null) {
                     return;
                 }
                 
                 try {
                     if (medicineNameText != null) {
-                        medicineNameText.setText(event.getMedicineName() != null ? event.getMedicineName() : "N/A");
+                        String name = event.getMedicineName() != null ? event.getMedicineName() : "N/A";
+                        if (event.getDosage() != null && !event.getDosage().isEmpty()) {
+                            name += " " + event.getDosage();
+                        }
+                        medicineNameText.setText(name);
                     }
                     
+                    String eventType = event.getEventType() != null ? event.getEventType() : "";
                     if (eventTypeText != null) {
-                        String eventType = event.getEventType();
-                        String displayText = "";
+                        String displayText;
                         switch (eventType) {
-                            case "ENTERED":
-                                displayText = "➕ Entered";
+                            case InventoryEvent.TYPE_RECEIVE:
+                                displayText = "➕ Received";
                                 break;
-                            case "DISPENSED":
+                            case InventoryEvent.TYPE_DISPENSE:
                                 displayText = "📤 Dispensed";
                                 break;
-                            case "EXPIRED":
-                                displayText = "⏰ Expired";
+                            case InventoryEvent.TYPE_DISPOSE:
+                                displayText = "🗑️ Disposed";
                                 break;
-                            case "EXPIRING_SOON":
-                                displayText = "⚠️ Expiring Soon";
+                            case InventoryEvent.TYPE_ADJUST:
+                                displayText = "✏️ Adjusted";
                                 break;
                             default:
                                 displayText = "📋 " + eventType;
@@ -644,11 +374,18 @@ public class MedicineHistoryFragment extends Fragment {
                     }
                     
                     if (descriptionText != null) {
-                        descriptionText.setText(event.getDescription() != null ? event.getDescription() : "");
+                        String description = event.getNote() != null ? event.getNote() : "";
+                        if (event.getActor() != null && !event.getActor().isEmpty()) {
+                            description += (description.isEmpty() ? "By " : " by ") + event.getActor();
+                        }
+                        if (event.getReference() != null && !event.getReference().isEmpty()) {
+                            description += " (" + event.getReference() + ")";
+                        }
+                        descriptionText.setText(description);
                     }
                     
                     if (dateText != null) {
-                        String dateStr = event.getDate() != null ? event.getDate() : "N/A";
+                        String dateStr = event.getTimestamp() != null ? event.getTimestamp() : "N/A";
                         if (event.getExpiryDate() != null && !event.getExpiryDate().isEmpty()) {
                             dateStr += " | Expires: " + event.getExpiryDate();
                         }
@@ -656,18 +393,17 @@ public class MedicineHistoryFragment extends Fragment {
                     }
                     
                     if (statusText != null) {
-                        String status = event.getStatus() != null ? event.getStatus() : "Unknown";
-                        statusText.setText("Status: " + status);
+                        statusText.setText(event.getStockAfter() != null ? "Stock: " + event.getStockAfter() : "Stock: N/A");
                         
-                        // Color code status
+                        // Color code by event type
                         try {
-                            if ("Expired".equals(status)) {
+                            if (InventoryEvent.TYPE_DISPOSE.equals(eventType)) {
                                 statusText.setTextColor(getContext().getColor(R.color.error_red));
-                            } else if ("Expiring Soon".equals(status)) {
+                            } else if (InventoryEvent.TYPE_ADJUST.equals(eventType)) {
                                 statusText.setTextColor(getContext().getColor(R.color.warning_orange));
-                            } else if ("Active".equals(status)) {
+                            } else if (InventoryEvent.TYPE_RECEIVE.equals(eventType)) {
                                 statusText.setTextColor(getContext().getColor(R.color.success_green));
-                            } else if ("Dispensed".equals(status)) {
+                            } else if (InventoryEvent.TYPE_DISPENSE.equals(eventType)) {
                                 statusText.setTextColor(getContext().getColor(R.color.primary_blue));
                             } else {
                                 statusText.setTextColor(getContext().getColor(R.color.text_secondary));
@@ -678,7 +414,8 @@ public class MedicineHistoryFragment extends Fragment {
                     }
                     
                     if (quantityText != null) {
-                        String qtyText = "Quantity: " + event.getQuantity() + " " + (event.getUnit() != null ? event.getUnit() : "units");
+                        String sign = event.getQuantity() > 0 ? "+" : "";
+                        String qtyText = "Quantity: " + sign + event.getQuantity() + " " + (event.getUnit() != null ? event.getUnit() : "units");
                         quantityText.setText(qtyText);
                     }
                 } catch (Exception e) {
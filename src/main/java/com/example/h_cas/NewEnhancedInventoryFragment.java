@@ -20,7 +20,10 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.database.Page;
 import com.example.h_cas.models.Medicine;
+import com.example.h_cas.utils.LoadMoreScrollListener;
+import com.example.h_cas.utils.IdGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,7 +45,7 @@ public class NewEnhancedInventoryFragment extends Fragment {
     private MaterialButton historyButton;
     
     // Data
-    private List<Medicine> allMedicines;
+    private static final int PAGE_SIZE = 40;
     private List<Medicine> filteredMedicines;
     private MedicineAdapter medicineAdapter;
     private HCasDatabaseHelper databaseHelper;
@@ -50,6 +53,11 @@ public class NewEnhancedInventoryFragment extends Fragment {
     // Filter states
     private boolean showingLowStock = false;
     private boolean showingExpiringSoon = false;
+    
+    // Paging state (main thread only)
+    private Page.Key nextPageKey;
+    private boolean isLoadingPage;
+    private int loadGeneration;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -78,7 +86,6 @@ public class NewEnhancedInventoryFragment extends Fragment {
         analyticsButton = view.findViewById(R.id.analyticsButton);
         historyButton = view.findViewById(R.id.suppliersButton);
         
-        allMedicines = new ArrayList<>();
         filteredMedicines = new ArrayList();
         
         // Initialize empty state visibility
@@ -91,7 +98,7 @@ public class NewEnhancedInventoryFragment extends Fragment {
         if (getContext() == null) {
             return;
         }
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -102,6 +109,14 @@ public class NewEnhancedInventoryFragment extends Fragment {
         medicineAdapter = new MedicineAdapter(filteredMedicines);
         medicinesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         medicinesRecyclerView.setAdapter(medicineAdapter);
+        medicinesRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+            @Override
+            protected void onLoadMore() {
+                if (!isLoadingPage && nextPageKey != null) {
+                    loadPage(nextPageKey, false);
+                }
+            }
+        });
     }
 
     private void setupClickListeners() {
@@ -128,57 +143,84 @@ public class NewEnhancedInventoryFragment extends Fragment {
     }
 
     private void loadMedicines() {
-        try {
-            if (getContext() == null || databaseHelper == null) {
-                return;
+        // Reset filters
+        showingLowStock = false;
+        showingExpiringSoon = false;
+        updateButtonStates();
+        reloadMedicines(false);
+    }
+
+    /**
+     * Reload the list from the first page using the current filter state
+     */
+    private void reloadMedicines(boolean announceFilter) {
+        if (getContext() == null || databaseHelper == null) {
+            return;
+        }
+        // Results of any in-flight load are discarded
+        loadGeneration++;
+        nextPageKey = null;
+        loadPage(null, announceFilter);
+    }
+
+    private void loadPage(Page.Key after, boolean announceFilter) {
+        if (getContext() == null || databaseHelper == null) {
+            return;
+        }
+        
+        // Filters are evaluated in SQL; expired medicines are always excluded
+        // (they should only be in Disposed Medicine section)
+        final String today = formatDate(java.util.Calendar.getInstance());
+        final int maximumStock = showingLowStock ? PharmacistSettingsFragment.getMinimumStockQuantity(getContext()) : -1;
+        final int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
+        final String expiringBy = showingExpiringSoon ? getExpiringSoonCutoff(thresholdMonths) : null;
+        final int generation = loadGeneration;
+        isLoadingPage = true;
+        
+        // Load medicines in background to avoid blocking UI
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            // If no medicines in database, add sample medicines for demo
+            if (after == null && databaseHelper.getTotalMedicinesCount() == 0) {
+                addSampleMedicines();
             }
             
-            // Load medicines in background to avoid blocking UI
-            com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-                // Load medicines from database (exclude expired medicines - they should only be in Disposed Medicine section)
-                List<Medicine> medicines = databaseHelper.getAllMedicines();
-                List<Medicine> validMedicines = new ArrayList<>();
-                
-                if (medicines != null) {
-                    for (Medicine medicine : medicines) {
-                        if (medicine != null && !isExpired(medicine)) {
-                            validMedicines.add(medicine);
-                        }
-                    }
+            Page<Medicine> page = databaseHelper.getMedicinesPage(after, PAGE_SIZE, today, maximumStock, expiringBy);
+            int matchCount = announceFilter ? databaseHelper.getMedicinesCount(today, maximumStock, expiringBy) : 0;
+            
+            // Update UI on main thread
+            com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null || generation != loadGeneration) {
+                    return; // Fragment is detached or a refresh superseded this load
                 }
+                isLoadingPage = false;
+                nextPageKey = page.getNextKey();
                 
-                // Update UI on main thread
-                com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
-                    if (getContext() == null || getView() == null) {
-                        return; // Fragment is detached
-                    }
-                    
-                    allMedicines.clear();
-                    allMedicines.addAll(validMedicines);
-                    
-                    // If no medicines in database, add sample medicines for demo
-                    if (allMedicines.isEmpty()) {
-                        addSampleMedicines();
-                    }
-                    
-                    // Reset filters
-                    showingLowStock = false;
-                    showingExpiringSoon = false;
-                    updateButtonStates();
-                    
+                if (after == null) {
                     filteredMedicines.clear();
-                    filteredMedicines.addAll(allMedicines);
-                    
+                    filteredMedicines.addAll(page.getItems());
                     if (medicineAdapter != null) {
                         medicineAdapter.notifyDataSetChanged();
                     }
-                    
-                    updateEmptyState();
-                });
+                } else {
+                    int start = filteredMedicines.size();
+                    filteredMedicines.addAll(page.getItems());
+                    if (medicineAdapter != null) {
+                        medicineAdapter.notifyItemRangeInserted(start, page.getItems().size());
+                    }
+                }
+                
+                if (announceFilter) {
+                    if (showingLowStock) {
+                        Toast.makeText(getContext(), "⚠️ Showing " + matchCount + " low stock medicines (threshold: " + maximumStock + ")", Toast.LENGTH_SHORT).show();
+                    } else if (showingExpiringSoon) {
+                        String monthText = thresholdMonths == 1 ? "month" : "months";
+                        Toast.makeText(getContext(), "⏰ Showing " + matchCount + " medicines expiring soon (threshold: " + thresholdMonths + " " + monthText + ")", Toast.LENGTH_SHORT).show();
+                    }
+                }
+                
+                updateEmptyState();
             });
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        });
     }
 
     private void addSampleMedicines() {
@@ -208,7 +250,6 @@ public class NewEnhancedInventoryFragment extends Fragment {
             newMedicine.setSupplier(medicine[9]);
             
             databaseHelper.addMedicine(newMedicine);
-            allMedicines.add(newMedicine);
         }
     }
 
@@ -219,28 +260,17 @@ public class NewEnhancedInventoryFragment extends Fragment {
         
         if (showingLowStock) {
             // Show all medicines
-            filteredMedicines.clear();
-            filteredMedicines.addAll(allMedicines);
             showingLowStock = false;
             showingExpiringSoon = false;
             Toast.makeText(getContext(), "📦 Showing all medicines", Toast.LENGTH_SHORT).show();
         } else {
             // Show low stock medicines using configurable minimum
-            filteredMedicines.clear();
-            int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
-            for (Medicine medicine : allMedicines) {
-                if (medicine != null && medicine.isLowStock(minimumStock)) {
-                    filteredMedicines.add(medicine);
-                }
-            }
             showingLowStock = true;
             showingExpiringSoon = false;
-            Toast.makeText(getContext(), "⚠️ Showing " + filteredMedicines.size() + " low stock medicines (threshold: " + minimumStock + ")", Toast.LENGTH_SHORT).show();
         }
         
         updateButtonStates();
-        medicineAdapter.notifyDataSetChanged();
-        updateEmptyState();
+        reloadMedicines(showingLowStock);
     }
 
     private void toggleExpiringSoonFilter() {
@@ -250,122 +280,33 @@ public class NewEnhancedInventoryFragment extends Fragment {
         
         if (showingExpiringSoon) {
             // Show all medicines
-            filteredMedicines.clear();
-            filteredMedicines.addAll(allMedicines);
             showingLowStock = false;
             showingExpiringSoon = false;
             Toast.makeText(getContext(), "📦 Showing all medicines", Toast.LENGTH_SHORT).show();
         } else {
             // Show expiring soon medicines using configurable threshold
-            filteredMedicines.clear();
-            int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
-            for (Medicine medicine : allMedicines) {
-                if (medicine != null && isExpiringSoon(medicine, thresholdMonths)) {
-                    filteredMedicines.add(medicine);
-                }
-            }
             showingLowStock = false;
             showingExpiringSoon = true;
-            String monthText = thresholdMonths == 1 ? "month" : "months";
-            Toast.makeText(getContext(), "⏰ Showing " + filteredMedicines.size() + " medicines expiring soon (threshold: " + thresholdMonths + " " + monthText + ")", Toast.LENGTH_SHORT).show();
         }
         
         updateButtonStates();
-        medicineAdapter.notifyDataSetChanged();
-        updateEmptyState();
+        reloadMedicines(showingExpiringSoon);
     }
 
     /**
-     * Check if a medicine is expired (past expiry date)
+     * Last expiry date (inclusive) that counts as expiring soon. Matches the month-based
+     * rule used previously: anything before the same day-of-month thresholdMonths + 1
+     * months from now.
      */
-    private boolean isExpired(Medicine medicine) {
-        if (medicine == null || medicine.getExpiryDate() == null || medicine.getExpiryDate().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            // Parse expiry date (format: YYYY-MM-DD)
-            String expiryDateStr = medicine.getExpiryDate().trim();
-            String[] dateParts = expiryDateStr.split("-");
-            
-            if (dateParts.length != 3) {
-                return false;
-            }
-            
-            int expiryYear = Integer.parseInt(dateParts[0]);
-            int expiryMonth = Integer.parseInt(dateParts[1]);
-            int expiryDay = Integer.parseInt(dateParts[2]);
-            
-            // Get current date
-            java.util.Calendar currentCal = java.util.Calendar.getInstance();
-            int currentYear = currentCal.get(java.util.Calendar.YEAR);
-            int currentMonth = currentCal.get(java.util.Calendar.MONTH) + 1; // Calendar months are 0-based
-            int currentDay = currentCal.get(java.util.Calendar.DAY_OF_MONTH);
-            
-            // Check if expired
-            if (expiryYear < currentYear) {
-                return true;
-            } else if (expiryYear == currentYear) {
-                if (expiryMonth < currentMonth) {
-                    return true;
-                } else if (expiryMonth == currentMonth && expiryDay < currentDay) {
-                    return true;
-                }
-            }
-            
-            return false;
-            
-        } catch (Exception e) {
-            return false;
-        }
+    private String getExpiringSoonCutoff(int thresholdMonths) {
+        java.util.Calendar cutoff = java.util.Calendar.getInstance();
+        cutoff.add(java.util.Calendar.MONTH, thresholdMonths + 1);
+        cutoff.add(java.util.Calendar.DAY_OF_MONTH, -1);
+        return formatDate(cutoff);
     }
 
-    /**
-     * Check if a medicine is expiring soon based on the configurable threshold
-     * @param medicine The medicine to check
-     * @param thresholdMonths Number of months before expiry to mark as expiring soon
-     * @return true if medicine is expiring within the threshold
-     */
-    private boolean isExpiringSoon(Medicine medicine, int thresholdMonths) {
-        if (medicine == null || medicine.getExpiryDate() == null || medicine.getExpiryDate().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            // Parse expiry date (format: YYYY-MM-DD)
-            String expiryDateStr = medicine.getExpiryDate().trim();
-            String[] dateParts = expiryDateStr.split("-");
-            
-            if (dateParts.length != 3) {
-                return false;
-            }
-            
-            int expiryYear = Integer.parseInt(dateParts[0]);
-            int expiryMonth = Integer.parseInt(dateParts[1]);
-            int expiryDay = Integer.parseInt(dateParts[2]);
-            
-            // Get current date
-            java.util.Calendar currentCal = java.util.Calendar.getInstance();
-            int currentYear = currentCal.get(java.util.Calendar.YEAR);
-            int currentMonth = currentCal.get(java.util.Calendar.MONTH) + 1; // Calendar months are 0-based
-            int currentDay = currentCal.get(java.util.Calendar.DAY_OF_MONTH);
-            
-            // Calculate months difference
-            int yearDiff = expiryYear - currentYear;
-            int monthDiff = (yearDiff * 12) + (expiryMonth - currentMonth);
-            
-            // Adjust for day difference (if expiry day is before current day in same month, count as less than a month)
-            if (monthDiff > 0 && expiryDay < currentDay) {
-                monthDiff--;
-            }
-            
-            // Check if within threshold
-            return monthDiff >= 0 && monthDiff <= thresholdMonths;
-            
-        } catch (Exception e) {
-            // If date parsing fails, return false
-            return false;
-        }
+    private String formatDate(java.util.Calendar calendar) {
+        return new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US).format(calendar.getTime());
     }
 
     private void updateButtonStates() {
@@ -543,7 +484,7 @@ public class NewEnhancedInventoryFragment extends Fragment {
 
     private void addMedicine(String name, String dosage, int stock, String unit, String category, String description, String expiry, double price, String supplier) {
         Medicine newMedicine = new Medicine();
-        newMedicine.setMedicineId("MED" + System.currentTimeMillis());
+        newMedicine.setMedicineId(IdGenerator.getInstance(requireContext()).next(IdGenerator.PREFIX_MEDICINE));
         newMedicine.setMedicineName(name);
         newMedicine.setDosage(dosage);
         newMedicine.setStockQuantity(stock);
@@ -567,36 +508,40 @@ public class NewEnhancedInventoryFragment extends Fragment {
     }
 
     private void showAnalyticsDialog() {
-        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
-        builder.setTitle("📊 Inventory Analytics");
-        
-        int totalMedicines = databaseHelper.getTotalMedicinesCount();
-        // Calculate low stock count using configurable minimum
-        int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
-        int lowStockCount = 0;
-        for (Medicine medicine : allMedicines) {
-            if (medicine != null && medicine.isLowStock(minimumStock)) {
-                lowStockCount++;
-            }
-        }
-        // Calculate expiring soon count using configurable threshold
-        int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
-        int expiringSoonCount = 0;
-        for (Medicine medicine : allMedicines) {
-            if (medicine != null && isExpiringSoon(medicine, thresholdMonths)) {
-                expiringSoonCount++;
-            }
+        if (getContext() == null || databaseHelper == null) {
+            return;
         }
         
-        String analyticsText = "📦 Total Medicines: " + totalMedicines + "\n\n" +
-                             "⚠️ Low Stock Items: " + lowStockCount + "\n\n" +
-                             "⏰ Expiring Soon: " + expiringSoonCount + "\n\n" +
-                             "📈 Stock Health: " + (totalMedicines > 0 ? 
-                                 String.format("%.1f%%", ((double)(totalMedicines - lowStockCount) / totalMedicines) * 100) : "N/A");
+        String today = formatDate(java.util.Calendar.getInstance());
+        // Low stock uses the configurable minimum, expiring soon the configurable threshold
+        int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
+        String expiringBy = getExpiringSoonCutoff(PharmacistSettingsFragment.getExpiryNotificationMonths(getContext()));
         
-        builder.setMessage(analyticsText);
-        builder.setPositiveButton("Close", null);
-        builder.show();
+        // Counts are computed in SQL in the background
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            int totalMedicines = databaseHelper.getTotalMedicinesCount();
+            int lowStockCount = databaseHelper.getMedicinesCount(today, minimumStock, null);
+            int expiringSoonCount = databaseHelper.getMedicinesCount(today, -1, expiringBy);
+            
+            com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) {
+                    return; // Fragment is detached
+                }
+                
+                AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+                builder.setTitle("📊 Inventory Analytics");
+                
+                String analyticsText = "📦 Total Medicines: " + totalMedicines + "\n\n" +
+                                     "⚠️ Low Stock Items: " + lowStockCount + "\n\n" +
+                                     "⏰ Expiring Soon: " + expiringSoonCount + "\n\n" +
+                                     "📈 Stock Health: " + (totalMedicines > 0 ? 
+                                         String.format("%.1f%%", ((double)(totalMedicines - lowStockCount) / totalMedicines) * 100) : "N/A");
+                
+                builder.setMessage(analyticsText);
+                builder.setPositiveButton("Close", null);
+                builder.show();
+            });
+        });
     }
 
     private void navigateToMedicineHistory() {
@@ -25,6 +25,7 @@ import com.google.android.material.navigation.NavigationView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * NurseDashboardActivity provides the main interface for nurses.
@@ -67,7 +68,7 @@ public class NurseDashboardActivity extends AppCompatActivity implements Navigat
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(this);
+        databaseHelper = HCasDatabaseHelper.getInstance(this);
         
         // Get employee data from intent
         Intent intent = getIntent();
@@ -217,6 +218,7 @@ public class NurseDashboardActivity extends AppCompatActivity implements Navigat
      * Handle nurse logout
      */
     private void handleLogout() {
+        SessionManager.getInstance(this).end();
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
@@ -16,6 +16,8 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DashboardStats;
+import com.example.h_cas.utils.DatabaseExecutor;
 
 /**
  * NurseDashboardFragment displays the main dashboard for nurses
@@ -79,27 +81,36 @@ public class NurseDashboardFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupStatsRecyclerView() {
-        // Get real data from database
-        int totalPatients = databaseHelper.getTotalPatientsCount();
-        int monitoringCount = getMonitoringCount(); // Patients being monitored
-        int prescriptionCount = getPrescriptionCount(); // Doctor prescriptions
-        
-        // Create healthcare system stats data with real values (removed Registration as it's same as Total Patients)
-        String[] statsLabels = {"Total Patients", "Monitoring", "Doctor's Prescription"};
-        String[] statsValues = {
-            String.valueOf(totalPatients),
-            String.valueOf(monitoringCount),
-            String.valueOf(prescriptionCount)
-        };
-        int[] statsColors = {R.color.primary_blue, R.color.warning_orange, R.color.accent_blue};
-
-        StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
-        statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
-        statsRecyclerView.setAdapter(adapter);
+        // Load stats in background to avoid blocking UI; the snapshot is usually already in memory
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            DashboardStats stats = databaseHelper.getDashboardStats();
+            int totalPatients = stats.getTotalPatients();
+            int monitoringCount = getMonitoringCount(totalPatients); // Patients being monitored
+            int prescriptionCount = stats.getTotalPrescriptions(); // Doctor prescriptions
+
+            // Create healthcare system stats data with real values (removed Registration as it's same as Total Patients)
+            final String[] statsLabels = {"Total Patients", "Monitoring", "Doctor's Prescription"};
+            final String[] statsValues = {
+                String.valueOf(totalPatients),
+                String.valueOf(monitoringCount),
+                String.valueOf(prescriptionCount)
+            };
+            final int[] statsColors = {R.color.primary_blue, R.color.warning_orange, R.color.accent_blue};
+
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) {
+                    return; // Fragment is detached
+                }
+
+                StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
+                statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
+                statsRecyclerView.setAdapter(adapter);
+            });
+        });
     }
 
     private void setupClickListeners() {
@@ -160,23 +171,12 @@ public class NurseDashboardFragment extends Fragment {
     /**
      * Get count of patients being monitored
      */
-    private int getMonitoringCount() {
+    private int getMonitoringCount(int totalPatients) {
         // For now, return a calculated value based on total patients
         // In a real system, this would query patients with monitoring status
-        int totalPatients = databaseHelper.getTotalPatientsCount();
         return Math.max(1, totalPatients / 2); // Approximately 1/2 of patients being monitored
     }
 
-    /**
-     * Get count of doctor prescriptions
-     */
-    private int getPrescriptionCount() {
-        // For now, return a calculated value based on total patients
-        // In a real system, this would query prescriptions table
-        int totalPatients = databaseHelper.getTotalPatientsCount();
-        return Math.max(1, totalPatients / 2); // Approximately 1/2 of patients have prescriptions
-    }
-
     // Simple RecyclerView adapter for stats cards
     private class StatsAdapter extends RecyclerView.Adapter<StatsAdapter.StatsViewHolder> {
         private String[] labels;
@@ -21,6 +21,7 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * NurseProfileFragment handles nurse profile management functionality.
@@ -56,6 +57,7 @@ public class NurseProfileFragment extends Fragment {
     // Data
     private Employee currentNurse;
     private HCasDatabaseHelper databaseHelper;
+    private SessionManager session;
     private String loggedInFullName;
     private String loggedInUsername;
     private String loggedInRole;
@@ -116,7 +118,8 @@ public class NurseProfileFragment extends Fragment {
      * Initialize data from parent activity
      */
     private void initializeData() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
+        session = SessionManager.getInstance(requireContext());
         
         // Get employee data from arguments or parent activity
         Bundle args = getArguments();
@@ -165,8 +168,13 @@ public class NurseProfileFragment extends Fragment {
      */
     private void loadNurseProfile() {
         try {
-            // Load nurse data from database
-            Employee nurseData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+            // The session holds the signed-in nurse; read the row only if it does not
+            // (e.g. after a restart) and keep it there for the next visit
+            Employee nurseData = session.getEmployee(loggedInUsername);
+            if (nurseData == null) {
+                nurseData = databaseHelper.getEmployeeByUsername(loggedInUsername);
+                session.updateEmployee(nurseData);
+            }
             if (nurseData != null) {
                 currentNurse = nurseData;
                 
@@ -287,6 +295,8 @@ public class NurseProfileFragment extends Fragment {
             boolean updated = databaseHelper.updateEmployee(currentNurse);
             
             if (updated) {
+                session.updateEmployee(currentNurse);
+                
                 showToast("✅ Profile updated successfully!");
                 
                 // Update header with the exact name from admin registration
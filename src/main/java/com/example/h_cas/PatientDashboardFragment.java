@@ -40,7 +40,7 @@ public class PatientDashboardFragment extends Fragment {
         emptyView = view.findViewById(R.id.emptyState);
         recyclerView.setLayoutManager(new LinearLayoutManager(view.getContext()));
 
-        databaseHelper = new HCasDatabaseHelper(view.getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(view.getContext());
         List<Patient> patients = databaseHelper.getAllPatients();
 
         if (patients.isEmpty()) {
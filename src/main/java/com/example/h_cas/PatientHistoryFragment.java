@@ -18,24 +18,32 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.database.Page;
 import com.example.h_cas.models.Patient;
+import com.example.h_cas.models.PatientHistoryItem;
 import com.example.h_cas.models.Prescription;
+import com.example.h_cas.utils.LoadMoreScrollListener;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * PatientHistoryFragment displays patients who have received prescriptions.
  */
 public class PatientHistoryFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 30;
+
     private RecyclerView patientHistoryRecyclerView;
     private TextView emptyStateTextView;
     private HCasDatabaseHelper databaseHelper;
     private PatientHistoryAdapter patientHistoryAdapter;
 
+    // Paging state (main thread only)
+    private Page.Key nextPageKey;
+    private boolean isLoadingPage;
+    private int loadGeneration;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -58,27 +66,52 @@ public class PatientHistoryFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
         patientHistoryAdapter = new PatientHistoryAdapter();
         patientHistoryRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         patientHistoryRecyclerView.setAdapter(patientHistoryAdapter);
+        patientHistoryRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+            @Override
+            protected void onLoadMore() {
+                if (!isLoadingPage && nextPageKey != null) {
+                    loadPage(nextPageKey);
+                }
+            }
+        });
     }
 
     private void loadPatientHistory() {
+        // Start again from the first page; results of any in-flight load are discarded
+        loadGeneration++;
+        nextPageKey = null;
+        loadPage(null);
+    }
+
+    private void loadPage(Page.Key after) {
+        isLoadingPage = true;
+        final int generation = loadGeneration;
         // Load patient history in background to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            List<Prescription> prescriptions = databaseHelper.getAllPrescriptions();
-            List<PatientHistoryItem> historyItems = processPrescriptionsToHistoryItems(prescriptions);
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            // Counts and latest prescription per patient are aggregated in SQL
+            Page<PatientHistoryItem> page = databaseHelper.getPatientHistoryPage(after, PAGE_SIZE);
             
             // Update UI on main thread
             com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
-                if (getContext() == null || getView() == null) {
-                    return; // Fragment is detached
+                if (getContext() == null || getView() == null || generation != loadGeneration) {
+                    return; // Fragment is detached or a refresh superseded this load
                 }
+                isLoadingPage = false;
+                nextPageKey = page.getNextKey();
                 
+                if (after != null) {
+                    patientHistoryAdapter.addPatientHistoryItems(page.getItems());
+                    return;
+                }
+                
+                List<PatientHistoryItem> historyItems = page.getItems();
                 if (historyItems.isEmpty()) {
                     emptyStateTextView.setVisibility(View.VISIBLE);
                     patientHistoryRecyclerView.setVisibility(View.GONE);
@@ -92,47 +125,6 @@ public class PatientHistoryFragment extends Fragment {
             });
         });
     }
-    
-    private List<PatientHistoryItem> processPrescriptionsToHistoryItems(List<Prescription> prescriptions) {
-        List<PatientHistoryItem> historyItems = new ArrayList<>();
-        
-        // Create a map to track unique patients and their prescription counts
-        Map<String, PatientHistoryItem> patientMap = new HashMap<>();
-        
-        for (Prescription prescription : prescriptions) {
-            String patientId = prescription.getPatientId();
-            
-            if (!patientMap.containsKey(patientId)) {
-                // Get patient details
-                Patient patient = databaseHelper.getPatientById(patientId);
-                if (patient != null) {
-                    PatientHistoryItem historyItem = new PatientHistoryItem();
-                    historyItem.setPatient(patient);
-                    historyItem.setPrescriptionCount(1);
-                    historyItem.setLastPrescriptionDate(prescription.getCreatedDate());
-                    historyItem.setLastMedication(prescription.getMedication());
-                    historyItem.setLastDoctor(prescription.getDoctorName());
-                    
-                    patientMap.put(patientId, historyItem);
-                }
-            } else {
-                // Update existing patient's prescription count and last prescription info
-                PatientHistoryItem existingItem = patientMap.get(patientId);
-                existingItem.setPrescriptionCount(existingItem.getPrescriptionCount() + 1);
-                existingItem.setLastPrescriptionDate(prescription.getCreatedDate());
-                existingItem.setLastMedication(prescription.getMedication());
-                existingItem.setLastDoctor(prescription.getDoctorName());
-            }
-        }
-        
-        // Convert map to list
-        historyItems.addAll(patientMap.values());
-        
-        // Sort by last prescription date (most recent first)
-        historyItems.sort((a, b) -> b.getLastPrescriptionDate().compareTo(a.getLastPrescriptionDate()));
-        
-        return historyItems;
-    }
 
     @Override
     public void onResume() {
@@ -145,10 +137,19 @@ public class PatientHistoryFragment extends Fragment {
         private List<PatientHistoryItem> patientHistoryItems;
 
         public void setPatientHistoryItems(List<PatientHistoryItem> patientHistoryItems) {
-            this.patientHistoryItems = patientHistoryItems;
+            this.patientHistoryItems = new ArrayList<>(patientHistoryItems);
             notifyDataSetChanged();
         }
 
+        public void addPatientHistoryItems(List<PatientHistoryItem> items) {
+            if (patientHistoryItems == null) {
+                patientHistoryItems = new ArrayList<>();
+            }
+            int start = patientHistoryItems.size();
+            patientHistoryItems.addAll(items);
+            notifyItemRangeInserted(start, items.size());
+        }
+
         @NonNull
         @Override
         public PatientHistoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -261,19 +262,8 @@ public class PatientHistoryFragment extends Fragment {
             }
             
             private List<Prescription> getPrescriptionsForPatient(String patientId) {
-                List<Prescription> allPrescriptions = databaseHelper.getAllPrescriptions();
-                List<Prescription> patientPrescriptions = new ArrayList<>();
-                
-                for (Prescription prescription : allPrescriptions) {
-                    if (prescription.getPatientId().equals(patientId)) {
-                        patientPrescriptions.add(prescription);
-                    }
-                }
-                
-                // Sort by date (most recent first)
-                patientPrescriptions.sort((a, b) -> b.getCreatedDate().compareTo(a.getCreatedDate()));
-                
-                return patientPrescriptions;
+                // Uses the (patient_id, created_date) index instead of scanning every prescription
+                return databaseHelper.getPrescriptionsForPatient(patientId);
             }
             
             // Adapter for prescription history within the dialog
@@ -335,53 +325,4 @@ public class PatientHistoryFragment extends Fragment {
             }
         }
     }
-
-    // Data class for patient history items
-    public static class PatientHistoryItem {
-        private Patient patient;
-        private int prescriptionCount;
-        private String lastPrescriptionDate;
-        private String lastMedication;
-        private String lastDoctor;
-
-        public Patient getPatient() {
-            return patient;
-        }
-
-        public void setPatient(Patient patient) {
-            this.patient = patient;
-        }
-
-        public int getPrescriptionCount() {
-            return prescriptionCount;
-        }
-
-        public void setPrescriptionCount(int prescriptionCount) {
-            this.prescriptionCount = prescriptionCount;
-        }
-
-        public String getLastPrescriptionDate() {
-            return lastPrescriptionDate;
-        }
-
-        public void setLastPrescriptionDate(String lastPrescriptionDate) {
-            this.lastPrescriptionDate = lastPrescriptionDate;
-        }
-
-        public String getLastMedication() {
-            return lastMedication;
-        }
-
-        public void setLastMedication(String lastMedication) {
-            this.lastMedication = lastMedication;
-        }
-
-        public String getLastDoctor() {
-            return lastDoctor;
-        }
-
-        public void setLastDoctor(String lastDoctor) {
-            this.lastDoctor = lastDoctor;
-        }
-    }
 }
@@ -16,6 +16,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.h_cas.models.Patient;
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.utils.SearchDebouncer;
+import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,15 +28,20 @@ import java.util.List;
  */
 public class PatientMonitoringFragment extends Fragment {
     
+    // Matches listed while typing; narrowing the query finds the rest
+    private static final int SEARCH_LIMIT = 100;
+    
     // UI Components
     private RecyclerView recyclerViewPatients;
     private TextView textViewPatientCount;
     private TextView textViewMonitoringStatus;
+    private TextInputEditText searchInput;
     
     // Data
     private List<Patient> patientList;
     private PatientAdapter patientAdapter;
     private HCasDatabaseHelper databaseHelper;
+    private SearchDebouncer<Patient> patientSearch;
 
     @Nullable
     @Override
@@ -55,6 +62,9 @@ public class PatientMonitoringFragment extends Fragment {
         // Setup RecyclerView
         setupRecyclerView();
         
+        // Search as the user types
+        setupSearch();
+        
         // Load patients
         loadPatients();
         
@@ -69,13 +79,14 @@ public class PatientMonitoringFragment extends Fragment {
         recyclerViewPatients = view.findViewById(R.id.recyclerViewPatients);
         textViewPatientCount = view.findViewById(R.id.textViewPatientCount);
         textViewMonitoringStatus = view.findViewById(R.id.textViewMonitoringStatus);
+        searchInput = view.findViewById(R.id.patientSearchInput);
     }
     
     /**
      * Initialize database helper
      */
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
     
     /**
@@ -93,15 +104,14 @@ public class PatientMonitoringFragment extends Fragment {
     }
     
     /**
-     * Load patients from database
+     * Narrow the list as a name, ID, phone number or allergy is typed
      */
-    private void loadPatients() {
-        // Load patients in background to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            List<Patient> patients = databaseHelper.getAllPatients();
-            
-            // Update UI on main thread
-            com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+    private void setupSearch() {
+        patientSearch = new SearchDebouncer<>(this,
+            query -> query.isEmpty()
+                ? databaseHelper.getAllPatients()
+                : databaseHelper.searchPatients(query, false, SEARCH_LIMIT),
+            (query, patients) -> {
                 if (getContext() == null || getView() == null) {
                     return; // Fragment is detached
                 }
@@ -109,26 +119,35 @@ public class PatientMonitoringFragment extends Fragment {
                 patientList.addAll(patients);
                 patientAdapter.notifyDataSetChanged();
                 
-                updatePatientCount();
-                updateMonitoringStatus();
+                updatePatientCount(query);
+                updateMonitoringStatus(query);
             });
-        });
+        patientSearch.attachTo(searchInput);
+    }
+    
+    /**
+     * Load patients from database
+     */
+    private void loadPatients() {
+        // Load patients in background to avoid blocking UI, keeping the search applied
+        patientSearch.searchNow();
     }
     
     /**
      * Update patient count display
      */
-    private void updatePatientCount() {
+    private void updatePatientCount(String query) {
         int count = patientList.size();
-        textViewPatientCount.setText("Total Patients: " + count);
+        textViewPatientCount.setText(query.isEmpty() ? "Total Patients: " + count : "Matching Patients: " + count);
     }
     
     /**
      * Update monitoring status display
      */
-    private void updateMonitoringStatus() {
+    private void updateMonitoringStatus(String query) {
         if (patientList.isEmpty()) {
-            textViewMonitoringStatus.setText("Status: No patients in system");
+            textViewMonitoringStatus.setText(query.isEmpty() ? "Status: No patients in system"
+                                                             : "Status: No patients match \"" + query + "\"");
             textViewMonitoringStatus.setTextColor(getResources().getColor(R.color.text_secondary));
         } else {
             textViewMonitoringStatus.setText("Status: Monitoring active - " + patientList.size() + " patients");
@@ -13,6 +13,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.example.h_cas.utils.IdGenerator;
+
 import java.util.Calendar;
 
 /**
@@ -386,8 +388,6 @@ public class PatientRegistrationFragment extends Fragment {
     }
 
     private String generatePatientId() {
-        String prefix = "PAT";
-        String unique = String.valueOf(System.currentTimeMillis()).substring(7);
-        return prefix + unique;
+        return IdGenerator.getInstance(requireContext()).next(IdGenerator.PREFIX_PATIENT);
     }
 }
@@ -36,7 +36,7 @@ public class PatientsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         recyclerView = view.findViewById(R.id.patientsRecyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(view.getContext()));
-        databaseHelper = new HCasDatabaseHelper(view.getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(view.getContext());
         loadPatients();
     }
 
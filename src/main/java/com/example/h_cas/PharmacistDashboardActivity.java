@@ -4,7 +4,6 @@ import android.annotation.SuppressLint;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -38,10 +37,8 @@ import com.google.firebase.storage.UploadTask;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Employee;
-
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.net.URL;
+import com.example.h_cas.utils.ImageLoader;
+import com.example.h_cas.utils.SessionManager;
 
 /**
  * PharmacistDashboardActivity provides the main interface for pharmacists.
@@ -62,6 +59,20 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
     private StorageReference storageReference;
     private ActivityResultLauncher<Intent> imagePickerLauncher;
 
+    // Uploads a picked or captured image once it has been resized and recompressed
+    private final ImageLoader.UploadListener imageUpload = new ImageLoader.UploadListener() {
+        @Override
+        public void onReady(byte[] jpeg) {
+            uploadProfilePicture(jpeg);
+        }
+
+        @Override
+        public void onFailed(Exception error) {
+            Toast.makeText(PharmacistDashboardActivity.this, "❌ Error reading image: " + error.getMessage(),
+                           Toast.LENGTH_SHORT).show();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -88,7 +99,7 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(this);
+        databaseHelper = HCasDatabaseHelper.getInstance(this);
         
         // Get employee data from intent
 
@@ -98,14 +109,17 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
         loggedInUsername = intent.getStringExtra("USERNAME");
         loggedInRole = intent.getStringExtra("ROLE");
         
-        // Create current pharmacist object from intent data
-        currentPharmacist = new Employee();
-        currentPharmacist.setEmployeeId(intent.getStringExtra("EMPLOYEE_ID"));
-        currentPharmacist.setFirstName(intent.getStringExtra("FIRST_NAME"));
-        currentPharmacist.setLastName(intent.getStringExtra("LAST_NAME"));
-        currentPharmacist.setUsername(loggedInUsername);
-        currentPharmacist.setRole(loggedInRole);
-        currentPharmacist.setEmail(intent.getStringExtra("EMAIL"));
+        // The session keeps the full profile (with the picture); otherwise build it from intent data
+        currentPharmacist = SessionManager.getInstance(this).getEmployee(loggedInUsername);
+        if (currentPharmacist == null) {
+            currentPharmacist = new Employee();
+            currentPharmacist.setEmployeeId(intent.getStringExtra("EMPLOYEE_ID"));
+            currentPharmacist.setFirstName(intent.getStringExtra("FIRST_NAME"));
+            currentPharmacist.setLastName(intent.getStringExtra("LAST_NAME"));
+            currentPharmacist.setUsername(loggedInUsername);
+            currentPharmacist.setRole(loggedInRole);
+            currentPharmacist.setEmail(intent.getStringExtra("EMAIL"));
+        }
     }
 
     /**
@@ -210,13 +224,13 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
                         if (data.getExtras() != null && data.getExtras().get("data") != null) {
                             Bitmap bitmap = (Bitmap) data.getExtras().get("data");
                             if (bitmap != null) {
-                                uploadProfilePictureFromBitmap(bitmap);
+                                ImageLoader.getInstance(this).prepareUpload(bitmap, this, imageUpload);
                             }
                         } else {
                             // It's from gallery
                             Uri imageUri = data.getData();
                             if (imageUri != null) {
-                                uploadProfilePicture(imageUri);
+                                ImageLoader.getInstance(this).prepareUpload(imageUri, this, imageUpload);
                             }
                         }
                     }
@@ -314,93 +328,19 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
     }
     
     /**
-     * Upload profile picture to Firebase Storage
-     */
-    private void uploadProfilePicture(Uri imageUri) {
-        if (imageUri == null || storageReference == null) {
-            Toast.makeText(this, "Error: Invalid image", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
-        Toast.makeText(this, "Uploading profile picture...", Toast.LENGTH_SHORT).show();
-        
-        try {
-            // Create reference to profile pictures folder
-            String fileName = "profile_" + currentPharmacist.getEmployeeId() + "_" + System.currentTimeMillis() + ".jpg";
-            StorageReference profileRef = storageReference.child("profile_pictures/" + fileName);
-            
-            // Upload file directly from URI
-            UploadTask uploadTask = profileRef.putFile(imageUri);
-            
-            uploadTask.addOnSuccessListener(taskSnapshot -> {
-                // Get download URL
-                profileRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                    String downloadUrl = uri.toString();
-                    
-                    // Update database with profile picture URL
-                    boolean updated = databaseHelper.updateEmployeeProfilePicture(currentPharmacist.getEmployeeId(), downloadUrl);
-                    
-                    if (updated) {
-                        // Update current pharmacist object
-                        currentPharmacist.setProfilePictureUrl(downloadUrl);
-                        
-                        // Reload pharmacist from database
-                        currentPharmacist = databaseHelper.getEmployeeByUsername(loggedInUsername);
-                        
-                        // Load the new image
-                        loadProfilePicture(downloadUrl);
-                        
-                        Toast.makeText(this, "✅ Profile picture updated successfully!", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(this, "❌ Failed to update profile picture in database", Toast.LENGTH_SHORT).show();
-                    }
-                }).addOnFailureListener(e -> {
-                    Toast.makeText(this, "❌ Error getting download URL: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
-            }).addOnFailureListener(e -> {
-                Toast.makeText(this, "❌ Error uploading image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
-            
-        } catch (Exception e) {
-            Toast.makeText(this, "❌ Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
-    }
-    
-    /**
-     * Load profile picture from URL
+     * Load profile picture from URL, scaled to the avatar and cached
      */
     private void loadProfilePicture(String imageUrl) {
-        if (imageUrl == null || imageUrl.isEmpty() || pharmacistAvatarImageView == null) {
-            return;
-        }
-        
-        try {
-            // Use a background thread to load the image
-            new Thread(() -> {
-                try {
-                    URL url = new URL(imageUrl);
-                    Bitmap bitmap = BitmapFactory.decodeStream(url.openConnection().getInputStream());
-                    
-                    // Update UI on main thread
-                    runOnUiThread(() -> {
-                        if (pharmacistAvatarImageView != null && bitmap != null) {
-                            pharmacistAvatarImageView.setImageBitmap(bitmap);
-                        }
-                    });
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }).start();
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (pharmacistAvatarImageView != null) {
+            ImageLoader.getInstance(this).load(imageUrl, pharmacistAvatarImageView, 0);
         }
     }
     
     /**
-     * Upload profile picture from bitmap (for camera)
+     * Upload a resized, recompressed profile picture to Firebase Storage
      */
-    private void uploadProfilePictureFromBitmap(Bitmap bitmap) {
-        if (bitmap == null || storageReference == null) {
+    private void uploadProfilePicture(byte[] data) {
+        if (data == null || storageReference == null) {
             Toast.makeText(this, "Error: Invalid image", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -412,10 +352,6 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
             String fileName = "profile_" + currentPharmacist.getEmployeeId() + "_" + System.currentTimeMillis() + ".jpg";
             StorageReference profileRef = storageReference.child("profile_pictures/" + fileName);
             
-            // Convert bitmap to byte array
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, baos);
-            byte[] data = baos.toByteArray();
             UploadTask uploadTask = profileRef.putBytes(data);
             
             uploadTask.addOnSuccessListener(taskSnapshot -> {
@@ -429,11 +365,10 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
                     if (updated) {
                         // Update current pharmacist object
                         currentPharmacist.setProfilePictureUrl(downloadUrl);
+                        SessionManager.getInstance(this).updateEmployee(currentPharmacist);
                         
-                        // Reload pharmacist from database
-                        currentPharmacist = databaseHelper.getEmployeeByUsername(loggedInUsername);
-                        
-                        // Load the new image
+                        // Load the new image from the bytes just sent
+                        ImageLoader.getInstance(this).put(downloadUrl, data);
                         loadProfilePicture(downloadUrl);
                         
                         Toast.makeText(this, "✅ Profile picture updated successfully!", Toast.LENGTH_SHORT).show();
@@ -465,12 +400,11 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
             
             if (updated) {
                 currentPharmacist.setProfilePictureUrl(null);
-                
-                // Reload pharmacist from database
-                currentPharmacist = databaseHelper.getEmployeeByUsername(loggedInUsername);
+                SessionManager.getInstance(this).updateEmployee(currentPharmacist);
                 
                 // Reset to default avatar
                 if (pharmacistAvatarImageView != null) {
+                    ImageLoader.getInstance(this).cancel(pharmacistAvatarImageView);
                     pharmacistAvatarImageView.setImageResource(R.drawable.ic_pharmacist_avatar);
                 }
                 
@@ -535,6 +469,7 @@ public class PharmacistDashboardActivity extends AppCompatActivity implements Na
      * Handle pharmacist logout
      */
     private void handleLogout() {
+        SessionManager.getInstance(this).end();
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
@@ -17,6 +17,8 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DashboardStats;
+import com.example.h_cas.utils.DatabaseExecutor;
 
 import java.util.List;
 
@@ -65,7 +67,7 @@ public class PharmacistDashboardFragment extends Fragment {
     }
 
     private void initializeData() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
         
         // Get logged-in pharmacist name from parent activity
         if (getActivity() != null) {
@@ -83,29 +85,41 @@ public class PharmacistDashboardFragment extends Fragment {
     }
 
     private void setupStatsRecyclerView() {
-        // Get real data from database
-        int totalPrescriptions = databaseHelper.getPrescriptionsCount();
-        int dispensedToday = getDispensedTodayCount();
-        int lowStockMedicines = getLowStockMedicinesCount();
-        int expiringSoon = getExpiringSoonCount();
-        int pendingReviews = getPendingReviewsCount();
-        int totalMedicines = getTotalMedicinesCount();
-        
-        // Create pharmacist-specific stats data with real values
-        String[] statsLabels = {"Total Prescriptions", "Dispensed Today", "Low Stock Alert", "Expiring Soon", "Pending Reviews", "Total Medicines"};
-        String[] statsValues = {
-            String.valueOf(totalPrescriptions),
-            String.valueOf(dispensedToday),
-            String.valueOf(lowStockMedicines),
-            String.valueOf(expiringSoon),
-            String.valueOf(pendingReviews),
-            String.valueOf(totalMedicines)
-        };
-        int[] statsColors = {R.color.primary_blue, R.color.success_green, R.color.warning_orange, R.color.error_red, R.color.accent_blue, R.color.text_secondary};
-
-        StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
-        statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
-        statsRecyclerView.setAdapter(adapter);
+        if (getContext() == null || databaseHelper == null) {
+            return;
+        }
+        // Configurable thresholds are read here; the counts are loaded in background
+        int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
+        int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
+
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            // One snapshot for every counter, usually already in memory
+            DashboardStats stats = databaseHelper.getDashboardStats(minimumStock, thresholdMonths);
+            int dispensedToday = getDispensedTodayCount();
+            int pendingReviews = getPendingReviewsCount();
+
+            // Create pharmacist-specific stats data with real values
+            final String[] statsLabels = {"Total Prescriptions", "Dispensed Today", "Low Stock Alert", "Expiring Soon", "Pending Reviews", "Total Medicines"};
+            final String[] statsValues = {
+                String.valueOf(stats.getTotalPrescriptions()),
+                String.valueOf(dispensedToday),
+                String.valueOf(stats.getLowStockMedicines()),
+                String.valueOf(stats.getExpiringSoonMedicines()),
+                String.valueOf(pendingReviews),
+                String.valueOf(stats.getTotalMedicines())
+            };
+            final int[] statsColors = {R.color.primary_blue, R.color.success_green, R.color.warning_orange, R.color.error_red, R.color.accent_blue, R.color.text_secondary};
+
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) {
+                    return; // Fragment is detached
+                }
+
+                StatsAdapter adapter = new StatsAdapter(statsLabels, statsValues, statsColors);
+                statsRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
+                statsRecyclerView.setAdapter(adapter);
+            });
+        });
     }
 
     private void setupClickListeners() {
@@ -160,27 +174,6 @@ public class PharmacistDashboardFragment extends Fragment {
         return 12;
     }
 
-    private int getLowStockMedicinesCount() {
-        // Get real count using configurable minimum stock
-        if (getContext() == null || databaseHelper == null) {
-            return 0;
-        }
-        int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
-        // Use optimized query instead of loading all medicines
-        return databaseHelper.getLowStockMedicinesCount(minimumStock);
-    }
-
-    private int getExpiringSoonCount() {
-        // Get real count using configurable threshold
-        if (getContext() == null || databaseHelper == null) {
-            return 0;
-        }
-        int thresholdMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
-        // Use optimized query instead of loading all medicines
-        return databaseHelper.getExpiringSoonMedicinesCount(thresholdMonths);
-    }
-    
-
     /**
      * Check if a medicine is expiring soon based on the configurable threshold
      */
@@ -230,11 +223,6 @@ public class PharmacistDashboardFragment extends Fragment {
         return 7;
     }
 
-    private int getTotalMedicinesCount() {
-        // Get real count from database
-        return databaseHelper.getTotalMedicinesCount();
-    }
-
     @Override
     public void onResume() {
         super.onResume();
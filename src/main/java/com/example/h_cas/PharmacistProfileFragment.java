@@ -99,7 +99,7 @@ public class PharmacistProfileFragment extends Fragment {
     }
 
     private void initializeData() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
         
         // Get logged-in pharmacist data from parent activity
         if (getActivity() != null) {
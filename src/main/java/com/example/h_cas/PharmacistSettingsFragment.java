@@ -227,7 +227,7 @@ public class PharmacistSettingsFragment extends Fragment {
         }
 
         try {
-            HCasDatabaseHelper dbHelper = new HCasDatabaseHelper(getContext());
+            HCasDatabaseHelper dbHelper = HCasDatabaseHelper.getInstance(getContext());
             
             // Create a test medicine
             Medicine testMedicine = new Medicine();
@@ -16,9 +16,18 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.DashboardStats;
+import com.example.h_cas.models.InventoryReportStats;
+import com.example.h_cas.models.PrescriptionReportStats;
+import com.example.h_cas.utils.DatabaseExecutor;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * PharmacyReportsFragment provides comprehensive reports and analytics for pharmacists
@@ -58,7 +67,7 @@ public class PharmacyReportsFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -75,59 +84,107 @@ public class PharmacyReportsFragment extends Fragment {
     }
 
     private void loadReports() {
-        reportItems.clear();
-        
-        // Add sample reports
-        reportItems.add(new ReportItem(
-            "Daily Dispensing Report",
-            "Medications dispensed today: 24 items",
-            "Today",
-            "📊",
-            "Daily dispensing summary with patient details and medication information."
-        ));
-        
-        reportItems.add(new ReportItem(
-            "Low Stock Alert",
-            "3 medicines are running low on stock",
-            "Active",
-            "⚠️",
-            "Medicines with stock levels below 10 units: Amoxicillin, Loratadine, Metformin."
-        ));
-        
-        reportItems.add(new ReportItem(
-            "Expiry Report",
-            "5 medicines expiring within 30 days",
-            "This Month",
-            "📅",
-            "Medicines approaching expiry date requiring immediate attention."
-        ));
-        
-        reportItems.add(new ReportItem(
-            "Prescription Analysis",
-            "Most prescribed: Paracetamol (45%), Ibuprofen (30%)",
-            "This Week",
-            "📈",
-            "Analysis of prescription patterns and popular medications."
-        ));
-        
-        reportItems.add(new ReportItem(
-            "Inventory Value",
-            "Total inventory value: ₱125,450.00",
-            "Current",
-            "💰",
-            "Current market value of all medicines in stock."
-        ));
-        
-        reportItems.add(new ReportItem(
-            "Patient Compliance",
-            "85% of patients collected their medications",
-            "This Month",
-            "✅",
-            "Patient medication collection rate and compliance tracking."
-        ));
-        
-        reportsAdapter.notifyDataSetChanged();
-        updateEmptyState();
+        if (getContext() == null || databaseHelper == null) {
+            return;
+        }
+        int minimumStock = PharmacistSettingsFragment.getMinimumStockQuantity(getContext());
+        int expiryMonths = PharmacistSettingsFragment.getExpiryNotificationMonths(getContext());
+
+        // The figures come from the report rollups and the dashboard snapshot, so no table is scanned
+        DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+            Calendar calendar = Calendar.getInstance();
+            String today = sdf.format(calendar.getTime());
+            calendar.add(Calendar.DAY_OF_YEAR, -7);
+            String weekAgo = sdf.format(calendar.getTime());
+
+            InventoryReportStats todayStats = databaseHelper.getInventoryReportStats(today, null);
+            PrescriptionReportStats weekPrescriptions = databaseHelper.getPrescriptionReportStats(weekAgo, null);
+            DashboardStats dashboardStats = databaseHelper.getDashboardStats(minimumStock, expiryMonths);
+
+            List<ReportItem> items = new ArrayList<>();
+            items.add(new ReportItem(
+                "Daily Dispensing Report",
+                "Medications dispensed today: " + todayStats.getTotalDispenses() + " items",
+                "Today",
+                "📊",
+                "Daily dispensing summary with patient details and medication information."
+            ));
+
+            items.add(new ReportItem(
+                "Low Stock Alert",
+                dashboardStats.getLowStockMedicines() + " medicines are running low on stock",
+                "Active",
+                "⚠️",
+                "Medicines with stock levels of " + minimumStock + " units or less."
+            ));
+
+            items.add(new ReportItem(
+                "Expiry Report",
+                dashboardStats.getExpiringSoonMedicines() + " medicines expiring within " + expiryMonths +
+                    (expiryMonths == 1 ? " month" : " months"),
+                "This Month",
+                "📅",
+                "Medicines approaching expiry date requiring immediate attention."
+            ));
+
+            items.add(new ReportItem(
+                "Prescription Analysis",
+                describeTopMedications(weekPrescriptions),
+                "This Week",
+                "📈",
+                "Analysis of prescription patterns and popular medications."
+            ));
+
+            items.add(new ReportItem(
+                "Inventory Value",
+                "Total inventory value: ₱" + String.format(Locale.US, "%,.2f", todayStats.getTotalStockValue()),
+                "Current",
+                "💰",
+                "Current market value of all medicines in stock."
+            ));
+
+            items.add(new ReportItem(
+                "Patient Compliance",
+                "85% of patients collected their medications",
+                "This Month",
+                "✅",
+                "Patient medication collection rate and compliance tracking."
+            ));
+
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                if (getContext() == null || getView() == null) {
+                    return; // Fragment is detached
+                }
+                reportItems.clear();
+                reportItems.addAll(items);
+                reportsAdapter.notifyDataSetChanged();
+                updateEmptyState();
+            });
+        });
+    }
+
+    /**
+     * "Most prescribed: A (45%), B (30%)" for the two most prescribed medications
+     */
+    private static String describeTopMedications(PrescriptionReportStats stats) {
+        int total = stats.getTotalPrescriptions();
+        if (total == 0) {
+            return "No prescriptions written this week";
+        }
+        List<Map.Entry<String, Integer>> medications = new ArrayList<>(stats.getPrescriptionsByMedication().entrySet());
+        Collections.sort(medications, (a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        StringBuilder summary = new StringBuilder("Most prescribed: ");
+        for (int i = 0; i < Math.min(2, medications.size()); i++) {
+            Map.Entry<String, Integer> medication = medications.get(i);
+            if (i > 0) {
+                summary.append(", ");
+            }
+            summary.append(medication.getKey().isEmpty() ? "Unspecified" : medication.getKey())
+                   .append(" (").append(medication.getValue() * 100 / total).append("%)");
+        }
+        return summary.toString();
     }
 
     private void updateEmptyState() {
@@ -21,8 +21,10 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Prescription;
+import com.example.h_cas.utils.SearchDebouncer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -30,6 +32,12 @@ import java.util.List;
  */
 public class PrescriptionVerificationFragment extends Fragment {
 
+    // Pending prescriptions (not yet dispensed): "Pending" or no status yet
+    private static final List<String> PENDING_STATUSES = Arrays.asList("Pending", null);
+
+    // Matches listed while typing; narrowing the query finds the rest
+    private static final int SEARCH_LIMIT = 100;
+
     private RecyclerView prescriptionsRecyclerView;
     private View emptyStateText; // Changed to View since it's a LinearLayout
     private MaterialButton verifyPrescriptionButton;
@@ -39,6 +47,7 @@ public class PrescriptionVerificationFragment extends Fragment {
     private HCasDatabaseHelper databaseHelper;
     private PrescriptionVerificationAdapter prescriptionAdapter;
     private List<Prescription> pendingPrescriptions;
+    private SearchDebouncer<Prescription> pendingSearch;
 
     @Nullable
     @Override
@@ -54,6 +63,7 @@ public class PrescriptionVerificationFragment extends Fragment {
             initializeDatabase();
             setupRecyclerView();
             setupClickListeners();
+            setupSearch();
             loadPendingPrescriptions();
             
             return view;
@@ -81,7 +91,7 @@ public class PrescriptionVerificationFragment extends Fragment {
         if (getContext() == null) {
             return;
         }
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -114,52 +124,53 @@ public class PrescriptionVerificationFragment extends Fragment {
         }
     }
 
-    private void loadPendingPrescriptions() {
-        if (databaseHelper == null || pendingPrescriptions == null) {
+    /**
+     * List pending prescriptions as the patient name is typed: all of them while the
+     * field is empty, otherwise those whose patient, medication, doctor or id match
+     */
+    private void setupSearch() {
+        if (databaseHelper == null || patientNameInput == null) {
             return;
         }
-        
-        // Load prescriptions in background to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            try {
-                List<Prescription> allPrescriptions = databaseHelper.getAllPrescriptions();
-                
-                // Filter for pending prescriptions (not yet dispensed)
-                List<Prescription> pendingList = new ArrayList<>();
-                if (allPrescriptions != null) {
-                    for (Prescription prescription : allPrescriptions) {
-                        if (prescription != null) {
-                            String status = prescription.getStatus();
-                            if ("Pending".equals(status) || status == null || status.isEmpty()) {
-                                pendingList.add(prescription);
-                            }
-                        }
-                    }
-                }
-                
-                // Update UI on main thread
-                com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+
+        pendingSearch = new SearchDebouncer<>(this,
+            query -> query.isEmpty()
+                ? databaseHelper.getPrescriptions(PENDING_STATUSES, null, null)
+                : databaseHelper.searchPrescriptions(query, PENDING_STATUSES, SEARCH_LIMIT),
+            new SearchDebouncer.Listener<Prescription>() {
+                @Override
+                public void onResults(String query, List<Prescription> results) {
                     if (getContext() == null || getView() == null) {
                         return; // Fragment is detached
                     }
-                    
+
                     pendingPrescriptions.clear();
-                    pendingPrescriptions.addAll(pendingList);
-                    
+                    pendingPrescriptions.addAll(results);
+
                     if (prescriptionAdapter != null) {
                         prescriptionAdapter.notifyDataSetChanged();
                     }
                     updateEmptyState();
-                });
-            } catch (Exception e) {
-                com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                }
+
+                @Override
+                public void onSearchFailed(String query, RuntimeException error) {
+                    error.printStackTrace();
                     if (getContext() != null) {
-                        Toast.makeText(getContext(), "Error loading prescriptions: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        Toast.makeText(getContext(), "Error loading prescriptions: " + error.getMessage(), Toast.LENGTH_SHORT).show();
                     }
-                });
-                e.printStackTrace();
-            }
-        });
+                }
+            });
+        pendingSearch.attachTo(patientNameInput);
+    }
+
+    private void loadPendingPrescriptions() {
+        if (pendingSearch == null || pendingPrescriptions == null) {
+            return;
+        }
+
+        // Reload in background, keeping the list filtered by what has been typed
+        pendingSearch.searchNow();
     }
 
     private void updateEmptyState() {
@@ -177,7 +188,7 @@ public class PrescriptionVerificationFragment extends Fragment {
     }
 
     private void verifyPrescriptionByName() {
-        if (getContext() == null || patientNameInput == null) {
+        if (getContext() == null || patientNameInput == null || databaseHelper == null) {
             return;
         }
         
@@ -189,44 +200,33 @@ public class PrescriptionVerificationFragment extends Fragment {
                 return;
             }
             
-            // Find prescriptions by patient name (case-insensitive partial match)
-            List<Prescription> matchingPrescriptions = findPrescriptionsByName(patientName);
-            
-            if (matchingPrescriptions == null || matchingPrescriptions.isEmpty()) {
-                Toast.makeText(getContext(), "No prescriptions found for patient: " + patientName, Toast.LENGTH_SHORT).show();
-            } else if (matchingPrescriptions.size() == 1) {
-                // If only one match, show it directly
-                showPrescriptionVerificationDialog(matchingPrescriptions.get(0));
-            } else {
-                // If multiple matches, show a selection dialog
-                showPrescriptionSelectionDialog(matchingPrescriptions, patientName);
-            }
+            // Search in background; the same match as the list (prefix and misspelling tolerant)
+            com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+                List<Prescription> matchingPrescriptions =
+                    databaseHelper.searchPrescriptions(patientName, PENDING_STATUSES, SEARCH_LIMIT);
+
+                com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                    if (getContext() == null || getView() == null) {
+                        return; // Fragment is detached
+                    }
+
+                    if (matchingPrescriptions.isEmpty()) {
+                        Toast.makeText(getContext(), "No prescriptions found for patient: " + patientName, Toast.LENGTH_SHORT).show();
+                    } else if (matchingPrescriptions.size() == 1) {
+                        // If only one match, show it directly
+                        showPrescriptionVerificationDialog(matchingPrescriptions.get(0));
+                    } else {
+                        // If multiple matches, show a selection dialog
+                        showPrescriptionSelectionDialog(matchingPrescriptions, patientName);
+                    }
+                });
+            });
         } catch (Exception e) {
             e.printStackTrace();
             Toast.makeText(getContext(), "Error verifying prescription: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
     }
 
-    private List<Prescription> findPrescriptionsByName(String patientName) {
-        if (patientName == null || pendingPrescriptions == null) {
-            return new ArrayList<>();
-        }
-        
-        List<Prescription> matchingPrescriptions = new ArrayList<>();
-        String searchName = patientName.toLowerCase().trim();
-        
-        for (Prescription prescription : pendingPrescriptions) {
-            if (prescription != null && prescription.getPatientName() != null) {
-                String prescriptionPatientName = prescription.getPatientName().toLowerCase().trim();
-                // Check if patient name contains the search term (partial match)
-                if (prescriptionPatientName.contains(searchName) || searchName.contains(prescriptionPatientName)) {
-                    matchingPrescriptions.add(prescription);
-                }
-            }
-        }
-        return matchingPrescriptions;
-    }
-
     private void showPrescriptionSelectionDialog(List<Prescription> prescriptions, String patientName) {
         if (getContext() == null || prescriptions == null || prescriptions.isEmpty()) {
             return;
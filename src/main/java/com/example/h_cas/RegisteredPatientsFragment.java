@@ -17,10 +17,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.textfield.TextInputEditText;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
 import com.example.h_cas.models.Patient;
 import com.example.h_cas.models.Prescription;
+import com.example.h_cas.utils.SearchDebouncer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,10 +33,15 @@ import java.util.List;
  */
 public class RegisteredPatientsFragment extends Fragment {
 
+    // Matches listed while typing; narrowing the query finds the rest
+    private static final int SEARCH_LIMIT = 100;
+
     private RecyclerView patientsRecyclerView;
     private TextView emptyStateTextView;
+    private TextInputEditText searchInput;
     private HCasDatabaseHelper databaseHelper;
     private PatientAdapter patientAdapter;
+    private SearchDebouncer<Patient> patientSearch;
 
     @Nullable
     @Override
@@ -49,16 +56,18 @@ public class RegisteredPatientsFragment extends Fragment {
         initializeViews(view);
         initializeDatabase();
         setupRecyclerView();
+        setupSearch();
         loadPatients();
     }
 
     private void initializeViews(View view) {
         patientsRecyclerView = view.findViewById(R.id.patientsRecyclerView);
         emptyStateTextView = view.findViewById(R.id.emptyStateTextView);
+        searchInput = view.findViewById(R.id.patientSearchInput);
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
     }
 
     private void setupRecyclerView() {
@@ -70,32 +79,42 @@ public class RegisteredPatientsFragment extends Fragment {
         patientsRecyclerView.setItemViewCacheSize(20); // Cache more views for smoother scrolling
     }
 
-    private void loadPatients() {
-        // Show loading state
-        emptyStateTextView.setVisibility(View.GONE);
-        patientsRecyclerView.setVisibility(View.GONE);
-        
-        // Load patients in background thread to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            // Use optimized single query instead of loading all data then filtering
-            List<Patient> patientsWithoutPrescriptions = databaseHelper.getPatientsWithoutPrescriptions();
-            
-            // Update UI on main thread
-            com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+    /**
+     * Narrow the list as a name, ID, phone number or allergy is typed
+     */
+    private void setupSearch() {
+        patientSearch = new SearchDebouncer<>(this,
+            query -> query.isEmpty()
+                // Use optimized single query instead of loading all data then filtering
+                ? databaseHelper.getPatientsWithoutPrescriptions()
+                : databaseHelper.searchPatients(query, true, SEARCH_LIMIT),
+            (query, patients) -> {
                 if (getContext() == null || getView() == null) {
                     return; // Fragment is detached
                 }
-                
-                if (patientsWithoutPrescriptions.isEmpty()) {
+
+                if (patients.isEmpty()) {
+                    emptyStateTextView.setText(query.isEmpty()
+                        ? "All patients have been treated or no patients registered yet"
+                        : "No waiting patients match \"" + query + "\"");
                     emptyStateTextView.setVisibility(View.VISIBLE);
                     patientsRecyclerView.setVisibility(View.GONE);
                 } else {
                     emptyStateTextView.setVisibility(View.GONE);
                     patientsRecyclerView.setVisibility(View.VISIBLE);
-                    patientAdapter.setPatients(patientsWithoutPrescriptions);
                 }
+                patientAdapter.setPatients(patients);
             });
-        });
+        patientSearch.attachTo(searchInput);
+    }
+
+    private void loadPatients() {
+        // Show loading state
+        emptyStateTextView.setVisibility(View.GONE);
+        patientsRecyclerView.setVisibility(View.GONE);
+        
+        // Load patients in background thread to avoid blocking UI, keeping the search applied
+        patientSearch.searchNow();
     }
 
     @Override
@@ -14,6 +14,7 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ImageButton;
+import android.widget.ProgressBar;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -28,9 +29,15 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.database.RowCallback;
+import com.example.h_cas.models.InventoryReportStats;
 import com.example.h_cas.models.Patient;
+import com.example.h_cas.models.PatientReportStats;
 import com.example.h_cas.models.Prescription;
+import com.example.h_cas.models.PrescriptionReportStats;
+import com.example.h_cas.utils.ReportExporter;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -62,6 +69,7 @@ public class ReportsFragment extends Fragment {
     private String selectedReportType = "Patient Report";
     private String selectedTimePeriod = "All Time";
     private String selectedPatient = "All Patients";
+    private ReportExporter.Task exportTask;
     
     // Report types
     private String[] reportTypes = {"Patient Report", "Prescription Report", "System Report", "Financial Report"};
@@ -133,7 +141,7 @@ public class ReportsFragment extends Fragment {
             if (getContext() == null) {
                 throw new RuntimeException("Context is null");
             }
-            databaseHelper = new HCasDatabaseHelper(getContext());
+            databaseHelper = HCasDatabaseHelper.getInstance(getContext());
             if (databaseHelper == null) {
                 throw new RuntimeException("Failed to create database helper");
             }
@@ -372,44 +380,19 @@ public class ReportsFragment extends Fragment {
         
         reportItems.add(new ReportItem("REPORT_HEADER", reportTitle, "", "", ""));
         
-        // Filter patients by time period
-        List<Patient> filteredPatients = filterPatientsByTimePeriod(allPatients);
-        
-        // Add patient statistics
-        int totalPatients = filteredPatients.size();
-        int malePatients = 0;
-        int femalePatients = 0;
-        int totalAge = 0;
-        int validAgeCount = 0;
-        
-        for (Patient patient : filteredPatients) {
-            String gender = patient.getGender();
-            if (gender != null) {
-                if (gender.equals("Male") || gender.equalsIgnoreCase("M")) {
-                    malePatients++;
-                } else if (gender.equals("Female") || gender.equalsIgnoreCase("F")) {
-                    femalePatients++;
-                }
-            }
-            
-            // Calculate age safely
-            String ageStr = patient.getAge();
-            if (ageStr != null && !ageStr.isEmpty()) {
-                try {
-                    totalAge += Integer.parseInt(ageStr);
-                    validAgeCount++;
-                } catch (NumberFormatException e) {
-                    // Ignore invalid age values
-                }
-            }
-        }
+        // Filter patients by time period (in SQL)
+        String[] range = getTimePeriodRange();
+        List<Patient> filteredPatients = range == null ? allPatients
+            : databaseHelper.getPatientsCreatedBetween(range[0], range[1]);
         
-        int avgAge = validAgeCount > 0 ? totalAge / validAgeCount : 0;
+        // Add patient statistics (summed from the daily rollup, not the patient rows)
+        PatientReportStats stats = range == null ? databaseHelper.getPatientReportStats(null, null)
+            : databaseHelper.getPatientReportStats(range[0], range[1]);
         
         reportItems.add(new ReportItem("STATISTICS", "Patient Statistics", 
-            "Total Patients: " + totalPatients, 
-            "Male: " + malePatients + " | Female: " + femalePatients,
-            "Average Age: " + avgAge + " years"));
+            "Total Patients: " + stats.getTotalPatients(), 
+            "Male: " + stats.getMalePatients() + " | Female: " + stats.getFemalePatients(),
+            "Average Age: " + stats.getAverageAge() + " years"));
         
         // Add individual patient details
         if (selectedPatient.equals("All Patients")) {
@@ -450,110 +433,59 @@ public class ReportsFragment extends Fragment {
         }
     }
     
-    private List<Patient> filterPatientsByTimePeriod(List<Patient> patients) {
-        if (selectedTimePeriod.equals("All Time")) {
-            return patients;
-        }
-        
+    /**
+     * Date range for the selected time period as {from, to}: from is inclusive, to is
+     * exclusive (null when open-ended), both yyyy-MM-dd. Returns null for "All Time".
+     * "This ..." periods run from the same date one week/month/year ago; "Last ..." periods
+     * cover the days strictly between that date and today.
+     */
+    private String[] getTimePeriodRange() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
         Calendar calendar = Calendar.getInstance();
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.getTime());
-        
-        List<Patient> filtered = new ArrayList<>();
-        for (Patient patient : patients) {
-            String createdDate = patient.getCreatedDate();
-            if (createdDate == null || createdDate.isEmpty()) {
-                // If no date, include it in "All Time" only
-                if (selectedTimePeriod.equals("All Time")) {
-                    filtered.add(patient);
-                }
-                continue;
-            }
-            
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                Date patientDate = sdf.parse(createdDate.substring(0, Math.min(10, createdDate.length())));
-                Date currentDate = sdf.parse(today);
-                
-                calendar.setTime(currentDate);
-                
-                switch (selectedTimePeriod) {
-                    case "This Week":
-                        calendar.add(Calendar.DAY_OF_YEAR, -7);
-                        break;
-                    case "This Month":
-                        calendar.add(Calendar.MONTH, -1);
-                        break;
-                    case "This Year":
-                        calendar.add(Calendar.YEAR, -1);
-                        break;
-                    case "Last Week":
-                        calendar.add(Calendar.WEEK_OF_YEAR, -1);
-                        Date lastWeekStart = calendar.getTime();
-                        calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                        Date lastWeekEnd = calendar.getTime();
-                        if (patientDate.after(lastWeekStart) && patientDate.before(lastWeekEnd)) {
-                            filtered.add(patient);
-                        }
-                        continue;
-                    case "Last Month":
-                        calendar.add(Calendar.MONTH, -1);
-                        Date lastMonthStart = calendar.getTime();
-                        calendar.add(Calendar.MONTH, 1);
-                        Date lastMonthEnd = calendar.getTime();
-                        if (patientDate.after(lastMonthStart) && patientDate.before(lastMonthEnd)) {
-                            filtered.add(patient);
-                        }
-                        continue;
-                    case "Last Year":
-                        calendar.add(Calendar.YEAR, -1);
-                        Date lastYearStart = calendar.getTime();
-                        calendar.add(Calendar.YEAR, 1);
-                        Date lastYearEnd = calendar.getTime();
-                        if (patientDate.after(lastYearStart) && patientDate.before(lastYearEnd)) {
-                            filtered.add(patient);
-                        }
-                        continue;
-                }
-                
-                Date periodStart = calendar.getTime();
-                if (patientDate.after(periodStart) || patientDate.equals(periodStart)) {
-                    filtered.add(patient);
-                }
-            } catch (Exception e) {
-                // If date parsing fails, include patient if "All Time"
-                if (selectedTimePeriod.equals("All Time")) {
-                    filtered.add(patient);
-                }
-            }
+        String today = sdf.format(calendar.getTime());
+        
+        switch (selectedTimePeriod) {
+            case "This Week":
+                calendar.add(Calendar.DAY_OF_YEAR, -7);
+                return new String[]{sdf.format(calendar.getTime()), null};
+            case "This Month":
+                calendar.add(Calendar.MONTH, -1);
+                return new String[]{sdf.format(calendar.getTime()), null};
+            case "This Year":
+                calendar.add(Calendar.YEAR, -1);
+                return new String[]{sdf.format(calendar.getTime()), null};
+            case "Last Week":
+                calendar.add(Calendar.WEEK_OF_YEAR, -1);
+                calendar.add(Calendar.DAY_OF_YEAR, 1);
+                return new String[]{sdf.format(calendar.getTime()), today};
+            case "Last Month":
+                calendar.add(Calendar.MONTH, -1);
+                calendar.add(Calendar.DAY_OF_YEAR, 1);
+                return new String[]{sdf.format(calendar.getTime()), today};
+            case "Last Year":
+                calendar.add(Calendar.YEAR, -1);
+                calendar.add(Calendar.DAY_OF_YEAR, 1);
+                return new String[]{sdf.format(calendar.getTime()), today};
+            default:
+                return null;
         }
-        
-        return filtered;
     }
 
     private void generatePrescriptionReport() {
         reportItems.add(new ReportItem("REPORT_HEADER", "Prescription Report - " + selectedTimePeriod, "", "", ""));
         
-        // Get prescriptions from database
-        List<Prescription> allPrescriptions = databaseHelper.getAllPrescriptions();
-        List<Prescription> filteredPrescriptions = filterPrescriptionsByTimePeriod(allPrescriptions);
-        
-        int totalPrescriptions = filteredPrescriptions.size();
-        int pendingCount = 0;
-        int dispensedCount = 0;
+        // Get prescriptions from database, filtered by time period in SQL
+        String[] range = getTimePeriodRange();
+        List<Prescription> filteredPrescriptions = range == null ? databaseHelper.getAllPrescriptions()
+            : databaseHelper.getPrescriptions(null, range[0], range[1]);
         
-        for (Prescription prescription : filteredPrescriptions) {
-            String status = prescription.getStatus();
-            if (status != null && status.equalsIgnoreCase("Dispensed")) {
-                dispensedCount++;
-            } else {
-                pendingCount++;
-            }
-        }
+        PrescriptionReportStats stats = range == null ? databaseHelper.getPrescriptionReportStats(null, null)
+            : databaseHelper.getPrescriptionReportStats(range[0], range[1]);
         
         reportItems.add(new ReportItem("STATISTICS", "Prescription Statistics", 
-            "Total Prescriptions: " + totalPrescriptions, 
-            "Pending: " + pendingCount,
-            "Dispensed: " + dispensedCount));
+            "Total Prescriptions: " + stats.getTotalPrescriptions(), 
+            "Pending: " + stats.getPendingCount(),
+            "Dispensed: " + stats.getDispensedCount()));
         
         // Add prescription details
         for (Prescription prescription : filteredPrescriptions) {
@@ -573,95 +505,18 @@ public class ReportsFragment extends Fragment {
         }
     }
     
-    private List<Prescription> filterPrescriptionsByTimePeriod(List<Prescription> prescriptions) {
-        if (selectedTimePeriod.equals("All Time")) {
-            return prescriptions;
-        }
-        
-        Calendar calendar = Calendar.getInstance();
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.getTime());
-        
-        List<Prescription> filtered = new ArrayList<>();
-        for (Prescription prescription : prescriptions) {
-            String createdDate = prescription.getCreatedDate();
-            if (createdDate == null || createdDate.isEmpty()) {
-                if (selectedTimePeriod.equals("All Time")) {
-                    filtered.add(prescription);
-                }
-                continue;
-            }
-            
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                Date prescriptionDate = sdf.parse(createdDate.substring(0, Math.min(10, createdDate.length())));
-                Date currentDate = sdf.parse(today);
-                
-                calendar.setTime(currentDate);
-                
-                switch (selectedTimePeriod) {
-                    case "This Week":
-                        calendar.add(Calendar.DAY_OF_YEAR, -7);
-                        break;
-                    case "This Month":
-                        calendar.add(Calendar.MONTH, -1);
-                        break;
-                    case "This Year":
-                        calendar.add(Calendar.YEAR, -1);
-                        break;
-                    case "Last Week":
-                        calendar.add(Calendar.WEEK_OF_YEAR, -1);
-                        Date lastWeekStart = calendar.getTime();
-                        calendar.add(Calendar.WEEK_OF_YEAR, 1);
-                        Date lastWeekEnd = calendar.getTime();
-                        if (prescriptionDate.after(lastWeekStart) && prescriptionDate.before(lastWeekEnd)) {
-                            filtered.add(prescription);
-                        }
-                        continue;
-                    case "Last Month":
-                        calendar.add(Calendar.MONTH, -1);
-                        Date lastMonthStart = calendar.getTime();
-                        calendar.add(Calendar.MONTH, 1);
-                        Date lastMonthEnd = calendar.getTime();
-                        if (prescriptionDate.after(lastMonthStart) && prescriptionDate.before(lastMonthEnd)) {
-                            filtered.add(prescription);
-                        }
-                        continue;
-                    case "Last Year":
-                        calendar.add(Calendar.YEAR, -1);
-                        Date lastYearStart = calendar.getTime();
-                        calendar.add(Calendar.YEAR, 1);
-                        Date lastYearEnd = calendar.getTime();
-                        if (prescriptionDate.after(lastYearStart) && prescriptionDate.before(lastYearEnd)) {
-                            filtered.add(prescription);
-                        }
-                        continue;
-                }
-                
-                Date periodStart = calendar.getTime();
-                if (prescriptionDate.after(periodStart) || prescriptionDate.equals(periodStart)) {
-                    filtered.add(prescription);
-                }
-            } catch (Exception e) {
-                if (selectedTimePeriod.equals("All Time")) {
-                    filtered.add(prescription);
-                }
-            }
-        }
-        
-        return filtered;
-    }
-
     private void generateSystemReport() {
         reportItems.add(new ReportItem("REPORT_HEADER", "System Report - " + selectedTimePeriod, "", "", ""));
         
-        // Get system statistics from database
-        int totalEmployees = databaseHelper.getTotalEmployeesCount();
-        int totalPatients = databaseHelper.getTotalPatientsCount();
-        int totalPrescriptions = databaseHelper.getPrescriptionsCount();
-        int totalMedicines = databaseHelper.getTotalMedicinesCount();
-        int nurses = databaseHelper.getEmployeesCountByRole("Nurse");
-        int doctors = databaseHelper.getEmployeesCountByRole("Doctor");
-        int pharmacists = databaseHelper.getEmployeesCountByRole("Pharmacist");
+        // Get system statistics from database (one in-memory snapshot)
+        com.example.h_cas.models.DashboardStats stats = databaseHelper.getDashboardStats();
+        int totalEmployees = stats.getTotalEmployees();
+        int totalPatients = stats.getTotalPatients();
+        int totalPrescriptions = stats.getTotalPrescriptions();
+        int totalMedicines = stats.getTotalMedicines();
+        int nurses = stats.getEmployeesCountByRole("Nurse");
+        int doctors = stats.getEmployeesCountByRole("Doctor");
+        int pharmacists = stats.getEmployeesCountByRole("Pharmacist");
         
         reportItems.add(new ReportItem("STATISTICS", "System Statistics", 
             "Total Employees: " + totalEmployees, 
@@ -683,16 +538,12 @@ public class ReportsFragment extends Fragment {
     private void generateFinancialReport() {
         reportItems.add(new ReportItem("REPORT_HEADER", "Financial Report - " + selectedTimePeriod, "", "", ""));
         
-        // Calculate financial statistics
-        double totalRevenue = 0;
-        int totalTransactions = 0;
-        
-        // Get medicine prices for revenue calculation
-        List<com.example.h_cas.models.Medicine> medicines = databaseHelper.getAllMedicines();
-        for (com.example.h_cas.models.Medicine medicine : medicines) {
-            totalRevenue += medicine.getPrice() * medicine.getStockQuantity();
-            totalTransactions += medicine.getStockQuantity();
-        }
+        // Stock value (price * stock per category) and the period's dispenses come from the rollups
+        String[] range = getTimePeriodRange();
+        InventoryReportStats stats = range == null ? databaseHelper.getInventoryReportStats(null, null)
+            : databaseHelper.getInventoryReportStats(range[0], range[1]);
+        double totalRevenue = stats.getTotalStockValue();
+        int totalTransactions = stats.getTotalUnits();
         
         reportItems.add(new ReportItem("STATISTICS", "Financial Statistics", 
             "Total Revenue: ₱" + String.format("%.2f", totalRevenue), 
@@ -704,6 +555,11 @@ public class ReportsFragment extends Fragment {
             "Medicine Sales: ₱" + String.format("%.2f", totalRevenue), 
             "Consultation Fees: ₱0.00",
             "Other Services: ₱0.00"));
+        
+        reportItems.add(new ReportItem("STATISTICS", "Dispensing",
+            "Dispensed (" + selectedTimePeriod + "): " + stats.getTotalDispenses(),
+            "Categories in stock: " + stats.getStockValueByCategory().size(),
+            "Units in stock: " + stats.getTotalUnits()));
     }
 
     private void updateEmptyState() {
@@ -737,62 +593,215 @@ public class ReportsFragment extends Fragment {
 
     private void printReport() {
         if (reportItems.isEmpty()) {
-            Toast.makeText(getContext(), "❌ No report to print. Generate a report first.", Toast.LENGTH_SHORT).show();
+            Toast.makeText(getContext(), "❌ No report to export. Generate a report first.", Toast.LENGTH_SHORT).show();
             return;
         }
         
+        String[] options = {"📊 CSV file", "📄 PDF document"};
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
-        builder.setTitle("🖨️ Print Report");
-        builder.setMessage("Print " + selectedReportType + " for " + selectedTimePeriod + "?");
-        
-        builder.setPositiveButton("Print", (dialog, which) -> {
-            // Simulate printing
-            String printContent = generatePrintContent();
-            showPrintPreview(printContent);
-        });
-        
+        builder.setTitle("📤 Export " + selectedReportType + " (" + selectedTimePeriod + ")");
+        builder.setItems(options, (dialog, which) ->
+            exportReport(which == 0 ? ReportExporter.Format.CSV : ReportExporter.Format.PDF));
         builder.setNegativeButton("Cancel", null);
         builder.show();
     }
 
-    private String generatePrintContent() {
-        StringBuilder content = new StringBuilder();
-        content.append("H-CAS Healthcare System\n");
-        content.append("=====================================\n");
-        content.append("Report Generated: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()).format(new Date())).append("\n");
-        content.append("Report Type: ").append(selectedReportType).append("\n");
-        content.append("Time Period: ").append(selectedTimePeriod).append("\n");
-        if (!selectedPatient.equals("All Patients")) {
-            content.append("Patient: ").append(selectedPatient).append("\n");
+    /**
+     * Export the current report to exports/ in the app's files directory. Detail rows are
+     * streamed from the database rather than taken from reportItems, so a large period
+     * does not have to fit in memory twice.
+     */
+    private void exportReport(ReportExporter.Format format) {
+        if (getContext() == null || exportTask != null) {
+            return;
         }
-        content.append("=====================================\n\n");
         
-        for (ReportItem item : reportItems) {
-            content.append(item.getTitle()).append("\n");
-            if (!item.getSubtitle().isEmpty()) {
-                content.append(item.getSubtitle()).append("\n");
+        File exportDir = getContext().getExternalFilesDir(null);
+        if (exportDir == null) {
+            exportDir = new File(getContext().getFilesDir(), "exports");
+        } else {
+            exportDir = new File(exportDir, "exports");
+        }
+        if (!exportDir.exists()) {
+            exportDir.mkdirs();
+        }
+        
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String fileName = "hcas_" + selectedReportType.toLowerCase(Locale.US).replace(' ', '_') + "_" +
+                          sdf.format(new Date()) + "." + format.getExtension();
+        ReportExporter.FileDestination destination =
+            new ReportExporter.FileDestination(new File(exportDir, fileName));
+        
+        ProgressBar progressBar = new ProgressBar(getContext(), null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setIndeterminate(true);
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        progressBar.setPadding(padding, 0, padding, 0);
+        
+        AlertDialog progressDialog = new AlertDialog.Builder(getContext())
+            .setTitle("📤 Exporting " + selectedReportType)
+            .setMessage("Preparing report...")
+            .setView(progressBar)
+            .setCancelable(false)
+            .setNegativeButton("Cancel", (dialog, which) -> {
+                if (exportTask != null) {
+                    exportTask.cancel();
+                }
+            })
+            .create();
+        progressDialog.show();
+        
+        exportTask = ReportExporter.export(buildExportSource(), format, destination, new ReportExporter.Listener() {
+            @Override
+            public void onProgress(int rowsWritten, int expectedRows) {
+                progressBar.setIndeterminate(false);
+                progressBar.setMax(expectedRows);
+                progressBar.setProgress(rowsWritten);
+                progressDialog.setMessage(rowsWritten + " of " + expectedRows + " rows written");
             }
-            if (!item.getDescription().isEmpty()) {
-                content.append(item.getDescription()).append("\n");
+            
+            @Override
+            public void onComplete(int rowsWritten, int parts) {
+                String saved = parts > 1 ? "\nSaved to: exports/ in " + parts + " parts, starting with " + fileName
+                                         : "\nSaved to: exports/" + fileName;
+                finishExport(progressDialog, "✅ Report exported (" + rowsWritten + " rows)" + saved);
             }
-            if (!item.getDetails().isEmpty()) {
-                content.append(item.getDetails()).append("\n");
+            
+            @Override
+            public void onCancelled() {
+                destination.delete();
+                finishExport(progressDialog, "Export cancelled");
             }
-            content.append("\n");
+            
+            @Override
+            public void onError(Exception e) {
+                destination.delete();
+                finishExport(progressDialog, "❌ Export failed: " + e.getMessage());
+            }
+        });
+    }
+    
+    private void finishExport(AlertDialog progressDialog, String message) {
+        exportTask = null;
+        if (getContext() == null || getView() == null) return; // Fragment is detached
+        progressDialog.dismiss();
+        Toast.makeText(getContext(), message, Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Describe the current report for ReportExporter: the summary lines come from the
+     * generated statistics items, the detail rows from a cursor over the same query the
+     * report used. System and financial reports have no detail rows.
+     */
+    private ReportExporter.Source buildExportSource() {
+        String reportType = selectedReportType;
+        String patientFilter = selectedPatient;
+        String[] range = getTimePeriodRange();
+        String from = range != null ? range[0] : null;
+        String to = range != null ? range[1] : null;
+        
+        List<String> summary = new ArrayList<>();
+        summary.add("H-CAS Healthcare System");
+        summary.add("Report Generated: " + new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()).format(new Date()));
+        summary.add("Time Period: " + selectedTimePeriod);
+        if (reportType.equals("Patient Report") && !patientFilter.equals("All Patients")) {
+            summary.add("Patient: " + patientFilter);
         }
+        for (ReportItem item : reportItems) {
+            if (item.getType().equals("REPORT_HEADER") || item.getType().endsWith("_DETAIL")) {
+                continue;
+            }
+            summary.add("");
+            summary.add(item.getTitle());
+            for (String line : new String[]{item.getSubtitle(), item.getDescription(), item.getDetails()}) {
+                if (!line.isEmpty()) {
+                    summary.add(line);
+                }
+            }
+        }
+        String title = reportItems.get(0).getTitle();
         
-        return content.toString();
+        return new ReportExporter.Source() {
+            @Override
+            public String getTitle() {
+                return title;
+            }
+            
+            @Override
+            public List<String> getSummary() {
+                return summary;
+            }
+            
+            @Override
+            public String[] getColumns() {
+                switch (reportType) {
+                    case "Patient Report":
+                        return new String[]{"Patient ID", "Name", "Age", "Gender", "Registered", "Condition"};
+                    case "Prescription Report":
+                        return new String[]{"Prescription ID", "Patient", "Medicine", "Dosage", "Doctor", "Date", "Status"};
+                    default:
+                        return new String[0];
+                }
+            }
+            
+            @Override
+            public int getExpectedRows() {
+                switch (reportType) {
+                    case "Patient Report":
+                        return patientFilter.equals("All Patients")
+                            ? databaseHelper.getPatientReportStats(from, to).getTotalPatients() : 1;
+                    case "Prescription Report":
+                        return databaseHelper.getPrescriptionReportStats(from, to).getTotalPrescriptions();
+                    default:
+                        return 0;
+                }
+            }
+            
+            @Override
+            public void forEachRow(RowCallback<String[]> sink) {
+                switch (reportType) {
+                    case "Patient Report":
+                        databaseHelper.forEachPatientCreatedBetween(from, to, patient -> {
+                            String patientId = patient.getPatientId() != null ? patient.getPatientId() : "";
+                            String name = ((patient.getFirstName() != null ? patient.getFirstName() : "") + " " +
+                                          (patient.getLastName() != null ? patient.getLastName() : "")).trim();
+                            if (!patientFilter.equals("All Patients")) {
+                                String label = patient.getFirstName() + " " + patient.getLastName() + " (" + patientId + ")";
+                                if (!label.equals(patientFilter)) {
+                                    return true;
+                                }
+                            }
+                            boolean more = sink.onRow(new String[]{
+                                patientId, name, patient.getAge(), patient.getGender(),
+                                dateOnly(patient.getCreatedDate()), patient.getSymptomsDescription()});
+                            // A single patient's report ends at the first match
+                            return more && patientFilter.equals("All Patients");
+                        });
+                        break;
+                    case "Prescription Report":
+                        databaseHelper.forEachPrescription(null, from, to, prescription -> sink.onRow(new String[]{
+                            prescription.getPrescriptionId(), prescription.getPatientName(),
+                            prescription.getMedication(), prescription.getDosage(),
+                            prescription.getDoctorName(), dateOnly(prescription.getCreatedDate()),
+                            prescription.getStatus()}));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        };
+    }
+    
+    private static String dateOnly(String date) {
+        return date != null ? date.substring(0, Math.min(10, date.length())) : null;
     }
 
-    private void showPrintPreview(String content) {
-        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
-        builder.setTitle("📄 Print Preview");
-        builder.setMessage(content);
-        builder.setPositiveButton("Print", (dialog, which) -> {
-            Toast.makeText(getContext(), "🖨️ Report sent to printer successfully!", Toast.LENGTH_LONG).show();
-        });
-        builder.setNegativeButton("Cancel", null);
-        builder.show();
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // The export writes to a file the user can no longer be told about; stop it
+        if (exportTask != null) {
+            exportTask.cancel();
+        }
     }
 
     @Override
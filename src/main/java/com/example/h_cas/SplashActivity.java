@@ -2,39 +2,36 @@ package com.example.h_cas;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.SessionManager;
+
 /**
- * SplashActivity displays the app logo when the application first starts
+ * SplashActivity displays the app logo when the application first starts. It stays only
+ * until the database is open and any saved session is restored, then goes straight to
+ * the employee's dashboard, or to LoginActivity when there is no valid session.
  */
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 2000; // 2 seconds
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
-        // Delay before navigating to LoginActivity
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
-            startActivity(intent);
-            finish();
-        }, SPLASH_DELAY);
+        ((HCasApplication) getApplication()).getStartup()
+            .whenDone(HCasApplication.TASK_SESSION, this::openFirstScreen);
     }
-}
-
-
-
-
-
-
-
-
-
-
 
+    private void openFirstScreen() {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        Employee employee = SessionManager.getInstance(this).getEmployee();
+        Intent intent = employee != null ? LoginActivity.dashboardIntent(this, employee)
+                                         : new Intent(SplashActivity.this, LoginActivity.class);
+        startActivity(intent);
+        finish();
+    }
+}
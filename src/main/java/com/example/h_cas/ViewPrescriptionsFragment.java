@@ -19,8 +19,11 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
 import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.database.Page;
 import com.example.h_cas.models.Prescription;
 import com.example.h_cas.models.Patient;
+import com.example.h_cas.utils.LoadMoreScrollListener;
+import com.example.h_cas.utils.RFIDBatchWriter;
 import com.example.h_cas.utils.RFIDHelper;
 
 import java.util.ArrayList;
@@ -31,12 +34,20 @@ import java.util.List;
  */
 public class ViewPrescriptionsFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 30;
+
     private RecyclerView prescriptionsRecyclerView;
     private TextView emptyStateTextView;
     private HCasDatabaseHelper databaseHelper;
     private PrescriptionAdapter prescriptionAdapter;
     private RFIDHelper rfidHelper;
 
+    // Paging state (main thread only)
+    private final List<Prescription> loadedPrescriptions = new ArrayList<>();
+    private Page.Key nextPageKey;
+    private boolean isLoadingPage;
+    private int loadGeneration;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -59,7 +70,7 @@ public class ViewPrescriptionsFragment extends Fragment {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new HCasDatabaseHelper(getContext());
+        databaseHelper = HCasDatabaseHelper.getInstance(getContext());
         rfidHelper = new RFIDHelper(getContext());
     }
 
@@ -70,19 +81,46 @@ public class ViewPrescriptionsFragment extends Fragment {
         // Performance optimizations
         prescriptionsRecyclerView.setHasFixedSize(true); // RecyclerView size doesn't change
         prescriptionsRecyclerView.setItemViewCacheSize(20); // Cache more views for smoother scrolling
+        prescriptionsRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+            @Override
+            protected void onLoadMore() {
+                loadNextPage();
+            }
+        });
     }
 
     private void loadPrescriptions() {
+        // Start again from the first page; results of any in-flight load are discarded
+        loadGeneration++;
+        loadedPrescriptions.clear();
+        nextPageKey = null;
+        isLoadingPage = false;
+        loadPage(null);
+    }
+
+    private void loadNextPage() {
+        if (isLoadingPage || nextPageKey == null) {
+            return;
+        }
+        loadPage(nextPageKey);
+    }
+
+    private void loadPage(Page.Key after) {
+        isLoadingPage = true;
+        final int generation = loadGeneration;
         // Load prescriptions in background to avoid blocking UI
-        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(() -> {
-            List<Prescription> prescriptions = databaseHelper.getAllPrescriptions();
+        com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(getViewLifecycleOwner(), () -> {
+            Page<Prescription> page = databaseHelper.getPrescriptionsPage(after, PAGE_SIZE);
             
             // Update UI on main thread
             com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
-                if (getContext() == null || getView() == null) {
-                    return; // Fragment is detached
+                if (getContext() == null || getView() == null || generation != loadGeneration) {
+                    return; // Fragment is detached or a refresh superseded this load
                 }
-                loadPrescriptionsIntoUI(prescriptions);
+                isLoadingPage = false;
+                nextPageKey = page.getNextKey();
+                loadedPrescriptions.addAll(page.getItems());
+                loadPrescriptionsIntoUI(new ArrayList<>(loadedPrescriptions));
             });
         });
     }
@@ -266,6 +304,19 @@ public class ViewPrescriptionsFragment extends Fragment {
             }
             
             private void registerPatientWithRFID(Prescription prescription) {
+                // Find the rest of the encounter so all of it can go on tags in one pass
+                com.example.h_cas.utils.DatabaseExecutor.getInstance().execute(ViewPrescriptionsFragment.this, () -> {
+                    List<Prescription> encounter = findEncounter(prescription);
+                    com.example.h_cas.utils.DatabaseExecutor.getInstance().executeOnMainThread(() -> {
+                        if (getContext() == null || getView() == null) {
+                            return;
+                        }
+                        showRegistrationDialog(prescription, encounter);
+                    });
+                });
+            }
+
+            private void showRegistrationDialog(Prescription prescription, List<Prescription> encounter) {
                 // Show RFID scanning dialog
                 AlertDialog.Builder rfidBuilder = new AlertDialog.Builder(getContext());
                 rfidBuilder.setTitle("RFID Card Registration");
@@ -276,6 +327,12 @@ public class ViewPrescriptionsFragment extends Fragment {
                     startRFIDScanning(prescription);
                 });
                 
+                if (encounter.size() > 1) {
+                    rfidBuilder.setNeutralButton("Write All " + encounter.size(), (dialog, which) -> {
+                        startBatchWriting(encounter);
+                    });
+                }
+                
                 rfidBuilder.setNegativeButton("Cancel", (dialog, which) -> {
                     // Do nothing, just close dialog
                 });
@@ -283,6 +340,116 @@ public class ViewPrescriptionsFragment extends Fragment {
                 rfidBuilder.show();
             }
             
+            /**
+             * The active prescriptions written for the same patient on the same day
+             * (the encounter), starting with prescription. Runs off the main thread.
+             */
+            private List<Prescription> findEncounter(Prescription prescription) {
+                List<Prescription> encounter = new ArrayList<>();
+                encounter.add(prescription);
+                String day = dayOf(prescription.getCreatedDate());
+                if (prescription.getPatientId() == null || day == null) {
+                    return encounter;
+                }
+                for (Prescription other : databaseHelper.getPrescriptionsForPatient(prescription.getPatientId())) {
+                    if (!other.getPrescriptionId().equals(prescription.getPrescriptionId()) &&
+                        day.equals(dayOf(other.getCreatedDate())) &&
+                        !"Cancelled".equalsIgnoreCase(other.getStatus()) &&
+                        !"Completed".equalsIgnoreCase(other.getStatus()) &&
+                        !"Rejected".equalsIgnoreCase(other.getStatus())) {
+                        encounter.add(other);
+                    }
+                }
+                return encounter;
+            }
+            
+            private String dayOf(String createdDate) {
+                return createdDate != null && createdDate.length() >= 10 ? createdDate.substring(0, 10) : null;
+            }
+            
+            private void startBatchWriting(List<Prescription> encounter) {
+                // Check NFC availability first
+                if (!rfidHelper.isNFCAvailable()) {
+                    Toast.makeText(getContext(), "NFC is not available on this device", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                
+                if (!rfidHelper.isNFCEnabled()) {
+                    Toast.makeText(getContext(), "NFC is disabled. Please enable NFC in settings", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                
+                RFIDBatchWriter.ReaderModeTagWriter tagWriter = new RFIDBatchWriter.ReaderModeTagWriter(rfidHelper);
+                if (!tagWriter.start(requireActivity())) {
+                    Toast.makeText(getContext(), "NFC reader could not be started", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                
+                AlertDialog progressDialog = new AlertDialog.Builder(getContext())
+                    .setTitle("Writing RFID Cards...")
+                    .setMessage("Hold card 1 of " + encounter.size() + " near your device.")
+                    .setCancelable(false)
+                    .show();
+                
+                RFIDBatchWriter writer = new RFIDBatchWriter(databaseHelper, rfidHelper, tagWriter);
+                writer.write(encounter, new RFIDBatchWriter.Listener() {
+                    @Override
+                    public void onTagWritten(int index, int total, String tagId, Prescription prescription) {
+                        if (index + 1 < total) {
+                            progressDialog.setMessage("✅ " + prescription.getMedication() + " written to " +
+                                                      rfidHelper.formatCardId(tagId) + "\n\nRemove it and hold card " +
+                                                      (index + 2) + " of " + total + " near your device.");
+                        } else {
+                            progressDialog.setMessage("Registering " + total + " cards...");
+                        }
+                    }
+                    
+                    @Override
+                    public void onBatchComplete(List<String> tagIds, long elapsedMs) {
+                        stopTagWriter(tagWriter);
+                        progressDialog.dismiss();
+                        if (getContext() == null) {
+                            return;
+                        }
+                        showBatchDetails(tagIds, encounter);
+                    }
+                    
+                    @Override
+                    public void onBatchFailed(String error) {
+                        stopTagWriter(tagWriter);
+                        progressDialog.dismiss();
+                        if (getContext() == null) {
+                            return;
+                        }
+                        Toast.makeText(getContext(), "❌ " + error + ". No cards were registered.", Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+            
+            private void stopTagWriter(RFIDBatchWriter.ReaderModeTagWriter tagWriter) {
+                if (getActivity() != null) {
+                    tagWriter.stop(getActivity());
+                }
+            }
+            
+            private void showBatchDetails(List<String> tagIds, List<Prescription> encounter) {
+                StringBuilder message = new StringBuilder("Patient: " + encounter.get(0).getPatientName() + "\n\n");
+                for (int i = 0; i < tagIds.size(); i++) {
+                    Prescription prescription = encounter.get(i);
+                    message.append(rfidHelper.formatCardId(tagIds.get(i))).append(": ")
+                           .append(prescription.getMedication()).append(" ").append(prescription.getDosage())
+                           .append("\n");
+                }
+                message.append("\n✅ ").append(tagIds.size()).append(" RFID cards have been programmed.\n")
+                       .append("Pharmacist can now scan each card to dispense medication.");
+                
+                new AlertDialog.Builder(getContext())
+                    .setTitle("RFID Cards Successfully Programmed")
+                    .setMessage(message.toString())
+                    .setPositiveButton("OK", null)
+                    .show();
+            }
+            
             private void startRFIDScanning(Prescription prescription) {
                 // Check NFC availability first
                 if (!rfidHelper.isNFCAvailable()) {
@@ -0,0 +1,426 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BaseDao holds the plumbing shared by the per-entity DAOs: a cache of compiled
+ * SQLiteStatements (so inserts, updates and counts are parsed once per connection)
+ * and a cursor-to-list helper that resolves column indices once per cursor.
+ */
+abstract class BaseDao {
+
+    private static final String TAG = "BaseDao";
+
+    /**
+     * Maps the current cursor row to a model; column indices are resolved in the
+     * constructor of the implementing class, once per cursor.
+     */
+    interface RowMapper<T> {
+        T map(Cursor cursor);
+    }
+
+    /**
+     * Builds a RowMapper bound to the column layout of a specific cursor
+     */
+    interface MapperFactory<T> {
+        RowMapper<T> forCursor(Cursor cursor);
+    }
+
+    /**
+     * Extracts the keyset position of a mapped row
+     */
+    interface KeyExtractor<T> {
+        Page.Key keyOf(T item);
+    }
+
+    /**
+     * Binds arguments to a compiled statement
+     */
+    interface Binder {
+        void bind(SQLiteStatement statement);
+    }
+
+    /**
+     * Binds one item of a bulk write to a compiled statement
+     */
+    interface ItemBinder<T> {
+        void bind(SQLiteStatement statement, T item);
+    }
+
+    // Rows written per transaction by upsertAll
+    static final int UPSERT_CHUNK_SIZE = 500;
+
+    protected final SQLiteOpenHelper helper;
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    private SQLiteDatabase statementsDb;
+
+    BaseDao(SQLiteOpenHelper helper) {
+        this.helper = helper;
+    }
+
+    protected SQLiteDatabase readable() {
+        return helper.getReadableDatabase();
+    }
+
+    protected SQLiteDatabase writable() {
+        return helper.getWritableDatabase();
+    }
+
+    /**
+     * Return the compiled statement for sql, compiling it on first use.
+     * Statements are recompiled if the underlying connection was reopened.
+     */
+    private synchronized SQLiteStatement statement(String sql) {
+        SQLiteDatabase db = writable();
+        if (db != statementsDb) {
+            releaseStatements();
+            statementsDb = db;
+        }
+
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Execute a cached INSERT; returns the row id or -1 on constraint failure
+     */
+    protected long executeInsert(String sql, Binder binder) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            try {
+                statement.clearBindings();
+                binder.bind(statement);
+                return statement.executeInsert();
+            } catch (SQLException e) {
+                Log.e(TAG, "Insert failed: " + sql, e);
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Execute a cached UPDATE/DELETE; returns the number of affected rows
+     */
+    protected int executeUpdateDelete(String sql, Binder binder) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            try {
+                statement.clearBindings();
+                binder.bind(statement);
+                return statement.executeUpdateDelete();
+            } catch (SQLException e) {
+                Log.e(TAG, "Update failed: " + sql, e);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Execute a cached single-value query such as SELECT COUNT(*)
+     */
+    protected long queryForLong(String sql, String... args) {
+        SQLiteStatement statement = statement(sql);
+        synchronized (statement) {
+            statement.clearBindings();
+            for (int i = 0; i < args.length; i++) {
+                bindNullable(statement, i + 1, args[i]);
+            }
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Run a query and map every row, resolving column indices once
+     */
+    protected <T> List<T> queryList(String sql, String[] args, MapperFactory<T> factory) {
+        List<T> results = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(sql, args);
+            if (cursor.moveToFirst()) {
+                RowMapper<T> mapper = factory.forCursor(cursor);
+                do {
+                    results.add(mapper.map(cursor));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run a query and hand each mapped row to callback as the cursor advances, so only
+     * the current cursor window is in memory however many rows match. Stops early when
+     * callback returns false.
+     *
+     * @return the number of rows delivered
+     */
+    protected <T> int queryEach(String sql, String[] args, MapperFactory<T> factory, RowCallback<T> callback) {
+        int delivered = 0;
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(sql, args);
+            if (cursor.moveToFirst()) {
+                RowMapper<T> mapper = factory.forCursor(cursor);
+                do {
+                    delivered++;
+                    if (!callback.onRow(mapper.map(cursor))) {
+                        break;
+                    }
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Run a query and map the first row, or return null
+     */
+    protected <T> T queryFirst(String sql, String[] args, MapperFactory<T> factory) {
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(sql, args);
+            if (cursor.moveToFirst()) {
+                return factory.forCursor(cursor).map(cursor);
+            }
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Run a "SELECT key, COUNT(*) ... GROUP BY key" query into a key -> count map.
+     * A NULL key is counted under "".
+     */
+    protected Map<String, Integer> queryCounts(String sql, String... args) {
+        Map<String, Integer> counts = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(sql, args);
+            while (cursor.moveToNext()) {
+                String key = cursor.isNull(0) ? "" : cursor.getString(0);
+                counts.merge(key, cursor.getInt(1), Integer::sum);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Run a single-row query of integer aggregates (e.g. several SUM(...) columns),
+     * reading NULL as 0
+     */
+    protected int[] queryInts(String sql, String... args) {
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(sql, args);
+            int[] values = new int[cursor.getColumnCount()];
+            if (cursor.moveToFirst()) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getInt(cursor, i, 0);
+                }
+            }
+            return values;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Run a keyset-paginated query. The ordering is (sortColumn, idColumn), both
+     * ascending or both descending; NULL sort values follow SQLite's ordering
+     * (first when ascending, last when descending) and are paged by id alone.
+     *
+     * @param from       "SELECT ... FROM ..." without WHERE / ORDER BY
+     * @param where      extra filter (may be null), combined with the keyset predicate
+     * @param whereArgs  arguments for the extra filter
+     */
+    protected <T> Page<T> queryPage(String from, String where, List<String> whereArgs,
+                                    String sortColumn, String idColumn, boolean descending,
+                                    Page.Key after, int pageSize,
+                                    MapperFactory<T> factory, KeyExtractor<T> keyExtractor) {
+        List<String> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(from);
+        StringBuilder conditions = new StringBuilder();
+
+        if (where != null && !where.isEmpty()) {
+            conditions.append("(").append(where).append(")");
+            if (whereArgs != null) {
+                args.addAll(whereArgs);
+            }
+        }
+
+        if (after != null) {
+            if (conditions.length() > 0) conditions.append(" AND ");
+            String op = descending ? "<" : ">";
+            if (after.sortValue != null) {
+                conditions.append("(").append(sortColumn).append(" ").append(op).append(" ? OR (")
+                          .append(sortColumn).append(" = ? AND ").append(idColumn).append(" ").append(op).append(" ?)");
+                args.add(after.sortValue);
+                args.add(after.sortValue);
+                args.add(after.id);
+                if (descending) {
+                    // NULL sort values come after every non-null value in DESC order
+                    conditions.append(" OR ").append(sortColumn).append(" IS NULL");
+                }
+                conditions.append(")");
+            } else {
+                conditions.append("((").append(sortColumn).append(" IS NULL AND ")
+                          .append(idColumn).append(" ").append(op).append(" ?)");
+                args.add(after.id);
+                if (!descending) {
+                    // NULL sort values come before every non-null value in ASC order
+                    conditions.append(" OR ").append(sortColumn).append(" IS NOT NULL");
+                }
+                conditions.append(")");
+            }
+        }
+
+        if (conditions.length() > 0) {
+            sql.append(" WHERE ").append(conditions);
+        }
+        String direction = descending ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sortColumn).append(direction).append(", ")
+           .append(idColumn).append(direction)
+           .append(" LIMIT ").append(pageSize + 1);
+
+        // One extra row tells us whether another page exists without a COUNT query
+        List<T> items = queryList(sql.toString(), args.toArray(new String[0]), factory);
+        Page.Key nextKey = null;
+        if (items.size() > pageSize) {
+            items.remove(items.size() - 1);
+            nextKey = keyExtractor.keyOf(items.get(items.size() - 1));
+        }
+        return new Page<>(items, nextKey);
+    }
+
+    /**
+     * Insert or update every item, UPSERT_CHUNK_SIZE rows per transaction, so a whole
+     * snapshot costs one commit per chunk instead of one per row. Each row is an UPDATE
+     * by key followed by an INSERT when nothing matched: INSERT ... ON CONFLICT DO UPDATE
+     * needs SQLite 3.24, which older supported API levels do not ship.
+     *
+     * @return the number of rows inserted or updated
+     */
+    protected <T> int upsertAll(List<T> items, String updateSql, ItemBinder<T> updateBinder,
+                                String insertSql, ItemBinder<T> insertBinder) {
+        SQLiteDatabase db = writable();
+        int written = 0;
+        for (int start = 0; start < items.size(); start += UPSERT_CHUNK_SIZE) {
+            int end = Math.min(start + UPSERT_CHUNK_SIZE, items.size());
+            db.beginTransactionNonExclusive();
+            try {
+                for (T item : items.subList(start, end)) {
+                    if (executeUpdateDelete(updateSql, statement -> updateBinder.bind(statement, item)) > 0
+                            || executeInsert(insertSql, statement -> insertBinder.bind(statement, item)) != -1) {
+                        written++;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Delete every row whose key is in keys, UPSERT_CHUNK_SIZE rows per transaction
+     *
+     * @param deleteSql a DELETE with a single key parameter
+     * @return the number of rows deleted
+     */
+    protected int deleteAll(String deleteSql, List<String> keys) {
+        SQLiteDatabase db = writable();
+        int deleted = 0;
+        for (int start = 0; start < keys.size(); start += UPSERT_CHUNK_SIZE) {
+            int end = Math.min(start + UPSERT_CHUNK_SIZE, keys.size());
+            db.beginTransactionNonExclusive();
+            try {
+                for (String key : keys.subList(start, end)) {
+                    deleted += executeUpdateDelete(deleteSql, statement -> bindNullable(statement, 1, key));
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Release every compiled statement (call when the connection is closed)
+     */
+    synchronized void releaseStatements() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        statementsDb = null;
+    }
+
+    /**
+     * Append a half-open [from, to) range on a date column; either bound may be null.
+     * Dates compare as text, so a yyyy-MM-dd bound also covers "yyyy-MM-dd HH:mm:ss" values.
+     */
+    static void appendDateRange(List<String> conditions, List<String> args, String column,
+                                String fromDate, String toDate) {
+        if (fromDate != null) {
+            conditions.add(column + " >= ?");
+            args.add(fromDate);
+        }
+        if (toDate != null) {
+            conditions.add(column + " < ?");
+            args.add(toDate);
+        }
+    }
+
+    static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    static String getString(Cursor cursor, int index) {
+        return index >= 0 && !cursor.isNull(index) ? cursor.getString(index) : null;
+    }
+
+    static int getInt(Cursor cursor, int index, int defaultValue) {
+        return index >= 0 && !cursor.isNull(index) ? cursor.getInt(index) : defaultValue;
+    }
+
+    static double getDouble(Cursor cursor, int index, double defaultValue) {
+        return index >= 0 && !cursor.isNull(index) ? cursor.getDouble(index) : defaultValue;
+    }
+}
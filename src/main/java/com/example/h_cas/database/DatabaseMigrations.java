@@ -0,0 +1,197 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.h_cas.utils.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DatabaseMigrations is the ordered registry of incremental schema upgrades.
+ * Each step is keyed by the schema version it produces and must be idempotent,
+ * so re-running an upgrade on a partially migrated database is harmless.
+ * Steps run inside the transaction SQLiteOpenHelper opens for onUpgrade, so an
+ * upgrade either completes fully or leaves the previous schema untouched.
+ */
+final class DatabaseMigrations {
+
+    private static final String TAG = "DatabaseMigrations";
+
+    /**
+     * A single schema upgrade step
+     */
+    interface Migration {
+        void migrate(SQLiteDatabase db);
+    }
+
+    private static final class Step {
+        final int version;
+        final String description;
+        final Migration migration;
+
+        Step(int version, String description, Migration migration) {
+            this.version = version;
+            this.description = description;
+            this.migration = migration;
+        }
+    }
+
+    private static final List<Step> STEPS = new ArrayList<>();
+
+    static {
+        // Versions 1-5 never had their own migrations (onUpgrade dropped everything),
+        // so a single reconciliation step brings any of them up to the v6 layout.
+        register(6, "Reconcile legacy schema to v6", db -> {
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_EMPLOYEES_TABLE);
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_CASES_TABLE);
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_PATIENTS_TABLE);
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_PRESCRIPTIONS_TABLE);
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_MEDICINES_TABLE);
+            createTableIfMissing(db, HCasDatabaseHelper.CREATE_RFID_DATA_TABLE);
+
+            addColumnIfMissing(db, "employees", "profile_picture_url", "TEXT");
+
+            String[] extendedPatientColumns = {
+                "suffix", "full_name", "birth_place", "age", "full_address", "phone_number",
+                "allergies", "medications", "medical_history", "pulse_rate", "blood_pressure",
+                "temperature", "blood_sugar", "pain_scale", "symptoms_description"
+            };
+            for (String column : extendedPatientColumns) {
+                addColumnIfMissing(db, "patients", column, "TEXT");
+            }
+        });
+
+        register(7, "Add secondary indexes for hot lookups", db -> {
+            for (String statement : HCasDatabaseHelper.CREATE_INDEXES) {
+                db.execSQL(statement);
+            }
+            db.execSQL("ANALYZE");
+        });
+
+        register(8, "Composite indexes for keyset pagination", db -> {
+            for (String statement : HCasDatabaseHelper.DROP_SUPERSEDED_INDEXES) {
+                db.execSQL(statement);
+            }
+            for (String statement : HCasDatabaseHelper.CREATE_KEYSET_INDEXES) {
+                db.execSQL(statement);
+            }
+            db.execSQL("ANALYZE");
+        });
+
+        register(9, "Index prescriptions by status and date", db -> {
+            db.execSQL(HCasDatabaseHelper.CREATE_PRESCRIPTION_STATUS_INDEX);
+            db.execSQL("ANALYZE");
+        });
+
+        register(10, "Track inbound sync high-water marks", db ->
+            db.execSQL(HCasDatabaseHelper.CREATE_SYNC_STATE_TABLE));
+
+        register(11, "Queue outbound Firebase writes in an outbox", db ->
+            db.execSQL(HCasDatabaseHelper.CREATE_SYNC_OUTBOX_TABLE));
+
+        register(12, "Daily report rollups maintained by triggers", ReportRollups::install);
+
+        register(13, "Inventory ledger of stock movements", db -> {
+            db.execSQL(HCasDatabaseHelper.CREATE_INVENTORY_EVENTS_TABLE);
+            for (String statement : HCasDatabaseHelper.CREATE_INVENTORY_EVENT_INDEXES) {
+                db.execSQL(statement);
+            }
+            db.execSQL(HCasDatabaseHelper.BACKFILL_INVENTORY_RECEIPTS);
+            db.execSQL(HCasDatabaseHelper.BACKFILL_INVENTORY_DISPENSES);
+        });
+
+        register(14, "Full-text search over patients and prescriptions", SearchIndex::install);
+
+        register(15, "Hash stored employee passwords", DatabaseMigrations::hashPlaintextPasswords);
+
+        register(16, "Dead-letter outbox entries Firebase keeps rejecting", db ->
+            db.execSQL(HCasDatabaseHelper.CREATE_SYNC_OUTBOX_DEAD_TABLE));
+    }
+
+    private DatabaseMigrations() {
+    }
+
+    private static void register(int version, String description, Migration migration) {
+        STEPS.add(new Step(version, description, migration));
+    }
+
+    /**
+     * Run every registered step with oldVersion < version <= newVersion, in order
+     */
+    static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        List<Step> steps = new ArrayList<>(STEPS);
+        Collections.sort(steps, (a, b) -> Integer.compare(a.version, b.version));
+
+        long totalStart = System.nanoTime();
+        for (Step step : steps) {
+            if (step.version <= oldVersion || step.version > newVersion) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            step.migration.migrate(db);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            Log.d(TAG, "Migrated to v" + step.version + " (" + step.description + ") in " + elapsedMs + "ms");
+        }
+        long totalMs = (System.nanoTime() - totalStart) / 1_000_000;
+        Log.d(TAG, "Upgrade v" + oldVersion + " -> v" + newVersion + " finished in " + totalMs + "ms");
+    }
+
+    /**
+     * Replace every plaintext password with a salted hash. Uses the minimum iteration
+     * count so the upgrade stays quick; each hash is raised to this device's count at
+     * the employee's next login.
+     */
+    private static void hashPlaintextPasswords(SQLiteDatabase db) {
+        Map<String, String> plaintext = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + HCasDatabaseHelper.COLUMN_EMPLOYEE_ID + ", " +
+                                    HCasDatabaseHelper.COLUMN_PASSWORD + " FROM " +
+                                    HCasDatabaseHelper.TABLE_EMPLOYEES, null);
+        try {
+            while (cursor.moveToNext()) {
+                if (!PasswordHasher.isHash(cursor.getString(1))) {
+                    plaintext.put(cursor.getString(0), cursor.getString(1));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        for (Map.Entry<String, String> entry : plaintext.entrySet()) {
+            db.execSQL("UPDATE " + HCasDatabaseHelper.TABLE_EMPLOYEES + " SET " +
+                       HCasDatabaseHelper.COLUMN_PASSWORD + " = ? WHERE " +
+                       HCasDatabaseHelper.COLUMN_EMPLOYEE_ID + " = ?",
+                       new Object[]{PasswordHasher.hash(entry.getValue(), PasswordHasher.MIN_ITERATIONS), entry.getKey()});
+        }
+    }
+
+    static void createTableIfMissing(SQLiteDatabase db, String createStatement) {
+        db.execSQL(createStatement.replaceFirst("CREATE TABLE ", "CREATE TABLE IF NOT EXISTS "));
+    }
+
+    static void addColumnIfMissing(SQLiteDatabase db, String table, String column, String type) {
+        if (!hasColumn(db, table, column)) {
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    static boolean hasColumn(SQLiteDatabase db, String table, String column) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            int nameIdx = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                if (column.equalsIgnoreCase(cursor.getString(nameIdx))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+}
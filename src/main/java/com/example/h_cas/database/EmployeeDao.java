@@ -0,0 +1,218 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.h_cas.models.Employee;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * EmployeeDao owns the SQL for the employees table.
+ */
+class EmployeeDao extends BaseDao {
+
+    private static final String NOT_ADMIN = COLUMN_ROLE + " != 'Administrator'";
+
+    private static final String ALL_COLUMNS =
+        COLUMN_EMPLOYEE_ID + ", " + COLUMN_FIRST_NAME + ", " + COLUMN_LAST_NAME + ", " +
+        COLUMN_EMAIL + ", " + COLUMN_PHONE + ", " + COLUMN_ROLE + ", " + COLUMN_USERNAME + ", " +
+        COLUMN_PASSWORD + ", " + COLUMN_CREATED_DATE + ", " + COLUMN_IS_ACTIVE + ", " +
+        COLUMN_PROFILE_PICTURE_URL;
+
+    // Listing columns deliberately leave out the password
+    private static final String LIST_COLUMNS =
+        COLUMN_EMPLOYEE_ID + ", " + COLUMN_FIRST_NAME + ", " + COLUMN_LAST_NAME + ", " +
+        COLUMN_EMAIL + ", " + COLUMN_PHONE + ", " + COLUMN_ROLE + ", " + COLUMN_USERNAME + ", " +
+        COLUMN_IS_ACTIVE + ", " + COLUMN_PROFILE_PICTURE_URL;
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + TABLE_EMPLOYEES + " (" +
+        COLUMN_EMPLOYEE_ID + ", " + COLUMN_FIRST_NAME + ", " + COLUMN_LAST_NAME + ", " +
+        COLUMN_EMAIL + ", " + COLUMN_PHONE + ", " + COLUMN_ROLE + ", " + COLUMN_USERNAME + ", " +
+        COLUMN_PASSWORD + ", " + COLUMN_IS_ACTIVE + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPDATE =
+        "UPDATE " + TABLE_EMPLOYEES + " SET " +
+        COLUMN_FIRST_NAME + " = ?, " + COLUMN_LAST_NAME + " = ?, " + COLUMN_EMAIL + " = ?, " +
+        COLUMN_PHONE + " = ?, " + COLUMN_ROLE + " = ?, " + COLUMN_USERNAME + " = ?, " +
+        COLUMN_PASSWORD + " = COALESCE(?, " + COLUMN_PASSWORD + "), " +
+        COLUMN_PROFILE_PICTURE_URL + " = COALESCE(?, " + COLUMN_PROFILE_PICTURE_URL + ")" +
+        " WHERE " + COLUMN_EMPLOYEE_ID + " = ?";
+
+    private static final String SQL_SOFT_DELETE =
+        "UPDATE " + TABLE_EMPLOYEES + " SET " + COLUMN_IS_ACTIVE + " = 0 WHERE " + COLUMN_EMPLOYEE_ID + " = ?";
+
+    private static final String SQL_UPDATE_PASSWORD =
+        "UPDATE " + TABLE_EMPLOYEES + " SET " + COLUMN_PASSWORD + " = ? WHERE " + COLUMN_USERNAME + " = ?";
+
+    // What a login needs: the stored hash and the profile the session keeps. The
+    // username's UNIQUE index makes this one index probe
+    private static final String SQL_FIND_CREDENTIALS =
+        "SELECT " + LIST_COLUMNS + ", " + COLUMN_PASSWORD + " FROM " + TABLE_EMPLOYEES +
+        " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_IS_ACTIVE + " = 1";
+
+    private static final String SQL_UPDATE_PROFILE_PICTURE =
+        "UPDATE " + TABLE_EMPLOYEES + " SET " + COLUMN_PROFILE_PICTURE_URL + " = ? WHERE " + COLUMN_EMPLOYEE_ID + " = ?";
+
+    private static final String SQL_COUNT_ACTIVE_BY_ROLE =
+        "SELECT " + COLUMN_ROLE + ", COUNT(*) FROM " + TABLE_EMPLOYEES +
+        " WHERE " + COLUMN_IS_ACTIVE + " = 1 AND " + NOT_ADMIN + " GROUP BY " + COLUMN_ROLE;
+
+    private static final String SQL_COUNT_USERNAME =
+        "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_USERNAME + " = ?";
+
+    private static final String SQL_COUNT_EMAIL =
+        "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_EMAIL + " = ?";
+
+    EmployeeDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    /**
+     * @param passwordHash the stored form of the employee's password, see PasswordHasher
+     */
+    long insert(Employee employee, String passwordHash) {
+        return executeInsert(SQL_INSERT, statement -> {
+            bindNullable(statement, 1, employee.getEmployeeId());
+            bindNullable(statement, 2, employee.getFirstName());
+            bindNullable(statement, 3, employee.getLastName());
+            bindNullable(statement, 4, employee.getEmail());
+            bindNullable(statement, 5, employee.getPhone());
+            bindNullable(statement, 6, employee.getRole());
+            bindNullable(statement, 7, employee.getUsername());
+            bindNullable(statement, 8, passwordHash);
+            statement.bindLong(9, employee.isActive() ? 1 : 0);
+        });
+    }
+
+    /**
+     * @param passwordHash the new stored password, or null to keep the current one
+     */
+    int update(Employee employee, String passwordHash) {
+        return executeUpdateDelete(SQL_UPDATE, statement -> {
+            bindNullable(statement, 1, employee.getFirstName());
+            bindNullable(statement, 2, employee.getLastName());
+            bindNullable(statement, 3, employee.getEmail());
+            bindNullable(statement, 4, employee.getPhone());
+            bindNullable(statement, 5, employee.getRole());
+            bindNullable(statement, 6, employee.getUsername());
+            bindNullable(statement, 7, passwordHash);
+            bindNullable(statement, 8, employee.getProfilePictureUrl());
+            bindNullable(statement, 9, employee.getEmployeeId());
+        });
+    }
+
+    int softDelete(String employeeId) {
+        return executeUpdateDelete(SQL_SOFT_DELETE, statement -> bindNullable(statement, 1, employeeId));
+    }
+
+    int updatePassword(String username, String passwordHash) {
+        return executeUpdateDelete(SQL_UPDATE_PASSWORD, statement -> {
+            bindNullable(statement, 1, passwordHash);
+            bindNullable(statement, 2, username);
+        });
+    }
+
+    int updateProfilePicture(String employeeId, String profilePictureUrl) {
+        return executeUpdateDelete(SQL_UPDATE_PROFILE_PICTURE, statement -> {
+            bindNullable(statement, 1, profilePictureUrl);
+            bindNullable(statement, 2, employeeId);
+        });
+    }
+
+    List<Employee> findActiveNonAdmin() {
+        String query = "SELECT " + LIST_COLUMNS + " FROM " + TABLE_EMPLOYEES +
+                       " WHERE " + COLUMN_IS_ACTIVE + " = 1 AND " + NOT_ADMIN;
+        return queryList(query, null, Mapper::new);
+    }
+
+    List<Employee> findByRole(String role) {
+        String query = "SELECT " + ALL_COLUMNS + " FROM " + TABLE_EMPLOYEES +
+                       " WHERE " + COLUMN_ROLE + " = ? AND " + COLUMN_IS_ACTIVE + " = 1 AND " + NOT_ADMIN;
+        return queryList(query, new String[]{role}, Mapper::new);
+    }
+
+    /**
+     * The active employee with this username and their stored password hash
+     */
+    Employee findCredentials(String username) {
+        return queryFirst(SQL_FIND_CREDENTIALS, new String[]{username}, Mapper::new);
+    }
+
+    Employee findActiveByUsername(String username) {
+        String query = "SELECT " + ALL_COLUMNS + " FROM " + TABLE_EMPLOYEES +
+                       " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_IS_ACTIVE + " = 1";
+        return queryFirst(query, new String[]{username}, Mapper::new);
+    }
+
+    Employee findById(String employeeId) {
+        String query = "SELECT " + ALL_COLUMNS + " FROM " + TABLE_EMPLOYEES +
+                       " WHERE " + COLUMN_EMPLOYEE_ID + " = ?";
+        return queryFirst(query, new String[]{employeeId}, Mapper::new);
+    }
+
+    /**
+     * Active non-admin employees per role, in one pass over the table
+     */
+    Map<String, Integer> countActiveByRole() {
+        return queryCounts(SQL_COUNT_ACTIVE_BY_ROLE);
+    }
+
+    boolean usernameExists(String username) {
+        return queryForLong(SQL_COUNT_USERNAME, username) > 0;
+    }
+
+    boolean emailExists(String email) {
+        return queryForLong(SQL_COUNT_EMAIL, email) > 0;
+    }
+
+    /**
+     * Maps an employees row; columns missing from the projection are skipped
+     */
+    static final class Mapper implements RowMapper<Employee> {
+        private final int id, firstName, lastName, email, phone, role, username,
+                          password, createdDate, isActive, profilePictureUrl;
+
+        Mapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_EMPLOYEE_ID);
+            firstName = cursor.getColumnIndex(COLUMN_FIRST_NAME);
+            lastName = cursor.getColumnIndex(COLUMN_LAST_NAME);
+            email = cursor.getColumnIndex(COLUMN_EMAIL);
+            phone = cursor.getColumnIndex(COLUMN_PHONE);
+            role = cursor.getColumnIndex(COLUMN_ROLE);
+            username = cursor.getColumnIndex(COLUMN_USERNAME);
+            password = cursor.getColumnIndex(COLUMN_PASSWORD);
+            createdDate = cursor.getColumnIndex(COLUMN_CREATED_DATE);
+            isActive = cursor.getColumnIndex(COLUMN_IS_ACTIVE);
+            profilePictureUrl = cursor.getColumnIndex(COLUMN_PROFILE_PICTURE_URL);
+        }
+
+        @Override
+        public Employee map(Cursor cursor) {
+            Employee employee = new Employee();
+            employee.setEmployeeId(getString(cursor, id));
+            employee.setFirstName(getString(cursor, firstName));
+            employee.setLastName(getString(cursor, lastName));
+            employee.setEmail(getString(cursor, email));
+            employee.setPhone(getString(cursor, phone));
+            employee.setRole(getString(cursor, role));
+            employee.setUsername(getString(cursor, username));
+            if (password >= 0) {
+                employee.setPassword(getString(cursor, password));
+            }
+            if (createdDate >= 0) {
+                employee.setCreatedDate(getString(cursor, createdDate));
+            }
+            employee.setActive(getInt(cursor, isActive, 1) == 1);
+            String pictureUrl = getString(cursor, profilePictureUrl);
+            if (pictureUrl != null) {
+                employee.setProfilePictureUrl(pictureUrl);
+            }
+            return employee;
+        }
+    }
+}
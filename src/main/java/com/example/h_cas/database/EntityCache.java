@@ -0,0 +1,203 @@
+package com.example.h_cas.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EntityCache is a size-bounded LRU cache of rows (keyed by table and id) and of query
+ * results such as lists and aggregates (keyed by a query signature and the tables the
+ * query reads).
+ *
+ * Every write through HCasDatabaseHelper invalidates what it touched, and each table
+ * carries a version number: a load only populates the cache if no write to its tables
+ * happened while it was running, so a slow read can never store data older than a write.
+ *
+ * Rows and list elements are handed out as copies, so a caller can edit a model before
+ * writing it back without another thread reading the half-edited cached instance.
+ */
+final class EntityCache {
+
+    private static final int MAX_ENTITIES = 512;
+    private static final int MAX_QUERIES = 64;
+
+    /**
+     * Loads a value from the database on a cache miss
+     */
+    interface Loader<T> {
+        T load();
+    }
+
+    /**
+     * Copies a cached model, e.g. Patient::copy
+     */
+    interface Copier<T> {
+        T copy(T value);
+    }
+
+    private static final class QueryEntry {
+        final Object value;
+        final String[] tables;
+
+        QueryEntry(Object value, String[] tables) {
+            this.value = value;
+            this.tables = tables;
+        }
+    }
+
+    private final Map<String, Object> entities = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_ENTITIES;
+        }
+    };
+
+    private final Map<String, QueryEntry> queries = new LinkedHashMap<String, QueryEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QueryEntry> eldest) {
+            return size() > MAX_QUERIES;
+        }
+    };
+
+    private final Map<String, Long> tableVersions = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * Return a copy of the cached row, or load it (outside the lock), cache it if not null
+     * and return a copy
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String table, String id, Loader<T> loader, Copier<T> copier) {
+        if (id == null) {
+            return loader.load();
+        }
+
+        String key = table + "/" + id;
+        long version;
+        synchronized (this) {
+            Object cached = entities.get(key);
+            if (cached != null) {
+                hits++;
+                return copier.copy((T) cached);
+            }
+            misses++;
+            version = versionOf(table);
+        }
+
+        T loaded = loader.load();
+        synchronized (this) {
+            if (loaded != null && versionOf(table) == version) {
+                entities.put(key, loaded);
+            }
+        }
+        return loaded != null ? copier.copy(loaded) : null;
+    }
+
+    /**
+     * Return a copy of the cached list for signature and of its elements, or load and
+     * cache it. tables are every table the query reads; a write to any of them drops the
+     * cached result.
+     */
+    <T> List<T> getList(String signature, Loader<List<T>> loader, Copier<T> copier, String... tables) {
+        List<T> cached = getValue(signature, () -> new ArrayList<>(loader.load()), tables);
+        List<T> copies = new ArrayList<>(cached.size());
+        for (T value : cached) {
+            copies.add(copier.copy(value));
+        }
+        return copies;
+    }
+
+    /**
+     * Return the cached result for signature, or load and cache it, invalidated like
+     * {@link #getList}. The value is shared, so it must be immutable.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getValue(String signature, Loader<T> loader, String... tables) {
+        long[] versions = new long[tables.length];
+        synchronized (this) {
+            QueryEntry cached = queries.get(signature);
+            if (cached != null) {
+                hits++;
+                return (T) cached.value;
+            }
+            misses++;
+            for (int i = 0; i < tables.length; i++) {
+                versions[i] = versionOf(tables[i]);
+            }
+        }
+
+        T loaded = loader.load();
+        synchronized (this) {
+            boolean current = true;
+            for (int i = 0; i < tables.length && current; i++) {
+                current = versionOf(tables[i]) == versions[i];
+            }
+            if (current && loaded != null) {
+                queries.put(signature, new QueryEntry(loaded, tables.clone()));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop one row and every query result that reads its table
+     */
+    synchronized void invalidate(String table, String id) {
+        if (id != null) {
+            entities.remove(table + "/" + id);
+        }
+        invalidateQueries(table);
+    }
+
+    /**
+     * Drop several rows of one table (e.g. an inbound Firebase batch) and its query results
+     */
+    synchronized void invalidate(String table, List<String> ids) {
+        for (String id : ids) {
+            entities.remove(table + "/" + id);
+        }
+        invalidateQueries(table);
+    }
+
+    /**
+     * Drop every row and query result of a table, for writes that are not keyed by id
+     */
+    synchronized void invalidateTable(String table) {
+        String prefix = table + "/";
+        Iterator<String> keys = entities.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+        invalidateQueries(table);
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    private void invalidateQueries(String table) {
+        tableVersions.put(table, versionOf(table) + 1);
+        Iterator<QueryEntry> entries = queries.values().iterator();
+        while (entries.hasNext()) {
+            if (Arrays.asList(entries.next().tables).contains(table)) {
+                entries.remove();
+            }
+        }
+    }
+
+    private long versionOf(String table) {
+        Long version = tableVersions.get(table);
+        return version != null ? version : 0;
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.h_cas.database;
 
+import android.os.Build;
 import android.util.Log;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,8 +31,14 @@ public class FirebaseHelper {
     private static final String TAG = "FirebaseHelper";
     private final FirebaseDatabase database;
     private final DatabaseReference rootRef;
-    private final List<ValueEventListener> activeListeners = new ArrayList<>();
-    private final List<DatabaseReference> listenerReferences = new ArrayList<>();
+    private final List<ChildEventListener> activeListeners = new ArrayList<>();
+    private final List<Query> listenerQueries = new ArrayList<>();
+
+    // Server timestamp stamped on every write; child listeners resume from it
+    public static final String FIELD_UPDATED_AT = "updated_at";
+
+    // Set on a deleted record instead of removing it, so the delete carries a stamp too
+    public static final String FIELD_DELETED = "deleted";
 
     // Define your table/collection paths
     private static final String PATH_EMPLOYEES = "employees";
@@ -34,6 +48,13 @@ public class FirebaseHelper {
     private static final String PATH_CASES = "healthcare_cases";
     private static final String PATH_RFID_DATA = "rfid_data";
 
+    // Registry of IdGenerator node ids: "next" to hand out, "devices/<installation>" claimed
+    private static final String PATH_ID_NODES = "id_nodes";
+    private static final String FIELD_NEXT_NODE = "next";
+    private static final String FIELD_DEVICES = "devices";
+    private static final String FIELD_NODE_ID = "node_id";
+    private static final String FIELD_MODEL = "model";
+
     /**
      * Constructor: initializes Firebase connection
      */
@@ -144,9 +165,13 @@ public class FirebaseHelper {
             Log.w(TAG, "Could not check auth status", e);
         }
 
+        // Stamp the write so incremental listeners can pick it up after a reconnect
+        Map<String, Object> stamped = new HashMap<>(data);
+        stamped.put(FIELD_UPDATED_AT, ServerValue.TIMESTAMP);
+
         DatabaseReference ref = rootRef.child(path).child(id);
         Log.d(TAG, "📤 Attempting to write to: " + path + "/" + id);
-        ref.setValue(data)
+        ref.setValue(stamped)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "✅ Data synced successfully to path: " + path + "/" + id);
                     Log.d(TAG, "   Check Firebase Console → Realtime Database → " + path + " → " + id);
@@ -169,6 +194,26 @@ public class FirebaseHelper {
                 });
     }
 
+    /**
+     * Write several records in one multi-path update. Keys are "path/id"; each record
+     * replaces the stored one and is stamped like writeToFirebase. Returns null if
+     * Firebase is not available.
+     */
+    public Task<Void> writeBatchToFirebase(Map<String, Map<String, Object>> records) {
+        if (rootRef == null) {
+            Log.w(TAG, "❌ Firebase rootRef is null");
+            return null;
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> record : records.entrySet()) {
+            Map<String, Object> stamped = new HashMap<>(record.getValue());
+            stamped.put(FIELD_UPDATED_AT, ServerValue.TIMESTAMP);
+            updates.put(record.getKey(), stamped);
+        }
+        return rootRef.updateChildren(updates);
+    }
+
     /* ─────────────────────────────────────────────
      * 🔹 READ METHODS
      * ───────────────────────────────────────────── */
@@ -211,49 +256,107 @@ public class FirebaseHelper {
      * 🔹 LISTENERS (REAL-TIME UPDATES)
      * ───────────────────────────────────────────── */
 
-    public ValueEventListener listenToPatients(FirebaseDataCallback callback) {
-        return addRealtimeListener(PATH_PATIENTS, callback);
+    /*
+     * Child-level listeners: only added/changed/removed children are delivered, so sync
+     * cost follows the change rate rather than the size of the node. Pass the last
+     * updated_at already applied (0 for a full initial sync) to resume incrementally.
+     */
+
+    public ChildEventListener listenToPatients(long updatedSince, FirebaseChildCallback callback) {
+        return addChildListener(PATH_PATIENTS, updatedSince, callback);
     }
 
-    public ValueEventListener listenToMedicines(FirebaseDataCallback callback) {
-        return addRealtimeListener(PATH_MEDICINES, callback);
+    public ChildEventListener listenToMedicines(long updatedSince, FirebaseChildCallback callback) {
+        return addChildListener(PATH_MEDICINES, updatedSince, callback);
     }
 
-    public ValueEventListener listenToPrescriptions(FirebaseDataCallback callback) {
-        return addRealtimeListener(PATH_PRESCRIPTIONS, callback);
+    public ChildEventListener listenToPrescriptions(long updatedSince, FirebaseChildCallback callback) {
+        return addChildListener(PATH_PRESCRIPTIONS, updatedSince, callback);
     }
 
-    private ValueEventListener addRealtimeListener(String path, FirebaseDataCallback callback) {
-        DatabaseReference ref = rootRef.child(path);
-        ValueEventListener listener = new ValueEventListener() {
+    private ChildEventListener addChildListener(String path, long updatedSince, FirebaseChildCallback callback) {
+        Query query = updatedSince > 0
+            ? rootRef.child(path).orderByChild(FIELD_UPDATED_AT).startAt(updatedSince)
+            : rootRef.child(path);
+        if (updatedSince > 0) {
+            // Records written before updated_at existed have no stamp and sort first, so the
+            // resumed query never sees them; fetch just those once
+            deliverUnstamped(path, callback);
+        }
+
+        ChildEventListener listener = new ChildEventListener() {
             @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    Map<String, Object> data = (Map<String, Object>) child.getValue();
-                    if (callback != null) callback.onDataReceived(child.getKey(), data);
-                }
-                if (callback != null) callback.onComplete();
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                deliverChange(snapshot, callback);
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                deliverChange(snapshot, callback);
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+                if (callback != null) callback.onChildRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                // Ordering only; nothing to apply
             }
 
             @Override
             public void onCancelled(DatabaseError error) {
+                Log.e(TAG, "❌ Listener cancelled for path: " + path, error.toException());
                 if (callback != null) callback.onError(error.toException());
             }
         };
 
-        ref.addValueEventListener(listener);
+        query.addChildEventListener(listener);
         activeListeners.add(listener);
-        listenerReferences.add(ref);
+        listenerQueries.add(query);
         return listener;
     }
 
+    private void deliverUnstamped(String path, FirebaseChildCallback callback) {
+        rootRef.child(path).orderByChild(FIELD_UPDATED_AT).equalTo((String) null)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot snapshot) {
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            deliverChange(child, callback);
+                        }
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError error) {
+                        Log.e(TAG, "❌ Unstamped read failed for path: " + path, error.toException());
+                        if (callback != null) callback.onError(error.toException());
+                    }
+                });
+    }
+
+    private void deliverChange(DataSnapshot snapshot, FirebaseChildCallback callback) {
+        Object value = snapshot.getValue();
+        if (callback != null && value instanceof Map) {
+            callback.onChildChanged(snapshot.getKey(), (Map<String, Object>) value);
+        }
+    }
+
     /* ─────────────────────────────────────────────
      * 🔹 DELETE METHOD
      * ───────────────────────────────────────────── */
 
+    /**
+     * Replace the record with a stamped tombstone. A removed child is invisible to a
+     * listener resuming from a high-water mark later than its last write.
+     */
     public void deleteDocument(String path, String documentId, FirebaseOperationCallback callback) {
+        Map<String, Object> stamped = tombstone();
+        stamped.put(FIELD_UPDATED_AT, ServerValue.TIMESTAMP);
+
         DatabaseReference ref = rootRef.child(path).child(documentId);
-        ref.removeValue()
+        ref.setValue(stamped)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "🗑️ Deleted: " + path + "/" + documentId);
                     if (callback != null) callback.onSuccess();
@@ -264,6 +367,71 @@ public class FirebaseHelper {
                 });
     }
 
+    /**
+     * The record written in place of a deleted one
+     */
+    public static Map<String, Object> tombstone() {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put(FIELD_DELETED, true);
+        return tombstone;
+    }
+
+    public static boolean isTombstone(Map<String, Object> data) {
+        return Boolean.TRUE.equals(data.get(FIELD_DELETED));
+    }
+
+    /* ─────────────────────────────────────────────
+     * 🔹 ID NODE REGISTRY
+     * ───────────────────────────────────────────── */
+
+    /**
+     * Claim an IdGenerator node id for this installation in one transaction: the
+     * installation's earlier claim if it has one, else the next unused id. Fails with
+     * IllegalStateException once all maxNodeId + 1 ids are taken.
+     */
+    public void claimIdNode(String installationId, int maxNodeId, IdNodeCallback callback) {
+        if (rootRef == null) {
+            Log.w(TAG, "❌ Firebase rootRef is null");
+            return;
+        }
+        rootRef.child(PATH_ID_NODES).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData registry) {
+                MutableData device = registry.child(FIELD_DEVICES).child(installationId);
+                if (device.child(FIELD_NODE_ID).getValue(Long.class) != null) {
+                    return Transaction.success(registry);
+                }
+                Long next = registry.child(FIELD_NEXT_NODE).getValue(Long.class);
+                long nodeId = next != null ? next : 0;
+                if (nodeId > maxNodeId) {
+                    return Transaction.abort();
+                }
+                registry.child(FIELD_NEXT_NODE).setValue(nodeId + 1);
+                device.child(FIELD_NODE_ID).setValue(nodeId);
+                device.child(FIELD_MODEL).setValue(Build.MODEL);
+                return Transaction.success(registry);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot registry) {
+                if (error != null) {
+                    Log.e(TAG, "❌ Node id claim failed", error.toException());
+                    callback.onError(error.toException());
+                    return;
+                }
+                Long nodeId = committed && registry != null
+                    ? registry.child(FIELD_DEVICES).child(installationId).child(FIELD_NODE_ID).getValue(Long.class)
+                    : null;
+                if (nodeId == null) {
+                    callback.onError(new IllegalStateException("All " + (maxNodeId + 1) + " node ids are taken"));
+                    return;
+                }
+                Log.d(TAG, "🆔 Claimed node id " + nodeId);
+                callback.onClaimed(nodeId.intValue());
+            }
+        });
+    }
+
     /* ─────────────────────────────────────────────
      * 🔹 CLEANUP
      * ───────────────────────────────────────────── */
@@ -271,13 +439,13 @@ public class FirebaseHelper {
     public void stopAllListeners() {
         for (int i = 0; i < activeListeners.size(); i++) {
             try {
-                listenerReferences.get(i).removeEventListener(activeListeners.get(i));
+                listenerQueries.get(i).removeEventListener(activeListeners.get(i));
             } catch (Exception e) {
                 Log.w(TAG, "Error removing listener " + i, e);
             }
         }
         activeListeners.clear();
-        listenerReferences.clear();
+        listenerQueries.clear();
         Log.d(TAG, "🛑 All Firebase listeners stopped");
     }
 
@@ -291,8 +459,22 @@ public class FirebaseHelper {
         void onError(Exception e);
     }
 
+    /**
+     * Receives child-level changes; both methods are called on the main thread
+     */
+    public interface FirebaseChildCallback {
+        void onChildChanged(String key, Map<String, Object> data);
+        void onChildRemoved(String key);
+        void onError(Exception e);
+    }
+
     public interface FirebaseOperationCallback {
         void onSuccess();
         void onError(Exception e);
     }
+
+    public interface IdNodeCallback {
+        void onClaimed(int nodeId);
+        void onError(Exception e);
+    }
 }
@@ -1,16 +1,23 @@
 package com.example.h_cas.database;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.example.h_cas.models.Medicine;
 import com.example.h_cas.models.Patient;
 import com.example.h_cas.models.Prescription;
-import com.example.h_cas.models.Employee;
+import com.example.h_cas.utils.DatabaseExecutor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * FirebaseSyncManager handles bidirectional sync between SQLite and Firebase Realtime Database
@@ -18,6 +25,14 @@ import java.util.Map;
 public class FirebaseSyncManager {
     
     private static final String TAG = "FirebaseSyncManager";
+    
+    // Inbound changes are buffered until the listener is quiet for this long, or until
+    // a chunk's worth has accumulated, then applied in one batch
+    private static final long FLUSH_DELAY_MS = 250;
+    private static final int FLUSH_SIZE = BaseDao.UPSERT_CHUNK_SIZE;
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
     private FirebaseHelper firebaseHelper;
     private HCasDatabaseHelper databaseHelper;
     private Context context;
@@ -35,7 +50,7 @@ public class FirebaseSyncManager {
         
         // Always initialize database helper first (required for app functionality)
         try {
-            this.databaseHelper = new HCasDatabaseHelper(context);
+            this.databaseHelper = HCasDatabaseHelper.getInstance(context);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize HCasDatabaseHelper", e);
             this.databaseHelper = null;
@@ -69,152 +84,79 @@ public class FirebaseSyncManager {
     }
     
     /**
-     * Sync medicine to Firebase Realtime Database
+     * Build the Firebase Realtime Database record for a medicine
      */
-    public void syncMedicine(Medicine medicine) {
-        if (medicine == null) return;
-        if (firebaseHelper == null) {
-            Log.w(TAG, "FirebaseHelper not available - skipping medicine sync");
-            return;
-        }
-        
-        try {
-            Map<String, Object> medicineData = new HashMap<>();
-            medicineData.put("medicine_id", medicine.getMedicineId());
-            medicineData.put("medicine_name", medicine.getMedicineName());
-            medicineData.put("dosage", medicine.getDosage());
-            medicineData.put("stock_quantity", medicine.getStockQuantity());
-            medicineData.put("unit", medicine.getUnit());
-            medicineData.put("category", medicine.getCategory());
-            medicineData.put("description", medicine.getDescription());
-            medicineData.put("expiry_date", medicine.getExpiryDate());
-            medicineData.put("price", medicine.getPrice());
-            medicineData.put("supplier", medicine.getSupplier());
-            medicineData.put("last_updated", System.currentTimeMillis());
-            
-            firebaseHelper.syncMedicineToFirebase(medicine.getMedicineId(), medicineData);
-        } catch (Exception e) {
-            Log.e(TAG, "Error syncing medicine", e);
-        }
+    static Map<String, Object> medicineToFirebase(Medicine medicine) {
+        Map<String, Object> medicineData = new HashMap<>();
+        medicineData.put("medicine_id", medicine.getMedicineId());
+        medicineData.put("medicine_name", medicine.getMedicineName());
+        medicineData.put("dosage", medicine.getDosage());
+        medicineData.put("stock_quantity", medicine.getStockQuantity());
+        medicineData.put("unit", medicine.getUnit());
+        medicineData.put("category", medicine.getCategory());
+        medicineData.put("description", medicine.getDescription());
+        medicineData.put("expiry_date", medicine.getExpiryDate());
+        medicineData.put("price", medicine.getPrice());
+        medicineData.put("supplier", medicine.getSupplier());
+        medicineData.put("last_updated", System.currentTimeMillis());
+        return medicineData;
     }
     
     /**
-     * Sync prescription to Firebase Realtime Database
+     * Build the Firebase Realtime Database record for a prescription
      */
-    public void syncPrescription(Prescription prescription) {
-        if (prescription == null) return;
-        if (firebaseHelper == null) {
-            Log.w(TAG, "FirebaseHelper not available - skipping prescription sync");
-            return;
-        }
-        
-        try {
-            Map<String, Object> prescriptionData = new HashMap<>();
-            prescriptionData.put("prescription_id", prescription.getPrescriptionId());
-            prescriptionData.put("patient_id", prescription.getPatientId());
-            prescriptionData.put("patient_name", prescription.getPatientName());
-            prescriptionData.put("medication", prescription.getMedication());
-            prescriptionData.put("dosage", prescription.getDosage());
-            prescriptionData.put("frequency", prescription.getFrequency());
-            prescriptionData.put("duration", prescription.getDuration());
-            prescriptionData.put("instructions", prescription.getInstructions());
-            prescriptionData.put("doctor_id", prescription.getDoctorId());
-            prescriptionData.put("doctor_name", prescription.getDoctorName());
-            prescriptionData.put("created_date", prescription.getCreatedDate());
-            prescriptionData.put("status", prescription.getStatus());
-            prescriptionData.put("last_updated", System.currentTimeMillis());
-            
-            firebaseHelper.syncPrescriptionToFirebase(prescription.getPrescriptionId(), prescriptionData);
-        } catch (Exception e) {
-            Log.e(TAG, "Error syncing prescription", e);
-        }
+    static Map<String, Object> prescriptionToFirebase(Prescription prescription) {
+        Map<String, Object> prescriptionData = new HashMap<>();
+        prescriptionData.put("prescription_id", prescription.getPrescriptionId());
+        prescriptionData.put("patient_id", prescription.getPatientId());
+        prescriptionData.put("patient_name", prescription.getPatientName());
+        prescriptionData.put("medication", prescription.getMedication());
+        prescriptionData.put("dosage", prescription.getDosage());
+        prescriptionData.put("frequency", prescription.getFrequency());
+        prescriptionData.put("duration", prescription.getDuration());
+        prescriptionData.put("instructions", prescription.getInstructions());
+        prescriptionData.put("doctor_id", prescription.getDoctorId());
+        prescriptionData.put("doctor_name", prescription.getDoctorName());
+        prescriptionData.put("created_date", prescription.getCreatedDate());
+        prescriptionData.put("status", prescription.getStatus());
+        prescriptionData.put("last_updated", System.currentTimeMillis());
+        return prescriptionData;
     }
     
     /**
-     * Sync patient to Firebase Realtime Database
+     * Build the Firebase Realtime Database record for a patient
      */
-    public void syncPatient(Patient patient) {
-        if (patient == null) {
-            Log.e(TAG, "❌ Cannot sync patient: patient is null");
-            return;
-        }
+    static Map<String, Object> patientToFirebase(Patient patient) {
+        Map<String, Object> patientData = new HashMap<>();
+        patientData.put("patient_id", patient.getPatientId() != null ? patient.getPatientId() : "");
+        patientData.put("first_name", patient.getFirstName() != null ? patient.getFirstName() : "");
+        patientData.put("last_name", patient.getLastName() != null ? patient.getLastName() : "");
+        patientData.put("date_of_birth", patient.getDateOfBirth() != null ? patient.getDateOfBirth() : "");
+        patientData.put("gender", patient.getGender() != null ? patient.getGender() : "");
         
-        if (firebaseHelper == null) {
-            Log.w(TAG, "FirebaseHelper not available - skipping patient sync");
-            return;
-        }
+        // Use getPhone() which returns phoneNumber (legacy support)
+        String phone = patient.getPhone() != null ? patient.getPhone() : 
+                      (patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "");
+        patientData.put("phone", phone);
         
-        try {
-            Log.d(TAG, "🔄 Starting to sync patient: " + patient.getPatientId());
-            
-            Map<String, Object> patientData = new HashMap<>();
-            patientData.put("patient_id", patient.getPatientId() != null ? patient.getPatientId() : "");
-            patientData.put("first_name", patient.getFirstName() != null ? patient.getFirstName() : "");
-            patientData.put("last_name", patient.getLastName() != null ? patient.getLastName() : "");
-            patientData.put("date_of_birth", patient.getDateOfBirth() != null ? patient.getDateOfBirth() : "");
-            patientData.put("gender", patient.getGender() != null ? patient.getGender() : "");
-            
-            // Use getPhone() which returns phoneNumber (legacy support)
-            String phone = patient.getPhone() != null ? patient.getPhone() : 
-                          (patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "");
-            patientData.put("phone", phone);
-            
-            patientData.put("email", patient.getEmail() != null ? patient.getEmail() : "");
-            patientData.put("address", patient.getAddress() != null ? patient.getAddress() : "");
-            
-            // Add extended fields
-            patientData.put("suffix", patient.getSuffix() != null ? patient.getSuffix() : "");
-            patientData.put("full_name", patient.getFullName() != null ? patient.getFullName() : "");
-            patientData.put("age", patient.getAge() != null ? patient.getAge() : "");
-            patientData.put("full_address", patient.getFullAddress() != null ? patient.getFullAddress() : "");
-            patientData.put("phone_number", patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "");
-            patientData.put("allergies", patient.getAllergies() != null ? patient.getAllergies() : "");
-            patientData.put("medications", patient.getMedications() != null ? patient.getMedications() : "");
-            patientData.put("medical_history", patient.getMedicalHistory() != null ? patient.getMedicalHistory() : "");
-            patientData.put("emergency_contact_name", patient.getEmergencyContactName() != null ? patient.getEmergencyContactName() : "");
-            patientData.put("emergency_contact_phone", patient.getEmergencyContactPhone() != null ? patient.getEmergencyContactPhone() : "");
-            patientData.put("birth_place", patient.getBirthPlace() != null ? patient.getBirthPlace() : "");
-            
-            patientData.put("last_updated", System.currentTimeMillis());
-            
-            Log.d(TAG, "📤 Sending patient data to Firebase: " + patientData);
-            firebaseHelper.syncPatientToFirebase(patient.getPatientId(), patientData);
-            Log.d(TAG, "✅ Patient sync initiated: " + patient.getPatientId());
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Error syncing patient: " + patient.getPatientId(), e);
-            Log.e(TAG, "   Error message: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-    
-    /**
-     * Sync employee to Firebase Realtime Database
-     */
-    public void syncEmployee(Employee employee) {
-        if (employee == null) return;
-        if (firebaseHelper == null) {
-            Log.w(TAG, "FirebaseHelper not available - skipping employee sync");
-            return;
-        }
+        patientData.put("email", patient.getEmail() != null ? patient.getEmail() : "");
+        patientData.put("address", patient.getAddress() != null ? patient.getAddress() : "");
         
-        try {
-            Map<String, Object> employeeData = new HashMap<>();
-            employeeData.put("employee_id", employee.getEmployeeId());
-            employeeData.put("first_name", employee.getFirstName());
-            employeeData.put("last_name", employee.getLastName());
-            employeeData.put("email", employee.getEmail());
-            employeeData.put("phone", employee.getPhone());
-            employeeData.put("role", employee.getRole());
-            employeeData.put("username", employee.getUsername());
-            employeeData.put("created_date", employee.getCreatedDate());
-            employeeData.put("is_active", employee.isActive());
-            employeeData.put("profile_picture_url", employee.getProfilePictureUrl());
-            employeeData.put("last_updated", System.currentTimeMillis());
-            
-            firebaseHelper.syncEmployeeToFirebase(employee.getEmployeeId(), employeeData);
-        } catch (Exception e) {
-            Log.e(TAG, "Error syncing employee", e);
-        }
+        // Add extended fields
+        patientData.put("suffix", patient.getSuffix() != null ? patient.getSuffix() : "");
+        patientData.put("full_name", patient.getFullName() != null ? patient.getFullName() : "");
+        patientData.put("age", patient.getAge() != null ? patient.getAge() : "");
+        patientData.put("full_address", patient.getFullAddress() != null ? patient.getFullAddress() : "");
+        patientData.put("phone_number", patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "");
+        patientData.put("allergies", patient.getAllergies() != null ? patient.getAllergies() : "");
+        patientData.put("medications", patient.getMedications() != null ? patient.getMedications() : "");
+        patientData.put("medical_history", patient.getMedicalHistory() != null ? patient.getMedicalHistory() : "");
+        patientData.put("emergency_contact_name", patient.getEmergencyContactName() != null ? patient.getEmergencyContactName() : "");
+        patientData.put("emergency_contact_phone", patient.getEmergencyContactPhone() != null ? patient.getEmergencyContactPhone() : "");
+        patientData.put("birth_place", patient.getBirthPlace() != null ? patient.getBirthPlace() : "");
+        
+        patientData.put("last_updated", System.currentTimeMillis());
+        return patientData;
     }
     
     /**
@@ -234,76 +176,152 @@ public class FirebaseSyncManager {
         isSyncing = true;
         Log.d(TAG, "Starting Firebase real-time listeners...");
         
-        // Listen to medicines
-        firebaseHelper.listenToMedicines(new FirebaseHelper.FirebaseDataCallback() {
-            @Override
-            public void onDataReceived(String documentId, Map<String, Object> data) {
-                syncMedicineFromFirestore(data);
-            }
-            
-            @Override
-            public void onComplete() {
-                Log.d(TAG, "Medicines sync complete");
-            }
-            
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error syncing medicines", e);
-            }
-        });
+        // Firebase is signed in by now, so push anything written while it was unavailable
+        if (databaseHelper != null) {
+            databaseHelper.drainOutbox();
+        }
         
-        // Listen to prescriptions
-        firebaseHelper.listenToPrescriptions(new FirebaseHelper.FirebaseDataCallback() {
-            @Override
-            public void onDataReceived(String documentId, Map<String, Object> data) {
-                syncPrescriptionFromFirestore(data);
-            }
-            
-            @Override
-            public void onComplete() {
-                Log.d(TAG, "Prescriptions sync complete");
-            }
-            
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error syncing prescriptions", e);
-            }
-        });
+        DeltaBuffer<Medicine> medicines = new DeltaBuffer<>("medicines", this::medicineFromFirebase,
+            (changed, removed, mark) -> databaseHelper.applyMedicineChanges(changed, removed, mark));
+        DeltaBuffer<Prescription> prescriptions = new DeltaBuffer<>("prescriptions", this::prescriptionFromFirebase,
+            (changed, removed, mark) -> databaseHelper.applyPrescriptionChanges(changed, removed, mark));
+        DeltaBuffer<Patient> patients = new DeltaBuffer<>("patients", this::patientFromFirebase,
+            (changed, removed, mark) -> databaseHelper.applyPatientChanges(changed, removed, mark));
         
-        // Listen to patients
-        firebaseHelper.listenToPatients(new FirebaseHelper.FirebaseDataCallback() {
-            @Override
-            public void onDataReceived(String documentId, Map<String, Object> data) {
-                syncPatientFromFirestore(data);
-            }
-            
-            @Override
-            public void onComplete() {
-                Log.d(TAG, "Patients sync complete");
-            }
-            
-            @Override
-            public void onError(Exception e) {
-                Log.e(TAG, "Error syncing patients", e);
+        // Resume each collection from the last change already applied locally
+        runInbound(() -> {
+            try {
+                firebaseHelper.listenToMedicines(databaseHelper.getSyncHighWaterMark("medicines"), medicines);
+                firebaseHelper.listenToPrescriptions(databaseHelper.getSyncHighWaterMark("prescriptions"), prescriptions);
+                firebaseHelper.listenToPatients(databaseHelper.getSyncHighWaterMark("patients"), patients);
+                Log.d(TAG, "✅ Firebase real-time listeners started");
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting Firebase listeners", e);
             }
         });
-        
-        Log.d(TAG, "✅ Firebase real-time listeners started");
     }
     
     /**
      * Stop listening to Firebase Realtime Database updates
      */
     public void stopListening() {
+        if (firebaseHelper == null) {
+            return;
+        }
         firebaseHelper.stopAllListeners();
         isSyncing = false;
         Log.d(TAG, "Stopped listening to Firebase updates");
     }
     
     /**
-     * Sync medicine from Firebase Realtime Database to SQLite
+     * Inbound work runs on the single database writer, so batches for a collection are
+     * applied in arrival order
+     */
+    private static void runInbound(Runnable task) {
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.DEFAULT,
+                                               null, task);
+    }
+    
+    private interface RecordParser<T> {
+        T parse(Map<String, Object> data);
+    }
+    
+    private interface ChangeWriter<T> {
+        void apply(List<T> changed, List<String> removedIds, long highWaterMark);
+    }
+    
+    /**
+     * Collects child-level changes for one collection on the main thread and hands them to
+     * the database writer in batches. Repeated changes to the same child are coalesced.
+     */
+    private final class DeltaBuffer<T> implements FirebaseHelper.FirebaseChildCallback {
+        private final String collection;
+        private final RecordParser<T> parser;
+        private final ChangeWriter<T> writer;
+        private final Map<String, T> changed = new LinkedHashMap<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        private long highWaterMark;
+        private final Runnable flushTask = this::flush;
+        
+        DeltaBuffer(String collection, RecordParser<T> parser, ChangeWriter<T> writer) {
+            this.collection = collection;
+            this.parser = parser;
+            this.writer = writer;
+        }
+        
+        @Override
+        public void onChildChanged(String key, Map<String, Object> data) {
+            if (FirebaseHelper.isTombstone(data)) {
+                advanceMark(data);
+                onChildRemoved(key);
+                return;
+            }
+            T item = parser.parse(data);
+            if (item == null) {
+                return;
+            }
+            removed.remove(key);
+            changed.put(key, item);
+            advanceMark(data);
+            scheduleFlush();
+        }
+        
+        private void advanceMark(Map<String, Object> data) {
+            Object updatedAt = data.get(FirebaseHelper.FIELD_UPDATED_AT);
+            if (updatedAt instanceof Number) {
+                highWaterMark = Math.max(highWaterMark, ((Number) updatedAt).longValue());
+            }
+        }
+        
+        @Override
+        public void onChildRemoved(String key) {
+            changed.remove(key);
+            removed.add(key);
+            scheduleFlush();
+        }
+        
+        @Override
+        public void onError(Exception e) {
+            Log.e(TAG, "Error syncing " + collection, e);
+        }
+        
+        private void scheduleFlush() {
+            mainHandler.removeCallbacks(flushTask);
+            if (changed.size() + removed.size() >= FLUSH_SIZE) {
+                flush();
+            } else {
+                mainHandler.postDelayed(flushTask, FLUSH_DELAY_MS);
+            }
+        }
+        
+        private void flush() {
+            if (databaseHelper == null || (changed.isEmpty() && removed.isEmpty())) {
+                return;
+            }
+            List<T> changedItems = new ArrayList<>(changed.values());
+            List<String> removedIds = new ArrayList<>(removed);
+            long mark = highWaterMark;
+            changed.clear();
+            removed.clear();
+            
+            runInbound(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    writer.apply(changedItems, removedIds, mark);
+                    Log.d(TAG, "Applied " + changedItems.size() + " changed and " + removedIds.size() +
+                               " removed " + collection + " from Firebase Realtime Database in " +
+                               (System.currentTimeMillis() - start) + " ms");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error writing " + collection + " from Firebase Realtime Database", e);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Convert a Firebase Realtime Database medicine record, or null if it cannot be read
      */
-    private void syncMedicineFromFirestore(Map<String, Object> data) {
+    private Medicine medicineFromFirebase(Map<String, Object> data) {
         try {
             Medicine medicine = new Medicine();
             medicine.setMedicineId((String) data.get("medicine_id"));
@@ -330,28 +348,18 @@ public class FirebaseSyncManager {
             }
             
             medicine.setSupplier((String) data.get("supplier"));
-            
-            // Check if medicine exists in SQLite
-            Medicine existingMedicine = databaseHelper.getMedicineById(medicine.getMedicineId());
-            if (existingMedicine == null) {
-                // Add new medicine
-                databaseHelper.addMedicine(medicine);
-                Log.d(TAG, "Added new medicine from Firebase Realtime Database: " + medicine.getMedicineName());
-            } else {
-                // Update existing medicine
-                databaseHelper.updateMedicine(medicine);
-                Log.d(TAG, "Updated medicine from Firebase Realtime Database: " + medicine.getMedicineName());
-            }
+            return medicine.getMedicineId() != null ? medicine : null;
             
         } catch (Exception e) {
-            Log.e(TAG, "Error syncing medicine from Firebase Realtime Database", e);
+            Log.e(TAG, "Error reading medicine from Firebase Realtime Database", e);
+            return null;
         }
     }
     
     /**
-     * Sync prescription from Firebase Realtime Database to SQLite
+     * Convert a Firebase Realtime Database prescription record, or null if it cannot be read
      */
-    private void syncPrescriptionFromFirestore(Map<String, Object> data) {
+    private Prescription prescriptionFromFirebase(Map<String, Object> data) {
         try {
             Prescription prescription = new Prescription();
             prescription.setPrescriptionId((String) data.get("prescription_id"));
@@ -366,26 +374,18 @@ public class FirebaseSyncManager {
             prescription.setDoctorName((String) data.get("doctor_name"));
             prescription.setCreatedDate((String) data.get("created_date"));
             prescription.setStatus((String) data.get("status"));
-            
-            // Check if prescription exists
-            Prescription existing = databaseHelper.getPrescriptionById(prescription.getPrescriptionId());
-            if (existing == null) {
-                databaseHelper.addPrescription(prescription);
-                Log.d(TAG, "Added new prescription from Firebase Realtime Database: " + prescription.getPrescriptionId());
-            } else {
-                databaseHelper.updatePrescription(prescription);
-                Log.d(TAG, "Updated prescription from Firebase Realtime Database: " + prescription.getPrescriptionId());
-            }
+            return prescription.getPrescriptionId() != null ? prescription : null;
             
         } catch (Exception e) {
-            Log.e(TAG, "Error syncing prescription from Firebase Realtime Database", e);
+            Log.e(TAG, "Error reading prescription from Firebase Realtime Database", e);
+            return null;
         }
     }
     
     /**
-     * Sync patient from Firebase Realtime Database to SQLite
+     * Convert a Firebase Realtime Database patient record, or null if it cannot be read
      */
-    private void syncPatientFromFirestore(Map<String, Object> data) {
+    private Patient patientFromFirebase(Map<String, Object> data) {
         try {
             Patient patient = new Patient();
             patient.setPatientId((String) data.get("patient_id"));
@@ -396,19 +396,11 @@ public class FirebaseSyncManager {
             patient.setPhone((String) data.get("phone"));
             patient.setEmail((String) data.get("email"));
             patient.setAddress((String) data.get("address"));
-            
-            // Check if patient exists
-            Patient existing = databaseHelper.getPatientById(patient.getPatientId());
-            if (existing == null) {
-                databaseHelper.addPatient(patient);
-                Log.d(TAG, "Added new patient from Firebase Realtime Database: " + patient.getPatientId());
-            } else {
-                databaseHelper.updatePatient(patient);
-                Log.d(TAG, "Updated patient from Firebase Realtime Database: " + patient.getPatientId());
-            }
+            return patient.getPatientId() != null ? patient : null;
             
         } catch (Exception e) {
-            Log.e(TAG, "Error syncing patient from Firebase Realtime Database", e);
+            Log.e(TAG, "Error reading patient from Firebase Realtime Database", e);
+            return null;
         }
     }
     
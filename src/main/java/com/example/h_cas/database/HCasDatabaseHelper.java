@@ -7,10 +7,17 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.example.h_cas.models.DispenseResult;
 import com.example.h_cas.models.Employee;
+import com.example.h_cas.models.InventoryEvent;
+import com.example.h_cas.utils.PasswordHasher;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * HCasDatabaseHelper manages the SQLite database for the H-CAS healthcare system.
@@ -20,100 +27,131 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
 
     // Database information
     private static final String DATABASE_NAME = "hcas_healthcare.db";
-    private static final int DATABASE_VERSION = 6;
+    private static final int DATABASE_VERSION = 16;
 
     // Employee table
-    private static final String TABLE_EMPLOYEES = "employees";
-    private static final String COLUMN_EMPLOYEE_ID = "employee_id";
-    private static final String COLUMN_FIRST_NAME = "first_name";
-    private static final String COLUMN_LAST_NAME = "last_name";
-    private static final String COLUMN_EMAIL = "email";
-    private static final String COLUMN_PHONE = "phone";
-    private static final String COLUMN_ROLE = "role";
-    private static final String COLUMN_USERNAME = "username";
-    private static final String COLUMN_PASSWORD = "password";
-    private static final String COLUMN_CREATED_DATE = "created_date";
-    private static final String COLUMN_IS_ACTIVE = "is_active";
-    private static final String COLUMN_PROFILE_PICTURE_URL = "profile_picture_url";
+    static final String TABLE_EMPLOYEES = "employees";
+    static final String COLUMN_EMPLOYEE_ID = "employee_id";
+    static final String COLUMN_FIRST_NAME = "first_name";
+    static final String COLUMN_LAST_NAME = "last_name";
+    static final String COLUMN_EMAIL = "email";
+    static final String COLUMN_PHONE = "phone";
+    static final String COLUMN_ROLE = "role";
+    static final String COLUMN_USERNAME = "username";
+    static final String COLUMN_PASSWORD = "password";
+    static final String COLUMN_CREATED_DATE = "created_date";
+    static final String COLUMN_IS_ACTIVE = "is_active";
+    static final String COLUMN_PROFILE_PICTURE_URL = "profile_picture_url";
 
     // Cases table
-    private static final String TABLE_CASES = "healthcare_cases";
-    private static final String COLUMN_CASE_ID = "case_id";
-    private static final String COLUMN_PATIENT_NAME = "patient_name";
-    private static final String COLUMN_CASE_TYPE = "case_type";
-    private static final String COLUMN_PRIORITY = "priority";
-    private static final String COLUMN_STATUS = "status";
+    static final String TABLE_CASES = "healthcare_cases";
+    static final String COLUMN_CASE_ID = "case_id";
+    static final String COLUMN_PATIENT_NAME = "patient_name";
+    static final String COLUMN_CASE_TYPE = "case_type";
+    static final String COLUMN_PRIORITY = "priority";
+    static final String COLUMN_STATUS = "status";
 
     // Medicine inventory table constants
-    private static final String TABLE_MEDICINES = "medicines";
-    private static final String COLUMN_MEDICINE_ID = "medicine_id";
-    private static final String COLUMN_MEDICINE_NAME = "medicine_name";
-    private static final String COLUMN_MEDICINE_DOSAGE = "dosage";
-    private static final String COLUMN_STOCK_QUANTITY = "stock_quantity";
-    private static final String COLUMN_UNIT = "unit";
-    private static final String COLUMN_CATEGORY = "category";
-    private static final String COLUMN_DESCRIPTION = "description";
-    private static final String COLUMN_EXPIRY_DATE = "expiry_date";
-    private static final String COLUMN_PRICE = "price";
-    private static final String COLUMN_SUPPLIER = "supplier";
+    static final String TABLE_MEDICINES = "medicines";
+    static final String COLUMN_MEDICINE_ID = "medicine_id";
+    static final String COLUMN_MEDICINE_NAME = "medicine_name";
+    static final String COLUMN_MEDICINE_DOSAGE = "dosage";
+    static final String COLUMN_STOCK_QUANTITY = "stock_quantity";
+    static final String COLUMN_UNIT = "unit";
+    static final String COLUMN_CATEGORY = "category";
+    static final String COLUMN_DESCRIPTION = "description";
+    static final String COLUMN_EXPIRY_DATE = "expiry_date";
+    static final String COLUMN_PRICE = "price";
+    static final String COLUMN_SUPPLIER = "supplier";
 
     // RFID data table constants
-    private static final String TABLE_RFID_DATA = "rfid_data";
-    private static final String COLUMN_RFID_TAG_ID = "rfid_tag_id";
-    private static final String COLUMN_IS_DISPENSED = "is_dispensed";
-    private static final String COLUMN_DISPENSED_DATE = "dispensed_date";
-    private static final String COLUMN_PHARMACIST_NAME = "pharmacist_name";
-    private static final String COLUMN_ASSIGNED_EMPLOYEE_ID = "assigned_employee_id";
-    private static final String COLUMN_CASE_DATE = "case_date";
+    static final String TABLE_RFID_DATA = "rfid_data";
+    static final String COLUMN_RFID_TAG_ID = "rfid_tag_id";
+    static final String COLUMN_IS_DISPENSED = "is_dispensed";
+    static final String COLUMN_DISPENSED_DATE = "dispensed_date";
+    static final String COLUMN_PHARMACIST_NAME = "pharmacist_name";
+    static final String COLUMN_ASSIGNED_EMPLOYEE_ID = "assigned_employee_id";
+    static final String COLUMN_CASE_DATE = "case_date";
+
+    // Sync state table constants (inbound Firebase high-water marks)
+    static final String TABLE_SYNC_STATE = "sync_state";
+    static final String COLUMN_SYNC_COLLECTION = "collection";
+    static final String COLUMN_SYNC_HIGH_WATER_MARK = "high_water_mark";
+
+    // Outbox table constants (local writes waiting to be pushed to Firebase)
+    static final String TABLE_SYNC_OUTBOX = "sync_outbox";
+    static final String COLUMN_OUTBOX_ID = "outbox_id";
+    static final String COLUMN_OUTBOX_COLLECTION = "collection";
+    static final String COLUMN_OUTBOX_ENTITY_ID = "entity_id";
+    static final String COLUMN_OUTBOX_PAYLOAD = "payload";
+    static final String COLUMN_OUTBOX_ENQUEUED_AT = "enqueued_at";
+    static final String COLUMN_OUTBOX_ATTEMPTS = "attempts";
+
+    // Outbox entries Firebase kept rejecting, set aside so they stop blocking the queue
+    static final String TABLE_SYNC_OUTBOX_DEAD = "sync_outbox_dead";
+    static final String COLUMN_OUTBOX_FAILED_AT = "failed_at";
+    static final String COLUMN_OUTBOX_ERROR = "error";
+
+    // Inventory ledger constants (append-only stock movements); the medicine columns
+    // reuse the medicines table names
+    static final String TABLE_INVENTORY_EVENTS = "inventory_events";
+    static final String COLUMN_EVENT_ID = "event_id";
+    static final String COLUMN_EVENT_TYPE = "event_type";
+    static final String COLUMN_EVENT_QUANTITY = "quantity";
+    static final String COLUMN_EVENT_STOCK_AFTER = "stock_after";
+    static final String COLUMN_EVENT_REFERENCE = "reference";
+    static final String COLUMN_EVENT_ACTOR = "actor";
+    static final String COLUMN_EVENT_NOTE = "note";
+    static final String COLUMN_EVENT_TS = "ts";
 
     // Patients table
-    private static final String TABLE_PATIENTS = "patients";
-    private static final String COLUMN_PATIENT_ID = "patient_id";
-    private static final String COLUMN_PATIENT_FIRST_NAME = "first_name";
-    private static final String COLUMN_PATIENT_LAST_NAME = "last_name";
-    private static final String COLUMN_PATIENT_DOB = "date_of_birth";
-    private static final String COLUMN_PATIENT_GENDER = "gender";
-    private static final String COLUMN_PATIENT_ADDRESS = "address";
-    private static final String COLUMN_PATIENT_PHONE = "phone";
-    private static final String COLUMN_PATIENT_EMAIL = "email";
-    private static final String COLUMN_PATIENT_EMERGENCY_NAME = "emergency_contact_name";
-    private static final String COLUMN_PATIENT_EMERGENCY_PHONE = "emergency_contact_phone";
-    private static final String COLUMN_PATIENT_CREATED_DATE = "created_date";
+    static final String TABLE_PATIENTS = "patients";
+    static final String COLUMN_PATIENT_ID = "patient_id";
+    static final String COLUMN_PATIENT_FIRST_NAME = "first_name";
+    static final String COLUMN_PATIENT_LAST_NAME = "last_name";
+    static final String COLUMN_PATIENT_DOB = "date_of_birth";
+    static final String COLUMN_PATIENT_GENDER = "gender";
+    static final String COLUMN_PATIENT_ADDRESS = "address";
+    static final String COLUMN_PATIENT_PHONE = "phone";
+    static final String COLUMN_PATIENT_EMAIL = "email";
+    static final String COLUMN_PATIENT_EMERGENCY_NAME = "emergency_contact_name";
+    static final String COLUMN_PATIENT_EMERGENCY_PHONE = "emergency_contact_phone";
+    static final String COLUMN_PATIENT_CREATED_DATE = "created_date";
     
     // Extended patient information columns
-    private static final String COLUMN_PATIENT_SUFFIX = "suffix";
-    private static final String COLUMN_PATIENT_FULL_NAME = "full_name";
-    private static final String COLUMN_PATIENT_BIRTH_PLACE = "birth_place";
-    private static final String COLUMN_PATIENT_AGE = "age";
-    private static final String COLUMN_PATIENT_FULL_ADDRESS = "full_address";
-    private static final String COLUMN_PATIENT_PHONE_NUMBER = "phone_number";
-    private static final String COLUMN_PATIENT_ALLERGIES = "allergies";
-    private static final String COLUMN_PATIENT_MEDICATIONS = "medications";
-    private static final String COLUMN_PATIENT_MEDICAL_HISTORY = "medical_history";
-    private static final String COLUMN_PATIENT_PULSE_RATE = "pulse_rate";
-    private static final String COLUMN_PATIENT_BLOOD_PRESSURE = "blood_pressure";
-    private static final String COLUMN_PATIENT_TEMPERATURE = "temperature";
-    private static final String COLUMN_PATIENT_BLOOD_SUGAR = "blood_sugar";
-    private static final String COLUMN_PATIENT_PAIN_SCALE = "pain_scale";
+    static final String COLUMN_PATIENT_SUFFIX = "suffix";
+    static final String COLUMN_PATIENT_FULL_NAME = "full_name";
+    static final String COLUMN_PATIENT_BIRTH_PLACE = "birth_place";
+    static final String COLUMN_PATIENT_AGE = "age";
+    static final String COLUMN_PATIENT_FULL_ADDRESS = "full_address";
+    static final String COLUMN_PATIENT_PHONE_NUMBER = "phone_number";
+    static final String COLUMN_PATIENT_ALLERGIES = "allergies";
+    static final String COLUMN_PATIENT_MEDICATIONS = "medications";
+    static final String COLUMN_PATIENT_MEDICAL_HISTORY = "medical_history";
+    static final String COLUMN_PATIENT_PULSE_RATE = "pulse_rate";
+    static final String COLUMN_PATIENT_BLOOD_PRESSURE = "blood_pressure";
+    static final String COLUMN_PATIENT_TEMPERATURE = "temperature";
+    static final String COLUMN_PATIENT_BLOOD_SUGAR = "blood_sugar";
+    static final String COLUMN_PATIENT_PAIN_SCALE = "pain_scale";
 
     // Prescriptions table constants
-    private static final String TABLE_PRESCRIPTIONS = "prescriptions";
-    private static final String COLUMN_PRESCRIPTION_ID = "prescription_id";
-    private static final String COLUMN1_PATIENT_ID = "patient_id";
-    private static final String COLUMN1_PATIENT_NAME = "patient_name";
-    private static final String COLUMN_MEDICATION = "medication";
-    private static final String COLUMN_DOSAGE = "dosage";
-    private static final String COLUMN_FREQUENCY = "frequency";
-    private static final String COLUMN_DURATION = "duration";
-    private static final String COLUMN_INSTRUCTIONS = "instructions";
-    private static final String COLUMN_DOCTOR_ID = "doctor_id";
-    private static final String COLUMN_DOCTOR_NAME = "doctor_name";
-    private static final String COLUMN1_CREATED_DATE = "created_date";
-    private static final String COLUMN1_STATUS = "status";
-    private static final String COLUMN_PATIENT_SYMPTOMS_DESCRIPTION = "symptoms_description";
+    static final String TABLE_PRESCRIPTIONS = "prescriptions";
+    static final String COLUMN_PRESCRIPTION_ID = "prescription_id";
+    static final String COLUMN1_PATIENT_ID = "patient_id";
+    static final String COLUMN1_PATIENT_NAME = "patient_name";
+    static final String COLUMN_MEDICATION = "medication";
+    static final String COLUMN_DOSAGE = "dosage";
+    static final String COLUMN_FREQUENCY = "frequency";
+    static final String COLUMN_DURATION = "duration";
+    static final String COLUMN_INSTRUCTIONS = "instructions";
+    static final String COLUMN_DOCTOR_ID = "doctor_id";
+    static final String COLUMN_DOCTOR_NAME = "doctor_name";
+    static final String COLUMN1_CREATED_DATE = "created_date";
+    static final String COLUMN1_STATUS = "status";
+    static final String COLUMN_PATIENT_SYMPTOMS_DESCRIPTION = "symptoms_description";
 
     // Create table statements
-    private static final String CREATE_EMPLOYEES_TABLE = 
+    static final String CREATE_EMPLOYEES_TABLE = 
         "CREATE TABLE " + TABLE_EMPLOYEES + " (" +
         COLUMN_EMPLOYEE_ID + " TEXT PRIMARY KEY, " +
         COLUMN_FIRST_NAME + " TEXT NOT NULL, " +
@@ -128,7 +166,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_PROFILE_PICTURE_URL + " TEXT" +
         ")";
 
-    private static final String CREATE_CASES_TABLE = 
+    static final String CREATE_CASES_TABLE = 
         "CREATE TABLE " + TABLE_CASES + " (" +
         COLUMN_CASE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
         COLUMN_PATIENT_NAME + " TEXT NOT NULL, " +
@@ -141,7 +179,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         TABLE_EMPLOYEES + "(" + COLUMN_EMPLOYEE_ID + ")" +
         ")";
 
-    private static final String CREATE_PATIENTS_TABLE =
+    static final String CREATE_PATIENTS_TABLE =
         "CREATE TABLE " + TABLE_PATIENTS + " (" +
         COLUMN_PATIENT_ID + " TEXT PRIMARY KEY, " +
         COLUMN_PATIENT_FIRST_NAME + " TEXT NOT NULL, " +
@@ -171,7 +209,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_PATIENT_SYMPTOMS_DESCRIPTION + " TEXT" +
         ")";
 
-    private static final String CREATE_PRESCRIPTIONS_TABLE =
+    static final String CREATE_PRESCRIPTIONS_TABLE =
         "CREATE TABLE " + TABLE_PRESCRIPTIONS + " (" +
         COLUMN_PRESCRIPTION_ID + " TEXT PRIMARY KEY, " +
         COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
@@ -187,7 +225,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_STATUS + " TEXT DEFAULT 'Active'" +
         ")";
 
-    private static final String CREATE_MEDICINES_TABLE =
+    static final String CREATE_MEDICINES_TABLE =
         "CREATE TABLE " + TABLE_MEDICINES + " (" +
         COLUMN_MEDICINE_ID + " TEXT PRIMARY KEY, " +
         COLUMN_MEDICINE_NAME + " TEXT NOT NULL, " +
@@ -201,7 +239,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_SUPPLIER + " TEXT" +
         ")";
 
-    private static final String CREATE_RFID_DATA_TABLE =
+    static final String CREATE_RFID_DATA_TABLE =
         "CREATE TABLE " + TABLE_RFID_DATA + " (" +
         COLUMN_RFID_TAG_ID + " TEXT PRIMARY KEY, " +
         COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
@@ -219,109 +257,278 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_PHARMACIST_NAME + " TEXT" +
         ")";
 
+    // Added in schema version 10
+    static final String CREATE_SYNC_STATE_TABLE =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + " (" +
+        COLUMN_SYNC_COLLECTION + " TEXT PRIMARY KEY, " +
+        COLUMN_SYNC_HIGH_WATER_MARK + " INTEGER NOT NULL DEFAULT 0" +
+        ")";
+
+    // Added in schema version 11. One row per record: a newer write to the same record
+    // replaces the pending payload in place, so the row keeps its outbox_id and queue
+    // position; a changed payload clears the attempts of a rejected one
+    static final String CREATE_SYNC_OUTBOX_TABLE =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_OUTBOX + " (" +
+        COLUMN_OUTBOX_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        COLUMN_OUTBOX_COLLECTION + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_ENTITY_ID + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_PAYLOAD + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_ENQUEUED_AT + " INTEGER NOT NULL, " +
+        COLUMN_OUTBOX_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+        "UNIQUE (" + COLUMN_OUTBOX_COLLECTION + ", " + COLUMN_OUTBOX_ENTITY_ID + ")" +
+        ")";
+
+    // Added in schema version 16; outbox_id is the id the entry had in the outbox
+    static final String CREATE_SYNC_OUTBOX_DEAD_TABLE =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_OUTBOX_DEAD + " (" +
+        COLUMN_OUTBOX_ID + " INTEGER PRIMARY KEY, " +
+        COLUMN_OUTBOX_COLLECTION + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_ENTITY_ID + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_PAYLOAD + " TEXT NOT NULL, " +
+        COLUMN_OUTBOX_ENQUEUED_AT + " INTEGER NOT NULL, " +
+        COLUMN_OUTBOX_ATTEMPTS + " INTEGER NOT NULL, " +
+        COLUMN_OUTBOX_FAILED_AT + " INTEGER NOT NULL, " +
+        COLUMN_OUTBOX_ERROR + " TEXT" +
+        ")";
+
+    // Added in schema version 13. quantity is the signed change in stock; ts is local
+    // time (yyyy-MM-dd HH:mm:ss) and event_id orders events within the same second
+    static final String CREATE_INVENTORY_EVENTS_TABLE =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_INVENTORY_EVENTS + " (" +
+        COLUMN_EVENT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        COLUMN_MEDICINE_ID + " TEXT, " +
+        COLUMN_MEDICINE_NAME + " TEXT NOT NULL, " +
+        COLUMN_MEDICINE_DOSAGE + " TEXT, " +
+        COLUMN_UNIT + " TEXT, " +
+        COLUMN_EXPIRY_DATE + " TEXT, " +
+        COLUMN_EVENT_TYPE + " TEXT NOT NULL, " +
+        COLUMN_EVENT_QUANTITY + " INTEGER NOT NULL, " +
+        COLUMN_EVENT_STOCK_AFTER + " INTEGER, " +
+        COLUMN_EVENT_REFERENCE + " TEXT, " +
+        COLUMN_EVENT_ACTOR + " TEXT, " +
+        COLUMN_EVENT_NOTE + " TEXT, " +
+        COLUMN_EVENT_TS + " TEXT NOT NULL" +
+        ")";
+
+    // Every index ends with the rowid (event_id), so each one also serves the
+    // (ts DESC, event_id DESC) keyset order of the history pages
+    static final String[] CREATE_INVENTORY_EVENT_INDEXES = {
+        // One medicine's history
+        "CREATE INDEX IF NOT EXISTS idx_inventory_events_medicine_ts ON " + TABLE_INVENTORY_EVENTS +
+            "(" + COLUMN_MEDICINE_ID + ", " + COLUMN_EVENT_TS + ")",
+        // The unfiltered history feed
+        "CREATE INDEX IF NOT EXISTS idx_inventory_events_ts ON " + TABLE_INVENTORY_EVENTS +
+            "(" + COLUMN_EVENT_TS + ")",
+        // The history feed filtered by event type
+        "CREATE INDEX IF NOT EXISTS idx_inventory_events_type_ts ON " + TABLE_INVENTORY_EVENTS +
+            "(" + COLUMN_EVENT_TYPE + ", " + COLUMN_EVENT_TS + ")"
+    };
+
+    private static final String INVENTORY_EVENT_COLUMNS =
+        "(" + COLUMN_MEDICINE_ID + ", " + COLUMN_MEDICINE_NAME + ", " + COLUMN_MEDICINE_DOSAGE + ", " +
+        COLUMN_UNIT + ", " + COLUMN_EXPIRY_DATE + ", " + COLUMN_EVENT_TYPE + ", " + COLUMN_EVENT_QUANTITY + ", " +
+        COLUMN_EVENT_STOCK_AFTER + ", " + COLUMN_EVENT_REFERENCE + ", " + COLUMN_EVENT_ACTOR + ", " +
+        COLUMN_EVENT_NOTE + ", " + COLUMN_EVENT_TS + ")";
+
+    // Opening balance for every medicine without ledger rows: its current stock, received now
+    static final String BACKFILL_INVENTORY_RECEIPTS =
+        "INSERT INTO " + TABLE_INVENTORY_EVENTS + " " + INVENTORY_EVENT_COLUMNS +
+        " SELECT m." + COLUMN_MEDICINE_ID + ", m." + COLUMN_MEDICINE_NAME + ", m." + COLUMN_MEDICINE_DOSAGE +
+        ", m." + COLUMN_UNIT + ", m." + COLUMN_EXPIRY_DATE + ", 'RECEIVE', m." + COLUMN_STOCK_QUANTITY +
+        ", m." + COLUMN_STOCK_QUANTITY + ", NULL, NULL, 'Opening balance', datetime('now', 'localtime')" +
+        " FROM " + TABLE_MEDICINES + " m WHERE NOT EXISTS (SELECT 1 FROM " + TABLE_INVENTORY_EVENTS + " e" +
+        " WHERE e." + COLUMN_MEDICINE_ID + " = m." + COLUMN_MEDICINE_ID + ")";
+
+    // Dispenses recorded before the ledger existed, one unit each (what the dispensing
+    // screen deducted). Their stock is already reflected in the opening balances. A
+    // prescription already in the ledger is skipped, so a re-run adds nothing.
+    static final String BACKFILL_INVENTORY_DISPENSES =
+        "INSERT INTO " + TABLE_INVENTORY_EVENTS + " " + INVENTORY_EVENT_COLUMNS +
+        " SELECT (SELECT m." + COLUMN_MEDICINE_ID + " FROM " + TABLE_MEDICINES + " m WHERE m." + COLUMN_MEDICINE_NAME +
+        " = r." + COLUMN_MEDICATION + " LIMIT 1), r." + COLUMN_MEDICATION + ", r." + COLUMN_DOSAGE +
+        ", NULL, NULL, 'DISPENSE', -1, NULL, r." + COLUMN_PRESCRIPTION_ID + ", r." + COLUMN_PHARMACIST_NAME +
+        ", 'Given to ' || r." + COLUMN_PATIENT_NAME + ", COALESCE(r." + COLUMN_DISPENSED_DATE + ", r." + COLUMN_CREATED_DATE + ")" +
+        " FROM " + TABLE_RFID_DATA + " r WHERE r." + COLUMN_IS_DISPENSED + " = 1" +
+        " AND NOT EXISTS (SELECT 1 FROM " + TABLE_INVENTORY_EVENTS + " e WHERE e." + COLUMN_EVENT_TYPE +
+        " = 'DISPENSE' AND e." + COLUMN_EVENT_REFERENCE + " = r." + COLUMN_PRESCRIPTION_ID + ")";
+
+    // Secondary indexes for the hot lookup paths (added in schema version 7)
+    static final String[] CREATE_INDEXES = {
+        // getEmployeesByRole / getEmployeesCountByRole / getAllEmployees
+        "CREATE INDEX IF NOT EXISTS idx_employees_role_active ON " + TABLE_EMPLOYEES +
+            "(" + COLUMN_ROLE + ", " + COLUMN_IS_ACTIVE + ")",
+        // LEFT JOIN in getPatientsWithoutPrescriptions / getPendingReviewsCount
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_patient ON " + TABLE_PRESCRIPTIONS +
+            "(" + COLUMN_PATIENT_ID + ")",
+        // ORDER BY created_date in getAllPrescriptions
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_created ON " + TABLE_PRESCRIPTIONS +
+            "(" + COLUMN_CREATED_DATE + ")",
+        // ORDER BY created_date in getAllPatients
+        "CREATE INDEX IF NOT EXISTS idx_patients_created ON " + TABLE_PATIENTS +
+            "(" + COLUMN_PATIENT_CREATED_DATE + ")",
+        // getMedicineByName / updateMedicineStock
+        "CREATE INDEX IF NOT EXISTS idx_medicines_name ON " + TABLE_MEDICINES +
+            "(" + COLUMN_MEDICINE_NAME + ")",
+        // getLowStockMedicines / getLowStockMedicinesCount
+        "CREATE INDEX IF NOT EXISTS idx_medicines_stock ON " + TABLE_MEDICINES +
+            "(" + COLUMN_STOCK_QUANTITY + ")",
+        // getExpiringSoonMedicines / getExpiringSoonMedicinesCount
+        "CREATE INDEX IF NOT EXISTS idx_medicines_expiry ON " + TABLE_MEDICINES +
+            "(" + COLUMN_EXPIRY_DATE + ")",
+        // readPrescriptionFromRFID and the dispensed-history queries
+        "CREATE INDEX IF NOT EXISTS idx_rfid_dispensed ON " + TABLE_RFID_DATA +
+            "(" + COLUMN_IS_DISPENSED + ", " + COLUMN_RFID_TAG_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_rfid_prescription ON " + TABLE_RFID_DATA +
+            "(" + COLUMN_PRESCRIPTION_ID + ")"
+    };
+
+    // Composite indexes backing keyset pagination (added in schema version 8);
+    // each replaces a single-column index from version 7
+    static final String[] CREATE_KEYSET_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_created_id ON " + TABLE_PRESCRIPTIONS +
+            "(" + COLUMN_CREATED_DATE + ", " + COLUMN_PRESCRIPTION_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_created ON " + TABLE_PRESCRIPTIONS +
+            "(" + COLUMN_PATIENT_ID + ", " + COLUMN_CREATED_DATE + ")",
+        "CREATE INDEX IF NOT EXISTS idx_patients_created_id ON " + TABLE_PATIENTS +
+            "(" + COLUMN_PATIENT_CREATED_DATE + ", " + COLUMN_PATIENT_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_medicines_name_id ON " + TABLE_MEDICINES +
+            "(" + COLUMN_MEDICINE_NAME + ", " + COLUMN_MEDICINE_ID + ")"
+    };
+
+    static final String[] DROP_SUPERSEDED_INDEXES = {
+        "DROP INDEX IF EXISTS idx_prescriptions_created",
+        "DROP INDEX IF EXISTS idx_prescriptions_patient",
+        "DROP INDEX IF EXISTS idx_patients_created",
+        "DROP INDEX IF EXISTS idx_medicines_name"
+    };
+
+    // Status + date window lookups (pending queue, reports), added in schema version 9
+    static final String CREATE_PRESCRIPTION_STATUS_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_status_created ON " + TABLE_PRESCRIPTIONS +
+        "(" + COLUMN_STATUS + ", " + COLUMN_CREATED_DATE + ")";
+
+    // Dashboard thresholds used until the pharmacist changes them in settings
+    private static final int DEFAULT_MINIMUM_STOCK = 10;
+    private static final int DEFAULT_EXPIRY_MONTHS = 1;
+
+    // Page cache of the primary connection, in KiB (negative PRAGMA cache_size values are
+    // KiB). onConfigure only runs for that connection, which does every write; Android has
+    // no hook for its WAL read connections, so they keep SQLite's default.
+    private static final int PAGE_CACHE_KIB = 8 * 1024;
+
+    private static HCasDatabaseHelper instance;
+
     private Context context;
-    private static FirebaseSyncManager syncManager;
-    private static boolean syncManagerInitializationAttempted = false;
     
-    public HCasDatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
-        this.context = context;
-        
-        // Initialize sync manager only once (prevent circular dependency)
-        // Firebase sync is optional - app works fine without it
-        if (syncManager == null && !syncManagerInitializationAttempted && context != null) {
-            syncManagerInitializationAttempted = true;
+    /**
+     * Get the process-wide helper. Every caller shares one SQLiteDatabase, so there is
+     * no per-screen open/close churn and the compiled statements in the DAOs stay valid.
+     */
+    public static synchronized HCasDatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context != null ? context.getApplicationContext() : null;
+            instance = new HCasDatabaseHelper(appContext != null ? appContext : context, DATABASE_NAME);
             
-            try {
-                // Check if Firebase is available before initializing
-                try {
-                    com.google.firebase.FirebaseApp.getInstance();
-                    // Initialize sync manager in background thread to avoid blocking
-                    new Thread(() -> {
-                        try {
-                            syncManager = new FirebaseSyncManager(context);
-                            if (syncManager != null) {
-                                Log.d("HCasDatabaseHelper", "FirebaseSyncManager initialized");
-                            }
-                        } catch (Exception e) {
-                            Log.e("HCasDatabaseHelper", "Failed to initialize FirebaseSyncManager", e);
-                            syncManager = null;
-                        }
-                    }).start();
-                } catch (IllegalStateException e) {
-                    // Firebase not available - skip sync initialization
-                    Log.w("HCasDatabaseHelper", "Firebase not available - sync disabled", e);
-                    syncManager = null;
-                } catch (Exception e) {
-                    Log.e("HCasDatabaseHelper", "Failed to check Firebase availability", e);
-                    syncManager = null;
-                }
-            } catch (Exception e) {
-                Log.e("HCasDatabaseHelper", "Error checking Firebase availability", e);
-                syncManager = null;
-            }
+            // Push anything a previous run queued but could not send. The dashboard and
+            // RFID caches are warmed by the startup tasks in HCasApplication.
+            instance.outboxDrainer.requestDrain();
         }
+        return instance;
     }
-    
+
     /**
-     * Helper method to sync to Firebase (non-blocking)
+     * A helper on its own database file, for the instrumented tests and benchmarks;
+     * the app always goes through getInstance
      */
-    private void syncToFirebase(String type, Object data) {
-        Log.d("HCasDatabaseHelper", "🔄 syncToFirebase called for type: " + type);
+    @VisibleForTesting
+    static HCasDatabaseHelper openForTesting(Context context, String name) {
+        return new HCasDatabaseHelper(context.getApplicationContext(), name);
+    }
+
+    private HCasDatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        this.context = context;
         
-        if (syncManager == null) {
-            Log.w("HCasDatabaseHelper", "⚠️ syncManager is null, attempting to initialize...");
-            // Try to initialize sync manager if not already initialized
-            if (context != null) {
-                try {
-                    syncManager = new FirebaseSyncManager(context);
-                    Log.d("HCasDatabaseHelper", "✅ syncManager initialized");
-                } catch (Exception e) {
-                    Log.e("HCasDatabaseHelper", "❌ Failed to initialize syncManager", e);
-                    return;
-                }
-            } else {
-                Log.e("HCasDatabaseHelper", "❌ Context is null, cannot sync");
-                return;
+        // WAL lets readers run alongside a writer; Android then serves reads from
+        // its pool of secondary connections instead of queueing on the primary one
+        setWriteAheadLoggingEnabled(true);
+    }
+    
+    /**
+     * A local write that reports whether it changed a row
+     */
+    private interface LocalWrite {
+        boolean write();
+    }
+    
+    /**
+     * Run a local write and queue the record for Firebase in the same transaction, so a
+     * change is never committed without its outbox entry (and survives being offline or
+     * a restart). The outbox is drained in the background after the commit.
+     */
+    private boolean writeAndEnqueue(String collection, String entityId, Map<String, Object> payload,
+                                    LocalWrite write) {
+        SQLiteDatabase db = getWritableDatabase();
+        OutboxDao.Enqueued enqueued = OutboxDao.Enqueued.FAILED;
+        boolean written;
+        db.beginTransactionNonExclusive();
+        try {
+            if (write.write()) {
+                enqueued = outboxDao.enqueue(collection, entityId, payload);
             }
+            written = enqueued != OutboxDao.Enqueued.FAILED;
+            if (written) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            db.endTransaction();
+            // Also on failure: the caller may have modified the cached model before writing
+            cache.invalidate(collection, entityId);
         }
         
-        if (context == null) {
-            Log.e("HCasDatabaseHelper", "❌ Context is null, cannot sync");
-            return;
+        if (enqueued == OutboxDao.Enqueued.RETRY_RESET) {
+            // The backoff was for the rejected payload, not for this one
+            outboxDrainer.drainNow();
+        } else if (written) {
+            outboxDrainer.requestDrain();
         }
-        
+        return written;
+    }
+
+    /**
+     * Run a local write in one transaction, committing only if it reports success
+     */
+    private boolean inTransaction(LocalWrite write) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransactionNonExclusive();
         try {
-            Log.d("HCasDatabaseHelper", "📤 Starting Firebase sync for " + type);
-            // Run sync in background thread to avoid blocking
-            new Thread(() -> {
-                try {
-                    if (data instanceof com.example.h_cas.models.Medicine) {
-                        Log.d("HCasDatabaseHelper", "   Syncing Medicine...");
-                        syncManager.syncMedicine((com.example.h_cas.models.Medicine) data);
-                    } else if (data instanceof com.example.h_cas.models.Prescription) {
-                        Log.d("HCasDatabaseHelper", "   Syncing Prescription...");
-                        syncManager.syncPrescription((com.example.h_cas.models.Prescription) data);
-                    } else if (data instanceof com.example.h_cas.models.Patient) {
-                        Log.d("HCasDatabaseHelper", "   Syncing Patient...");
-                        syncManager.syncPatient((com.example.h_cas.models.Patient) data);
-                    } else if (data instanceof Employee) {
-                        Log.d("HCasDatabaseHelper", "   Syncing Employee...");
-                        syncManager.syncEmployee((Employee) data);
-                    } else {
-                        Log.w("HCasDatabaseHelper", "⚠️ Unknown data type: " + (data != null ? data.getClass().getName() : "null"));
-                    }
-                } catch (Exception e) {
-                    Log.e("HCasDatabaseHelper", "❌ Firebase sync failed for " + type, e);
-                    e.printStackTrace();
-                }
-            }).start();
-        } catch (Exception e) {
-            Log.e("HCasDatabaseHelper", "❌ Error initiating Firebase sync", e);
-            e.printStackTrace();
+            if (!write.write()) {
+                return false;
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
         }
     }
 
+    /**
+     * Append a ledger row stamped with the current time; call inside the write's transaction
+     */
+    private boolean recordInventoryEvent(InventoryEvent event) {
+        event.setTimestamp(getCurrentDateTime());
+        return inventoryEventDao.append(event) != -1;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        db.execSQL("PRAGMA cache_size = -" + PAGE_CACHE_KIB);
+        // INSERT OR REPLACE deletes the old row; this makes it fire the report rollup delete triggers
+        db.execSQL("PRAGMA recursive_triggers = ON");
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         // Create tables
@@ -332,31 +539,29 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_MEDICINES_TABLE);
         db.execSQL(CREATE_RFID_DATA_TABLE);
         
+        // The tables above are the v6 layout; later versions are applied by the migrations
+        DatabaseMigrations.migrate(db, 6, DATABASE_VERSION);
+        
         // Insert default admin account
         insertDefaultAdmin(db);
         
         // Insert sample medicines
         insertSampleMedicines(db);
+        db.execSQL(BACKFILL_INVENTORY_RECEIPTS);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop existing tables
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CASES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EMPLOYEES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PATIENTS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PRESCRIPTIONS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MEDICINES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RFID_DATA);
-        
-        // Recreate tables
-        onCreate(db);
+        // Apply incremental migrations in place - no tables are dropped, so an
+        // upgrade never forces a full resync from Firebase
+        DatabaseMigrations.migrate(db, oldVersion, newVersion);
     }
 
     /**
      * Insert default admin account
      */
     private void insertDefaultAdmin(SQLiteDatabase db) {
+        // Hashed with the migration's iteration count; the first login re-hashes them for this device
         ContentValues values = new ContentValues();
         values.put(COLUMN_EMPLOYEE_ID, "ADMIN001");
         values.put(COLUMN_FIRST_NAME, "System");
@@ -365,7 +570,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_PHONE, "0000000000");
         values.put(COLUMN_ROLE, "Administrator");
         values.put(COLUMN_USERNAME, "admin");
-        values.put(COLUMN_PASSWORD, "admin123");
+        values.put(COLUMN_PASSWORD, PasswordHasher.hash("admin123", PasswordHasher.MIN_ITERATIONS));
         values.put(COLUMN_IS_ACTIVE, 1);
         
         db.insert(TABLE_EMPLOYEES, null, values);
@@ -387,7 +592,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         doctorValues.put(COLUMN_PHONE, "1234567890");
         doctorValues.put(COLUMN_ROLE, "Doctor");
         doctorValues.put(COLUMN_USERNAME, "doctor");
-        doctorValues.put(COLUMN_PASSWORD, "doctor123");
+        doctorValues.put(COLUMN_PASSWORD, PasswordHasher.hash("doctor123", PasswordHasher.MIN_ITERATIONS));
         doctorValues.put(COLUMN_IS_ACTIVE, 1);
         db.insert(TABLE_EMPLOYEES, null, doctorValues);
         
@@ -400,7 +605,7 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         nurseValues.put(COLUMN_PHONE, "0987654321");
         nurseValues.put(COLUMN_ROLE, "Nurse");
         nurseValues.put(COLUMN_USERNAME, "nurse");
-        nurseValues.put(COLUMN_PASSWORD, "nurse123");
+        nurseValues.put(COLUMN_PASSWORD, PasswordHasher.hash("nurse123", PasswordHasher.MIN_ITERATIONS));
         nurseValues.put(COLUMN_IS_ACTIVE, 1);
         db.insert(TABLE_EMPLOYEES, null, nurseValues);
         
@@ -413,327 +618,254 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
         pharmacistValues.put(COLUMN_PHONE, "1122334455");
         pharmacistValues.put(COLUMN_ROLE, "Pharmacist");
         pharmacistValues.put(COLUMN_USERNAME, "pharmacist");
-        pharmacistValues.put(COLUMN_PASSWORD, "pharmacist123");
+        pharmacistValues.put(COLUMN_PASSWORD, PasswordHasher.hash("pharmacist123", PasswordHasher.MIN_ITERATIONS));
         pharmacistValues.put(COLUMN_IS_ACTIVE, 1);
         db.insert(TABLE_EMPLOYEES, null, pharmacistValues);
     }
 
-    // Employee operations
+    // Per-entity data access objects; they own the SQL and cache compiled statements
+    private final EmployeeDao employeeDao = new EmployeeDao(this);
+    private final PatientDao patientDao = new PatientDao(this);
+    private final PrescriptionDao prescriptionDao = new PrescriptionDao(this);
+    private final MedicineDao medicineDao = new MedicineDao(this);
+    private final RfidDao rfidDao = new RfidDao(this);
+    private final SyncStateDao syncStateDao = new SyncStateDao(this);
+    private final OutboxDao outboxDao = new OutboxDao(this);
+    private final ReportDao reportDao = new ReportDao(this);
+    private final InventoryEventDao inventoryEventDao = new InventoryEventDao(this);
+    private final SearchDao searchDao = new SearchDao(this);
+    private final OutboxDrainer outboxDrainer = new OutboxDrainer(outboxDao);
+    
+    // Rows and list results served without I/O until a write invalidates them
+    private final EntityCache cache = new EntityCache();
+
+    // Undispensed RFID tags, so scans are answered from memory
+    private final RfidTagIndex rfidTags = new RfidTagIndex();
+
+    @Override
+    public synchronized void close() {
+        // Compiled statements belong to the connection, release them first
+        employeeDao.releaseStatements();
+        patientDao.releaseStatements();
+        prescriptionDao.releaseStatements();
+        medicineDao.releaseStatements();
+        rfidDao.releaseStatements();
+        syncStateDao.releaseStatements();
+        outboxDao.releaseStatements();
+        inventoryEventDao.releaseStatements();
+        super.close();
+    }
 
     /**
-     * Add a new employee to the database
+     * Write every commit still in the -wal file back into the database file and truncate
+     * the log, so a copy of the database file alone holds all committed data.
+     *
+     * @return false if a reader or writer kept part of the log from being written back
      */
-    public boolean addEmployee(Employee employee) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_EMPLOYEE_ID, employee.getEmployeeId());
-        values.put(COLUMN_FIRST_NAME, employee.getFirstName());
-        values.put(COLUMN_LAST_NAME, employee.getLastName());
-        values.put(COLUMN_EMAIL, employee.getEmail());
-        values.put(COLUMN_PHONE, employee.getPhone());
-        values.put(COLUMN_ROLE, employee.getRole());
-        values.put(COLUMN_USERNAME, employee.getUsername());
-        values.put(COLUMN_PASSWORD, employee.getPassword());
-        values.put(COLUMN_IS_ACTIVE, employee.isActive() ? 1 : 0);
-        
-        long result = db.insert(TABLE_EMPLOYEES, null, values);
-        // Don't close database - reuse connection
-        
-        // Invalidate cache when employee is added
-        if (result != -1) {
-            invalidateEmployeeCache();
+    public boolean checkpoint() {
+        try (Cursor cursor = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            // busy, frames in the log, frames written back
+            return cursor.moveToFirst() && cursor.getInt(0) == 0;
         }
-        
-        return result != -1;
     }
 
-    // Cache for frequently accessed data
-    private List<Employee> cachedEmployees;
-    private long employeesCacheTime = 0;
-    private static final long CACHE_DURATION = 30000; // 30 seconds
-
     /**
-     * Get all employees (excluding administrators)
-     * Uses caching to avoid repeated database queries
+     * Delete all patient, prescription, medicine, case and RFID data.
+     * Employees are kept so administrators can still sign in.
+     *
+     * The inbound sync marks go too, so listeners started afterwards bring the records
+     * back from Firebase, and so do the pending and dead-lettered outbox entries of the
+     * cleared tables: they would push writes of rows that no longer exist here.
      */
-    public List<Employee> getAllEmployees() {
-        // Return cached data if still valid
-        if (cachedEmployees != null && (System.currentTimeMillis() - employeesCacheTime) < CACHE_DURATION) {
-            return new ArrayList<>(cachedEmployees);
-        }
-
-        List<Employee> employees = new ArrayList<>();
-        // Only select needed columns for better performance
-        String query = "SELECT " + COLUMN_EMPLOYEE_ID + ", " + COLUMN_FIRST_NAME + ", " + COLUMN_LAST_NAME + ", " +
-                      COLUMN_EMAIL + ", " + COLUMN_PHONE + ", " + COLUMN_ROLE + ", " + COLUMN_USERNAME + ", " +
-                      COLUMN_IS_ACTIVE + ", " + COLUMN_PROFILE_PICTURE_URL + 
-                      " FROM " + TABLE_EMPLOYEES + 
-                      " WHERE " + COLUMN_IS_ACTIVE + " = 1 AND " + COLUMN_ROLE + " != 'Administrator'";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+    public void clearClinicalData() {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] tables = {TABLE_PATIENTS, TABLE_PRESCRIPTIONS, TABLE_MEDICINES, TABLE_CASES, TABLE_RFID_DATA,
+                           TABLE_INVENTORY_EVENTS};
+        String inTables = COLUMN_OUTBOX_COLLECTION + " IN (" +
+                          String.join(", ", Collections.nCopies(tables.length, "?")) + ")";
+        db.beginTransaction();
         try {
-            cursor = db.rawQuery(query, null);
-            
-            if (cursor.moveToFirst()) {
-                do {
-                    Employee employee = new Employee();
-                    employee.setEmployeeId(cursor.getString(0));
-                    employee.setFirstName(cursor.getString(1));
-                    employee.setLastName(cursor.getString(2));
-                    employee.setEmail(cursor.getString(3));
-                    employee.setPhone(cursor.getString(4));
-                    employee.setRole(cursor.getString(5));
-                    employee.setUsername(cursor.getString(6));
-                    // Don't load password for security and performance
-                    employee.setActive(cursor.getInt(7) == 1);
-                    // Handle profile picture URL
-                    if (cursor.getColumnCount() > 8 && !cursor.isNull(8)) {
-                        employee.setProfilePictureUrl(cursor.getString(8));
-                    }
-                    
-                    employees.add(employee);
-                } while (cursor.moveToNext());
+            for (String table : tables) {
+                db.delete(table, null, null);
             }
+            db.delete(TABLE_SYNC_STATE, null, null);
+            db.delete(TABLE_SYNC_OUTBOX, inTables, tables);
+            db.delete(TABLE_SYNC_OUTBOX_DEAD, inTables, tables);
+            db.setTransactionSuccessful();
         } finally {
-            if (cursor != null) {
-                cursor.close();
+            db.endTransaction();
+            for (String table : tables) {
+                cache.invalidateTable(table);
             }
-            // Don't close database - reuse connection
+            rfidTags.clear();
+            searchDao.resetTerms();
         }
+    }
 
-        // Update cache
-        cachedEmployees = new ArrayList<>(employees);
-        employeesCacheTime = System.currentTimeMillis();
-        
-        return employees;
+    // Employee operations
+
+    /**
+     * Add a new employee to the database
+     */
+    public boolean addEmployee(Employee employee) {
+        long result = employeeDao.insert(employee, storedPassword(employee.getPassword()));
+        cache.invalidate(TABLE_EMPLOYEES, employee.getEmployeeId());
+        return result != -1;
+    }
+
+    /**
+     * Get all employees (excluding administrators)
+     * Cached until an employee is written
+     */
+    public List<Employee> getAllEmployees() {
+        // Password column is not loaded for security and performance
+        return cache.getList("employees:active", employeeDao::findActiveNonAdmin, Employee::copy, TABLE_EMPLOYEES);
     }
     
     /**
-     * Invalidate employee cache (call this when employees are added/updated/deleted)
+     * Invalidate cached employees (writes through this helper already do this)
      */
     public void invalidateEmployeeCache() {
-        cachedEmployees = null;
-        employeesCacheTime = 0;
+        cache.invalidateTable(TABLE_EMPLOYEES);
+    }
+
+    /**
+     * Hits and misses of the row and list cache since the app started
+     */
+    public long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getCacheMissCount() {
+        return cache.getMissCount();
     }
 
     /**
      * Get employees by role (excluding administrators)
      */
     public List<Employee> getEmployeesByRole(String role) {
-        List<Employee> employees = new ArrayList<>();
-        String query = "SELECT * FROM " + TABLE_EMPLOYEES + 
-                      " WHERE " + COLUMN_ROLE + " = ? AND " + COLUMN_IS_ACTIVE + " = 1 AND " + COLUMN_ROLE + " != 'Administrator'";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{role});
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Employee employee = new Employee();
-                employee.setEmployeeId(cursor.getString(0));
-                employee.setFirstName(cursor.getString(1));
-                employee.setLastName(cursor.getString(2));
-                employee.setEmail(cursor.getString(3));
-                employee.setPhone(cursor.getString(4));
-                employee.setRole(cursor.getString(5));
-                employee.setUsername(cursor.getString(6));
-                employee.setPassword(cursor.getString(7));
-                employee.setCreatedDate(cursor.getString(8));
-                employee.setActive(cursor.getInt(9) == 1);
-                // Handle profile picture URL (index 10, may be null for existing records)
-                if (cursor.getColumnCount() > 10 && !cursor.isNull(10)) {
-                    employee.setProfilePictureUrl(cursor.getString(10));
-                }
-                
-                employees.add(employee);
-            } while (cursor.moveToNext());
+        return cache.getList("employees:role:" + role, () -> employeeDao.findByRole(role), Employee::copy,
+                             TABLE_EMPLOYEES);
+    }
+
+    /**
+     * Authenticate user login: the active employee with this username and password,
+     * without the password, or null. An unknown username costs the same hash as a
+     * known one, so the time taken does not tell which usernames exist. Run it off the
+     * main thread; the hash takes about {@link PasswordHasher#TARGET_HASH_MILLIS}.
+     */
+    public Employee authenticateUser(String username, String password) {
+        PasswordHasher hasher = PasswordHasher.getInstance(context);
+        Employee employee = employeeDao.findCredentials(username);
+        String stored = employee != null ? employee.getPassword() : null;
+        if (!hasher.verify(password, stored)) {
+            return null;
         }
         
-        if (cursor != null) {
-            cursor.close();
+        // Bring hashes from the migration or an older tuning up to this device's work factor
+        if (hasher.needsRehash(stored)) {
+            employeeDao.updatePassword(username, hasher.hash(password));
+            cache.invalidate(TABLE_EMPLOYEES, employee.getEmployeeId());
         }
-        // Don't close database - reuse connection
-        return employees;
+        employee.setPassword(null);
+        return employee;
     }
 
     /**
-     * Authenticate user login
+     * Debug method to log the query plan and latency of the indexed lookup paths
      */
-    public Employee authenticateUser(String username, String password) {
-        System.out.println("DEBUG: Database authenticateUser called with username: " + username);
-        
-        String query = "SELECT * FROM " + TABLE_EMPLOYEES + 
-                      " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_PASSWORD + " = ? AND " + COLUMN_IS_ACTIVE + " = 1";
-        
-        System.out.println("DEBUG: Query: " + query);
-        System.out.println("DEBUG: Username: " + username + ", Password: " + password);
-        
+    public void debugExplainHotQueries() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{username, password});
-        
-        System.out.println("DEBUG: Cursor count: " + cursor.getCount());
-        
-        Employee employee = null;
-        if (cursor.moveToFirst()) {
-            System.out.println("DEBUG: Found employee in database");
-            employee = new Employee();
-            employee.setEmployeeId(cursor.getString(0));
-            employee.setFirstName(cursor.getString(1));
-            employee.setLastName(cursor.getString(2));
-            employee.setEmail(cursor.getString(3));
-            employee.setPhone(cursor.getString(4));
-            employee.setRole(cursor.getString(5));
-            employee.setUsername(cursor.getString(6));
-            employee.setPassword(cursor.getString(7));
-            employee.setCreatedDate(cursor.getString(8));
-            employee.setActive(cursor.getInt(9) == 1);
-            // Handle profile picture URL (index 10, may be null for existing records)
-            if (cursor.getColumnCount() > 10 && !cursor.isNull(10)) {
-                employee.setProfilePictureUrl(cursor.getString(10));
-            }
+        for (String[] entry : HOT_QUERIES) {
+            String[] args = entry[1] != null ? new String[]{entry[1]} : null;
             
-            System.out.println("DEBUG: Employee role: " + employee.getRole());
-            System.out.println("DEBUG: Employee active: " + employee.isActive());
-        } else {
-            System.out.println("DEBUG: No employee found with these credentials");
-        }
-        
-        if (cursor != null) {
+            String plan = explainQueryPlan(db, entry[0], args);
+            
+            long start = System.nanoTime();
+            Cursor cursor = db.rawQuery(entry[0], args);
+            int rows = cursor.getCount();
             cursor.close();
+            long elapsedMicros = (System.nanoTime() - start) / 1000;
+            
+            Log.d("HCasDatabaseHelper", "PLAN [" + plan + "] rows=" + rows + " time=" + elapsedMicros + "us :: " + entry[0]);
         }
-        // Don't close database - reuse connection
-        return employee;
     }
 
     /**
-     * Debug method to check if employees exist in database
+     * The hot lookup paths the schema version 7 indexes serve, each with its argument
      */
-    public void debugCheckEmployees() {
-        System.out.println("DEBUG: Checking employees in database...");
-        
-        String query = "SELECT * FROM " + TABLE_EMPLOYEES;
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        System.out.println("DEBUG: Total employees in database: " + cursor.getCount());
-        
-        if (cursor.moveToFirst()) {
-            do {
-                System.out.println("DEBUG: Employee - ID: " + cursor.getString(0) + 
-                                 ", Username: " + cursor.getString(6) + 
-                                 ", Password: " + cursor.getString(7) + 
-                                 ", Role: " + cursor.getString(5) + 
-                                 ", Active: " + cursor.getInt(9));
-            } while (cursor.moveToNext());
+    static final String[][] HOT_QUERIES = {
+        {"SELECT * FROM " + TABLE_PRESCRIPTIONS + " WHERE " + COLUMN_PRESCRIPTION_ID + " = ?", "PRE0"},
+        {"SELECT " + COLUMN_PASSWORD + " FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_USERNAME + " = ? AND " +
+            COLUMN_IS_ACTIVE + " = 1", "admin"},
+        {"SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_NAME + " = ?", "Paracetamol"},
+        {"SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_ROLE + " = ? AND " +
+            COLUMN_IS_ACTIVE + " = 1", "Doctor"},
+        {"SELECT * FROM " + TABLE_RFID_DATA + " WHERE " + COLUMN_RFID_TAG_ID + " = ? AND " +
+            COLUMN_IS_DISPENSED + " = 0", "RFID0"},
+        {"SELECT COUNT(*) FROM " + TABLE_PATIENTS + " p LEFT JOIN " + TABLE_PRESCRIPTIONS +
+            " pr ON p." + COLUMN_PATIENT_ID + " = pr." + COLUMN_PATIENT_ID +
+            " WHERE pr." + COLUMN_PATIENT_ID + " IS NULL", null},
+        {"SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_STOCK_QUANTITY + " <= ?", "10"},
+        {"SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_EXPIRY_DATE + " <= ?", "2025-12-31"}
+    };
+
+    /**
+     * The EXPLAIN QUERY PLAN details of sql, joined with "; "
+     */
+    static String explainQueryPlan(SQLiteDatabase db, String sql, String[] args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor planCursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIdx = planCursor.getColumnIndex("detail");
+            while (planCursor.moveToNext()) {
+                plan.append(planCursor.getString(detailIdx)).append("; ");
+            }
+        } finally {
+            planCursor.close();
         }
-        
-        cursor.close();
-        db.close();
+        return plan.toString();
     }
 
+
     /**
-     * Validate employee login credentials
+     * Check an employee's current password, e.g. before changing it
      */
     public boolean validateEmployeeLogin(String username, String password) {
-        String query = "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + 
-                      " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_PASSWORD + " = ? AND " + COLUMN_IS_ACTIVE + " = 1";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{username, password});
-        
-        boolean isValid = false;
-        if (cursor.moveToFirst()) {
-            isValid = cursor.getInt(0) > 0;
-        }
-        
-        cursor.close();
-        db.close();
-        return isValid;
+        return authenticateUser(username, password) != null;
     }
 
     /**
      * Check if username already exists
      */
     public boolean isUsernameExists(String username) {
-        String query = "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_USERNAME + " = ?";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{username});
-        
-        boolean exists = false;
-        if (cursor.moveToFirst()) {
-            exists = cursor.getInt(0) > 0;
-        }
-        
-        cursor.close();
-        db.close();
-        return exists;
+        return employeeDao.usernameExists(username);
     }
 
     /**
      * Check if email already exists
      */
     public boolean isEmailExists(String email) {
-        String query = "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_EMAIL + " = ?";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{email});
-        
-        boolean exists = false;
-        if (cursor.moveToFirst()) {
-            exists = cursor.getInt(0) > 0;
-        }
-        
-        cursor.close();
-        db.close();
-        return exists;
+        return employeeDao.emailExists(email);
     }
 
     /**
      * Get total count of employees (excluding administrators) - optimized
      */
     public int getTotalEmployeesCount() {
-        String query = "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_IS_ACTIVE + " = 1 AND " + COLUMN_ROLE + " != 'Administrator'";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, null);
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
+        int total = 0;
+        for (int count : employeeCounts().values()) {
+            total += count;
         }
+        return total;
     }
 
     /**
      * Get count of employees by role (excluding administrators) - optimized
      */
     public int getEmployeesCountByRole(String role) {
-        String query = "SELECT COUNT(*) FROM " + TABLE_EMPLOYEES + 
-                      " WHERE " + COLUMN_ROLE + " = ? AND " + COLUMN_IS_ACTIVE + " = 1 AND " + COLUMN_ROLE + " != 'Administrator'";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, new String[]{role});
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
-        }
+        Integer count = employeeCounts().get(role);
+        return count != null ? count : 0;
     }
 
     /**
@@ -749,123 +881,23 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
      * Optimized query using LEFT JOIN for better performance
      */
     public int getPendingReviewsCount() {
-        // Optimized query using LEFT JOIN instead of NOT IN (much faster)
-        String query = "SELECT COUNT(*) FROM " + TABLE_PATIENTS + " p " +
-                      "LEFT JOIN " + TABLE_PRESCRIPTIONS + " pr ON p." + COLUMN_PATIENT_ID + " = pr." + COLUMN_PATIENT_ID +
-                      " WHERE pr." + COLUMN_PATIENT_ID + " IS NULL";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, null);
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
-        }
+        return patientCounts()[1];
     }
     
     /**
      * Get patients without prescriptions (optimized single query)
      */
     public List<com.example.h_cas.models.Patient> getPatientsWithoutPrescriptions() {
-        List<com.example.h_cas.models.Patient> patients = new ArrayList<>();
-        
-        // Optimized query: Get patients who don't have prescriptions in a single query
-        String query = "SELECT p.* FROM " + TABLE_PATIENTS + " p " +
-                      "LEFT JOIN " + TABLE_PRESCRIPTIONS + " pr ON p." + COLUMN_PATIENT_ID + " = pr." + COLUMN_PATIENT_ID +
-                      " WHERE pr." + COLUMN_PATIENT_ID + " IS NULL";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, null);
-            
-            if (cursor.moveToFirst()) {
-                do {
-                    com.example.h_cas.models.Patient patient = new com.example.h_cas.models.Patient();
-                    patient.setPatientId(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_ID)));
-                    patient.setFirstName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_FIRST_NAME)));
-                    patient.setLastName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_LAST_NAME)));
-                    patient.setDateOfBirth(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_DOB)));
-                    patient.setGender(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_GENDER)));
-                    patient.setAddress(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_ADDRESS)));
-                    patient.setPhone(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_PHONE)));
-                    patient.setEmail(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_EMAIL)));
-                    patient.setEmergencyContactName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_EMERGENCY_NAME)));
-                    patient.setEmergencyContactPhone(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PATIENT_EMERGENCY_PHONE)));
-                    
-                    // Extended fields
-                    if (cursor.getColumnCount() > 10) {
-                        int suffixIdx = cursor.getColumnIndex(COLUMN_PATIENT_SUFFIX);
-                        int fullNameIdx = cursor.getColumnIndex(COLUMN_PATIENT_FULL_NAME);
-                        int birthPlaceIdx = cursor.getColumnIndex(COLUMN_PATIENT_BIRTH_PLACE);
-                        int ageIdx = cursor.getColumnIndex(COLUMN_PATIENT_AGE);
-                        int fullAddressIdx = cursor.getColumnIndex(COLUMN_PATIENT_FULL_ADDRESS);
-                        int phoneNumberIdx = cursor.getColumnIndex(COLUMN_PATIENT_PHONE_NUMBER);
-                        int allergiesIdx = cursor.getColumnIndex(COLUMN_PATIENT_ALLERGIES);
-                        int medicationsIdx = cursor.getColumnIndex(COLUMN_PATIENT_MEDICATIONS);
-                        int medicalHistoryIdx = cursor.getColumnIndex(COLUMN_PATIENT_MEDICAL_HISTORY);
-                        int pulseRateIdx = cursor.getColumnIndex(COLUMN_PATIENT_PULSE_RATE);
-                        int bloodPressureIdx = cursor.getColumnIndex(COLUMN_PATIENT_BLOOD_PRESSURE);
-                        int temperatureIdx = cursor.getColumnIndex(COLUMN_PATIENT_TEMPERATURE);
-                        int bloodSugarIdx = cursor.getColumnIndex(COLUMN_PATIENT_BLOOD_SUGAR);
-                        int painScaleIdx = cursor.getColumnIndex(COLUMN_PATIENT_PAIN_SCALE);
-                        int symptomsIdx = cursor.getColumnIndex(COLUMN_PATIENT_SYMPTOMS_DESCRIPTION);
-                        
-                        if (suffixIdx >= 0) patient.setSuffix(cursor.getString(suffixIdx));
-                        if (fullNameIdx >= 0) patient.setFullName(cursor.getString(fullNameIdx));
-                        if (birthPlaceIdx >= 0) patient.setBirthPlace(cursor.getString(birthPlaceIdx));
-                        if (ageIdx >= 0) patient.setAge(cursor.getString(ageIdx));
-                        if (fullAddressIdx >= 0) patient.setFullAddress(cursor.getString(fullAddressIdx));
-                        if (phoneNumberIdx >= 0) patient.setPhoneNumber(cursor.getString(phoneNumberIdx));
-                        if (allergiesIdx >= 0) patient.setAllergies(cursor.getString(allergiesIdx));
-                        if (medicationsIdx >= 0) patient.setMedications(cursor.getString(medicationsIdx));
-                        if (medicalHistoryIdx >= 0) patient.setMedicalHistory(cursor.getString(medicalHistoryIdx));
-                        if (pulseRateIdx >= 0) patient.setPulseRate(cursor.getString(pulseRateIdx));
-                        if (bloodPressureIdx >= 0) patient.setBloodPressure(cursor.getString(bloodPressureIdx));
-                        if (temperatureIdx >= 0) patient.setTemperature(cursor.getString(temperatureIdx));
-                        if (bloodSugarIdx >= 0) patient.setBloodSugar(cursor.getString(bloodSugarIdx));
-                        if (painScaleIdx >= 0) patient.setPainScale(cursor.getString(painScaleIdx));
-                        if (symptomsIdx >= 0) patient.setSymptomsDescription(cursor.getString(symptomsIdx));
-                    }
-                    
-                    patients.add(patient);
-                } while (cursor.moveToNext());
-            }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
-        }
-        
-        return patients;
+        return cache.getList("patients:withoutPrescriptions", patientDao::findWithoutPrescriptions,
+                             com.example.h_cas.models.Patient::copy, TABLE_PATIENTS, TABLE_PRESCRIPTIONS);
     }
 
     /**
      * Delete employee (soft delete)
      */
     public boolean deleteEmployee(String employeeId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_IS_ACTIVE, 0);
-        
-        int result = db.update(TABLE_EMPLOYEES, values, COLUMN_EMPLOYEE_ID + " = ?", new String[]{employeeId});
-        // Don't close database - reuse connection
-        
-        // Invalidate cache when employee is deleted/updated
-        if (result > 0) {
-            invalidateEmployeeCache();
-        }
-        
+        int result = employeeDao.softDelete(employeeId);
+        cache.invalidate(TABLE_EMPLOYEES, employeeId);
         return result > 0;
     }
 
@@ -873,48 +905,15 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
      * Get employee by username (including admin)
      */
     public Employee getEmployeeByUsername(String username) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT * FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_IS_ACTIVE + " = 1";
-        
-        Cursor cursor = db.rawQuery(query, new String[]{username});
-        
-        Employee employee = null;
-        if (cursor.moveToFirst()) {
-            employee = new Employee();
-            employee.setEmployeeId(cursor.getString(0));
-            employee.setFirstName(cursor.getString(1));
-            employee.setLastName(cursor.getString(2));
-            employee.setEmail(cursor.getString(3));
-            employee.setPhone(cursor.getString(4));
-            employee.setRole(cursor.getString(5));
-            employee.setUsername(cursor.getString(6));
-            employee.setPassword(cursor.getString(7));
-            employee.setCreatedDate(cursor.getString(8));
-            employee.setActive(cursor.getInt(9) == 1);
-            // Handle profile picture URL (index 10, may be null for existing records)
-            if (cursor.getColumnCount() > 10 && !cursor.isNull(10)) {
-                employee.setProfilePictureUrl(cursor.getString(10));
-            }
-        }
-        
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return employee;
+        return employeeDao.findActiveByUsername(username);
     }
 
     /**
      * Update employee password
      */
     public boolean updateEmployeePassword(String username, String newPassword) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_PASSWORD, newPassword);
-        
-        int result = db.update(TABLE_EMPLOYEES, values, COLUMN_USERNAME + " = ?", new String[]{username});
-        // Don't close database - reuse connection
-        
+        int result = employeeDao.updatePassword(username, storedPassword(newPassword));
+        cache.invalidateTable(TABLE_EMPLOYEES); // Keyed by username, not id
         return result > 0;
     }
 
@@ -922,74 +921,35 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
      * Update employee information
      */
     public boolean updateEmployee(Employee employee) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_FIRST_NAME, employee.getFirstName());
-        values.put(COLUMN_LAST_NAME, employee.getLastName());
-        values.put(COLUMN_EMAIL, employee.getEmail());
-        values.put(COLUMN_PHONE, employee.getPhone());
-        values.put(COLUMN_ROLE, employee.getRole());
-        values.put(COLUMN_USERNAME, employee.getUsername());
-        values.put(COLUMN_PASSWORD, employee.getPassword());
-        if (employee.getProfilePictureUrl() != null) {
-            values.put(COLUMN_PROFILE_PICTURE_URL, employee.getProfilePictureUrl());
-        }
-        
-        int result = db.update(TABLE_EMPLOYEES, values, COLUMN_EMPLOYEE_ID + " = ?", 
-                             new String[]{employee.getEmployeeId()});
-        // Don't close database - reuse connection
-        
+        int result = employeeDao.update(employee, storedPassword(employee.getPassword()));
+        cache.invalidate(TABLE_EMPLOYEES, employee.getEmployeeId());
         return result > 0;
     }
     
+    /**
+     * The form a password is stored in: a new hash for a plaintext password, unchanged if
+     * it is already a hash (an employee loaded from the database) or null (keep current)
+     */
+    private String storedPassword(String password) {
+        if (password == null || PasswordHasher.isHash(password)) {
+            return password;
+        }
+        return PasswordHasher.getInstance(context).hash(password);
+    }
+    
     /**
      * Get employee by employee ID (including admin)
      */
     public Employee getEmployeeById(String employeeId) {
-        String query = "SELECT * FROM " + TABLE_EMPLOYEES + " WHERE " + COLUMN_EMPLOYEE_ID + " = ?";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{employeeId});
-        
-        Employee employee = null;
-        if (cursor.moveToFirst()) {
-            employee = new Employee();
-            employee.setEmployeeId(cursor.getString(0));
-            employee.setFirstName(cursor.getString(1));
-            employee.setLastName(cursor.getString(2));
-            employee.setEmail(cursor.getString(3));
-            employee.setPhone(cursor.getString(4));
-            employee.setRole(cursor.getString(5));
-            employee.setUsername(cursor.getString(6));
-            employee.setPassword(cursor.getString(7));
-            employee.setCreatedDate(cursor.getString(8));
-            employee.setActive(cursor.getInt(9) == 1);
-            // Handle profile picture URL (index 10, may be null for existing records)
-            if (cursor.getColumnCount() > 10 && !cursor.isNull(10)) {
-                employee.setProfilePictureUrl(cursor.getString(10));
-            }
-        }
-        
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return employee;
+        return cache.get(TABLE_EMPLOYEES, employeeId, () -> employeeDao.findById(employeeId), Employee::copy);
     }
     
     /**
      * Update employee profile picture URL
      */
     public boolean updateEmployeeProfilePicture(String employeeId, String profilePictureUrl) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_PROFILE_PICTURE_URL, profilePictureUrl);
-        
-        int result = db.update(TABLE_EMPLOYEES, values, COLUMN_EMPLOYEE_ID + " = ?", 
-                             new String[]{employeeId});
-        // Don't close database - reuse connection
-        
+        int result = employeeDao.updateProfilePicture(employeeId, profilePictureUrl);
+        cache.invalidate(TABLE_EMPLOYEES, employeeId);
         return result > 0;
     }
 
@@ -1001,323 +961,233 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
      * Add a new patient to the database
      */
     public boolean addPatient(com.example.h_cas.models.Patient patient) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-
-        values.put(COLUMN_PATIENT_ID, patient.getPatientId());
-        values.put(COLUMN_PATIENT_FIRST_NAME, patient.getFirstName());
-        values.put(COLUMN_PATIENT_LAST_NAME, patient.getLastName());
-        values.put(COLUMN_PATIENT_DOB, patient.getDateOfBirth());
-        values.put(COLUMN_PATIENT_GENDER, patient.getGender());
-        values.put(COLUMN_PATIENT_ADDRESS, patient.getAddress());
-        values.put(COLUMN_PATIENT_PHONE, patient.getPhone());
-        values.put(COLUMN_PATIENT_EMAIL, patient.getEmail());
-        values.put(COLUMN_PATIENT_EMERGENCY_NAME, patient.getEmergencyContactName());
-        values.put(COLUMN_PATIENT_EMERGENCY_PHONE, patient.getEmergencyContactPhone());
-        
-        // Extended patient information
-        values.put(COLUMN_PATIENT_SUFFIX, patient.getSuffix());
-        values.put(COLUMN_PATIENT_FULL_NAME, patient.getFullName());
-        values.put(COLUMN_PATIENT_AGE, patient.getAge());
-        values.put(COLUMN_PATIENT_FULL_ADDRESS, patient.getFullAddress());
-        values.put(COLUMN_PATIENT_PHONE_NUMBER, patient.getPhoneNumber());
-        values.put(COLUMN_PATIENT_ALLERGIES, patient.getAllergies());
-        values.put(COLUMN_PATIENT_MEDICATIONS, patient.getMedications());
-        values.put(COLUMN_PATIENT_MEDICAL_HISTORY, patient.getMedicalHistory());
-        values.put(COLUMN_PATIENT_PULSE_RATE, patient.getPulseRate());
-        values.put(COLUMN_PATIENT_BLOOD_PRESSURE, patient.getBloodPressure());
-        values.put(COLUMN_PATIENT_TEMPERATURE, patient.getTemperature());
-        values.put(COLUMN_PATIENT_BLOOD_SUGAR, patient.getBloodSugar());
-        values.put(COLUMN_PATIENT_PAIN_SCALE, patient.getPainScale());
-        values.put(COLUMN_PATIENT_SYMPTOMS_DESCRIPTION, patient.getSymptomsDescription());
-        values.put(COLUMN_PATIENT_BIRTH_PLACE, patient.getBirthPlace());
-
-        long result = db.insert(TABLE_PATIENTS, null, values);
-        // Don't close database - reuse connection
-        
-        // Sync to Firebase in background thread to avoid blocking
-        if (result != -1) {
-            final com.example.h_cas.models.Patient patientToSync = patient;
-            new Thread(() -> {
-                syncToFirebase("patient", patientToSync);
-            }).start();
+        boolean added = writeAndEnqueue(TABLE_PATIENTS, patient.getPatientId(),
+                                        FirebaseSyncManager.patientToFirebase(patient),
+                                        () -> patientDao.insert(patient) != -1);
+        if (added) {
+            searchDao.addTerms(patient);
         }
-        
-        return result != -1;
+        return added;
     }
 
-    // getAllPatients implemented below
-
     /**
      * Get all patients
      */
     public List<com.example.h_cas.models.Patient> getAllPatients() {
-        List<com.example.h_cas.models.Patient> patients = new ArrayList<>();
-        String query = "SELECT * FROM " + TABLE_PATIENTS + " ORDER BY " + COLUMN_PATIENT_CREATED_DATE + " DESC";
+        return cache.getList("patients:all", patientDao::findAll, com.example.h_cas.models.Patient::copy,
+                             TABLE_PATIENTS);
+    }
 
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                com.example.h_cas.models.Patient patient = new com.example.h_cas.models.Patient();
-                patient.setPatientId(cursor.getString(0));
-                patient.setFirstName(cursor.getString(1));
-                patient.setLastName(cursor.getString(2));
-                patient.setDateOfBirth(cursor.getString(3));
-                patient.setGender(cursor.getString(4));
-                patient.setAddress(cursor.getString(5));
-                patient.setPhone(cursor.getString(6));
-                patient.setEmail(cursor.getString(7));
-                patient.setEmergencyContactName(cursor.getString(8));
-                patient.setEmergencyContactPhone(cursor.getString(9));
-                patient.setCreatedDate(cursor.getString(10)); // created_date column
-                
-                // Extended patient information (new columns)
-                if (cursor.getColumnCount() > 10) {
-                    patient.setSuffix(cursor.getString(11));
-                    patient.setFullName(cursor.getString(12));
-                    patient.setBirthPlace(cursor.getString(13));
-                    patient.setAge(cursor.getString(14));
-                    patient.setFullAddress(cursor.getString(15));
-                    patient.setPhoneNumber(cursor.getString(16));
-                    patient.setAllergies(cursor.getString(17));
-                    patient.setMedications(cursor.getString(18));
-                    patient.setMedicalHistory(cursor.getString(19));
-                    patient.setPulseRate(cursor.getString(20));
-                    patient.setBloodPressure(cursor.getString(21));
-                    patient.setTemperature(cursor.getString(22));
-                    patient.setBloodSugar(cursor.getString(23));
-                    patient.setPainScale(cursor.getString(24));
-                    patient.setSymptomsDescription(cursor.getString(25));
-                }
-                
-                patients.add(patient);
-            } while (cursor.moveToNext());
-        }
+    /**
+     * Get one page of patients, most recently registered first.
+     * Pass null for the first page and {@link Page#getNextKey()} for the following ones.
+     */
+    public Page<com.example.h_cas.models.Patient> getPatientsPage(Page.Key after, int pageSize) {
+        return patientDao.findPage(after, pageSize);
+    }
 
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return patients;
+    /**
+     * Get one page of patients who have prescriptions, with their prescription summary,
+     * most recently registered patient first
+     */
+    public Page<com.example.h_cas.models.PatientHistoryItem> getPatientHistoryPage(Page.Key after, int pageSize) {
+        return patientDao.findHistoryPage(after, pageSize);
     }
-    
+
     /**
-     * Get total count of patients (optimized)
+     * Get patients registered in [fromDate, toDate), newest first.
+     * Either bound may be null; dates are yyyy-MM-dd.
      */
-    public int getTotalPatientsCount() {
-        String query = "SELECT COUNT(*) FROM " + TABLE_PATIENTS;
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, null);
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
-        }
+    public List<com.example.h_cas.models.Patient> getPatientsCreatedBetween(String fromDate, String toDate) {
+        return patientDao.findCreatedBetween(fromDate, toDate);
     }
 
     /**
-     * Add a new prescription
+     * Stream the patients of {@link #getPatientsCreatedBetween} to callback straight from
+     * the cursor, bypassing the cache. Call off the main thread.
+     *
+     * @return the number of rows delivered
      */
-    public boolean addPrescription(com.example.h_cas.models.Prescription prescription) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_PRESCRIPTION_ID, prescription.getPrescriptionId());
-        values.put(COLUMN_PATIENT_ID, prescription.getPatientId());
-        values.put(COLUMN_PATIENT_NAME, prescription.getPatientName());
-        values.put(COLUMN_MEDICATION, prescription.getMedication());
-        values.put(COLUMN_DOSAGE, prescription.getDosage());
-        values.put(COLUMN_FREQUENCY, prescription.getFrequency());
-        values.put(COLUMN_DURATION, prescription.getDuration());
-        values.put(COLUMN_INSTRUCTIONS, prescription.getInstructions());
-        values.put(COLUMN_DOCTOR_ID, prescription.getDoctorId());
-        values.put(COLUMN_DOCTOR_NAME, prescription.getDoctorName());
-        values.put(COLUMN_CREATED_DATE, prescription.getCreatedDate());
-        values.put(COLUMN_STATUS, prescription.getStatus());
-        
-        long result = db.insert(TABLE_PRESCRIPTIONS, null, values);
-        // Don't close database - reuse connection
-        
-        // Sync to Firebase in background thread to avoid blocking
-        if (result != -1) {
-            final com.example.h_cas.models.Prescription prescriptionToSync = prescription;
-            new Thread(() -> {
-                syncToFirebase("prescription", prescriptionToSync);
-            }).start();
-        }
-        
-        return result != -1;
+    public int forEachPatientCreatedBetween(String fromDate, String toDate,
+                                            RowCallback<com.example.h_cas.models.Patient> callback) {
+        return patientDao.forEachCreatedBetween(fromDate, toDate, callback);
     }
 
     /**
-     * Get prescription by ID
+     * Insert or update patients received from Firebase in chunked transactions.
+     * Existing rows only get the fields carried by the Firebase record (name, date of
+     * birth, gender, phone, email, address). Nothing is synced back to Firebase.
+     *
+     * @return the number of rows written
      */
-    public com.example.h_cas.models.Prescription getPrescriptionById(String prescriptionId) {
-        String query = "SELECT * FROM " + TABLE_PRESCRIPTIONS + " WHERE " + COLUMN_PRESCRIPTION_ID + " = ?";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+    public int upsertPatients(List<com.example.h_cas.models.Patient> patients) {
         try {
-            cursor = db.rawQuery(query, new String[]{prescriptionId});
-            
-            com.example.h_cas.models.Prescription prescription = null;
-            if (cursor.moveToFirst()) {
-                prescription = new com.example.h_cas.models.Prescription();
-                prescription.setPrescriptionId(cursor.getString(0));
-                prescription.setPatientId(cursor.getString(1));
-                prescription.setPatientName(cursor.getString(2));
-                prescription.setMedication(cursor.getString(3));
-                prescription.setDosage(cursor.getString(4));
-                prescription.setFrequency(cursor.getString(5));
-                prescription.setDuration(cursor.getString(6));
-                prescription.setInstructions(cursor.getString(7));
-                prescription.setDoctorId(cursor.getString(8));
-                prescription.setDoctorName(cursor.getString(9));
-                prescription.setCreatedDate(cursor.getString(10));
-                prescription.setStatus(cursor.getString(11));
-            }
-            return prescription;
+            return patientDao.upsertSynced(patients);
         } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
+            cache.invalidateTable(TABLE_PATIENTS);
+            patients.forEach(searchDao::addTerms);
         }
     }
-    
+
+    /**
+     * Apply a batch of inbound patient changes from Firebase: upsert the changed records
+     * (as {@link #upsertPatients}), delete the removed ones and advance the high-water mark
+     */
+    public void applyPatientChanges(List<com.example.h_cas.models.Patient> changed, List<String> removedIds,
+                                    long highWaterMark) {
+        try {
+            patientDao.upsertSynced(changed);
+            patientDao.deleteAll(removedIds);
+            syncStateDao.advance(TABLE_PATIENTS, highWaterMark);
+        } finally {
+            invalidateChanged(TABLE_PATIENTS, changed, com.example.h_cas.models.Patient::getPatientId, removedIds);
+            changed.forEach(searchDao::addTerms);
+        }
+    }
+
+    /**
+     * Get total count of patients (optimized)
+     */
+    public int getTotalPatientsCount() {
+        return patientCounts()[0];
+    }
+
+    /**
+     * Get patient by ID
+     */
+    public com.example.h_cas.models.Patient getPatientById(String patientId) {
+        return cache.get(TABLE_PATIENTS, patientId, () -> patientDao.findById(patientId),
+                         com.example.h_cas.models.Patient::copy);
+    }
+
+    /**
+     * Update patient information
+     */
+    public boolean updatePatient(com.example.h_cas.models.Patient patient) {
+        boolean updated = writeAndEnqueue(TABLE_PATIENTS, patient.getPatientId(),
+                                          FirebaseSyncManager.patientToFirebase(patient),
+                                          () -> patientDao.update(patient) > 0);
+        if (updated) {
+            searchDao.addTerms(patient);
+        }
+        return updated;
+    }
+
+    // =====================
+    // Prescriptions operations
+    // =====================
+
+    /**
+     * Add a new prescription
+     */
+    public boolean addPrescription(com.example.h_cas.models.Prescription prescription) {
+        boolean added = writeAndEnqueue(TABLE_PRESCRIPTIONS, prescription.getPrescriptionId(),
+                                        FirebaseSyncManager.prescriptionToFirebase(prescription),
+                                        () -> prescriptionDao.insert(prescription) != -1);
+        if (added) {
+            searchDao.addTerms(prescription);
+        }
+        return added;
+    }
+
+    /**
+     * Get prescription by ID
+     */
+    public com.example.h_cas.models.Prescription getPrescriptionById(String prescriptionId) {
+        return cache.get(TABLE_PRESCRIPTIONS, prescriptionId, () -> prescriptionDao.findById(prescriptionId),
+                         com.example.h_cas.models.Prescription::copy);
+    }
+
     /**
      * Update prescription in database
      */
     public boolean updatePrescription(com.example.h_cas.models.Prescription prescription) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_PATIENT_ID, prescription.getPatientId());
-        values.put(COLUMN_PATIENT_NAME, prescription.getPatientName());
-        values.put(COLUMN_MEDICATION, prescription.getMedication());
-        values.put(COLUMN_DOSAGE, prescription.getDosage());
-        values.put(COLUMN_FREQUENCY, prescription.getFrequency());
-        values.put(COLUMN_DURATION, prescription.getDuration());
-        values.put(COLUMN_INSTRUCTIONS, prescription.getInstructions());
-        values.put(COLUMN_DOCTOR_ID, prescription.getDoctorId());
-        values.put(COLUMN_DOCTOR_NAME, prescription.getDoctorName());
-        values.put(COLUMN_CREATED_DATE, prescription.getCreatedDate());
-        values.put(COLUMN_STATUS, prescription.getStatus());
-        
-        int result = db.update(TABLE_PRESCRIPTIONS, values, COLUMN_PRESCRIPTION_ID + " = ?",
-                              new String[]{prescription.getPrescriptionId()});
-        // Don't close database - reuse connection
-        
-        // Sync to Firebase in background thread to avoid blocking
-        if (result > 0) {
-            final com.example.h_cas.models.Prescription prescriptionToSync = prescription;
-            new Thread(() -> {
-                syncToFirebase("prescription", prescriptionToSync);
-            }).start();
+        boolean updated = writeAndEnqueue(TABLE_PRESCRIPTIONS, prescription.getPrescriptionId(),
+                                          FirebaseSyncManager.prescriptionToFirebase(prescription),
+                                          () -> prescriptionDao.update(prescription) > 0);
+        if (updated) {
+            searchDao.addTerms(prescription);
         }
-        
-        return result > 0;
+        return updated;
     }
-    
+
     /**
      * Get all prescriptions
      */
     public List<com.example.h_cas.models.Prescription> getAllPrescriptions() {
-        List<com.example.h_cas.models.Prescription> prescriptions = new ArrayList<>();
-        String query = "SELECT * FROM " + TABLE_PRESCRIPTIONS + " ORDER BY " + COLUMN_CREATED_DATE + " DESC";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                com.example.h_cas.models.Prescription prescription = new com.example.h_cas.models.Prescription();
-                prescription.setPrescriptionId(cursor.isNull(0) ? null : cursor.getString(0));
-                prescription.setPatientId(cursor.isNull(1) ? null : cursor.getString(1));
-                prescription.setPatientName(cursor.isNull(2) ? null : cursor.getString(2));
-                prescription.setMedication(cursor.isNull(3) ? null : cursor.getString(3));
-                prescription.setDosage(cursor.isNull(4) ? null : cursor.getString(4));
-                prescription.setFrequency(cursor.isNull(5) ? null : cursor.getString(5));
-                prescription.setDuration(cursor.isNull(6) ? null : cursor.getString(6));
-                prescription.setInstructions(cursor.isNull(7) ? null : cursor.getString(7));
-                prescription.setDoctorId(cursor.isNull(8) ? null : cursor.getString(8));
-                prescription.setDoctorName(cursor.isNull(9) ? null : cursor.getString(9));
-                prescription.setCreatedDate(cursor.isNull(10) ? null : cursor.getString(10));
-                prescription.setStatus(cursor.isNull(11) ? null : cursor.getString(11));
-                
-                prescriptions.add(prescription);
-            } while (cursor.moveToNext());
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+        return cache.getList("prescriptions:all", prescriptionDao::findAll, com.example.h_cas.models.Prescription::copy,
+                             TABLE_PRESCRIPTIONS);
+    }
+
+    /**
+     * Get one page of prescriptions, newest first.
+     * Pass null for the first page and {@link Page#getNextKey()} for the following ones.
+     */
+    public Page<com.example.h_cas.models.Prescription> getPrescriptionsPage(Page.Key after, int pageSize) {
+        return prescriptionDao.findPage(after, pageSize);
+    }
+
+    /**
+     * Get prescriptions filtered by status and creation date, newest first.
+     *
+     * @param statuses statuses to include, or null for any status; a null element matches
+     *                 prescriptions without a status (NULL or empty)
+     * @param fromDate inclusive lower bound on created_date (yyyy-MM-dd), or null
+     * @param toDate   exclusive upper bound on created_date (yyyy-MM-dd), or null
+     */
+    public List<com.example.h_cas.models.Prescription> getPrescriptions(java.util.Collection<String> statuses,
+                                                                       String fromDate, String toDate) {
+        return prescriptionDao.findFiltered(statuses, fromDate, toDate);
+    }
+
+    /**
+     * Stream the prescriptions of {@link #getPrescriptions(java.util.Collection, String, String)}
+     * to callback straight from the cursor, bypassing the cache. Call off the main thread.
+     *
+     * @return the number of rows delivered
+     */
+    public int forEachPrescription(java.util.Collection<String> statuses, String fromDate, String toDate,
+                                   RowCallback<com.example.h_cas.models.Prescription> callback) {
+        return prescriptionDao.forEachFiltered(statuses, fromDate, toDate, callback);
+    }
+
+    /**
+     * Get all prescriptions for a patient, newest first
+     */
+    public List<com.example.h_cas.models.Prescription> getPrescriptionsForPatient(String patientId) {
+        return cache.getList("prescriptions:patient:" + patientId, () -> prescriptionDao.findByPatient(patientId),
+                             com.example.h_cas.models.Prescription::copy, TABLE_PRESCRIPTIONS);
+    }
+
+    /**
+     * Insert or update prescriptions received from Firebase in chunked transactions.
+     * Nothing is synced back to Firebase.
+     *
+     * @return the number of rows written
+     */
+    public int upsertPrescriptions(List<com.example.h_cas.models.Prescription> prescriptions) {
+        try {
+            return prescriptionDao.upsertAll(prescriptions);
+        } finally {
+            cache.invalidateTable(TABLE_PRESCRIPTIONS);
+            prescriptions.forEach(searchDao::addTerms);
         }
-        // Don't close database - reuse connection
-        return prescriptions;
     }
 
     /**
-     * Get patient by ID
+     * Apply a batch of inbound prescription changes from Firebase: upsert the changed
+     * records, delete the removed ones and advance the high-water mark
      */
-    public com.example.h_cas.models.Patient getPatientById(String patientId) {
-        String query = "SELECT * FROM " + TABLE_PATIENTS + " WHERE " + COLUMN_PATIENT_ID + " = ?";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+    public void applyPrescriptionChanges(List<com.example.h_cas.models.Prescription> changed,
+                                         List<String> removedIds, long highWaterMark) {
         try {
-            cursor = db.rawQuery(query, new String[]{patientId});
-            
-            com.example.h_cas.models.Patient patient = null;
-            if (cursor.moveToFirst()) {
-                patient = new com.example.h_cas.models.Patient();
-                patient.setPatientId(cursor.getString(0));
-                patient.setFirstName(cursor.getString(1));
-                patient.setLastName(cursor.getString(2));
-                patient.setDateOfBirth(cursor.getString(3));
-                patient.setGender(cursor.getString(4));
-                patient.setAddress(cursor.getString(5));
-                patient.setPhone(cursor.getString(6));
-                patient.setEmail(cursor.getString(7));
-                patient.setEmergencyContactName(cursor.getString(8));
-                patient.setEmergencyContactPhone(cursor.getString(9));
-                // Skip created date as Patient model doesn't have setCreatedDate method
-                
-                // Extended fields
-                if (cursor.getColumnCount() > 10) {
-                    patient.setSuffix(cursor.getString(11));
-                    patient.setFullName(cursor.getString(12));
-                    patient.setBirthPlace(cursor.getString(13));
-                    patient.setAge(cursor.getString(14));
-                    patient.setFullAddress(cursor.getString(15));
-                    patient.setPhoneNumber(cursor.getString(16));
-                    patient.setAllergies(cursor.getString(17));
-                    patient.setMedications(cursor.getString(18));
-                    patient.setMedicalHistory(cursor.getString(19));
-                    patient.setPulseRate(cursor.getString(20));
-                    patient.setBloodPressure(cursor.getString(21));
-                    patient.setTemperature(cursor.getString(22));
-                    patient.setBloodSugar(cursor.getString(23));
-                    patient.setPainScale(cursor.getString(24));
-                    patient.setSymptomsDescription(cursor.getString(25));
-                }
-            }
-            return patient;
+            prescriptionDao.upsertAll(changed);
+            prescriptionDao.deleteAll(removedIds);
+            syncStateDao.advance(TABLE_PRESCRIPTIONS, highWaterMark);
         } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
+            invalidateChanged(TABLE_PRESCRIPTIONS, changed, com.example.h_cas.models.Prescription::getPrescriptionId,
+                              removedIds);
+            changed.forEach(searchDao::addTerms);
         }
     }
 
@@ -1325,540 +1195,546 @@ public class HCasDatabaseHelper extends SQLiteOpenHelper {
      * Get prescriptions count (optimized)
      */
     public int getPrescriptionsCount() {
-        String query = "SELECT COUNT(*) FROM " + TABLE_PRESCRIPTIONS;
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, null);
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
+        int total = 0;
+        for (int count : prescriptionCounts().values()) {
+            total += count;
         }
+        return total;
+    }
+
+    // ==================== SEARCH ====================
+    // Served from the full-text index (see SearchIndex). Each word of the query matches
+    // the start of a name, id, phone number, allergy, medication or doctor word, and
+    // misspelt words also match their closest known spellings. Call off the main thread.
+
+    /**
+     * Search patients by name, id, phone number or allergy, most recently registered first
+     *
+     * @param withoutPrescriptions only patients who have no prescription yet
+     */
+    public List<com.example.h_cas.models.Patient> searchPatients(String query, boolean withoutPrescriptions,
+                                                                 int limit) {
+        return searchDao.searchPatients(query, withoutPrescriptions, limit);
     }
 
-    // Medicine Management Methods
+    /**
+     * Search prescriptions by patient name, prescription or patient id, medication or
+     * doctor, most recently created first
+     *
+     * @param statuses as for {@link #getPrescriptions(java.util.Collection, String, String)}
+     */
+    public List<com.example.h_cas.models.Prescription> searchPrescriptions(String query,
+                                                                          java.util.Collection<String> statuses,
+                                                                          int limit) {
+        return searchDao.searchPrescriptions(query, statuses, limit);
+    }
+
+    // ==================== MEDICINE MANAGEMENT METHODS ====================
+
     /**
      * Add a new medicine to inventory
      */
     public boolean addMedicine(com.example.h_cas.models.Medicine medicine) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_MEDICINE_ID, medicine.getMedicineId());
-        values.put(COLUMN_MEDICINE_NAME, medicine.getMedicineName());
-        values.put(COLUMN_MEDICINE_DOSAGE, medicine.getDosage());
-        values.put(COLUMN_STOCK_QUANTITY, medicine.getStockQuantity());
-        values.put(COLUMN_UNIT, medicine.getUnit());
-        values.put(COLUMN_CATEGORY, medicine.getCategory());
-        values.put(COLUMN_DESCRIPTION, medicine.getDescription());
-        values.put(COLUMN_EXPIRY_DATE, medicine.getExpiryDate());
-        values.put(COLUMN_PRICE, medicine.getPrice());
-        values.put(COLUMN_SUPPLIER, medicine.getSupplier());
-        
-        long result = db.insert(TABLE_MEDICINES, null, values);
-        // Don't close database - reuse connection
-        
-        return result != -1;
+        boolean added = inTransaction(() ->
+            medicineDao.insert(medicine) != -1 &&
+            recordInventoryEvent(new InventoryEvent(InventoryEvent.TYPE_RECEIVE, medicine, medicine.getStockQuantity())));
+        cache.invalidate(TABLE_MEDICINES, medicine.getMedicineId());
+        return added;
+    }
+
+    /**
+     * Add a new medicine to the inventory
+     */
+    public boolean addMedicine1(com.example.h_cas.models.Medicine medicine) {
+        return addMedicine(medicine);
     }
 
     /**
      * Get medicine by name
      */
     public com.example.h_cas.models.Medicine getMedicineByName(String medicineName) {
-        String query = "SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_NAME + " = ?";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{medicineName});
-        
-        com.example.h_cas.models.Medicine medicine = null;
-        if (cursor.moveToFirst()) {
-            medicine = new com.example.h_cas.models.Medicine();
-            medicine.setMedicineId(cursor.getString(0));
-            medicine.setMedicineName(cursor.getString(1));
-            medicine.setDosage(cursor.getString(2));
-            medicine.setStockQuantity(cursor.getInt(3));
-            medicine.setUnit(cursor.getString(4));
-            medicine.setCategory(cursor.getString(5));
-            medicine.setDescription(cursor.getString(6));
-            medicine.setExpiryDate(cursor.getString(7));
-            medicine.setPrice(cursor.getDouble(8));
-            medicine.setSupplier(cursor.getString(9));
-        }
-        
-        cursor.close();
-        db.close();
-        return medicine;
+        return medicineDao.findByName(medicineName);
     }
 
     /**
-     * Update medicine stock
+     * Get medicine by ID
      */
-    public boolean updateMedicineStock(String medicineName, int newStock) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_STOCK_QUANTITY, newStock);
-        
-        int result = db.update(TABLE_MEDICINES, values, COLUMN_MEDICINE_NAME + " = ?", new String[]{medicineName});
-        // Don't close database - reuse connection
-        
-        return result > 0;
+    public com.example.h_cas.models.Medicine getMedicineById(String medicineId) {
+        return cache.get(TABLE_MEDICINES, medicineId, () -> medicineDao.findById(medicineId),
+                         com.example.h_cas.models.Medicine::copy);
     }
 
-    // RFID Management Methods
     /**
-     * Write prescription data to RFID
+     * Set the stock of a medicine, recording the difference as an adjustment in the ledger
      */
-    public boolean writePrescriptionToRFID(String rfidTagId, com.example.h_cas.models.Prescription prescription) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_RFID_TAG_ID, rfidTagId);
-        values.put(COLUMN_PATIENT_ID, prescription.getPatientId());
-        values.put(COLUMN_PATIENT_NAME, prescription.getPatientName());
-        values.put(COLUMN_PRESCRIPTION_ID, prescription.getPrescriptionId());
-        values.put(COLUMN_MEDICATION, prescription.getMedication());
-        values.put(COLUMN_DOSAGE, prescription.getDosage());
-        values.put(COLUMN_FREQUENCY, prescription.getFrequency());
-        values.put(COLUMN_DURATION, prescription.getDuration());
-        values.put(COLUMN_INSTRUCTIONS, prescription.getInstructions());
-        values.put(COLUMN_DOCTOR_NAME, prescription.getDoctorName());
-        values.put(COLUMN_CREATED_DATE, prescription.getCreatedDate());
-        values.put(COLUMN_IS_DISPENSED, 0); // Not dispensed yet
-        
-        long result = db.insert(TABLE_RFID_DATA, null, values);
-        // Don't close database - reuse connection
-        
-        return result != -1;
+    public boolean updateMedicineStock(String medicineName, int newStock) {
+        boolean updated = inTransaction(() -> {
+            com.example.h_cas.models.Medicine medicine = medicineDao.findByName(medicineName);
+            if (medicine == null || medicineDao.updateStockByName(medicineName, newStock) == 0) {
+                return false;
+            }
+            int change = newStock - medicine.getStockQuantity();
+            medicine.setStockQuantity(newStock);
+            return change == 0 || recordInventoryEvent(new InventoryEvent(InventoryEvent.TYPE_ADJUST, medicine, change));
+        });
+        cache.invalidateTable(TABLE_MEDICINES); // Keyed by name, not id
+        return updated;
     }
 
     /**
-     * Read prescription data from RFID
+     * Get all medicines from inventory
      */
-    public com.example.h_cas.models.RFIDData readPrescriptionFromRFID(String rfidTagId) {
-        String query = "SELECT * FROM " + TABLE_RFID_DATA + " WHERE " + COLUMN_RFID_TAG_ID + " = ? AND " + COLUMN_IS_DISPENSED + " = 0";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{rfidTagId});
-        
-        com.example.h_cas.models.RFIDData rfidData = null;
-        if (cursor.moveToFirst()) {
-            rfidData = new com.example.h_cas.models.RFIDData();
-            rfidData.setRfidTagId(cursor.getString(0));
-            rfidData.setPatientId(cursor.getString(1));
-            rfidData.setPatientName(cursor.getString(2));
-            rfidData.setPrescriptionId(cursor.getString(3));
-            rfidData.setMedicineName(cursor.getString(4));
-            rfidData.setDosage(cursor.getString(5));
-            rfidData.setFrequency(cursor.getString(6));
-            rfidData.setDuration(cursor.getString(7));
-            rfidData.setInstructions(cursor.getString(8));
-            rfidData.setDoctorName(cursor.getString(9));
-            rfidData.setPrescriptionDate(cursor.getString(10));
-            rfidData.setDispensed(cursor.getInt(11) == 1);
-            rfidData.setDispensedDate(cursor.getString(12));
-            rfidData.setPharmacistName(cursor.getString(13));
-        }
-        
-        cursor.close();
-        db.close();
-        return rfidData;
+    public List<com.example.h_cas.models.Medicine> getAllMedicines() {
+        return cache.getList("medicines:all", medicineDao::findAll, com.example.h_cas.models.Medicine::copy,
+                             TABLE_MEDICINES);
     }
 
     /**
-     * Mark prescription as dispensed
+     * Get one page of medicines ordered by name. Filters are optional:
+     * pass null (or a negative maximumStock) to skip them.
+     *
+     * @param notExpiredOn exclude medicines that expired before this date (yyyy-MM-dd)
+     * @param maximumStock only include medicines with stock at or below this quantity
+     * @param expiringBy   only include medicines expiring on or before this date (yyyy-MM-dd)
      */
-    public boolean markPrescriptionAsDispensed(String rfidTagId, String pharmacistName) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_IS_DISPENSED, 1);
-        values.put(COLUMN_DISPENSED_DATE, getCurrentDateTime());
-        values.put(COLUMN_PHARMACIST_NAME, pharmacistName);
-        
-        int result = db.update(TABLE_RFID_DATA, values, COLUMN_RFID_TAG_ID + " = ?", new String[]{rfidTagId});
-        // Don't close database - reuse connection
-        
-        return result > 0;
+    public Page<com.example.h_cas.models.Medicine> getMedicinesPage(Page.Key after, int pageSize,
+                                                                   String notExpiredOn, int maximumStock,
+                                                                   String expiringBy) {
+        return medicineDao.findPage(after, pageSize, notExpiredOn, maximumStock, expiringBy);
     }
 
     /**
-     * Get current date time
+     * Count medicines matching the same optional filters as {@link #getMedicinesPage}
      */
-    private String getCurrentDateTime() {
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault());
-        return sdf.format(new java.util.Date());
+    public int getMedicinesCount(String notExpiredOn, int maximumStock, String expiringBy) {
+        return medicineDao.countFiltered(notExpiredOn, maximumStock, expiringBy);
     }
 
     /**
-     * Insert sample medicines for testing
+     * Insert or update medicines received from Firebase in chunked transactions.
+     * Nothing is synced back to Firebase.
+     *
+     * @return the number of rows written
      */
-    private void insertSampleMedicines(SQLiteDatabase db) {
-        // Sample medicines
-        String[][] medicines = {
-            {"MED001", "Paracetamol", "500mg", "100", "tablets", "Pain Relief", "Pain reliever and fever reducer", "2025-12-31", "5.00", "MedSupply Co."},
-            {"MED002", "Amoxicillin", "250mg", "50", "capsules", "Antibiotic", "Antibiotic for bacterial infections", "2025-11-30", "15.00", "PharmaCorp"},
-            {"MED003", "Ibuprofen", "400mg", "75", "tablets", "Pain Relief", "Anti-inflammatory pain reliever", "2025-10-31", "8.50", "MedSupply Co."},
-            {"MED004", "Metformin", "500mg", "30", "tablets", "Diabetes", "Diabetes medication", "2025-09-30", "12.00", "DiabeticCare"},
-            {"MED005", "Lisinopril", "10mg", "40", "tablets", "Cardiovascular", "Blood pressure medication", "2025-08-31", "18.00", "CardioPharm"}
-        };
+    public int upsertMedicines(List<com.example.h_cas.models.Medicine> medicines) {
+        try {
+            return medicineDao.upsertAll(medicines);
+        } finally {
+            cache.invalidateTable(TABLE_MEDICINES);
+        }
+    }
 
-        for (String[] medicine : medicines) {
-            ContentValues values = new ContentValues();
-            values.put(COLUMN_MEDICINE_ID, medicine[0]);
-            values.put(COLUMN_MEDICINE_NAME, medicine[1]);
-            values.put(COLUMN_MEDICINE_DOSAGE, medicine[2]);
-            values.put(COLUMN_STOCK_QUANTITY, Integer.parseInt(medicine[3]));
-            values.put(COLUMN_UNIT, medicine[4]);
-            values.put(COLUMN_CATEGORY, medicine[5]);
-            values.put(COLUMN_DESCRIPTION, medicine[6]);
-            values.put(COLUMN_EXPIRY_DATE, medicine[7]);
-            values.put(COLUMN_PRICE, Double.parseDouble(medicine[8]));
-            values.put(COLUMN_SUPPLIER, medicine[9]);
-            
-            db.insert(TABLE_MEDICINES, null, values);
+    /**
+     * Apply a batch of inbound medicine changes from Firebase: upsert the changed records,
+     * delete the removed ones and advance the high-water mark
+     */
+    public void applyMedicineChanges(List<com.example.h_cas.models.Medicine> changed, List<String> removedIds,
+                                     long highWaterMark) {
+        try {
+            medicineDao.upsertAll(changed);
+            medicineDao.deleteAll(removedIds);
+            syncStateDao.advance(TABLE_MEDICINES, highWaterMark);
+        } finally {
+            invalidateChanged(TABLE_MEDICINES, changed, com.example.h_cas.models.Medicine::getMedicineId, removedIds);
         }
     }
-    
+
     /**
-     * Update patient information
+     * Drop the cached rows touched by an inbound Firebase batch
      */
-    public boolean updatePatient(com.example.h_cas.models.Patient patient) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        // Update all patient fields
-        values.put(COLUMN_PATIENT_FIRST_NAME, patient.getFirstName());
-        values.put(COLUMN_PATIENT_LAST_NAME, patient.getLastName());
-        values.put(COLUMN_PATIENT_DOB, patient.getDateOfBirth());
-        values.put(COLUMN_PATIENT_GENDER, patient.getGender());
-        values.put(COLUMN_PATIENT_ADDRESS, patient.getAddress());
-        values.put(COLUMN_PATIENT_PHONE, patient.getPhone());
-        values.put(COLUMN_PATIENT_EMAIL, patient.getEmail());
-        values.put(COLUMN_PATIENT_EMERGENCY_NAME, patient.getEmergencyContactName());
-        values.put(COLUMN_PATIENT_EMERGENCY_PHONE, patient.getEmergencyContactPhone());
-        
-        // Extended patient information
-        values.put(COLUMN_PATIENT_SUFFIX, patient.getSuffix());
-        values.put(COLUMN_PATIENT_FULL_NAME, patient.getFullName());
-        values.put(COLUMN_PATIENT_AGE, patient.getAge());
-        values.put(COLUMN_PATIENT_FULL_ADDRESS, patient.getFullAddress());
-        values.put(COLUMN_PATIENT_PHONE_NUMBER, patient.getPhoneNumber());
-        values.put(COLUMN_PATIENT_ALLERGIES, patient.getAllergies());
-        values.put(COLUMN_PATIENT_MEDICATIONS, patient.getMedications());
-        values.put(COLUMN_PATIENT_MEDICAL_HISTORY, patient.getMedicalHistory());
-        values.put(COLUMN_PATIENT_PULSE_RATE, patient.getPulseRate());
-        values.put(COLUMN_PATIENT_BLOOD_PRESSURE, patient.getBloodPressure());
-        values.put(COLUMN_PATIENT_TEMPERATURE, patient.getTemperature());
-        values.put(COLUMN_PATIENT_BLOOD_SUGAR, patient.getBloodSugar());
-        values.put(COLUMN_PATIENT_PAIN_SCALE, patient.getPainScale());
-        values.put(COLUMN_PATIENT_SYMPTOMS_DESCRIPTION, patient.getSymptomsDescription());
-        values.put(COLUMN_PATIENT_BIRTH_PLACE, patient.getBirthPlace());
-        
-        int result = db.update(TABLE_PATIENTS, values, COLUMN_PATIENT_ID + " = ?", 
-                             new String[]{patient.getPatientId()});
-        db.close();
-        
-        // Sync to Firebase if successful
-        if (result > 0) {
-            syncToFirebase("patient", patient);
+    private <T> void invalidateChanged(String table, List<T> changed, java.util.function.Function<T, String> idOf,
+                                       List<String> removedIds) {
+        List<String> ids = new ArrayList<>(removedIds);
+        for (T item : changed) {
+            ids.add(idOf.apply(item));
         }
-        
-        return result > 0;
+        cache.invalidate(table, ids);
     }
 
-    // ==================== MEDICINE MANAGEMENT METHODS ====================
+    /**
+     * Latest Firebase updated_at (server millis) already applied for a collection
+     * ("patients", "prescriptions" or "medicines"), or 0 if it has never been synced
+     */
+    public long getSyncHighWaterMark(String collection) {
+        return syncStateDao.getHighWaterMark(collection);
+    }
 
     /**
-     * Add a new medicine to the inventory
+     * Push queued local writes to Firebase now, skipping any retry backoff
      */
-    public boolean addMedicine1(com.example.h_cas.models.Medicine medicine) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_MEDICINE_ID, medicine.getMedicineId());
-        values.put(COLUMN_MEDICINE_NAME, medicine.getMedicineName());
-        values.put(COLUMN_MEDICINE_DOSAGE, medicine.getDosage());
-        values.put(COLUMN_STOCK_QUANTITY, medicine.getStockQuantity());
-        values.put(COLUMN_UNIT, medicine.getUnit());
-        values.put(COLUMN_CATEGORY, medicine.getCategory());
-        values.put(COLUMN_DESCRIPTION, medicine.getDescription());
-        values.put(COLUMN_EXPIRY_DATE, medicine.getExpiryDate());
-        values.put(COLUMN_PRICE, medicine.getPrice());
-        values.put(COLUMN_SUPPLIER, medicine.getSupplier());
-        
-        long result = db.insert(TABLE_MEDICINES, null, values);
-        // Don't close database - reuse connection
-        
-        return result != -1;
+    public void drainOutbox() {
+        outboxDrainer.drainNow();
     }
 
     /**
-     * Get all medicines from inventory
+     * Number of local writes still waiting to be pushed to Firebase
      */
-    public List<com.example.h_cas.models.Medicine> getAllMedicines() {
-        List<com.example.h_cas.models.Medicine> medicines = new ArrayList<>();
-        String query = "SELECT * FROM " + TABLE_MEDICINES + " ORDER BY " + COLUMN_MEDICINE_NAME;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                com.example.h_cas.models.Medicine medicine = new com.example.h_cas.models.Medicine();
-                medicine.setMedicineId(cursor.isNull(0) ? null : cursor.getString(0));
-                medicine.setMedicineName(cursor.isNull(1) ? null : cursor.getString(1));
-                medicine.setDosage(cursor.isNull(2) ? null : cursor.getString(2));
-                medicine.setStockQuantity(cursor.isNull(3) ? 0 : cursor.getInt(3));
-                medicine.setUnit(cursor.isNull(4) ? null : cursor.getString(4));
-                medicine.setCategory(cursor.isNull(5) ? null : cursor.getString(5));
-                medicine.setDescription(cursor.isNull(6) ? null : cursor.getString(6));
-                medicine.setExpiryDate(cursor.isNull(7) ? null : cursor.getString(7));
-                medicine.setPrice(cursor.isNull(8) ? 0.0 : cursor.getDouble(8));
-                medicine.setSupplier(cursor.isNull(9) ? null : cursor.getString(9));
-                
-                medicines.add(medicine);
-            } while (cursor.moveToNext());
-        }
-        
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return medicines;
+    public int getOutboxDepth() {
+        return outboxDao.count();
+    }
+
+    /**
+     * How long the oldest write in the last pushed batch waited in the outbox, in ms
+     */
+    public long getLastOutboxDrainLatencyMs() {
+        return outboxDrainer.getLastDrainLatencyMs();
     }
 
     /**
      * Get medicines with low stock (10 or less)
      */
     public List<com.example.h_cas.models.Medicine> getLowStockMedicines() {
-        List<com.example.h_cas.models.Medicine> medicines = new ArrayList<>();
-        String query = "SELECT * FROM " + TABLE_MEDICINES + 
-                      " WHERE " + COLUMN_STOCK_QUANTITY + " <= 10 ORDER BY " + COLUMN_STOCK_QUANTITY;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                com.example.h_cas.models.Medicine medicine = new com.example.h_cas.models.Medicine();
-                medicine.setMedicineId(cursor.isNull(0) ? null : cursor.getString(0));
-                medicine.setMedicineName(cursor.isNull(1) ? null : cursor.getString(1));
-                medicine.setDosage(cursor.isNull(2) ? null : cursor.getString(2));
-                medicine.setStockQuantity(cursor.isNull(3) ? 0 : cursor.getInt(3));
-                medicine.setUnit(cursor.isNull(4) ? null : cursor.getString(4));
-                medicine.setCategory(cursor.isNull(5) ? null : cursor.getString(5));
-                medicine.setDescription(cursor.isNull(6) ? null : cursor.getString(6));
-                medicine.setExpiryDate(cursor.isNull(7) ? null : cursor.getString(7));
-                medicine.setPrice(cursor.isNull(8) ? 0.0 : cursor.getDouble(8));
-                medicine.setSupplier(cursor.isNull(9) ? null : cursor.getString(9));
-                
-                medicines.add(medicine);
-            } while (cursor.moveToNext());
-        }
-        
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return medicines;
+        return cache.getList("medicines:lowStock", () -> medicineDao.findLowStock(10),
+                             com.example.h_cas.models.Medicine::copy, TABLE_MEDICINES);
     }
 
     /**
      * Get medicines expiring soon (within 30 days)
      */
     public List<com.example.h_cas.models.Medicine> getExpiringSoonMedicines() {
-        List<com.example.h_cas.models.Medicine> medicines = new ArrayList<>();
-        // For demo purposes, we'll consider medicines expiring in 2024 as expiring soon
-        String query = "SELECT * FROM " + TABLE_MEDICINES + 
-                      " WHERE " + COLUMN_EXPIRY_DATE + " LIKE '%2024%' ORDER BY " + COLUMN_EXPIRY_DATE;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                com.example.h_cas.models.Medicine medicine = new com.example.h_cas.models.Medicine();
-                medicine.setMedicineId(cursor.isNull(0) ? null : cursor.getString(0));
-                medicine.setMedicineName(cursor.isNull(1) ? null : cursor.getString(1));
-                medicine.setDosage(cursor.isNull(2) ? null : cursor.getString(2));
-                medicine.setStockQuantity(cursor.isNull(3) ? 0 : cursor.getInt(3));
-                medicine.setUnit(cursor.isNull(4) ? null : cursor.getString(4));
-                medicine.setCategory(cursor.isNull(5) ? null : cursor.getString(5));
-                medicine.setDescription(cursor.isNull(6) ? null : cursor.getString(6));
-                medicine.setExpiryDate(cursor.isNull(7) ? null : cursor.getString(7));
-                medicine.setPrice(cursor.isNull(8) ? 0.0 : cursor.getDouble(8));
-                medicine.setSupplier(cursor.isNull(9) ? null : cursor.getString(9));
-                
-                medicines.add(medicine);
-            } while (cursor.moveToNext());
-        }
-        
-        if (cursor != null) {
-            cursor.close();
-        }
-        // Don't close database - reuse connection
-        return medicines;
+        // Range predicate (instead of LIKE) so idx_medicines_expiry can be used
+        java.util.Calendar cal = java.util.Calendar.getInstance();
+        cal.add(java.util.Calendar.DAY_OF_MONTH, 30);
+        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US);
+        return medicineDao.findExpiringBefore(sdf.format(cal.getTime()));
     }
 
-    /**
-     * Update medicine information
-     */
     /**
      * Update medicine in database and sync to Firebase
      */
     public boolean updateMedicine(com.example.h_cas.models.Medicine medicine) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_MEDICINE_NAME, medicine.getMedicineName());
-        values.put(COLUMN_MEDICINE_DOSAGE, medicine.getDosage());
-        values.put(COLUMN_STOCK_QUANTITY, medicine.getStockQuantity());
-        values.put(COLUMN_UNIT, medicine.getUnit());
-        values.put(COLUMN_CATEGORY, medicine.getCategory());
-        values.put(COLUMN_DESCRIPTION, medicine.getDescription());
-        values.put(COLUMN_EXPIRY_DATE, medicine.getExpiryDate());
-        values.put(COLUMN_PRICE, medicine.getPrice());
-        values.put(COLUMN_SUPPLIER, medicine.getSupplier());
-        
-        int result = db.update(TABLE_MEDICINES, values, COLUMN_MEDICINE_ID + " = ?",
-                              new String[]{medicine.getMedicineId()});
-        // Don't close database - reuse connection
-        
-        // Sync to Firebase in background thread to avoid blocking
-        if (result > 0) {
-            final com.example.h_cas.models.Medicine medicineToSync = medicine;
-            new Thread(() -> {
-                syncToFirebase("medicine", medicineToSync);
-            }).start();
-        }
-        
-        return result > 0;
+        return writeAndEnqueue(TABLE_MEDICINES, medicine.getMedicineId(), FirebaseSyncManager.medicineToFirebase(medicine), () -> {
+            com.example.h_cas.models.Medicine previous = medicineDao.findById(medicine.getMedicineId());
+            if (previous == null || medicineDao.update(medicine) == 0) {
+                return false;
+            }
+            int change = medicine.getStockQuantity() - previous.getStockQuantity();
+            return change == 0 || recordInventoryEvent(new InventoryEvent(InventoryEvent.TYPE_ADJUST, medicine, change));
+        });
     }
 
     /**
-     * Delete medicine from inventory
+     * Delete medicine from inventory, recording its remaining stock as disposed. Firebase
+     * gets a tombstone so other devices apply the delete on their next incremental sync.
      */
     public boolean deleteMedicine(String medicineId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int result = db.delete(TABLE_MEDICINES, COLUMN_MEDICINE_ID + " = ?", new String[]{medicineId});
-        // Don't close database - reuse connection
-        
-        return result > 0;
-    }
-
-    /**
-     * Get medicine by ID
-     */
-    public com.example.h_cas.models.Medicine getMedicineById(String medicineId) {
-        String query = "SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_ID + " = ?";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, new String[]{medicineId});
-        
-        com.example.h_cas.models.Medicine medicine = null;
-        if (cursor.moveToFirst()) {
-            medicine = new com.example.h_cas.models.Medicine();
-            medicine.setMedicineId(cursor.getString(0));
-            medicine.setMedicineName(cursor.getString(1));
-            medicine.setDosage(cursor.getString(2));
-            medicine.setStockQuantity(cursor.getInt(3));
-            medicine.setUnit(cursor.getString(4));
-            medicine.setCategory(cursor.getString(5));
-            medicine.setDescription(cursor.getString(6));
-            medicine.setExpiryDate(cursor.getString(7));
-            medicine.setPrice(cursor.getDouble(8));
-            medicine.setSupplier(cursor.getString(9));
-        }
-        
-        cursor.close();
-        db.close();
-        return medicine;
+        return writeAndEnqueue(TABLE_MEDICINES, medicineId, FirebaseHelper.tombstone(), () -> {
+            com.example.h_cas.models.Medicine medicine = medicineDao.findById(medicineId);
+            if (medicine == null || medicineDao.delete(medicineId) == 0) {
+                return false;
+            }
+            int disposed = medicine.getStockQuantity();
+            medicine.setStockQuantity(0);
+            InventoryEvent event = new InventoryEvent(InventoryEvent.TYPE_DISPOSE, medicine, -disposed);
+            String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US).format(new java.util.Date());
+            boolean expired = medicine.getExpiryDate() != null && medicine.getExpiryDate().compareTo(today) < 0;
+            event.setNote(expired ? "Expired stock disposed" : "Removed from inventory");
+            return recordInventoryEvent(event);
+        });
     }
 
     /**
      * Get total count of medicines
      */
     public int getTotalMedicinesCount() {
-        String query = "SELECT COUNT(*) FROM " + TABLE_MEDICINES;
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
-        }
-        
-        cursor.close();
-        db.close();
-        return count;
+        return medicineCounts(DEFAULT_MINIMUM_STOCK, DEFAULT_EXPIRY_MONTHS)[0];
     }
 
     /**
      * Get count of low stock medicines (optimized - uses database query instead of loading all)
      */
     public int getLowStockMedicinesCount(int minimumStock) {
-        String query = "SELECT COUNT(*) FROM " + TABLE_MEDICINES + 
-                      " WHERE " + COLUMN_STOCK_QUANTITY + " <= ?";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(query, new String[]{String.valueOf(minimumStock)});
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
-            return count;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Don't close database - reuse connection
-        }
+        return medicineCounts(minimumStock, DEFAULT_EXPIRY_MONTHS)[1];
     }
-    
+
     /**
      * Get count of low stock medicines (default threshold of 10)
      */
     public int getLowStockMedicinesCount() {
-        return getLowStockMedicinesCount(10);
+        return getLowStockMedicinesCount(DEFAULT_MINIMUM_STOCK);
     }
-    
+
     /**
      * Get count of expiring medicines (optimized - uses database query)
      */
     public int getExpiringSoonMedicinesCount(int thresholdMonths) {
-        // Calculate expiry date threshold
+        return medicineCounts(DEFAULT_MINIMUM_STOCK, thresholdMonths)[2];
+    }
+
+    // ==================== DASHBOARD STATISTICS ====================
+
+    /**
+     * Every dashboard and report counter in one snapshot. Each table is counted by one
+     * grouped query and the result is kept in memory until a write touches that table,
+     * so after a write only the affected table is counted again.
+     *
+     * @param minimumStock          stock at or below this is "low"
+     * @param expiryThresholdMonths medicines expiring within this many months are "expiring soon"
+     */
+    public com.example.h_cas.models.DashboardStats getDashboardStats(int minimumStock, int expiryThresholdMonths) {
+        int[] patients = patientCounts();
+        int[] medicines = medicineCounts(minimumStock, expiryThresholdMonths);
+        return new com.example.h_cas.models.DashboardStats(employeeCounts(), patients[0], patients[1],
+                                                           prescriptionCounts(), medicines[0], medicines[1],
+                                                           medicines[2]);
+    }
+
+    /**
+     * Dashboard snapshot with the default low-stock and expiry thresholds
+     */
+    public com.example.h_cas.models.DashboardStats getDashboardStats() {
+        return getDashboardStats(DEFAULT_MINIMUM_STOCK, DEFAULT_EXPIRY_MONTHS);
+    }
+
+    // The arrays and maps below are shared through the cache; callers must not modify them
+
+    private Map<String, Integer> employeeCounts() {
+        return cache.getValue("stats:employees",
+                              () -> java.util.Collections.unmodifiableMap(employeeDao.countActiveByRole()),
+                              TABLE_EMPLOYEES);
+    }
+
+    // {total, without prescriptions}
+    private int[] patientCounts() {
+        return cache.getValue("stats:patients", patientDao::countTotals, TABLE_PATIENTS, TABLE_PRESCRIPTIONS);
+    }
+
+    private Map<String, Integer> prescriptionCounts() {
+        return cache.getValue("stats:prescriptions",
+                              () -> java.util.Collections.unmodifiableMap(prescriptionDao.countByStatus()),
+                              TABLE_PRESCRIPTIONS);
+    }
+
+    // {total, low stock, expiring soon}
+    private int[] medicineCounts(int minimumStock, int expiryThresholdMonths) {
         java.util.Calendar cal = java.util.Calendar.getInstance();
-        cal.add(java.util.Calendar.MONTH, thresholdMonths);
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault());
-        String thresholdDate = sdf.format(cal.getTime());
-        
-        String query = "SELECT COUNT(*) FROM " + TABLE_MEDICINES + 
-                      " WHERE " + COLUMN_EXPIRY_DATE + " <= ? AND " + COLUMN_EXPIRY_DATE + " IS NOT NULL";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+        cal.add(java.util.Calendar.MONTH, expiryThresholdMonths);
+        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US);
+        String expiringBy = sdf.format(cal.getTime());
+        return cache.getValue("stats:medicines:" + minimumStock + ":" + expiringBy,
+                              () -> medicineDao.countTotals(minimumStock, expiringBy), TABLE_MEDICINES);
+    }
+
+    // ==================== REPORTS ====================
+    // Served from the rollup tables (see ReportRollups); fromDate inclusive, toDate
+    // exclusive, both yyyy-MM-dd and null for an open end
+
+    /**
+     * Registrations, gender split and average age for patients created in the period
+     */
+    public com.example.h_cas.models.PatientReportStats getPatientReportStats(String fromDate, String toDate) {
+        return cache.getValue("report:patients:" + fromDate + ":" + toDate,
+                              () -> reportDao.patientStats(fromDate, toDate), TABLE_PATIENTS);
+    }
+
+    /**
+     * Prescriptions written in the period by status, doctor and medication
+     */
+    public com.example.h_cas.models.PrescriptionReportStats getPrescriptionReportStats(String fromDate, String toDate) {
+        return cache.getValue("report:prescriptions:" + fromDate + ":" + toDate,
+                              () -> reportDao.prescriptionStats(fromDate, toDate), TABLE_PRESCRIPTIONS);
+    }
+
+    /**
+     * Current stock value by category and the RFID dispenses of the period
+     */
+    public com.example.h_cas.models.InventoryReportStats getInventoryReportStats(String fromDate, String toDate) {
+        return cache.getValue("report:inventory:" + fromDate + ":" + toDate,
+                              () -> reportDao.inventoryStats(fromDate, toDate), TABLE_MEDICINES, TABLE_RFID_DATA);
+    }
+
+    // RFID Management Methods
+
+    /**
+     * Write prescription data to RFID
+     */
+    public boolean writePrescriptionToRFID(String rfidTagId, com.example.h_cas.models.Prescription prescription) {
+        long result = rfidDao.insert(rfidTagId, prescription);
+        cache.invalidate(TABLE_RFID_DATA, rfidTagId);
+        rfidTags.remove(rfidTagId);
+        return result != -1;
+    }
+
+    /**
+     * Write the prescriptions of one encounter to their tags in a single transaction:
+     * either every tag in assignments (tag id -> prescription) is registered or none is,
+     * e.g. when a tag id is already in use. Call off the main thread.
+     */
+    public boolean writePrescriptionsToRFID(java.util.Map<String, com.example.h_cas.models.Prescription> assignments) {
+        SQLiteDatabase db = getWritableDatabase();
+        boolean written = true;
+        db.beginTransactionNonExclusive();
         try {
-            cursor = db.rawQuery(query, new String[]{thresholdDate});
-            
-            int count = 0;
-            if (cursor.moveToFirst()) {
-                count = cursor.getInt(0);
+            for (java.util.Map.Entry<String, com.example.h_cas.models.Prescription> assignment : assignments.entrySet()) {
+                if (rfidDao.insert(assignment.getKey(), assignment.getValue()) == -1) {
+                    written = false;
+                    break;
+                }
+            }
+            if (written) {
+                db.setTransactionSuccessful();
             }
-            return count;
         } finally {
-            if (cursor != null) {
-                cursor.close();
+            db.endTransaction();
+        }
+
+        if (written) {
+            for (String rfidTagId : assignments.keySet()) {
+                cache.invalidate(TABLE_RFID_DATA, rfidTagId);
+                rfidTags.remove(rfidTagId);
             }
-            // Don't close database - reuse connection
         }
+        return written;
+    }
+
+    /**
+     * Read the undispensed prescription on an RFID tag, or null if there is none. Served
+     * from the in-memory tag index; only a tag missing from the index is queried.
+     */
+    public com.example.h_cas.models.RFIDData readPrescriptionFromRFID(String rfidTagId) {
+        com.example.h_cas.models.RFIDData indexed = rfidTags.get(rfidTagId);
+        if (indexed != null) {
+            return indexed;
+        }
+        long version = rfidTags.beginLoad();
+        com.example.h_cas.models.RFIDData row = rfidDao.findUndispensed(rfidTagId);
+        rfidTags.put(version, row);
+        return row;
+    }
+
+    /**
+     * Whether the scan index has been preloaded
+     */
+    public boolean isRfidTagIndexLoaded() {
+        return rfidTags.isLoaded();
+    }
+
+    /**
+     * Load every undispensed tag into the scan index. Runs once at startup and again
+     * after the index is cleared; call off the main thread.
+     */
+    public void preloadRfidTags() {
+        long version = rfidTags.beginLoad();
+        java.util.List<com.example.h_cas.models.RFIDData> rows = rfidDao.findAllUndispensed();
+        if (rfidTags.load(version, rows)) {
+            Log.d("HCasDatabaseHelper", "Indexed " + rows.size() + " undispensed RFID tags");
+        }
+    }
+
+    /**
+     * Mark prescription as dispensed, deducting one unit of its medicine
+     *
+     * @see #dispense(String, String, int)
+     */
+    public boolean markPrescriptionAsDispensed(String rfidTagId, String pharmacistName) {
+        return dispense(rfidTagId, pharmacistName, 1).isDispensed();
+    }
+
+    /**
+     * Dispense quantity units for a prescription tag as one transaction: the tag is marked
+     * only if it is still undispensed, stock is taken only if enough is left, and the
+     * dispense is appended to the ledger. Both updates are conditional, so a concurrent
+     * dispense or an inbound sync can neither be overwritten nor make stock negative.
+     * Nothing is written unless every step succeeds. Call off the main thread.
+     */
+    public DispenseResult dispense(String rfidTagId, String pharmacistName, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive: " + quantity);
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        String medicineId = null;
+        DispenseResult result;
+        db.beginTransactionNonExclusive();
+        try {
+            com.example.h_cas.models.RFIDData tag = rfidDao.findUndispensed(rfidTagId);
+            com.example.h_cas.models.Medicine medicine =
+                tag != null ? medicineDao.findByName(tag.getMedicineName()) : null;
+            if (tag == null || rfidDao.markDispensed(rfidTagId, pharmacistName, getCurrentDateTime()) == 0) {
+                result = DispenseResult.failed(DispenseResult.Status.TAG_NOT_AVAILABLE);
+            } else if (medicine == null) {
+                result = DispenseResult.failed(DispenseResult.Status.NOT_IN_INVENTORY);
+            } else if (medicineDao.takeStock(medicine.getMedicineId(), quantity) == 0) {
+                result = DispenseResult.failed(DispenseResult.Status.INSUFFICIENT_STOCK);
+            } else {
+                // The transaction holds the write lock, so nothing changed the row since it was read
+                medicine.setStockQuantity(medicine.getStockQuantity() - quantity);
+                InventoryEvent event = new InventoryEvent(InventoryEvent.TYPE_DISPENSE, medicine, -quantity);
+                event.setReference(tag.getPrescriptionId());
+                event.setActor(pharmacistName);
+                event.setNote("Given to " + tag.getPatientName());
+                result = recordInventoryEvent(event)
+                    ? new DispenseResult(DispenseResult.Status.DISPENSED, medicine.getStockQuantity(), medicine.getUnit())
+                    : DispenseResult.failed(DispenseResult.Status.FAILED);
+                medicineId = medicine.getMedicineId();
+            }
+            if (result.isDispensed()) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            db.endTransaction();
+        }
+
+        if (result.isDispensed()) {
+            cache.invalidate(TABLE_RFID_DATA, rfidTagId);
+            cache.invalidate(TABLE_MEDICINES, medicineId);
+        }
+        if (result.isDispensed() || result.getStatus() == DispenseResult.Status.TAG_NOT_AVAILABLE) {
+            // Dispensed now or already dispensed elsewhere; either way no longer scannable
+            rfidTags.remove(rfidTagId);
+        }
+        return result;
+    }
+
+    /**
+     * Get one page of the inventory ledger, newest first. Filters are optional: pass
+     * null (or false) to skip them.
+     *
+     * @param medicineId  only events of this medicine
+     * @param eventTypes  only events of these {@link InventoryEvent} types
+     * @param expiredOnly only events recorded after the medicine had expired
+     */
+    public Page<InventoryEvent> getInventoryEventsPage(String medicineId, java.util.Collection<String> eventTypes,
+                                                       boolean expiredOnly, Page.Key after, int pageSize) {
+        return inventoryEventDao.findPage(medicineId, eventTypes, expiredOnly, after, pageSize);
+    }
+
+    /**
+     * Get current date time
+     */
+    private String getCurrentDateTime() {
+        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault());
+        return sdf.format(new java.util.Date());
     }
-}
 
+    /**
+     * Insert sample medicines for testing
+     */
+    private void insertSampleMedicines(SQLiteDatabase db) {
+        // Sample medicines
+        String[][] medicines = {
+            {"MED001", "Paracetamol", "500mg", "100", "tablets", "Pain Relief", "Pain reliever and fever reducer", "2025-12-31", "5.00", "MedSupply Co."},
+            {"MED002", "Amoxicillin", "250mg", "50", "capsules", "Antibiotic", "Antibiotic for bacterial infections", "2025-11-30", "15.00", "PharmaCorp"},
+            {"MED003", "Ibuprofen", "400mg", "75", "tablets", "Pain Relief", "Anti-inflammatory pain reliever", "2025-10-31", "8.50", "MedSupply Co."},
+            {"MED004", "Metformin", "500mg", "30", "tablets", "Diabetes", "Diabetes medication", "2025-09-30", "12.00", "DiabeticCare"},
+            {"MED005", "Lisinopril", "10mg", "40", "tablets", "Cardiovascular", "Blood pressure medication", "2025-08-31", "18.00", "CardioPharm"}
+        };
+
+        for (String[] medicine : medicines) {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_MEDICINE_ID, medicine[0]);
+            values.put(COLUMN_MEDICINE_NAME, medicine[1]);
+            values.put(COLUMN_MEDICINE_DOSAGE, medicine[2]);
+            values.put(COLUMN_STOCK_QUANTITY, Integer.parseInt(medicine[3]));
+            values.put(COLUMN_UNIT, medicine[4]);
+            values.put(COLUMN_CATEGORY, medicine[5]);
+            values.put(COLUMN_DESCRIPTION, medicine[6]);
+            values.put(COLUMN_EXPIRY_DATE, medicine[7]);
+            values.put(COLUMN_PRICE, Double.parseDouble(medicine[8]));
+            values.put(COLUMN_SUPPLIER, medicine[9]);
+            
+            db.insert(TABLE_MEDICINES, null, values);
+        }
+    }
+    
+}
@@ -0,0 +1,140 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.h_cas.models.InventoryEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * InventoryEventDao owns the SQL for the inventory_events ledger. Rows are only ever
+ * appended, inside the transaction of the stock change they record.
+ */
+class InventoryEventDao extends BaseDao {
+
+    private static final String SQL_APPEND =
+        "INSERT INTO " + TABLE_INVENTORY_EVENTS + " (" +
+        COLUMN_MEDICINE_ID + ", " + COLUMN_MEDICINE_NAME + ", " + COLUMN_MEDICINE_DOSAGE + ", " +
+        COLUMN_UNIT + ", " + COLUMN_EXPIRY_DATE + ", " + COLUMN_EVENT_TYPE + ", " + COLUMN_EVENT_QUANTITY + ", " +
+        COLUMN_EVENT_STOCK_AFTER + ", " + COLUMN_EVENT_REFERENCE + ", " + COLUMN_EVENT_ACTOR + ", " +
+        COLUMN_EVENT_NOTE + ", " + COLUMN_EVENT_TS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String FROM = "SELECT * FROM " + TABLE_INVENTORY_EVENTS;
+
+    InventoryEventDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    /**
+     * Append an event; call inside the transaction that changed the stock
+     */
+    long append(InventoryEvent event) {
+        return executeInsert(SQL_APPEND, statement -> {
+            bindNullable(statement, 1, event.getMedicineId());
+            bindNullable(statement, 2, event.getMedicineName());
+            bindNullable(statement, 3, event.getDosage());
+            bindNullable(statement, 4, event.getUnit());
+            bindNullable(statement, 5, event.getExpiryDate());
+            bindNullable(statement, 6, event.getEventType());
+            statement.bindLong(7, event.getQuantity());
+            if (event.getStockAfter() != null) {
+                statement.bindLong(8, event.getStockAfter());
+            } else {
+                statement.bindNull(8);
+            }
+            bindNullable(statement, 9, event.getReference());
+            bindNullable(statement, 10, event.getActor());
+            bindNullable(statement, 11, event.getNote());
+            bindNullable(statement, 12, event.getTimestamp());
+        });
+    }
+
+    /**
+     * One page of events, newest first. Each filter is optional (null / false to skip).
+     *
+     * @param medicineId  only events of this medicine
+     * @param eventTypes  only events of these types
+     * @param expiredOnly only events recorded after the medicine's expiry date
+     */
+    Page<InventoryEvent> findPage(String medicineId, Collection<String> eventTypes, boolean expiredOnly,
+                                  Page.Key after, int pageSize) {
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        if (medicineId != null) {
+            conditions.add(COLUMN_MEDICINE_ID + " = ?");
+            args.add(medicineId);
+        }
+        if (eventTypes != null) {
+            if (eventTypes.isEmpty()) {
+                return new Page<>(new ArrayList<>(), null);
+            }
+            StringBuilder placeholders = new StringBuilder();
+            for (String type : eventTypes) {
+                if (placeholders.length() > 0) placeholders.append(", ");
+                placeholders.append("?");
+                args.add(type);
+            }
+            conditions.add(COLUMN_EVENT_TYPE + " IN (" + placeholders + ")");
+        }
+        if (expiredOnly) {
+            conditions.add(COLUMN_EXPIRY_DATE + " IS NOT NULL AND " + COLUMN_EXPIRY_DATE +
+                           " < substr(" + COLUMN_EVENT_TS + ", 1, 10)");
+        }
+
+        return queryPage(FROM, String.join(" AND ", conditions), args,
+                         COLUMN_EVENT_TS, COLUMN_EVENT_ID, true,
+                         after, pageSize, Mapper::new, Mapper::keyOf);
+    }
+
+    /**
+     * Maps an inventory_events row
+     */
+    static final class Mapper implements RowMapper<InventoryEvent> {
+        private final int id, medicineId, name, dosage, unit, expiryDate, type, quantity, stockAfter,
+                          reference, actor, note, ts;
+
+        Mapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_EVENT_ID);
+            medicineId = cursor.getColumnIndex(COLUMN_MEDICINE_ID);
+            name = cursor.getColumnIndex(COLUMN_MEDICINE_NAME);
+            dosage = cursor.getColumnIndex(COLUMN_MEDICINE_DOSAGE);
+            unit = cursor.getColumnIndex(COLUMN_UNIT);
+            expiryDate = cursor.getColumnIndex(COLUMN_EXPIRY_DATE);
+            type = cursor.getColumnIndex(COLUMN_EVENT_TYPE);
+            quantity = cursor.getColumnIndex(COLUMN_EVENT_QUANTITY);
+            stockAfter = cursor.getColumnIndex(COLUMN_EVENT_STOCK_AFTER);
+            reference = cursor.getColumnIndex(COLUMN_EVENT_REFERENCE);
+            actor = cursor.getColumnIndex(COLUMN_EVENT_ACTOR);
+            note = cursor.getColumnIndex(COLUMN_EVENT_NOTE);
+            ts = cursor.getColumnIndex(COLUMN_EVENT_TS);
+        }
+
+        @Override
+        public InventoryEvent map(Cursor cursor) {
+            InventoryEvent event = new InventoryEvent();
+            event.setEventId(cursor.getLong(id));
+            event.setMedicineId(getString(cursor, medicineId));
+            event.setMedicineName(getString(cursor, name));
+            event.setDosage(getString(cursor, dosage));
+            event.setUnit(getString(cursor, unit));
+            event.setExpiryDate(getString(cursor, expiryDate));
+            event.setEventType(getString(cursor, type));
+            event.setQuantity(getInt(cursor, quantity, 0));
+            event.setStockAfter(cursor.isNull(stockAfter) ? null : cursor.getInt(stockAfter));
+            event.setReference(getString(cursor, reference));
+            event.setActor(getString(cursor, actor));
+            event.setNote(getString(cursor, note));
+            event.setTimestamp(getString(cursor, ts));
+            return event;
+        }
+
+        static Page.Key keyOf(InventoryEvent event) {
+            return new Page.Key(event.getTimestamp(), String.valueOf(event.getEventId()));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.h_cas.models.Medicine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * MedicineDao owns the SQL for the medicines inventory table.
+ */
+class MedicineDao extends BaseDao {
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + TABLE_MEDICINES + " (" +
+        COLUMN_MEDICINE_ID + ", " + COLUMN_MEDICINE_NAME + ", " + COLUMN_MEDICINE_DOSAGE + ", " +
+        COLUMN_STOCK_QUANTITY + ", " + COLUMN_UNIT + ", " + COLUMN_CATEGORY + ", " + COLUMN_DESCRIPTION + ", " +
+        COLUMN_EXPIRY_DATE + ", " + COLUMN_PRICE + ", " + COLUMN_SUPPLIER + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPDATE =
+        "UPDATE " + TABLE_MEDICINES + " SET " +
+        COLUMN_MEDICINE_NAME + " = ?, " + COLUMN_MEDICINE_DOSAGE + " = ?, " + COLUMN_STOCK_QUANTITY + " = ?, " +
+        COLUMN_UNIT + " = ?, " + COLUMN_CATEGORY + " = ?, " + COLUMN_DESCRIPTION + " = ?, " +
+        COLUMN_EXPIRY_DATE + " = ?, " + COLUMN_PRICE + " = ?, " + COLUMN_SUPPLIER + " = ?" +
+        " WHERE " + COLUMN_MEDICINE_ID + " = ?";
+
+    private static final String SQL_UPDATE_STOCK_BY_NAME =
+        "UPDATE " + TABLE_MEDICINES + " SET " + COLUMN_STOCK_QUANTITY + " = ? WHERE " + COLUMN_MEDICINE_NAME + " = ?";
+
+    // Takes stock only if enough is left, so concurrent dispenses cannot oversell
+    private static final String SQL_TAKE_STOCK =
+        "UPDATE " + TABLE_MEDICINES + " SET " + COLUMN_STOCK_QUANTITY + " = " + COLUMN_STOCK_QUANTITY + " - ?" +
+        " WHERE " + COLUMN_MEDICINE_ID + " = ? AND " + COLUMN_STOCK_QUANTITY + " >= ?";
+
+    private static final String SQL_DELETE =
+        "DELETE FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_ID + " = ?";
+
+    private static final String SQL_COUNT = "SELECT COUNT(*) FROM " + TABLE_MEDICINES;
+
+    // Total, low-stock and expiring medicines in one pass over the table
+    private static final String SQL_COUNT_TOTALS =
+        "SELECT COUNT(*), SUM(" + COLUMN_STOCK_QUANTITY + " <= ?), " +
+        "SUM(" + COLUMN_EXPIRY_DATE + " IS NOT NULL AND " + COLUMN_EXPIRY_DATE + " <= ?) FROM " + TABLE_MEDICINES;
+
+    MedicineDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    private static void bindInsert(SQLiteStatement statement, Medicine medicine) {
+        bindNullable(statement, 1, medicine.getMedicineId());
+        bindNullable(statement, 2, medicine.getMedicineName());
+        bindNullable(statement, 3, medicine.getDosage());
+        statement.bindLong(4, medicine.getStockQuantity());
+        bindNullable(statement, 5, medicine.getUnit());
+        bindNullable(statement, 6, medicine.getCategory());
+        bindNullable(statement, 7, medicine.getDescription());
+        bindNullable(statement, 8, medicine.getExpiryDate());
+        statement.bindDouble(9, medicine.getPrice());
+        bindNullable(statement, 10, medicine.getSupplier());
+    }
+
+    private static void bindUpdate(SQLiteStatement statement, Medicine medicine) {
+        bindNullable(statement, 1, medicine.getMedicineName());
+        bindNullable(statement, 2, medicine.getDosage());
+        statement.bindLong(3, medicine.getStockQuantity());
+        bindNullable(statement, 4, medicine.getUnit());
+        bindNullable(statement, 5, medicine.getCategory());
+        bindNullable(statement, 6, medicine.getDescription());
+        bindNullable(statement, 7, medicine.getExpiryDate());
+        statement.bindDouble(8, medicine.getPrice());
+        bindNullable(statement, 9, medicine.getSupplier());
+        bindNullable(statement, 10, medicine.getMedicineId());
+    }
+
+    long insert(Medicine medicine) {
+        return executeInsert(SQL_INSERT, statement -> bindInsert(statement, medicine));
+    }
+
+    int update(Medicine medicine) {
+        return executeUpdateDelete(SQL_UPDATE, statement -> bindUpdate(statement, medicine));
+    }
+
+    int upsertAll(List<Medicine> medicines) {
+        return upsertAll(medicines, SQL_UPDATE, MedicineDao::bindUpdate, SQL_INSERT, MedicineDao::bindInsert);
+    }
+
+    int deleteAll(List<String> medicineIds) {
+        return deleteAll(SQL_DELETE, medicineIds);
+    }
+
+    int updateStockByName(String medicineName, int newStock) {
+        return executeUpdateDelete(SQL_UPDATE_STOCK_BY_NAME, statement -> {
+            statement.bindLong(1, newStock);
+            bindNullable(statement, 2, medicineName);
+        });
+    }
+
+    /**
+     * Take quantity units from stock; returns 0 (and changes nothing) if fewer are left
+     */
+    int takeStock(String medicineId, int quantity) {
+        return executeUpdateDelete(SQL_TAKE_STOCK, statement -> {
+            statement.bindLong(1, quantity);
+            bindNullable(statement, 2, medicineId);
+            statement.bindLong(3, quantity);
+        });
+    }
+
+    int delete(String medicineId) {
+        return executeUpdateDelete(SQL_DELETE, statement -> bindNullable(statement, 1, medicineId));
+    }
+
+    Medicine findById(String medicineId) {
+        String query = "SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_ID + " = ?";
+        return queryFirst(query, new String[]{medicineId}, Mapper::new);
+    }
+
+    Medicine findByName(String medicineName) {
+        String query = "SELECT * FROM " + TABLE_MEDICINES + " WHERE " + COLUMN_MEDICINE_NAME + " = ?";
+        return queryFirst(query, new String[]{medicineName}, Mapper::new);
+    }
+
+    List<Medicine> findAll() {
+        String query = "SELECT * FROM " + TABLE_MEDICINES + " ORDER BY " + COLUMN_MEDICINE_NAME;
+        return queryList(query, null, Mapper::new);
+    }
+
+    List<Medicine> findLowStock(int maximumStock) {
+        String query = "SELECT * FROM " + TABLE_MEDICINES +
+                       " WHERE " + COLUMN_STOCK_QUANTITY + " <= ? ORDER BY " + COLUMN_STOCK_QUANTITY;
+        return queryList(query, new String[]{String.valueOf(maximumStock)}, Mapper::new);
+    }
+
+    List<Medicine> findExpiringBefore(String thresholdDate) {
+        String query = "SELECT * FROM " + TABLE_MEDICINES +
+                       " WHERE " + COLUMN_EXPIRY_DATE + " IS NOT NULL AND " + COLUMN_EXPIRY_DATE + " <= ?" +
+                       " ORDER BY " + COLUMN_EXPIRY_DATE;
+        return queryList(query, new String[]{thresholdDate}, Mapper::new);
+    }
+
+    /**
+     * One page of medicines ordered by name. Each filter is optional (null / negative to skip).
+     *
+     * @param notExpiredOn only medicines without an expiry date or expiring on/after this date
+     * @param maximumStock only medicines with stock at or below this quantity
+     * @param expiringBy   only medicines with an expiry date on or before this date
+     */
+    Page<Medicine> findPage(Page.Key after, int pageSize, String notExpiredOn, int maximumStock, String expiringBy) {
+        List<String> args = new ArrayList<>();
+        String where = buildFilter(notExpiredOn, maximumStock, expiringBy, args);
+        return queryPage("SELECT * FROM " + TABLE_MEDICINES, where, args,
+                         COLUMN_MEDICINE_NAME, COLUMN_MEDICINE_ID, false,
+                         after, pageSize, Mapper::new, Mapper::keyOf);
+    }
+
+    /**
+     * Count the medicines matching the same filters as {@link #findPage}
+     */
+    int countFiltered(String notExpiredOn, int maximumStock, String expiringBy) {
+        List<String> args = new ArrayList<>();
+        String where = buildFilter(notExpiredOn, maximumStock, expiringBy, args);
+        String sql = where.isEmpty() ? SQL_COUNT : SQL_COUNT + " WHERE " + where;
+        return (int) queryForLong(sql, args.toArray(new String[0]));
+    }
+
+    private static String buildFilter(String notExpiredOn, int maximumStock, String expiringBy, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        if (notExpiredOn != null) {
+            conditions.add("(" + COLUMN_EXPIRY_DATE + " IS NULL OR " + COLUMN_EXPIRY_DATE + " = '' OR " +
+                           COLUMN_EXPIRY_DATE + " >= ?)");
+            args.add(notExpiredOn);
+        }
+        if (maximumStock >= 0) {
+            conditions.add(COLUMN_STOCK_QUANTITY + " <= ?");
+            args.add(String.valueOf(maximumStock));
+        }
+        if (expiringBy != null) {
+            conditions.add(COLUMN_EXPIRY_DATE + " <> '' AND " + COLUMN_EXPIRY_DATE + " <= ?");
+            args.add(expiringBy);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * {total medicines, stock at or below minimumStock, expiring on or before thresholdDate}
+     */
+    int[] countTotals(int minimumStock, String thresholdDate) {
+        return queryInts(SQL_COUNT_TOTALS, String.valueOf(minimumStock), thresholdDate);
+    }
+
+    /**
+     * Maps a medicines row
+     */
+    static final class Mapper implements RowMapper<Medicine> {
+        private final int id, name, dosage, stock, unit, category, description, expiryDate, price, supplier;
+
+        Mapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_MEDICINE_ID);
+            name = cursor.getColumnIndex(COLUMN_MEDICINE_NAME);
+            dosage = cursor.getColumnIndex(COLUMN_MEDICINE_DOSAGE);
+            stock = cursor.getColumnIndex(COLUMN_STOCK_QUANTITY);
+            unit = cursor.getColumnIndex(COLUMN_UNIT);
+            category = cursor.getColumnIndex(COLUMN_CATEGORY);
+            description = cursor.getColumnIndex(COLUMN_DESCRIPTION);
+            expiryDate = cursor.getColumnIndex(COLUMN_EXPIRY_DATE);
+            price = cursor.getColumnIndex(COLUMN_PRICE);
+            supplier = cursor.getColumnIndex(COLUMN_SUPPLIER);
+        }
+
+        @Override
+        public Medicine map(Cursor cursor) {
+            Medicine medicine = new Medicine();
+            medicine.setMedicineId(getString(cursor, id));
+            medicine.setMedicineName(getString(cursor, name));
+            medicine.setDosage(getString(cursor, dosage));
+            medicine.setStockQuantity(getInt(cursor, stock, 0));
+            medicine.setUnit(getString(cursor, unit));
+            medicine.setCategory(getString(cursor, category));
+            medicine.setDescription(getString(cursor, description));
+            medicine.setExpiryDate(getString(cursor, expiryDate));
+            medicine.setPrice(getDouble(cursor, price, 0.0));
+            medicine.setSupplier(getString(cursor, supplier));
+            return medicine;
+        }
+
+        static Page.Key keyOf(Medicine medicine) {
+            return new Page.Key(medicine.getMedicineName(), medicine.getMedicineId());
+        }
+    }
+}
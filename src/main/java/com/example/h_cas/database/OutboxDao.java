@@ -0,0 +1,260 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * OutboxDao owns the SQL for the sync_outbox table, the durable queue of local writes
+ * waiting to be pushed to Firebase. Payloads are stored as JSON objects.
+ */
+class OutboxDao extends BaseDao {
+
+    private static final String TAG = "OutboxDao";
+
+    // A rejected entry that gets a different payload starts over: the rejections were
+    // for data that is no longer queued
+    private static final String SQL_REPLACE_REJECTED_PAYLOAD =
+        "UPDATE " + TABLE_SYNC_OUTBOX + " SET " + COLUMN_OUTBOX_PAYLOAD + " = ?, " + COLUMN_OUTBOX_ATTEMPTS + " = 0" +
+        " WHERE " + COLUMN_OUTBOX_COLLECTION + " = ? AND " + COLUMN_OUTBOX_ENTITY_ID + " = ? AND " +
+        COLUMN_OUTBOX_ATTEMPTS + " > 0 AND " + COLUMN_OUTBOX_PAYLOAD + " <> ?";
+
+    // Repeated writes to one record coalesce into its latest payload. The row is updated
+    // in place, so the entry keeps its queue position and enqueued_at
+    private static final String SQL_UPDATE_PAYLOAD =
+        "UPDATE " + TABLE_SYNC_OUTBOX + " SET " + COLUMN_OUTBOX_PAYLOAD + " = ?" +
+        " WHERE " + COLUMN_OUTBOX_COLLECTION + " = ? AND " + COLUMN_OUTBOX_ENTITY_ID + " = ?";
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + TABLE_SYNC_OUTBOX + " (" +
+        COLUMN_OUTBOX_COLLECTION + ", " + COLUMN_OUTBOX_ENTITY_ID + ", " +
+        COLUMN_OUTBOX_PAYLOAD + ", " + COLUMN_OUTBOX_ENQUEUED_AT + ") VALUES (?, ?, ?, ?)";
+
+    // Only if the payload is still the one that was sent; a rewrite while the batch was in
+    // flight stays queued
+    private static final String SQL_DELETE_SENT =
+        "DELETE FROM " + TABLE_SYNC_OUTBOX + " WHERE " + COLUMN_OUTBOX_ID + " = ? AND " +
+        COLUMN_OUTBOX_PAYLOAD + " = ?";
+
+    private static final String SQL_DELETE =
+        "DELETE FROM " + TABLE_SYNC_OUTBOX + " WHERE " + COLUMN_OUTBOX_ID + " = ?";
+
+    // Not counted against a payload rewritten while the batch was in flight
+    private static final String SQL_RECORD_ATTEMPT =
+        "UPDATE " + TABLE_SYNC_OUTBOX + " SET " + COLUMN_OUTBOX_ATTEMPTS + " = " + COLUMN_OUTBOX_ATTEMPTS + " + 1" +
+        " WHERE " + COLUMN_OUTBOX_ID + " = ? AND " + COLUMN_OUTBOX_PAYLOAD + " = ?";
+
+    private static final String SQL_MOVE_TO_DEAD_LETTER =
+        "INSERT OR REPLACE INTO " + TABLE_SYNC_OUTBOX_DEAD + " (" +
+        COLUMN_OUTBOX_ID + ", " + COLUMN_OUTBOX_COLLECTION + ", " + COLUMN_OUTBOX_ENTITY_ID + ", " +
+        COLUMN_OUTBOX_PAYLOAD + ", " + COLUMN_OUTBOX_ENQUEUED_AT + ", " + COLUMN_OUTBOX_ATTEMPTS + ", " +
+        COLUMN_OUTBOX_FAILED_AT + ", " + COLUMN_OUTBOX_ERROR + ") SELECT " +
+        COLUMN_OUTBOX_ID + ", " + COLUMN_OUTBOX_COLLECTION + ", " + COLUMN_OUTBOX_ENTITY_ID + ", " +
+        COLUMN_OUTBOX_PAYLOAD + ", " + COLUMN_OUTBOX_ENQUEUED_AT + ", " + COLUMN_OUTBOX_ATTEMPTS + ", ?, ?" +
+        " FROM " + TABLE_SYNC_OUTBOX + " WHERE " + COLUMN_OUTBOX_ID + " = ?";
+
+    private static final String SQL_COUNT = "SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX;
+    private static final String SQL_COUNT_DEAD = "SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX_DEAD;
+
+    /**
+     * Outcome of {@link #enqueue}
+     */
+    enum Enqueued {
+        FAILED,
+        QUEUED,
+        // Replaced the payload of an entry Firebase had rejected; it is retried from scratch
+        RETRY_RESET
+    }
+
+    /**
+     * A queued write: the latest payload for one record
+     */
+    static final class Entry {
+        final long outboxId;
+        final String collection;
+        final String entityId;
+        final Map<String, Object> payload;
+        final String payloadJson;
+        final long enqueuedAt;
+        final int attempts;
+
+        Entry(long outboxId, String collection, String entityId, String payloadJson,
+              long enqueuedAt, int attempts) {
+            this.outboxId = outboxId;
+            this.collection = collection;
+            this.entityId = entityId;
+            this.payload = fromJson(payloadJson);
+            this.payloadJson = payloadJson;
+            this.enqueuedAt = enqueuedAt;
+            this.attempts = attempts;
+        }
+    }
+
+    OutboxDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    /**
+     * Queue the latest state of a record; call inside the transaction that wrote it locally
+     */
+    Enqueued enqueue(String collection, String entityId, Map<String, Object> payload) {
+        String json = toJson(payload);
+        int reset = executeUpdateDelete(SQL_REPLACE_REJECTED_PAYLOAD, statement -> {
+            bindNullable(statement, 1, json);
+            bindNullable(statement, 2, collection);
+            bindNullable(statement, 3, entityId);
+            bindNullable(statement, 4, json);
+        });
+        if (reset > 0) {
+            return Enqueued.RETRY_RESET;
+        }
+        // minSdk 24 ships SQLite without ON CONFLICT DO UPDATE, so update first and insert on a miss
+        int updated = executeUpdateDelete(SQL_UPDATE_PAYLOAD, statement -> {
+            bindNullable(statement, 1, json);
+            bindNullable(statement, 2, collection);
+            bindNullable(statement, 3, entityId);
+        });
+        if (updated > 0) {
+            return Enqueued.QUEUED;
+        }
+        long enqueuedAt = System.currentTimeMillis();
+        long rowId = executeInsert(SQL_INSERT, statement -> {
+            bindNullable(statement, 1, collection);
+            bindNullable(statement, 2, entityId);
+            bindNullable(statement, 3, json);
+            statement.bindLong(4, enqueuedAt);
+        });
+        return rowId != -1 ? Enqueued.QUEUED : Enqueued.FAILED;
+    }
+
+    /**
+     * The oldest queued writes, in the order they were queued
+     */
+    List<Entry> findBatch(int limit) {
+        String query = "SELECT * FROM " + TABLE_SYNC_OUTBOX +
+                       " ORDER BY " + COLUMN_OUTBOX_ID + " LIMIT " + limit;
+        return queryList(query, null, Mapper::new);
+    }
+
+    /**
+     * Delete sent entries. An entry whose payload was rewritten while its batch was in
+     * flight is kept, so the newer payload is still pushed.
+     */
+    void deleteSent(List<Entry> entries) {
+        forEachInTransaction(entries, SQL_DELETE_SENT);
+    }
+
+    void recordAttempt(List<Entry> entries) {
+        forEachInTransaction(entries, SQL_RECORD_ATTEMPT);
+    }
+
+    /**
+     * Move an entry to sync_outbox_dead so it no longer holds up the entries behind it
+     */
+    void moveToDeadLetter(Entry entry, String error) {
+        SQLiteDatabase db = writable();
+        long failedAt = System.currentTimeMillis();
+        db.beginTransactionNonExclusive();
+        try {
+            executeInsert(SQL_MOVE_TO_DEAD_LETTER, statement -> {
+                statement.bindLong(1, failedAt);
+                bindNullable(statement, 2, error);
+                statement.bindLong(3, entry.outboxId);
+            });
+            executeUpdateDelete(SQL_DELETE, statement -> statement.bindLong(1, entry.outboxId));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    int count() {
+        return (int) queryForLong(SQL_COUNT);
+    }
+
+    int countDeadLetters() {
+        return (int) queryForLong(SQL_COUNT_DEAD);
+    }
+
+    /**
+     * Run sql, which takes an outbox_id and the payload that was sent, for each entry
+     */
+    private void forEachInTransaction(List<Entry> entries, String sql) {
+        SQLiteDatabase db = writable();
+        db.beginTransactionNonExclusive();
+        try {
+            for (Entry entry : entries) {
+                executeUpdateDelete(sql, statement -> {
+                    statement.bindLong(1, entry.outboxId);
+                    bindNullable(statement, 2, entry.payloadJson);
+                });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String toJson(Map<String, Object> payload) {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Object> field : payload.entrySet()) {
+                if (field.getValue() != null) {
+                    json.put(field.getKey(), field.getValue());
+                }
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Outbox payload is not JSON-serialisable", e);
+        }
+        return json.toString();
+    }
+
+    private static Map<String, Object> fromJson(String payload) {
+        Map<String, Object> fields = new HashMap<>();
+        try {
+            JSONObject json = new JSONObject(payload);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                fields.put(key, json.get(key));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Unreadable outbox payload: " + payload, e);
+        }
+        return fields;
+    }
+
+    /**
+     * Maps a sync_outbox row
+     */
+    static final class Mapper implements RowMapper<Entry> {
+        private final int outboxId, collection, entityId, payload, enqueuedAt, attempts;
+
+        Mapper(Cursor cursor) {
+            outboxId = cursor.getColumnIndex(COLUMN_OUTBOX_ID);
+            collection = cursor.getColumnIndex(COLUMN_OUTBOX_COLLECTION);
+            entityId = cursor.getColumnIndex(COLUMN_OUTBOX_ENTITY_ID);
+            payload = cursor.getColumnIndex(COLUMN_OUTBOX_PAYLOAD);
+            enqueuedAt = cursor.getColumnIndex(COLUMN_OUTBOX_ENQUEUED_AT);
+            attempts = cursor.getColumnIndex(COLUMN_OUTBOX_ATTEMPTS);
+        }
+
+        @Override
+        public Entry map(Cursor cursor) {
+            return new Entry(cursor.getLong(outboxId), getString(cursor, collection), getString(cursor, entityId),
+                             getString(cursor, payload), cursor.getLong(enqueuedAt),
+                             getInt(cursor, attempts, 0));
+        }
+    }
+}
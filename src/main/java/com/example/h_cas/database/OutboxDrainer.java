@@ -0,0 +1,191 @@
+package com.example.h_cas.database;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.example.h_cas.utils.DatabaseExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OutboxDrainer pushes the sync_outbox to Firebase Realtime Database on the network
+ * pool, one drain at a time, oldest entries first, one multi-path update per batch.
+ * A failed batch stays queued and is retried with exponential backoff. A multi-path
+ * update fails as a whole, so entries that were already rejected are retried on their
+ * own, and one Firebase rejects MAX_ATTEMPTS times is moved to the dead-letter table.
+ */
+final class OutboxDrainer {
+
+    private static final String TAG = "OutboxDrainer";
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+    private final OutboxDao outboxDao;
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    // Guarded by drain()'s lock
+    private FirebaseHelper firebaseHelper;
+    private long backoffMs;
+
+    // While a retry is scheduled, new writes wait for it instead of hammering a failing connection
+    private volatile long retryAt;
+
+    private volatile long lastDrainLatencyMs;
+    private volatile long lastBatchRoundTripMs;
+
+    OutboxDrainer(OutboxDao outboxDao) {
+        this.outboxDao = outboxDao;
+    }
+
+    /**
+     * Drain the outbox soon; call after committing a write that queued an entry
+     */
+    void requestDrain() {
+        if (SystemClock.elapsedRealtime() < retryAt) {
+            return;
+        }
+        if (drainQueued.compareAndSet(false, true)) {
+            DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.BACKGROUND,
+                                                   null, this::drain);
+        }
+    }
+
+    /**
+     * Drain the outbox now, skipping any pending backoff (e.g. once Firebase is signed in)
+     */
+    void drainNow() {
+        retryAt = 0;
+        requestDrain();
+    }
+
+    /**
+     * How long the oldest entry of the last sent batch waited in the outbox, in ms
+     */
+    long getLastDrainLatencyMs() {
+        return lastDrainLatencyMs;
+    }
+
+    /**
+     * How long the last successful multi-path update took to be acknowledged, in ms
+     */
+    long getLastBatchRoundTripMs() {
+        return lastBatchRoundTripMs;
+    }
+
+    private synchronized void drain() {
+        drainQueued.set(false);
+        if (SystemClock.elapsedRealtime() < retryAt) {
+            return;
+        }
+
+        while (true) {
+            List<OutboxDao.Entry> batch = outboxDao.findBatch(BATCH_SIZE);
+            if (batch.isEmpty()) {
+                backoffMs = 0;
+                return;
+            }
+            if (batch.get(0).attempts > 0) {
+                // Part of a rejected batch: send it alone to find out whether it is the bad one
+                batch = batch.subList(0, 1);
+            }
+
+            FirebaseHelper firebase = firebaseHelper();
+            if (firebase == null) {
+                scheduleRetry("Firebase not available");
+                return;
+            }
+
+            Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+            long oldestEnqueuedAt = Long.MAX_VALUE;
+            for (OutboxDao.Entry entry : batch) {
+                records.put(entry.collection + "/" + entry.entityId, entry.payload);
+                oldestEnqueuedAt = Math.min(oldestEnqueuedAt, entry.enqueuedAt);
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            try {
+                Task<Void> write = firebase.writeBatchToFirebase(records);
+                if (write == null) {
+                    scheduleRetry("Firebase not available");
+                    return;
+                }
+                Tasks.await(write, WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // Firebase rejected the update (rules, invalid data); a timeout is just being offline
+                if (!rejected(batch, String.valueOf(e.getCause()))) {
+                    scheduleRetry(e.toString());
+                    return;
+                }
+                continue;
+            } catch (TimeoutException e) {
+                scheduleRetry(e.toString());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            outboxDao.deleteSent(batch);
+            backoffMs = 0;
+            lastBatchRoundTripMs = SystemClock.elapsedRealtime() - start;
+            lastDrainLatencyMs = System.currentTimeMillis() - oldestEnqueuedAt;
+            Log.d(TAG, "Pushed " + batch.size() + " outbox entries in " + lastBatchRoundTripMs +
+                       " ms (oldest waited " + lastDrainLatencyMs + " ms)");
+        }
+    }
+
+    /**
+     * Count a rejection against every entry of the batch and dead-letter a lone entry
+     * that has used up its attempts
+     *
+     * @return true if an entry was dead-lettered and the drain can go on
+     */
+    private boolean rejected(List<OutboxDao.Entry> batch, String error) {
+        outboxDao.recordAttempt(batch);
+        OutboxDao.Entry first = batch.get(0);
+        if (batch.size() > 1 || first.attempts + 1 < MAX_ATTEMPTS) {
+            return false;
+        }
+        outboxDao.moveToDeadLetter(first, error);
+        Log.e(TAG, "Dead-lettered " + first.collection + "/" + first.entityId + " after " + MAX_ATTEMPTS +
+                   " rejections (" + error + "), " + outboxDao.countDeadLetters() + " dead-lettered in total");
+        return true;
+    }
+
+    private void scheduleRetry(String reason) {
+        backoffMs = backoffMs == 0 ? INITIAL_BACKOFF_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        retryAt = SystemClock.elapsedRealtime() + backoffMs;
+        Log.w(TAG, "Outbox push failed (" + reason + "), " + outboxDao.count() +
+                   " entries queued, retrying in " + backoffMs + " ms");
+        DatabaseExecutor.getInstance().schedule(DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.BACKGROUND, () -> {
+            retryAt = 0;
+            drain();
+        }, backoffMs);
+    }
+
+    private FirebaseHelper firebaseHelper() {
+        if (firebaseHelper == null) {
+            try {
+                FirebaseApp.getInstance();
+                firebaseHelper = new FirebaseHelper();
+            } catch (Exception e) {
+                // Not initialized yet; HCasApplication sets Firebase up in the background
+                return null;
+            }
+        }
+        return firebaseHelper;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.h_cas.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page is one slice of a keyset-paginated query. The next page is requested with
+ * {@link #getNextKey()}, which holds the sort value and id of the last row returned,
+ * so each page is an index seek rather than an OFFSET scan.
+ */
+public class Page<T> {
+
+    /**
+     * Position in a keyset ordering: the sort column value plus the row id as tie-breaker
+     */
+    public static final class Key {
+        final String sortValue;
+        final String id;
+
+        public Key(String sortValue, String id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+    }
+
+    private final List<T> items;
+    private final Key nextKey;
+
+    Page(List<T> items, Key nextKey) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextKey = nextKey;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Key to pass when loading the following page, or null when this is the last page
+     */
+    public Key getNextKey() {
+        return nextKey;
+    }
+
+    public boolean hasMore() {
+        return nextKey != null;
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.h_cas.models.Patient;
+import com.example.h_cas.models.PatientHistoryItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * PatientDao owns the SQL for the patients table.
+ */
+class PatientDao extends BaseDao {
+
+    // Column order shared by the INSERT and UPDATE statements (patient_id excluded)
+    private static final String[] DATA_COLUMNS = {
+        COLUMN_PATIENT_FIRST_NAME, COLUMN_PATIENT_LAST_NAME, COLUMN_PATIENT_DOB, COLUMN_PATIENT_GENDER,
+        COLUMN_PATIENT_ADDRESS, COLUMN_PATIENT_PHONE, COLUMN_PATIENT_EMAIL, COLUMN_PATIENT_EMERGENCY_NAME,
+        COLUMN_PATIENT_EMERGENCY_PHONE, COLUMN_PATIENT_SUFFIX, COLUMN_PATIENT_FULL_NAME, COLUMN_PATIENT_AGE,
+        COLUMN_PATIENT_FULL_ADDRESS, COLUMN_PATIENT_PHONE_NUMBER, COLUMN_PATIENT_ALLERGIES,
+        COLUMN_PATIENT_MEDICATIONS, COLUMN_PATIENT_MEDICAL_HISTORY, COLUMN_PATIENT_PULSE_RATE,
+        COLUMN_PATIENT_BLOOD_PRESSURE, COLUMN_PATIENT_TEMPERATURE, COLUMN_PATIENT_BLOOD_SUGAR,
+        COLUMN_PATIENT_PAIN_SCALE, COLUMN_PATIENT_SYMPTOMS_DESCRIPTION, COLUMN_PATIENT_BIRTH_PLACE
+    };
+
+    private static final String SQL_INSERT = buildInsert();
+    private static final String SQL_UPDATE = buildUpdate();
+
+    private static final String SQL_DELETE =
+        "DELETE FROM " + TABLE_PATIENTS + " WHERE " + COLUMN_PATIENT_ID + " = ?";
+
+    // Columns carried by the Firebase patient record; inbound sync only overwrites these
+    private static final String SQL_UPDATE_SYNCED =
+        "UPDATE " + TABLE_PATIENTS + " SET " +
+        COLUMN_PATIENT_FIRST_NAME + " = ?, " + COLUMN_PATIENT_LAST_NAME + " = ?, " +
+        COLUMN_PATIENT_DOB + " = ?, " + COLUMN_PATIENT_GENDER + " = ?, " + COLUMN_PATIENT_PHONE + " = ?, " +
+        COLUMN_PATIENT_EMAIL + " = ?, " + COLUMN_PATIENT_ADDRESS + " = ?" +
+        " WHERE " + COLUMN_PATIENT_ID + " = ?";
+
+    private static final String WITHOUT_PRESCRIPTIONS =
+        " FROM " + TABLE_PATIENTS + " p " +
+        "LEFT JOIN " + TABLE_PRESCRIPTIONS + " pr ON p." + COLUMN_PATIENT_ID + " = pr." + COLUMN_PATIENT_ID +
+        " WHERE pr." + COLUMN_PATIENT_ID + " IS NULL";
+
+    private static final String HISTORY_COUNT = "rx_count";
+    private static final String HISTORY_LAST_DATE = "last_date";
+    private static final String HISTORY_LAST_MEDICATION = "last_medication";
+    private static final String HISTORY_LAST_DOCTOR = "last_doctor";
+    private static final String LATEST_FIRST = " ORDER BY pr." + COLUMN_CREATED_DATE + " DESC LIMIT 1";
+
+    // Patients with at least one prescription plus their prescription count and latest
+    // prescription. The page is walked over the patients keyset index and the summary
+    // columns are correlated subqueries on prescriptions(patient_id, created_date), so
+    // each page only touches the prescriptions of the patients it returns
+    private static final String HISTORY_FROM =
+        "SELECT p.*, " + prescriptionSummary("COUNT(*)", null) + " AS " + HISTORY_COUNT + ", " +
+        prescriptionSummary("MAX(pr." + COLUMN_CREATED_DATE + ")", null) + " AS " + HISTORY_LAST_DATE + ", " +
+        prescriptionSummary("pr." + COLUMN_MEDICATION, LATEST_FIRST) + " AS " + HISTORY_LAST_MEDICATION + ", " +
+        prescriptionSummary("pr." + COLUMN_DOCTOR_NAME, LATEST_FIRST) + " AS " + HISTORY_LAST_DOCTOR +
+        " FROM " + TABLE_PATIENTS + " p";
+
+    private static final String HISTORY_WHERE =
+        "EXISTS (SELECT 1 FROM " + TABLE_PRESCRIPTIONS + " pr WHERE pr." + COLUMN_PATIENT_ID +
+        " = p." + COLUMN_PATIENT_ID + ")";
+
+    // Total patients and those without a prescription, in one pass; the NOT EXISTS probe
+    // uses the prescriptions.patient_id index
+    private static final String SQL_COUNT_TOTALS =
+        "SELECT COUNT(*), SUM(NOT EXISTS (SELECT 1 FROM " + TABLE_PRESCRIPTIONS + " pr" +
+        " WHERE pr." + COLUMN_PATIENT_ID + " = p." + COLUMN_PATIENT_ID + ")) FROM " + TABLE_PATIENTS + " p";
+
+    PatientDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    /**
+     * Correlated subquery selecting expression over the prescriptions of the outer patient p
+     */
+    private static String prescriptionSummary(String expression, String orderBy) {
+        return "(SELECT " + expression + " FROM " + TABLE_PRESCRIPTIONS + " pr" +
+               " WHERE pr." + COLUMN_PATIENT_ID + " = p." + COLUMN_PATIENT_ID +
+               (orderBy != null ? orderBy : "") + ")";
+    }
+
+    private static String buildInsert() {
+        StringBuilder columns = new StringBuilder(COLUMN_PATIENT_ID);
+        StringBuilder placeholders = new StringBuilder("?");
+        for (String column : DATA_COLUMNS) {
+            columns.append(", ").append(column);
+            placeholders.append(", ?");
+        }
+        return "INSERT INTO " + TABLE_PATIENTS + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+
+    private static String buildUpdate() {
+        StringBuilder sql = new StringBuilder("UPDATE " + TABLE_PATIENTS + " SET ");
+        for (int i = 0; i < DATA_COLUMNS.length; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(DATA_COLUMNS[i]).append(" = ?");
+        }
+        sql.append(" WHERE ").append(COLUMN_PATIENT_ID).append(" = ?");
+        return sql.toString();
+    }
+
+    /**
+     * Bind the DATA_COLUMNS values starting at the given parameter index
+     */
+    private static void bindData(SQLiteStatement statement, int start, Patient patient) {
+        String[] values = {
+            patient.getFirstName(), patient.getLastName(), patient.getDateOfBirth(), patient.getGender(),
+            patient.getAddress(), patient.getPhone(), patient.getEmail(), patient.getEmergencyContactName(),
+            patient.getEmergencyContactPhone(), patient.getSuffix(), patient.getFullName(), patient.getAge(),
+            patient.getFullAddress(), patient.getPhoneNumber(), patient.getAllergies(),
+            patient.getMedications(), patient.getMedicalHistory(), patient.getPulseRate(),
+            patient.getBloodPressure(), patient.getTemperature(), patient.getBloodSugar(),
+            patient.getPainScale(), patient.getSymptomsDescription(), patient.getBirthPlace()
+        };
+        for (int i = 0; i < values.length; i++) {
+            bindNullable(statement, start + i, values[i]);
+        }
+    }
+
+    private static void bindInsert(SQLiteStatement statement, Patient patient) {
+        bindNullable(statement, 1, patient.getPatientId());
+        bindData(statement, 2, patient);
+    }
+
+    private static void bindSyncedUpdate(SQLiteStatement statement, Patient patient) {
+        bindNullable(statement, 1, patient.getFirstName());
+        bindNullable(statement, 2, patient.getLastName());
+        bindNullable(statement, 3, patient.getDateOfBirth());
+        bindNullable(statement, 4, patient.getGender());
+        bindNullable(statement, 5, patient.getPhone());
+        bindNullable(statement, 6, patient.getEmail());
+        bindNullable(statement, 7, patient.getAddress());
+        bindNullable(statement, 8, patient.getPatientId());
+    }
+
+    long insert(Patient patient) {
+        return executeInsert(SQL_INSERT, statement -> bindInsert(statement, patient));
+    }
+
+    /**
+     * Bulk upsert of synced patient records: new patients are inserted in full, existing
+     * ones only get the Firebase-synced columns so locally recorded vitals are kept
+     */
+    int upsertSynced(List<Patient> patients) {
+        return upsertAll(patients, SQL_UPDATE_SYNCED, PatientDao::bindSyncedUpdate,
+                         SQL_INSERT, PatientDao::bindInsert);
+    }
+
+    int deleteAll(List<String> patientIds) {
+        return deleteAll(SQL_DELETE, patientIds);
+    }
+
+    int update(Patient patient) {
+        return executeUpdateDelete(SQL_UPDATE, statement -> {
+            bindData(statement, 1, patient);
+            bindNullable(statement, DATA_COLUMNS.length + 1, patient.getPatientId());
+        });
+    }
+
+    Patient findById(String patientId) {
+        String query = "SELECT * FROM " + TABLE_PATIENTS + " WHERE " + COLUMN_PATIENT_ID + " = ?";
+        return queryFirst(query, new String[]{patientId}, Mapper::new);
+    }
+
+    List<Patient> findAll() {
+        String query = "SELECT * FROM " + TABLE_PATIENTS + " ORDER BY " + COLUMN_PATIENT_CREATED_DATE + " DESC";
+        return queryList(query, null, Mapper::new);
+    }
+
+    /**
+     * One page of patients, most recently registered first
+     */
+    Page<Patient> findPage(Page.Key after, int pageSize) {
+        return queryPage("SELECT * FROM " + TABLE_PATIENTS, null, null,
+                         COLUMN_PATIENT_CREATED_DATE, COLUMN_PATIENT_ID, true,
+                         after, pageSize, Mapper::new, Mapper::keyOf);
+    }
+
+    /**
+     * One page of prescription history summaries, most recently registered patient first
+     */
+    Page<PatientHistoryItem> findHistoryPage(Page.Key after, int pageSize) {
+        return queryPage(HISTORY_FROM, HISTORY_WHERE, null,
+                         "p." + COLUMN_PATIENT_CREATED_DATE, "p." + COLUMN_PATIENT_ID, true,
+                         after, pageSize, HistoryMapper::new, HistoryMapper::keyOf);
+    }
+
+    /**
+     * Patients registered in [fromDate, toDate), newest first; either bound may be null
+     */
+    List<Patient> findCreatedBetween(String fromDate, String toDate) {
+        List<String> args = new ArrayList<>();
+        String query = createdBetweenQuery(fromDate, toDate, args);
+        return queryList(query, args.toArray(new String[0]), Mapper::new);
+    }
+
+    /**
+     * Stream the rows of {@link #findCreatedBetween} to callback without collecting them
+     *
+     * @return the number of rows delivered
+     */
+    int forEachCreatedBetween(String fromDate, String toDate, RowCallback<Patient> callback) {
+        List<String> args = new ArrayList<>();
+        String query = createdBetweenQuery(fromDate, toDate, args);
+        return queryEach(query, args.toArray(new String[0]), Mapper::new, callback);
+    }
+
+    private static String createdBetweenQuery(String fromDate, String toDate, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        appendDateRange(conditions, args, COLUMN_PATIENT_CREATED_DATE, fromDate, toDate);
+
+        StringBuilder query = new StringBuilder("SELECT * FROM " + TABLE_PATIENTS);
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" ORDER BY ").append(COLUMN_PATIENT_CREATED_DATE).append(" DESC");
+        return query.toString();
+    }
+
+    List<Patient> findWithoutPrescriptions() {
+        return queryList("SELECT p.*" + WITHOUT_PRESCRIPTIONS, null, Mapper::new);
+    }
+
+    /**
+     * {total patients, patients without a prescription}
+     */
+    int[] countTotals() {
+        return queryInts(SQL_COUNT_TOTALS);
+    }
+
+    /**
+     * Maps a patients row. Legacy address/phone are applied before full_address/
+     * phone_number so the extended columns win, as they always have.
+     */
+    static final class Mapper implements RowMapper<Patient> {
+        private final int id, firstName, lastName, dob, gender, address, phone, email,
+                          emergencyName, emergencyPhone, createdDate, suffix, fullName, birthPlace,
+                          age, fullAddress, phoneNumber, allergies, medications, medicalHistory,
+                          pulseRate, bloodPressure, temperature, bloodSugar, painScale, symptoms;
+
+        Mapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_PATIENT_ID);
+            firstName = cursor.getColumnIndex(COLUMN_PATIENT_FIRST_NAME);
+            lastName = cursor.getColumnIndex(COLUMN_PATIENT_LAST_NAME);
+            dob = cursor.getColumnIndex(COLUMN_PATIENT_DOB);
+            gender = cursor.getColumnIndex(COLUMN_PATIENT_GENDER);
+            address = cursor.getColumnIndex(COLUMN_PATIENT_ADDRESS);
+            phone = cursor.getColumnIndex(COLUMN_PATIENT_PHONE);
+            email = cursor.getColumnIndex(COLUMN_PATIENT_EMAIL);
+            emergencyName = cursor.getColumnIndex(COLUMN_PATIENT_EMERGENCY_NAME);
+            emergencyPhone = cursor.getColumnIndex(COLUMN_PATIENT_EMERGENCY_PHONE);
+            createdDate = cursor.getColumnIndex(COLUMN_PATIENT_CREATED_DATE);
+            suffix = cursor.getColumnIndex(COLUMN_PATIENT_SUFFIX);
+            fullName = cursor.getColumnIndex(COLUMN_PATIENT_FULL_NAME);
+            birthPlace = cursor.getColumnIndex(COLUMN_PATIENT_BIRTH_PLACE);
+            age = cursor.getColumnIndex(COLUMN_PATIENT_AGE);
+            fullAddress = cursor.getColumnIndex(COLUMN_PATIENT_FULL_ADDRESS);
+            phoneNumber = cursor.getColumnIndex(COLUMN_PATIENT_PHONE_NUMBER);
+            allergies = cursor.getColumnIndex(COLUMN_PATIENT_ALLERGIES);
+            medications = cursor.getColumnIndex(COLUMN_PATIENT_MEDICATIONS);
+            medicalHistory = cursor.getColumnIndex(COLUMN_PATIENT_MEDICAL_HISTORY);
+            pulseRate = cursor.getColumnIndex(COLUMN_PATIENT_PULSE_RATE);
+            bloodPressure = cursor.getColumnIndex(COLUMN_PATIENT_BLOOD_PRESSURE);
+            temperature = cursor.getColumnIndex(COLUMN_PATIENT_TEMPERATURE);
+            bloodSugar = cursor.getColumnIndex(COLUMN_PATIENT_BLOOD_SUGAR);
+            painScale = cursor.getColumnIndex(COLUMN_PATIENT_PAIN_SCALE);
+            symptoms = cursor.getColumnIndex(COLUMN_PATIENT_SYMPTOMS_DESCRIPTION);
+        }
+
+        @Override
+        public Patient map(Cursor cursor) {
+            Patient patient = new Patient();
+            patient.setPatientId(getString(cursor, id));
+            patient.setFirstName(getString(cursor, firstName));
+            patient.setLastName(getString(cursor, lastName));
+            patient.setDateOfBirth(getString(cursor, dob));
+            patient.setGender(getString(cursor, gender));
+            patient.setAddress(getString(cursor, address));
+            patient.setPhone(getString(cursor, phone));
+            patient.setEmail(getString(cursor, email));
+            patient.setEmergencyContactName(getString(cursor, emergencyName));
+            patient.setEmergencyContactPhone(getString(cursor, emergencyPhone));
+            patient.setCreatedDate(getString(cursor, createdDate));
+
+            // Extended patient information
+            if (suffix >= 0) patient.setSuffix(getString(cursor, suffix));
+            if (fullName >= 0) patient.setFullName(getString(cursor, fullName));
+            if (birthPlace >= 0) patient.setBirthPlace(getString(cursor, birthPlace));
+            if (age >= 0) patient.setAge(getString(cursor, age));
+            if (fullAddress >= 0) patient.setFullAddress(getString(cursor, fullAddress));
+            if (phoneNumber >= 0) patient.setPhoneNumber(getString(cursor, phoneNumber));
+            if (allergies >= 0) patient.setAllergies(getString(cursor, allergies));
+            if (medications >= 0) patient.setMedications(getString(cursor, medications));
+            if (medicalHistory >= 0) patient.setMedicalHistory(getString(cursor, medicalHistory));
+            if (pulseRate >= 0) patient.setPulseRate(getString(cursor, pulseRate));
+            if (bloodPressure >= 0) patient.setBloodPressure(getString(cursor, bloodPressure));
+            if (temperature >= 0) patient.setTemperature(getString(cursor, temperature));
+            if (bloodSugar >= 0) patient.setBloodSugar(getString(cursor, bloodSugar));
+            if (painScale >= 0) patient.setPainScale(getString(cursor, painScale));
+            if (symptoms >= 0) patient.setSymptomsDescription(getString(cursor, symptoms));
+            return patient;
+        }
+
+        static Page.Key keyOf(Patient patient) {
+            return new Page.Key(patient.getCreatedDate(), patient.getPatientId());
+        }
+    }
+
+    /**
+     * Maps a row of the history query: a patients row plus the prescription summary columns
+     */
+    static final class HistoryMapper implements RowMapper<PatientHistoryItem> {
+        private final Mapper patientMapper;
+        private final int count, lastDate, lastMedication, lastDoctor;
+
+        HistoryMapper(Cursor cursor) {
+            patientMapper = new Mapper(cursor);
+            count = cursor.getColumnIndex(HISTORY_COUNT);
+            lastDate = cursor.getColumnIndex(HISTORY_LAST_DATE);
+            lastMedication = cursor.getColumnIndex(HISTORY_LAST_MEDICATION);
+            lastDoctor = cursor.getColumnIndex(HISTORY_LAST_DOCTOR);
+        }
+
+        @Override
+        public PatientHistoryItem map(Cursor cursor) {
+            PatientHistoryItem item = new PatientHistoryItem();
+            item.setPatient(patientMapper.map(cursor));
+            item.setPrescriptionCount(getInt(cursor, count, 0));
+            item.setLastPrescriptionDate(getString(cursor, lastDate));
+            item.setLastMedication(getString(cursor, lastMedication));
+            item.setLastDoctor(getString(cursor, lastDoctor));
+            return item;
+        }
+
+        static Page.Key keyOf(PatientHistoryItem item) {
+            return Mapper.keyOf(item.getPatient());
+        }
+    }
+}
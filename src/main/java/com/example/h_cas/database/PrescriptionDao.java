@@ -0,0 +1,252 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.h_cas.models.Prescription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * PrescriptionDao owns the SQL for the prescriptions table.
+ */
+class PrescriptionDao extends BaseDao {
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + TABLE_PRESCRIPTIONS + " (" +
+        COLUMN_PRESCRIPTION_ID + ", " + COLUMN_PATIENT_ID + ", " + COLUMN_PATIENT_NAME + ", " +
+        COLUMN_MEDICATION + ", " + COLUMN_DOSAGE + ", " + COLUMN_FREQUENCY + ", " + COLUMN_DURATION + ", " +
+        COLUMN_INSTRUCTIONS + ", " + COLUMN_DOCTOR_ID + ", " + COLUMN_DOCTOR_NAME + ", " +
+        COLUMN_CREATED_DATE + ", " + COLUMN_STATUS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_UPDATE =
+        "UPDATE " + TABLE_PRESCRIPTIONS + " SET " +
+        COLUMN_PATIENT_ID + " = ?, " + COLUMN_PATIENT_NAME + " = ?, " + COLUMN_MEDICATION + " = ?, " +
+        COLUMN_DOSAGE + " = ?, " + COLUMN_FREQUENCY + " = ?, " + COLUMN_DURATION + " = ?, " +
+        COLUMN_INSTRUCTIONS + " = ?, " + COLUMN_DOCTOR_ID + " = ?, " + COLUMN_DOCTOR_NAME + " = ?, " +
+        COLUMN_CREATED_DATE + " = ?, " + COLUMN_STATUS + " = ?" +
+        " WHERE " + COLUMN_PRESCRIPTION_ID + " = ?";
+
+    private static final String SQL_DELETE =
+        "DELETE FROM " + TABLE_PRESCRIPTIONS + " WHERE " + COLUMN_PRESCRIPTION_ID + " = ?";
+
+    private static final String SQL_COUNT_BY_STATUS =
+        "SELECT " + COLUMN_STATUS + ", COUNT(*) FROM " + TABLE_PRESCRIPTIONS + " GROUP BY " + COLUMN_STATUS;
+
+    PrescriptionDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    private static void bindInsert(SQLiteStatement statement, Prescription prescription) {
+        bindNullable(statement, 1, prescription.getPrescriptionId());
+        bindNullable(statement, 2, prescription.getPatientId());
+        bindNullable(statement, 3, prescription.getPatientName());
+        bindNullable(statement, 4, prescription.getMedication());
+        bindNullable(statement, 5, prescription.getDosage());
+        bindNullable(statement, 6, prescription.getFrequency());
+        bindNullable(statement, 7, prescription.getDuration());
+        bindNullable(statement, 8, prescription.getInstructions());
+        bindNullable(statement, 9, prescription.getDoctorId());
+        bindNullable(statement, 10, prescription.getDoctorName());
+        bindNullable(statement, 11, prescription.getCreatedDate());
+        bindNullable(statement, 12, prescription.getStatus());
+    }
+
+    private static void bindUpdate(SQLiteStatement statement, Prescription prescription) {
+        bindNullable(statement, 1, prescription.getPatientId());
+        bindNullable(statement, 2, prescription.getPatientName());
+        bindNullable(statement, 3, prescription.getMedication());
+        bindNullable(statement, 4, prescription.getDosage());
+        bindNullable(statement, 5, prescription.getFrequency());
+        bindNullable(statement, 6, prescription.getDuration());
+        bindNullable(statement, 7, prescription.getInstructions());
+        bindNullable(statement, 8, prescription.getDoctorId());
+        bindNullable(statement, 9, prescription.getDoctorName());
+        bindNullable(statement, 10, prescription.getCreatedDate());
+        bindNullable(statement, 11, prescription.getStatus());
+        bindNullable(statement, 12, prescription.getPrescriptionId());
+    }
+
+    long insert(Prescription prescription) {
+        return executeInsert(SQL_INSERT, statement -> bindInsert(statement, prescription));
+    }
+
+    int update(Prescription prescription) {
+        return executeUpdateDelete(SQL_UPDATE, statement -> bindUpdate(statement, prescription));
+    }
+
+    int upsertAll(List<Prescription> prescriptions) {
+        return upsertAll(prescriptions, SQL_UPDATE, PrescriptionDao::bindUpdate,
+                         SQL_INSERT, PrescriptionDao::bindInsert);
+    }
+
+    int deleteAll(List<String> prescriptionIds) {
+        return deleteAll(SQL_DELETE, prescriptionIds);
+    }
+
+    Prescription findById(String prescriptionId) {
+        String query = "SELECT * FROM " + TABLE_PRESCRIPTIONS + " WHERE " + COLUMN_PRESCRIPTION_ID + " = ?";
+        return queryFirst(query, new String[]{prescriptionId}, Mapper::new);
+    }
+
+    List<Prescription> findAll() {
+        String query = "SELECT * FROM " + TABLE_PRESCRIPTIONS + " ORDER BY " + COLUMN_CREATED_DATE + " DESC";
+        return queryList(query, null, Mapper::new);
+    }
+
+    /**
+     * One page of prescriptions, newest first
+     */
+    Page<Prescription> findPage(Page.Key after, int pageSize) {
+        return queryPage("SELECT * FROM " + TABLE_PRESCRIPTIONS, null, null,
+                         COLUMN_CREATED_DATE, COLUMN_PRESCRIPTION_ID, true,
+                         after, pageSize, Mapper::new, Mapper::keyOf);
+    }
+
+    List<Prescription> findByPatient(String patientId) {
+        String query = "SELECT * FROM " + TABLE_PRESCRIPTIONS + " WHERE " + COLUMN_PATIENT_ID + " = ?" +
+                       " ORDER BY " + COLUMN_CREATED_DATE + " DESC";
+        return queryList(query, new String[]{patientId}, Mapper::new);
+    }
+
+    /**
+     * Prescriptions matching a status set and a [fromDate, toDate) window, newest first.
+     * A null statuses collection matches any status; a null element matches NULL or empty status.
+     */
+    List<Prescription> findFiltered(Collection<String> statuses, String fromDate, String toDate) {
+        List<String> args = new ArrayList<>();
+        String query = filteredQuery(statuses, fromDate, toDate, args);
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        return queryList(query, args.toArray(new String[0]), Mapper::new);
+    }
+
+    /**
+     * Stream the rows of {@link #findFiltered} to callback without collecting them
+     *
+     * @return the number of rows delivered
+     */
+    int forEachFiltered(Collection<String> statuses, String fromDate, String toDate,
+                        RowCallback<Prescription> callback) {
+        List<String> args = new ArrayList<>();
+        String query = filteredQuery(statuses, fromDate, toDate, args);
+        if (query == null) {
+            return 0;
+        }
+        return queryEach(query, args.toArray(new String[0]), Mapper::new, callback);
+    }
+
+    /**
+     * Build the query of {@link #findFiltered}, or return null if nothing can match
+     */
+    private static String filteredQuery(Collection<String> statuses, String fromDate, String toDate,
+                                        List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        if (!appendStatusFilter(conditions, args, statuses)) {
+            return null;
+        }
+        appendDateRange(conditions, args, COLUMN_CREATED_DATE, fromDate, toDate);
+
+        StringBuilder query = new StringBuilder("SELECT * FROM " + TABLE_PRESCRIPTIONS);
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" ORDER BY ").append(COLUMN_CREATED_DATE).append(" DESC");
+        return query.toString();
+    }
+
+    /**
+     * Add the condition for a status set to conditions. A null statuses collection adds
+     * nothing; a null element matches NULL or empty status.
+     *
+     * @return false if no status can match (an empty collection)
+     */
+    static boolean appendStatusFilter(List<String> conditions, List<String> args, Collection<String> statuses) {
+        if (statuses == null) {
+            return true;
+        }
+        List<String> alternatives = new ArrayList<>();
+        StringBuilder placeholders = new StringBuilder();
+        boolean includeUnset = false;
+        for (String status : statuses) {
+            if (status == null) {
+                includeUnset = true;
+                continue;
+            }
+            if (placeholders.length() > 0) placeholders.append(", ");
+            placeholders.append("?");
+            args.add(status);
+        }
+        if (placeholders.length() > 0) {
+            alternatives.add(COLUMN_STATUS + " IN (" + placeholders + ")");
+        }
+        if (includeUnset) {
+            alternatives.add(COLUMN_STATUS + " IS NULL");
+            alternatives.add(COLUMN_STATUS + " = ''");
+        }
+        if (alternatives.isEmpty()) {
+            return false;
+        }
+        conditions.add("(" + String.join(" OR ", alternatives) + ")");
+        return true;
+    }
+
+    /**
+     * Prescriptions per status, in one pass over the table
+     */
+    Map<String, Integer> countByStatus() {
+        return queryCounts(SQL_COUNT_BY_STATUS);
+    }
+
+    /**
+     * Maps a prescriptions row
+     */
+    static final class Mapper implements RowMapper<Prescription> {
+        private final int id, patientId, patientName, medication, dosage, frequency, duration,
+                          instructions, doctorId, doctorName, createdDate, status;
+
+        Mapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_PRESCRIPTION_ID);
+            patientId = cursor.getColumnIndex(COLUMN_PATIENT_ID);
+            patientName = cursor.getColumnIndex(COLUMN_PATIENT_NAME);
+            medication = cursor.getColumnIndex(COLUMN_MEDICATION);
+            dosage = cursor.getColumnIndex(COLUMN_DOSAGE);
+            frequency = cursor.getColumnIndex(COLUMN_FREQUENCY);
+            duration = cursor.getColumnIndex(COLUMN_DURATION);
+            instructions = cursor.getColumnIndex(COLUMN_INSTRUCTIONS);
+            doctorId = cursor.getColumnIndex(COLUMN_DOCTOR_ID);
+            doctorName = cursor.getColumnIndex(COLUMN_DOCTOR_NAME);
+            createdDate = cursor.getColumnIndex(COLUMN_CREATED_DATE);
+            status = cursor.getColumnIndex(COLUMN_STATUS);
+        }
+
+        @Override
+        public Prescription map(Cursor cursor) {
+            Prescription prescription = new Prescription();
+            prescription.setPrescriptionId(getString(cursor, id));
+            prescription.setPatientId(getString(cursor, patientId));
+            prescription.setPatientName(getString(cursor, patientName));
+            prescription.setMedication(getString(cursor, medication));
+            prescription.setDosage(getString(cursor, dosage));
+            prescription.setFrequency(getString(cursor, frequency));
+            prescription.setDuration(getString(cursor, duration));
+            prescription.setInstructions(getString(cursor, instructions));
+            prescription.setDoctorId(getString(cursor, doctorId));
+            prescription.setDoctorName(getString(cursor, doctorName));
+            prescription.setCreatedDate(getString(cursor, createdDate));
+            prescription.setStatus(getString(cursor, status));
+            return prescription;
+        }
+
+        static Page.Key keyOf(Prescription prescription) {
+            return new Page.Key(prescription.getCreatedDate(), prescription.getPrescriptionId());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.h_cas.models.InventoryReportStats;
+import com.example.h_cas.models.PatientReportStats;
+import com.example.h_cas.models.PrescriptionReportStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+import static com.example.h_cas.database.ReportRollups.*;
+
+/**
+ * ReportDao reads the report rollup tables (see {@link ReportRollups}). Periods are
+ * {from inclusive, to exclusive} yyyy-MM-dd days; a null bound is open-ended, matching
+ * the created_date filters of the list queries.
+ */
+class ReportDao extends BaseDao {
+
+    ReportDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    PatientReportStats patientStats(String fromDate, String toDate) {
+        List<String> args = new ArrayList<>();
+        String query = "SELECT " + COLUMN_ROLLUP_GENDER + ", " + COLUMN_ROLLUP_AGE_BAND + ", " +
+                       "SUM(" + COLUMN_ROLLUP_REGISTRATIONS + "), SUM(" + COLUMN_ROLLUP_AGE_TOTAL + "), " +
+                       "SUM(" + COLUMN_ROLLUP_AGE_COUNT + ") FROM " + TABLE_DAILY_PATIENT_STATS +
+                       whereDay(fromDate, toDate, args) +
+                       " GROUP BY " + COLUMN_ROLLUP_GENDER + ", " + COLUMN_ROLLUP_AGE_BAND;
+
+        int total = 0, male = 0, female = 0;
+        long ageTotal = 0, ageCount = 0;
+        Map<String, Integer> byAgeBand = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(query, args.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                String gender = cursor.getString(0);
+                int registrations = cursor.getInt(2);
+                total += registrations;
+                if ("Male".equals(gender)) {
+                    male += registrations;
+                } else if ("Female".equals(gender)) {
+                    female += registrations;
+                }
+                byAgeBand.merge(cursor.getString(1), registrations, Integer::sum);
+                ageTotal += cursor.getLong(3);
+                ageCount += cursor.getLong(4);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        int averageAge = ageCount > 0 ? (int) (ageTotal / ageCount) : 0;
+        return new PatientReportStats(total, male, female, averageAge, byAgeBand);
+    }
+
+    PrescriptionReportStats prescriptionStats(String fromDate, String toDate) {
+        List<String> args = new ArrayList<>();
+        String query = "SELECT " + COLUMN_ROLLUP_STATUS + ", " + COLUMN_ROLLUP_DOCTOR + ", " +
+                       COLUMN_ROLLUP_MEDICATION + ", SUM(" + COLUMN_ROLLUP_PRESCRIPTIONS + ") FROM " +
+                       TABLE_DAILY_PRESCRIPTION_STATS + whereDay(fromDate, toDate, args) +
+                       " GROUP BY " + COLUMN_ROLLUP_STATUS + ", " + COLUMN_ROLLUP_DOCTOR + ", " +
+                       COLUMN_ROLLUP_MEDICATION;
+
+        Map<String, Integer> byStatus = new HashMap<>();
+        Map<String, Integer> byDoctor = new HashMap<>();
+        Map<String, Integer> byMedication = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery(query, args.toArray(new String[0]));
+            while (cursor.moveToNext()) {
+                int prescriptions = cursor.getInt(3);
+                byStatus.merge(cursor.getString(0), prescriptions, Integer::sum);
+                byDoctor.merge(cursor.getString(1), prescriptions, Integer::sum);
+                byMedication.merge(cursor.getString(2), prescriptions, Integer::sum);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return new PrescriptionReportStats(byStatus, byDoctor, byMedication);
+    }
+
+    /**
+     * Current stock per category, plus the dispenses of the period by the category of
+     * the dispensed medication (looked up by name in the inventory)
+     */
+    InventoryReportStats inventoryStats(String fromDate, String toDate) {
+        Map<String, Double> valueByCategory = new HashMap<>();
+        Map<String, Integer> unitsByCategory = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = readable().rawQuery("SELECT " + COLUMN_ROLLUP_CATEGORY + ", " + COLUMN_ROLLUP_UNITS + ", " +
+                                         COLUMN_ROLLUP_STOCK_VALUE + " FROM " + TABLE_INVENTORY_VALUE_STATS, null);
+            while (cursor.moveToNext()) {
+                unitsByCategory.put(cursor.getString(0), cursor.getInt(1));
+                valueByCategory.put(cursor.getString(0), cursor.getDouble(2));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        List<String> args = new ArrayList<>();
+        String dispenses =
+            "SELECT COALESCE((SELECT m." + COLUMN_CATEGORY + " FROM " + TABLE_MEDICINES + " m" +
+            " WHERE m." + COLUMN_MEDICINE_NAME + " = d." + COLUMN_ROLLUP_MEDICATION + " LIMIT 1), ''), " +
+            "SUM(d." + COLUMN_ROLLUP_DISPENSES + ") FROM " + TABLE_DAILY_DISPENSE_STATS + " d" +
+            whereDay(fromDate, toDate, args) + " GROUP BY 1";
+        return new InventoryReportStats(valueByCategory, unitsByCategory,
+                                        queryCounts(dispenses, args.toArray(new String[0])));
+    }
+
+    private static String whereDay(String fromDate, String toDate, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        appendDateRange(conditions, args, COLUMN_ROLLUP_DAY, fromDate, toDate);
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+}
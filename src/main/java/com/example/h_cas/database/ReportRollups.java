@@ -0,0 +1,262 @@
+package com.example.h_cas.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * ReportRollups defines the rollup tables behind the reports and the triggers that
+ * keep them in step with their base tables. Triggers see every write path (local
+ * edits, inbound sync, bulk deletes), so a report over any period sums at most one
+ * row per day and dimension instead of scanning the base table.
+ */
+final class ReportRollups {
+
+    // Patient registrations per day, gender and age band
+    static final String TABLE_DAILY_PATIENT_STATS = "daily_patient_stats";
+    static final String COLUMN_ROLLUP_DAY = "day";
+    static final String COLUMN_ROLLUP_GENDER = "gender";
+    static final String COLUMN_ROLLUP_AGE_BAND = "age_band";
+    static final String COLUMN_ROLLUP_REGISTRATIONS = "registrations";
+    static final String COLUMN_ROLLUP_AGE_TOTAL = "age_total";
+    static final String COLUMN_ROLLUP_AGE_COUNT = "age_count";
+
+    // Prescriptions per day, status, doctor and medication
+    static final String TABLE_DAILY_PRESCRIPTION_STATS = "daily_prescription_stats";
+    static final String COLUMN_ROLLUP_STATUS = "status";
+    static final String COLUMN_ROLLUP_DOCTOR = "doctor_name";
+    static final String COLUMN_ROLLUP_MEDICATION = "medication";
+    static final String COLUMN_ROLLUP_PRESCRIPTIONS = "prescriptions";
+
+    // RFID dispenses per day and medication; the category is resolved when reporting,
+    // so recategorising a medicine never leaves stale rollup rows behind
+    static final String TABLE_DAILY_DISPENSE_STATS = "daily_dispense_stats";
+    static final String COLUMN_ROLLUP_DISPENSES = "dispenses";
+
+    // Current stock per category (stock value has no history to roll up by day)
+    static final String TABLE_INVENTORY_VALUE_STATS = "inventory_value_stats";
+    static final String COLUMN_ROLLUP_CATEGORY = "category";
+    static final String COLUMN_ROLLUP_MEDICINES = "medicines";
+    static final String COLUMN_ROLLUP_UNITS = "units";
+    static final String COLUMN_ROLLUP_STOCK_VALUE = "stock_value";
+
+    static final String AGE_BAND_UNKNOWN = "Unknown";
+
+    /**
+     * Builds SQL for a row source (a trigger's NEW / OLD, or a table alias)
+     */
+    private interface Expressions {
+        String[] of(String row);
+    }
+
+    /**
+     * One rollup table: the key and value columns, and how a base-table row maps onto them
+     */
+    private static final class Rollup {
+        final String table;
+        final String[] keyColumns;
+        final String[] valueColumns;
+        final String[] valueTypes;
+        final Expressions keys;
+        final Expressions values;
+
+        Rollup(String table, String[] keyColumns, String[] valueColumns, String[] valueTypes,
+               Expressions keys, Expressions values) {
+            this.table = table;
+            this.keyColumns = keyColumns;
+            this.valueColumns = valueColumns;
+            this.valueTypes = valueTypes;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        String create() {
+            StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table).append(" (");
+            for (String key : keyColumns) {
+                sql.append(key).append(" TEXT NOT NULL, ");
+            }
+            for (int i = 0; i < valueColumns.length; i++) {
+                sql.append(valueColumns[i]).append(' ').append(valueTypes[i]).append(" NOT NULL DEFAULT 0, ");
+            }
+            return sql.append("PRIMARY KEY (").append(String.join(", ", keyColumns)).append("))").toString();
+        }
+
+        /**
+         * Add (sign "+") or remove (sign "-") row's contribution when filter holds for it
+         */
+        List<String> apply(String row, String sign, String filter) {
+            String[] keyValues = keys.of(row);
+            String[] deltas = values.of(row);
+            StringBuilder match = new StringBuilder();
+            for (int i = 0; i < keyColumns.length; i++) {
+                match.append(keyColumns[i]).append(" = ").append(keyValues[i]).append(" AND ");
+            }
+            match.append(filter);
+
+            List<String> statements = new ArrayList<>();
+            if ("+".equals(sign)) {
+                // NOT EXISTS rather than OR IGNORE: a trigger inherits the conflict clause of
+                // the statement that fired it, and an outer OR REPLACE would reset the row
+                statements.add("INSERT INTO " + table + " (" + String.join(", ", keyColumns) + ")" +
+                               " SELECT " + String.join(", ", keyValues) +
+                               " WHERE " + filter + " AND NOT EXISTS (SELECT 1 FROM " + table + " WHERE " + match + ")");
+            }
+            StringBuilder update = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            for (int i = 0; i < valueColumns.length; i++) {
+                if (i > 0) {
+                    update.append(", ");
+                }
+                update.append(valueColumns[i]).append(" = ").append(valueColumns[i])
+                      .append(' ').append(sign).append(" (").append(deltas[i]).append(')');
+            }
+            statements.add(update.append(" WHERE ").append(match).toString());
+            if ("-".equals(sign)) {
+                // The first value column counts base rows; drop keys nothing maps to any more
+                statements.add("DELETE FROM " + table + " WHERE " + match + " AND " + valueColumns[0] + " <= 0");
+            }
+            return statements;
+        }
+
+        /**
+         * Recompute the whole table from the base table (idempotent)
+         */
+        String[] rebuild(String source, String filter) {
+            String[] keyValues = keys.of("s");
+            String[] deltas = values.of("s");
+            StringBuilder select = new StringBuilder("SELECT ").append(String.join(", ", keyValues));
+            StringBuilder groupBy = new StringBuilder();
+            for (int i = 0; i < keyValues.length; i++) {
+                groupBy.append(i > 0 ? ", " : "").append(i + 1);
+            }
+            for (String delta : deltas) {
+                select.append(", SUM(").append(delta).append(')');
+            }
+            String columns = String.join(", ", keyColumns) + ", " + String.join(", ", valueColumns);
+            return new String[]{
+                "DELETE FROM " + table,
+                "INSERT INTO " + table + " (" + columns + ") " + select + " FROM " + source + " s" +
+                    " WHERE " + filter.replace("%s", "s") + " GROUP BY " + groupBy
+            };
+        }
+
+        /**
+         * AFTER INSERT / DELETE / UPDATE OF updateColumns triggers on source. rowFilter
+         * ("%s" stands for the row) limits which base rows count; null counts every row.
+         */
+        String[] triggers(String source, String[] updateColumns, String rowFilter) {
+            String filter = rowFilter != null ? rowFilter : "1";
+            String prefix = "CREATE TRIGGER IF NOT EXISTS " + table + "_";
+            List<String> update = new ArrayList<>(apply("OLD", "-", filter.replace("%s", "OLD")));
+            update.addAll(apply("NEW", "+", filter.replace("%s", "NEW")));
+            return new String[]{
+                prefix + "insert AFTER INSERT ON " + source + body(apply("NEW", "+", filter.replace("%s", "NEW"))),
+                prefix + "delete AFTER DELETE ON " + source + body(apply("OLD", "-", filter.replace("%s", "OLD"))),
+                prefix + "update AFTER UPDATE OF " + String.join(", ", updateColumns) + " ON " + source + body(update)
+            };
+        }
+
+        private static String body(List<String> statements) {
+            return " BEGIN " + String.join("; ", statements) + "; END";
+        }
+    }
+
+    private static String day(String row, String column) {
+        return "COALESCE(substr(" + row + "." + column + ", 1, 10), '')";
+    }
+
+    private static String text(String row, String column) {
+        return "COALESCE(" + row + "." + column + ", '')";
+    }
+
+    // Same rules as the patient report: "Male"/"M"/"m" and "Female"/"F"/"f", anything else is Other
+    private static String gender(String row) {
+        String gender = row + "." + COLUMN_PATIENT_GENDER;
+        return "CASE WHEN " + gender + " = 'Male' OR lower(" + gender + ") = 'm' THEN 'Male'" +
+               " WHEN " + gender + " = 'Female' OR lower(" + gender + ") = 'f' THEN 'Female' ELSE 'Other' END";
+    }
+
+    // Ages are free text; only plain non-negative integers count towards the average
+    private static String hasAge(String row) {
+        String age = row + "." + COLUMN_PATIENT_AGE;
+        return "(" + age + " <> '' AND " + age + " NOT GLOB '*[^0-9]*')";
+    }
+
+    private static String age(String row) {
+        return "CAST(" + row + "." + COLUMN_PATIENT_AGE + " AS INTEGER)";
+    }
+
+    private static String ageBand(String row) {
+        return "CASE WHEN " + hasAge(row) + " THEN (CASE WHEN " + age(row) + " < 18 THEN '0-17'" +
+               " WHEN " + age(row) + " < 40 THEN '18-39' WHEN " + age(row) + " < 65 THEN '40-64'" +
+               " ELSE '65+' END) ELSE '" + AGE_BAND_UNKNOWN + "' END";
+    }
+
+    private static final Rollup PATIENTS = new Rollup(TABLE_DAILY_PATIENT_STATS,
+        new String[]{COLUMN_ROLLUP_DAY, COLUMN_ROLLUP_GENDER, COLUMN_ROLLUP_AGE_BAND},
+        new String[]{COLUMN_ROLLUP_REGISTRATIONS, COLUMN_ROLLUP_AGE_TOTAL, COLUMN_ROLLUP_AGE_COUNT},
+        new String[]{"INTEGER", "INTEGER", "INTEGER"},
+        row -> new String[]{day(row, COLUMN_PATIENT_CREATED_DATE), gender(row), ageBand(row)},
+        row -> new String[]{"1", "CASE WHEN " + hasAge(row) + " THEN " + age(row) + " ELSE 0 END",
+                            "CASE WHEN " + hasAge(row) + " THEN 1 ELSE 0 END"});
+
+    private static final Rollup PRESCRIPTIONS = new Rollup(TABLE_DAILY_PRESCRIPTION_STATS,
+        new String[]{COLUMN_ROLLUP_DAY, COLUMN_ROLLUP_STATUS, COLUMN_ROLLUP_DOCTOR, COLUMN_ROLLUP_MEDICATION},
+        new String[]{COLUMN_ROLLUP_PRESCRIPTIONS},
+        new String[]{"INTEGER"},
+        row -> new String[]{day(row, COLUMN_CREATED_DATE), text(row, COLUMN_STATUS),
+                            text(row, COLUMN_DOCTOR_NAME), text(row, COLUMN_MEDICATION)},
+        row -> new String[]{"1"});
+
+    private static final Rollup DISPENSES = new Rollup(TABLE_DAILY_DISPENSE_STATS,
+        new String[]{COLUMN_ROLLUP_DAY, COLUMN_ROLLUP_MEDICATION},
+        new String[]{COLUMN_ROLLUP_DISPENSES},
+        new String[]{"INTEGER"},
+        row -> new String[]{day(row, COLUMN_DISPENSED_DATE), text(row, COLUMN_MEDICATION)},
+        row -> new String[]{"1"});
+
+    private static final Rollup INVENTORY = new Rollup(TABLE_INVENTORY_VALUE_STATS,
+        new String[]{COLUMN_ROLLUP_CATEGORY},
+        new String[]{COLUMN_ROLLUP_MEDICINES, COLUMN_ROLLUP_UNITS, COLUMN_ROLLUP_STOCK_VALUE},
+        new String[]{"INTEGER", "INTEGER", "REAL"},
+        row -> new String[]{text(row, COLUMN_CATEGORY)},
+        row -> new String[]{"1", "COALESCE(" + row + "." + COLUMN_STOCK_QUANTITY + ", 0)",
+                            "COALESCE(" + row + "." + COLUMN_STOCK_QUANTITY + ", 0) * COALESCE(" +
+                                row + "." + COLUMN_PRICE + ", 0)"});
+
+    private static final String DISPENSED = "%s." + COLUMN_IS_DISPENSED + " = 1";
+
+    private ReportRollups() {
+    }
+
+    /**
+     * Create the rollup tables and triggers and fill them from the current data.
+     * Safe to re-run: the tables are rebuilt from their base tables.
+     */
+    static void install(SQLiteDatabase db) {
+        for (Rollup rollup : new Rollup[]{PATIENTS, PRESCRIPTIONS, DISPENSES, INVENTORY}) {
+            db.execSQL(rollup.create());
+        }
+        execAll(db, PATIENTS.triggers(TABLE_PATIENTS,
+            new String[]{COLUMN_PATIENT_CREATED_DATE, COLUMN_PATIENT_GENDER, COLUMN_PATIENT_AGE}, null));
+        execAll(db, PRESCRIPTIONS.triggers(TABLE_PRESCRIPTIONS,
+            new String[]{COLUMN_CREATED_DATE, COLUMN_STATUS, COLUMN_DOCTOR_NAME, COLUMN_MEDICATION}, null));
+        execAll(db, DISPENSES.triggers(TABLE_RFID_DATA,
+            new String[]{COLUMN_IS_DISPENSED, COLUMN_DISPENSED_DATE, COLUMN_MEDICATION}, DISPENSED));
+        execAll(db, INVENTORY.triggers(TABLE_MEDICINES,
+            new String[]{COLUMN_CATEGORY, COLUMN_STOCK_QUANTITY, COLUMN_PRICE}, null));
+
+        execAll(db, PATIENTS.rebuild(TABLE_PATIENTS, "1"));
+        execAll(db, PRESCRIPTIONS.rebuild(TABLE_PRESCRIPTIONS, "1"));
+        execAll(db, DISPENSES.rebuild(TABLE_RFID_DATA, DISPENSED));
+        execAll(db, INVENTORY.rebuild(TABLE_MEDICINES, "1"));
+    }
+
+    private static void execAll(SQLiteDatabase db, String[] statements) {
+        for (String statement : statements) {
+            db.execSQL(statement);
+        }
+    }
+}
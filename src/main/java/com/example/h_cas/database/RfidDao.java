@@ -0,0 +1,121 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.h_cas.models.Prescription;
+import com.example.h_cas.models.RFIDData;
+
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * RfidDao owns the SQL for the rfid_data table.
+ */
+class RfidDao extends BaseDao {
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + TABLE_RFID_DATA + " (" +
+        COLUMN_RFID_TAG_ID + ", " + COLUMN_PATIENT_ID + ", " + COLUMN_PATIENT_NAME + ", " +
+        COLUMN_PRESCRIPTION_ID + ", " + COLUMN_MEDICATION + ", " + COLUMN_DOSAGE + ", " +
+        COLUMN_FREQUENCY + ", " + COLUMN_DURATION + ", " + COLUMN_INSTRUCTIONS + ", " +
+        COLUMN_DOCTOR_NAME + ", " + COLUMN_CREATED_DATE + ", " + COLUMN_IS_DISPENSED +
+        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String SQL_MARK_DISPENSED =
+        "UPDATE " + TABLE_RFID_DATA + " SET " +
+        COLUMN_IS_DISPENSED + " = 1, " + COLUMN_DISPENSED_DATE + " = ?, " + COLUMN_PHARMACIST_NAME + " = ?" +
+        " WHERE " + COLUMN_RFID_TAG_ID + " = ? AND " + COLUMN_IS_DISPENSED + " = 0";
+
+    RfidDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    long insert(String rfidTagId, Prescription prescription) {
+        return executeInsert(SQL_INSERT, statement -> {
+            bindNullable(statement, 1, rfidTagId);
+            bindNullable(statement, 2, prescription.getPatientId());
+            bindNullable(statement, 3, prescription.getPatientName());
+            bindNullable(statement, 4, prescription.getPrescriptionId());
+            bindNullable(statement, 5, prescription.getMedication());
+            bindNullable(statement, 6, prescription.getDosage());
+            bindNullable(statement, 7, prescription.getFrequency());
+            bindNullable(statement, 8, prescription.getDuration());
+            bindNullable(statement, 9, prescription.getInstructions());
+            bindNullable(statement, 10, prescription.getDoctorName());
+            bindNullable(statement, 11, prescription.getCreatedDate());
+        });
+    }
+
+    RFIDData findUndispensed(String rfidTagId) {
+        String query = "SELECT * FROM " + TABLE_RFID_DATA +
+                       " WHERE " + COLUMN_RFID_TAG_ID + " = ? AND " + COLUMN_IS_DISPENSED + " = 0";
+        return queryFirst(query, new String[]{rfidTagId}, Mapper::new);
+    }
+
+    /**
+     * Every undispensed tag, to preload the scan index
+     */
+    List<RFIDData> findAllUndispensed() {
+        String query = "SELECT * FROM " + TABLE_RFID_DATA + " WHERE " + COLUMN_IS_DISPENSED + " = 0";
+        return queryList(query, null, Mapper::new);
+    }
+
+    /**
+     * Mark an undispensed tag as dispensed; returns 0 if it was already dispensed
+     */
+    int markDispensed(String rfidTagId, String pharmacistName, String dispensedDate) {
+        return executeUpdateDelete(SQL_MARK_DISPENSED, statement -> {
+            bindNullable(statement, 1, dispensedDate);
+            bindNullable(statement, 2, pharmacistName);
+            bindNullable(statement, 3, rfidTagId);
+        });
+    }
+
+    /**
+     * Maps an rfid_data row
+     */
+    static final class Mapper implements RowMapper<RFIDData> {
+        private final int tagId, patientId, patientName, prescriptionId, medication, dosage, frequency,
+                          duration, instructions, doctorName, createdDate, isDispensed, dispensedDate,
+                          pharmacistName;
+
+        Mapper(Cursor cursor) {
+            tagId = cursor.getColumnIndex(COLUMN_RFID_TAG_ID);
+            patientId = cursor.getColumnIndex(COLUMN_PATIENT_ID);
+            patientName = cursor.getColumnIndex(COLUMN_PATIENT_NAME);
+            prescriptionId = cursor.getColumnIndex(COLUMN_PRESCRIPTION_ID);
+            medication = cursor.getColumnIndex(COLUMN_MEDICATION);
+            dosage = cursor.getColumnIndex(COLUMN_DOSAGE);
+            frequency = cursor.getColumnIndex(COLUMN_FREQUENCY);
+            duration = cursor.getColumnIndex(COLUMN_DURATION);
+            instructions = cursor.getColumnIndex(COLUMN_INSTRUCTIONS);
+            doctorName = cursor.getColumnIndex(COLUMN_DOCTOR_NAME);
+            createdDate = cursor.getColumnIndex(COLUMN_CREATED_DATE);
+            isDispensed = cursor.getColumnIndex(COLUMN_IS_DISPENSED);
+            dispensedDate = cursor.getColumnIndex(COLUMN_DISPENSED_DATE);
+            pharmacistName = cursor.getColumnIndex(COLUMN_PHARMACIST_NAME);
+        }
+
+        @Override
+        public RFIDData map(Cursor cursor) {
+            RFIDData rfidData = new RFIDData();
+            rfidData.setRfidTagId(getString(cursor, tagId));
+            rfidData.setPatientId(getString(cursor, patientId));
+            rfidData.setPatientName(getString(cursor, patientName));
+            rfidData.setPrescriptionId(getString(cursor, prescriptionId));
+            rfidData.setMedicineName(getString(cursor, medication));
+            rfidData.setDosage(getString(cursor, dosage));
+            rfidData.setFrequency(getString(cursor, frequency));
+            rfidData.setDuration(getString(cursor, duration));
+            rfidData.setInstructions(getString(cursor, instructions));
+            rfidData.setDoctorName(getString(cursor, doctorName));
+            rfidData.setPrescriptionDate(getString(cursor, createdDate));
+            rfidData.setDispensed(getInt(cursor, isDispensed, 0) == 1);
+            rfidData.setDispensedDate(getString(cursor, dispensedDate));
+            rfidData.setPharmacistName(getString(cursor, pharmacistName));
+            return rfidData;
+        }
+    }
+}
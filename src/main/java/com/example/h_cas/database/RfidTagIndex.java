@@ -0,0 +1,103 @@
+package com.example.h_cas.database;
+
+import com.example.h_cas.models.RFIDData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RfidTagIndex holds the undispensed rows of rfid_data in memory, keyed by tag id, so a
+ * scan at the dispensing window is answered without a query. It is preloaded once and
+ * then kept in step by the helper: a written tag is dropped (and read back on its next
+ * scan) and a dispensed tag is removed.
+ *
+ * Like {@link EntityCache}, every change bumps a version, and a preload only lands if
+ * nothing changed while it was reading, so it can never resurrect a tag dispensed in
+ * the meantime. Lookups that miss go to the database.
+ */
+final class RfidTagIndex {
+
+    private final Map<String, RFIDData> tags = new HashMap<>();
+    private long version;
+    private boolean loaded;
+    private long hits;
+    private long misses;
+
+    /**
+     * The undispensed tag, or null if it is not indexed
+     */
+    synchronized RFIDData get(String rfidTagId) {
+        RFIDData tag = tags.get(rfidTagId);
+        if (tag != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tag;
+    }
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Version to pass to {@link #load} or {@link #put} for a read that starts now
+     */
+    synchronized long beginLoad() {
+        return version;
+    }
+
+    /**
+     * Replace the index with rows, unless a write happened since beginLoad()
+     */
+    synchronized boolean load(long loadVersion, List<RFIDData> rows) {
+        if (loadVersion != version) {
+            return false;
+        }
+        tags.clear();
+        for (RFIDData row : rows) {
+            tags.put(row.getRfidTagId(), row);
+        }
+        loaded = true;
+        return true;
+    }
+
+    /**
+     * Index one tag read on a miss, unless a write happened since beginLoad()
+     */
+    synchronized void put(long loadVersion, RFIDData row) {
+        if (loadVersion == version && row != null && !row.isDispensed()) {
+            tags.put(row.getRfidTagId(), row);
+        }
+    }
+
+    /**
+     * Drop a tag that was written or dispensed
+     */
+    synchronized void remove(String rfidTagId) {
+        version++;
+        tags.remove(rfidTagId);
+    }
+
+    /**
+     * Drop everything, for writes that are not keyed by tag
+     */
+    synchronized void clear() {
+        version++;
+        tags.clear();
+        loaded = false;
+    }
+
+    synchronized int size() {
+        return tags.size();
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.h_cas.database;
+
+/**
+ * RowCallback receives the rows of a streamed query one at a time, straight from the
+ * cursor, so a caller such as a report export never holds the whole result in memory.
+ */
+public interface RowCallback<T> {
+
+    /**
+     * @return true to receive the next row, false to stop the scan (and close the cursor)
+     */
+    boolean onRow(T row);
+}
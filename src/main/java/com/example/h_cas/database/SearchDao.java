@@ -0,0 +1,211 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.h_cas.models.Patient;
+import com.example.h_cas.models.Prescription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+import static com.example.h_cas.database.SearchIndex.*;
+
+/**
+ * SearchDao answers as-you-type searches from the full-text index of {@link SearchIndex}.
+ * Every word of the query must match the start of an indexed word, in any indexed
+ * column and in any order; misspelt words are widened to their likely corrections from
+ * {@link SearchTerms}. Results are newest first by created date, the same order as the
+ * lists they are searched from; all matches are sorted before the limit applies.
+ */
+class SearchDao extends BaseDao {
+    private static final String TAG = "SearchDao";
+
+    // Words beyond this are ignored; each one narrows the result anyway
+    private static final int MAX_QUERY_WORDS = 6;
+
+    private static final String SQL_PATIENTS =
+        "SELECT p.* FROM " + TABLE_PATIENT_SEARCH +
+        " JOIN " + TABLE_PATIENTS + " p ON p.rowid = " + TABLE_PATIENT_SEARCH + ".rowid" +
+        " WHERE " + TABLE_PATIENT_SEARCH + " MATCH ?";
+
+    private static final String PATIENTS_NEWEST_FIRST =
+        " ORDER BY p." + COLUMN_PATIENT_CREATED_DATE + " DESC, p." + COLUMN_PATIENT_ID + " DESC";
+
+    private static final String WITHOUT_PRESCRIPTIONS =
+        " AND NOT EXISTS (SELECT 1 FROM " + TABLE_PRESCRIPTIONS + " pr" +
+        " WHERE pr." + COLUMN_PATIENT_ID + " = p." + COLUMN_PATIENT_ID + ")";
+
+    private static final String SQL_PRESCRIPTIONS =
+        "SELECT p.* FROM " + TABLE_PRESCRIPTION_SEARCH +
+        " JOIN " + TABLE_PRESCRIPTIONS + " p ON p.rowid = " + TABLE_PRESCRIPTION_SEARCH + ".rowid" +
+        " WHERE " + TABLE_PRESCRIPTION_SEARCH + " MATCH ?";
+
+    private static final String PRESCRIPTIONS_NEWEST_FIRST =
+        " ORDER BY p." + COLUMN_CREATED_DATE + " DESC, p." + COLUMN_PRESCRIPTION_ID + " DESC";
+
+    // Free-text columns whose words can be corrected; ids and phone numbers are not
+    private static final String SQL_PATIENT_TERMS =
+        "SELECT " + COLUMN_SEARCH_NAME + ", " + COLUMN_SEARCH_ALLERGIES + " FROM " + TABLE_PATIENT_SEARCH;
+    private static final String SQL_PRESCRIPTION_TERMS =
+        "SELECT " + COLUMN_SEARCH_NAME + ", " + COLUMN_SEARCH_MEDICATION + ", " + COLUMN_SEARCH_DOCTOR +
+        " FROM " + TABLE_PRESCRIPTION_SEARCH;
+
+    private final SearchTerms terms = new SearchTerms();
+
+    // Whether the index is FTS5 rather than FTS4; read once from the schema
+    private volatile Boolean fts5;
+
+    SearchDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    /**
+     * Patients matching query, most recently registered first
+     *
+     * @param withoutPrescriptions only patients who have no prescription yet
+     */
+    List<Patient> searchPatients(String query, boolean withoutPrescriptions, int limit) {
+        String match = matchExpression(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        String sql = SQL_PATIENTS + (withoutPrescriptions ? WITHOUT_PRESCRIPTIONS : "") +
+                     PATIENTS_NEWEST_FIRST + " LIMIT " + limit;
+        return queryList(sql, new String[]{match}, PatientDao.Mapper::new);
+    }
+
+    /**
+     * Prescriptions matching query, most recently created first
+     *
+     * @param statuses as for {@link PrescriptionDao#appendStatusFilter}; null for any status
+     */
+    List<Prescription> searchPrescriptions(String query, Collection<String> statuses, int limit) {
+        String match = matchExpression(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(match);
+        if (!PrescriptionDao.appendStatusFilter(conditions, args, statuses)) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder(SQL_PRESCRIPTIONS);
+        for (String condition : conditions) {
+            sql.append(" AND ").append(condition);
+        }
+        sql.append(PRESCRIPTIONS_NEWEST_FIRST).append(" LIMIT ").append(limit);
+        return queryList(sql.toString(), args.toArray(new String[0]), PrescriptionDao.Mapper::new);
+    }
+
+    /**
+     * The MATCH expression for a typed query, or null if it has no words. Each word
+     * becomes a prefix term, OR-ed with its corrections when it is misspelt.
+     */
+    String matchExpression(String query) {
+        List<String> words = SearchTerms.tokens(query);
+        if (words.isEmpty()) {
+            return null;
+        }
+        boolean fts5 = isFts5();
+        List<String> groups = new ArrayList<>();
+        for (String word : words.subList(0, Math.min(words.size(), MAX_QUERY_WORDS))) {
+            List<String> alternatives = new ArrayList<>();
+            alternatives.add(word + "*");
+            for (String correction : corrections(word)) {
+                alternatives.add(correction + "*");
+            }
+            String group = String.join(" OR ", alternatives);
+            groups.add(fts5 && alternatives.size() > 1 ? "(" + group + ")" : group);
+        }
+        // FTS4's standard syntax has no parentheses but binds OR tighter than the implicit
+        // AND between words; FTS5 binds OR looser and wants an explicit AND after a group
+        return String.join(fts5 ? " AND " : " ", groups);
+    }
+
+    private List<String> corrections(String word) {
+        if (word.length() < SearchTerms.MIN_FUZZY_LENGTH || !SearchTerms.isWord(word)) {
+            return new ArrayList<>();
+        }
+        loadTerms();
+        return terms.corrections(word);
+    }
+
+    /**
+     * Read the vocabulary from the index on first use; later writes add to it as they happen
+     */
+    private void loadTerms() {
+        synchronized (terms) {
+            if (terms.isLoaded()) {
+                return;
+            }
+            long start = System.nanoTime();
+            queryEach(SQL_PATIENT_TERMS, null, TextMapper::new, row -> {
+                terms.add(row);
+                return true;
+            });
+            queryEach(SQL_PRESCRIPTION_TERMS, null, TextMapper::new, row -> {
+                terms.add(row);
+                return true;
+            });
+            terms.setLoaded();
+            Log.d(TAG, "Loaded " + terms.size() + " search terms in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+    }
+
+    /**
+     * Add the searchable words of a written patient to the vocabulary
+     */
+    void addTerms(Patient patient) {
+        terms.add(patient.getFirstName(), patient.getLastName(), patient.getSuffix(), patient.getFullName(),
+                  patient.getAllergies());
+    }
+
+    /**
+     * Add the searchable words of a written prescription to the vocabulary
+     */
+    void addTerms(Prescription prescription) {
+        terms.add(prescription.getPatientName(), prescription.getMedication(), prescription.getDoctorName());
+    }
+
+    /**
+     * Forget the vocabulary, e.g. after the clinical data was cleared
+     */
+    void resetTerms() {
+        terms.clear();
+    }
+
+    private boolean isFts5() {
+        Boolean cached = fts5;
+        if (cached == null) {
+            cached = SearchIndex.isFts5(readable(), TABLE_PATIENT_SEARCH);
+            fts5 = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Maps a row of text columns to an array
+     */
+    private static final class TextMapper implements RowMapper<String[]> {
+        private final int columns;
+
+        TextMapper(Cursor cursor) {
+            columns = cursor.getColumnCount();
+        }
+
+        @Override
+        public String[] map(Cursor cursor) {
+            String[] values = new String[columns];
+            for (int i = 0; i < columns; i++) {
+                values[i] = getString(cursor, i);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.h_cas.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import java.util.Locale;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * SearchIndex defines the full-text tables behind patient and prescription search and
+ * the triggers that keep them in step with their base tables. Each index row has the
+ * rowid of its base row, so a match joins back without a lookup by id.
+ *
+ * FTS5 is used where the platform SQLite has it; Android's build usually does not, and
+ * then the tables are FTS4. Both accept the match expressions {@link SearchDao} builds.
+ */
+final class SearchIndex {
+    private static final String TAG = "SearchIndex";
+
+    static final String TABLE_PATIENT_SEARCH = "patient_search";
+    static final String TABLE_PRESCRIPTION_SEARCH = "prescription_search";
+
+    // Index columns; named apart from the base columns so joins need no qualifiers
+    static final String COLUMN_SEARCH_NAME = "name_text";
+    static final String COLUMN_SEARCH_IDS = "id_text";
+    static final String COLUMN_SEARCH_PHONE = "phone_text";
+    static final String COLUMN_SEARCH_ALLERGIES = "allergy_text";
+    static final String COLUMN_SEARCH_MEDICATION = "medication_text";
+    static final String COLUMN_SEARCH_DOCTOR = "doctor_text";
+
+    private static final String[] PATIENT_COLUMNS = {
+        COLUMN_SEARCH_NAME, COLUMN_SEARCH_IDS, COLUMN_SEARCH_PHONE, COLUMN_SEARCH_ALLERGIES
+    };
+    private static final String[] PRESCRIPTION_COLUMNS = {
+        COLUMN_SEARCH_NAME, COLUMN_SEARCH_IDS, COLUMN_SEARCH_MEDICATION, COLUMN_SEARCH_DOCTOR
+    };
+
+    // Base columns the index values are built from; updates of other columns skip the index
+    private static final String[] PATIENT_SOURCE_COLUMNS = {
+        COLUMN_PATIENT_FIRST_NAME, COLUMN_PATIENT_LAST_NAME, COLUMN_PATIENT_SUFFIX, COLUMN_PATIENT_FULL_NAME,
+        COLUMN_PATIENT_ID, COLUMN_PATIENT_PHONE, COLUMN_PATIENT_PHONE_NUMBER, COLUMN_PATIENT_ALLERGIES
+    };
+    private static final String[] PRESCRIPTION_SOURCE_COLUMNS = {
+        COLUMN_PATIENT_NAME, COLUMN_PRESCRIPTION_ID, COLUMN_PATIENT_ID, COLUMN_MEDICATION, COLUMN_DOCTOR_NAME
+    };
+
+    // Tried in order. Prefix indexes turn as-you-type "ab*" queries into one lookup;
+    // they go up to five characters because ids ("PAT0...") and phone numbers ("0917...")
+    // share long prefixes, and "0917*" would otherwise merge a term per patient.
+    private static final String[] MODULES = {
+        "fts5(%s, tokenize = 'unicode61 remove_diacritics 1', prefix = '2 3 4 5')",
+        "fts4(%s, tokenize=unicode61, prefix=\"2,3,4,5\")",
+        "fts4(%s, prefix=\"2,3,4,5\")"
+    };
+
+    private SearchIndex() {
+    }
+
+    /**
+     * Index values of a patients row (a trigger's NEW / OLD, or a table alias)
+     */
+    private static String[] patientValues(String row) {
+        return new String[]{
+            join(row, COLUMN_PATIENT_FIRST_NAME, COLUMN_PATIENT_LAST_NAME, COLUMN_PATIENT_SUFFIX,
+                 COLUMN_PATIENT_FULL_NAME),
+            join(row, COLUMN_PATIENT_ID),
+            // As entered, and as bare digits so "09171234567" finds "0917-123-4567"
+            join(row, COLUMN_PATIENT_PHONE, COLUMN_PATIENT_PHONE_NUMBER) + " || ' ' || " +
+                digits(row, COLUMN_PATIENT_PHONE) + " || ' ' || " + digits(row, COLUMN_PATIENT_PHONE_NUMBER),
+            join(row, COLUMN_PATIENT_ALLERGIES)
+        };
+    }
+
+    private static String[] prescriptionValues(String row) {
+        return new String[]{
+            join(row, COLUMN_PATIENT_NAME),
+            join(row, COLUMN_PRESCRIPTION_ID, COLUMN_PATIENT_ID),
+            join(row, COLUMN_MEDICATION),
+            join(row, COLUMN_DOCTOR_NAME)
+        };
+    }
+
+    private static String join(String row, String... columns) {
+        StringBuilder sql = new StringBuilder();
+        for (String column : columns) {
+            if (sql.length() > 0) {
+                sql.append(" || ' ' || ");
+            }
+            sql.append("COALESCE(").append(row).append('.').append(column).append(", '')");
+        }
+        return sql.toString();
+    }
+
+    private static String digits(String row, String column) {
+        String value = "COALESCE(" + row + "." + column + ", '')";
+        for (String separator : new String[]{"-", " ", "(", ")", "+", "."}) {
+            value = "replace(" + value + ", '" + separator + "', '')";
+        }
+        return value;
+    }
+
+    /**
+     * Create the index tables and triggers and fill them from the current data.
+     * Safe to re-run: the index contents are rebuilt from their base tables.
+     */
+    static void install(SQLiteDatabase db) {
+        String module = createTable(db, TABLE_PATIENT_SEARCH, PATIENT_COLUMNS);
+        createTable(db, TABLE_PRESCRIPTION_SEARCH, PRESCRIPTION_COLUMNS);
+        Log.d(TAG, "Search index uses " + module.substring(0, module.indexOf('(')));
+
+        createTriggers(db, TABLE_PATIENT_SEARCH, TABLE_PATIENTS, PATIENT_COLUMNS, PATIENT_SOURCE_COLUMNS,
+                       patientValues("NEW"));
+        createTriggers(db, TABLE_PRESCRIPTION_SEARCH, TABLE_PRESCRIPTIONS, PRESCRIPTION_COLUMNS,
+                       PRESCRIPTION_SOURCE_COLUMNS, prescriptionValues("NEW"));
+
+        rebuild(db, TABLE_PATIENT_SEARCH, TABLE_PATIENTS, PATIENT_COLUMNS, patientValues("s"));
+        rebuild(db, TABLE_PRESCRIPTION_SEARCH, TABLE_PRESCRIPTIONS, PRESCRIPTION_COLUMNS, prescriptionValues("s"));
+    }
+
+    /**
+     * Create table with the first module this SQLite supports and return that module
+     */
+    private static String createTable(SQLiteDatabase db, String table, String[] columns) {
+        SQLiteException lastError = null;
+        for (String module : MODULES) {
+            String using = String.format(module, String.join(", ", columns));
+            try {
+                db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + table + " USING " + using);
+                return using;
+            } catch (SQLiteException e) {
+                lastError = e; // Module or tokenizer not compiled in, try the next one
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Whether table was created as FTS5 (otherwise FTS4), which changes query syntax
+     */
+    static boolean isFts5(SQLiteDatabase db, String table) {
+        try (Cursor cursor = db.rawQuery(
+                "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table})) {
+            return cursor.moveToFirst() && cursor.getString(0) != null &&
+                   cursor.getString(0).toLowerCase(Locale.ROOT).contains("using fts5");
+        }
+    }
+
+    private static void createTriggers(SQLiteDatabase db, String index, String source, String[] columns,
+                                       String[] sourceColumns, String[] newValues) {
+        String prefix = "CREATE TRIGGER IF NOT EXISTS " + index + "_";
+        String insert = "INSERT INTO " + index + " (rowid, " + String.join(", ", columns) + ")" +
+                        " VALUES (NEW.rowid, " + String.join(", ", newValues) + ")";
+        String delete = "DELETE FROM " + index + " WHERE rowid = OLD.rowid";
+        db.execSQL(prefix + "insert AFTER INSERT ON " + source + " BEGIN " + insert + "; END");
+        db.execSQL(prefix + "delete AFTER DELETE ON " + source + " BEGIN " + delete + "; END");
+        // Vitals and other unindexed columns change without touching the index
+        db.execSQL(prefix + "update AFTER UPDATE OF " + String.join(", ", sourceColumns) + " ON " + source +
+                   " BEGIN " + delete + "; " + insert + "; END");
+    }
+
+    private static void rebuild(SQLiteDatabase db, String index, String source, String[] columns, String[] values) {
+        db.execSQL("DELETE FROM " + index);
+        db.execSQL("INSERT INTO " + index + " (rowid, " + String.join(", ", columns) + ")" +
+                   " SELECT s.rowid, " + String.join(", ", values) + " FROM " + source + " s");
+    }
+}
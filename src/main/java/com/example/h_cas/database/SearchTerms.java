@@ -0,0 +1,225 @@
+package com.example.h_cas.database;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * SearchTerms is the vocabulary of the indexed names, medications and allergies, kept in
+ * memory so a misspelt search word can be corrected before it reaches the full-text
+ * index. A typed word that no indexed word starts with is replaced by the indexed word
+ * prefixes within one edit of it (two for long words), so "jaun" finds "Juan" and
+ * "amoxicilin" finds "Amoxicillin".
+ *
+ * Words are added as rows are written and never removed: a word whose rows were all
+ * deleted only produces a correction that matches nothing.
+ */
+final class SearchTerms {
+
+    // Shorter words have too many neighbours one edit away to correct usefully
+    static final int MIN_FUZZY_LENGTH = 4;
+    static final int LONG_WORD_LENGTH = 8;
+    static final int MAX_CORRECTIONS = 8;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TreeSet<String> words = new TreeSet<>();
+    private boolean loaded;
+
+    // The words back to back in one array, so a correction scans memory sequentially
+    // instead of chasing a tree node and a String per word; repacked after additions
+    private char[] packed = new char[0];
+    private int[] packedEnds = new int[0];
+    private boolean packedCurrent;
+
+    /**
+     * Lowercase words of text without diacritics, split like the index's tokenizer
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Whether a search word is spelt out in letters, the only words that are corrected
+     * (ids and phone numbers are matched as typed)
+     */
+    static boolean isWord(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isLetter(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    synchronized void setLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Forget every word; the vocabulary is read again before the next correction
+     */
+    synchronized void clear() {
+        words.clear();
+        loaded = false;
+        packedCurrent = false;
+    }
+
+    synchronized int size() {
+        return words.size();
+    }
+
+    /**
+     * Add the words of each text (null texts are skipped)
+     */
+    void add(String... texts) {
+        List<String> added = new ArrayList<>();
+        for (String text : texts) {
+            for (String token : tokens(text)) {
+                if (token.length() > 1 && isWord(token)) {
+                    added.add(token);
+                }
+            }
+        }
+        synchronized (this) {
+            if (words.addAll(added)) {
+                packedCurrent = false;
+            }
+        }
+    }
+
+    /**
+     * Whether any known word starts with prefix
+     */
+    synchronized boolean hasPrefix(String prefix) {
+        String next = words.ceiling(prefix);
+        return next != null && next.startsWith(prefix);
+    }
+
+    /**
+     * Prefixes of known words within the edit limit of token, closest first, at most
+     * {@link #MAX_CORRECTIONS}. Empty for short words and words that are not misspelt.
+     */
+    List<String> corrections(String token) {
+        int length = token.length();
+        if (length < MIN_FUZZY_LENGTH || !isWord(token) || hasPrefix(token)) {
+            return Collections.emptyList();
+        }
+        int maxEdits = length >= LONG_WORD_LENGTH ? 2 : 1;
+
+        // Distance -> prefixes, so the closest are kept when there are too many
+        TreeMap<Integer, TreeSet<String>> found = new TreeMap<>();
+        int[][] table = new int[length + maxEdits + 1][length + 1];
+        for (int j = 0; j <= length; j++) {
+            table[0][j] = j;
+        }
+        synchronized (this) {
+            pack();
+            int start = 0;
+            for (int end : packedEnds) {
+                if (end - start >= length - maxEdits) {
+                    int prefixLength = closestPrefix(token, packed, start, end, maxEdits, table);
+                    if (prefixLength > 0) {
+                        found.computeIfAbsent(table[prefixLength][length], key -> new TreeSet<>())
+                             .add(new String(packed, start, prefixLength));
+                    }
+                }
+                start = end;
+            }
+        }
+
+        List<String> corrections = new ArrayList<>();
+        for (TreeSet<String> prefixes : found.values()) {
+            for (String prefix : prefixes) {
+                if (corrections.size() == MAX_CORRECTIONS) {
+                    return corrections;
+                }
+                corrections.add(prefix);
+            }
+        }
+        return corrections;
+    }
+
+    private void pack() {
+        if (packedCurrent) {
+            return;
+        }
+        int total = 0;
+        for (String word : words) {
+            total += word.length();
+        }
+        packed = new char[total];
+        packedEnds = new int[words.size()];
+        int offset = 0;
+        int index = 0;
+        for (String word : words) {
+            word.getChars(0, word.length(), packed, offset);
+            offset += word.length();
+            packedEnds[index++] = offset;
+        }
+        packedCurrent = true;
+    }
+
+    /**
+     * The length of the prefix of the word letters[start, end) closest to token by edit
+     * distance (with adjacent transpositions), or 0 when every prefix is more than
+     * maxEdits away. Fills one dynamic-programming table over the word's prefixes instead
+     * of one per prefix, and only its band within maxEdits of the diagonal;
+     * table[length][token.length()] is then the distance of the prefix of that length.
+     * Row 0 must hold 0, 1, 2, ...
+     */
+    private static int closestPrefix(String token, char[] letters, int start, int end, int maxEdits,
+                                     int[][] table) {
+        int length = token.length();
+        int rows = Math.min(end - start, length + maxEdits);
+        int outside = maxEdits + 1;
+        int best = outside;
+        int bestLength = 0;
+        for (int i = 1; i <= rows; i++) {
+            int from = Math.max(1, i - maxEdits);
+            int to = Math.min(length, i + maxEdits);
+            // The cell left of the band counts as too far (column 0 is the real distance)
+            table[i][from - 1] = from == 1 ? i : outside;
+            int rowMin = outside;
+            char w = letters[start + i - 1];
+            for (int j = from; j <= to; j++) {
+                char t = token.charAt(j - 1);
+                int above = j <= i - 1 + maxEdits ? table[i - 1][j] : outside;
+                int value = Math.min(Math.min(above + 1, table[i][j - 1] + 1), table[i - 1][j - 1] + (w == t ? 0 : 1));
+                if (i > 1 && j > 1 && w == token.charAt(j - 2) && letters[start + i - 2] == t) {
+                    value = Math.min(value, table[i - 2][j - 2] + 1);
+                }
+                table[i][j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (to == length && table[i][length] < best) {
+                best = table[i][length];
+                bestLength = i;
+            }
+            if (rowMin > maxEdits) {
+                break; // Longer prefixes can only be further away
+            }
+        }
+        return bestLength;
+    }
+}
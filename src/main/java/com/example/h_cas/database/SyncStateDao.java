@@ -0,0 +1,42 @@
+package com.example.h_cas.database;
+
+import android.database.sqlite.SQLiteOpenHelper;
+
+import static com.example.h_cas.database.HCasDatabaseHelper.*;
+
+/**
+ * SyncStateDao owns the SQL for the sync_state table, which records how far inbound
+ * Firebase sync has got per collection so listeners can resume incrementally.
+ */
+class SyncStateDao extends BaseDao {
+
+    private static final String SQL_GET_HIGH_WATER_MARK =
+        "SELECT COALESCE(MAX(" + COLUMN_SYNC_HIGH_WATER_MARK + "), 0) FROM " + TABLE_SYNC_STATE +
+        " WHERE " + COLUMN_SYNC_COLLECTION + " = ?";
+
+    private static final String SQL_INSERT_IF_MISSING =
+        "INSERT OR IGNORE INTO " + TABLE_SYNC_STATE + " (" +
+        COLUMN_SYNC_COLLECTION + ", " + COLUMN_SYNC_HIGH_WATER_MARK + ") VALUES (?, 0)";
+
+    // Only ever moves forward, so out-of-order writes cannot rewind the mark
+    private static final String SQL_ADVANCE =
+        "UPDATE " + TABLE_SYNC_STATE + " SET " + COLUMN_SYNC_HIGH_WATER_MARK + " = ?" +
+        " WHERE " + COLUMN_SYNC_COLLECTION + " = ? AND " + COLUMN_SYNC_HIGH_WATER_MARK + " < ?";
+
+    SyncStateDao(SQLiteOpenHelper helper) {
+        super(helper);
+    }
+
+    long getHighWaterMark(String collection) {
+        return queryForLong(SQL_GET_HIGH_WATER_MARK, collection);
+    }
+
+    void advance(String collection, long highWaterMark) {
+        executeInsert(SQL_INSERT_IF_MISSING, statement -> bindNullable(statement, 1, collection));
+        executeUpdateDelete(SQL_ADVANCE, statement -> {
+            statement.bindLong(1, highWaterMark);
+            bindNullable(statement, 2, collection);
+            statement.bindLong(3, highWaterMark);
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.h_cas.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DashboardStats is an immutable snapshot of the counts shown on the dashboards and
+ * reports, taken with one grouped query per table.
+ */
+public class DashboardStats {
+    private final Map<String, Integer> employeesByRole;
+    private final int totalEmployees;
+    private final int totalPatients;
+    private final int patientsWithoutPrescriptions;
+    private final Map<String, Integer> prescriptionsByStatus;
+    private final int totalPrescriptions;
+    private final int totalMedicines;
+    private final int lowStockMedicines;
+    private final int expiringSoonMedicines;
+
+    public DashboardStats(Map<String, Integer> employeesByRole, int totalPatients, int patientsWithoutPrescriptions,
+                          Map<String, Integer> prescriptionsByStatus, int totalMedicines,
+                          int lowStockMedicines, int expiringSoonMedicines) {
+        this.employeesByRole = Collections.unmodifiableMap(new HashMap<>(employeesByRole));
+        this.totalEmployees = sum(employeesByRole);
+        this.totalPatients = totalPatients;
+        this.patientsWithoutPrescriptions = patientsWithoutPrescriptions;
+        this.prescriptionsByStatus = Collections.unmodifiableMap(new HashMap<>(prescriptionsByStatus));
+        this.totalPrescriptions = sum(prescriptionsByStatus);
+        this.totalMedicines = totalMedicines;
+        this.lowStockMedicines = lowStockMedicines;
+        this.expiringSoonMedicines = expiringSoonMedicines;
+    }
+
+    private static int sum(Map<String, Integer> counts) {
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Getters
+
+    /**
+     * Active employees, excluding administrators
+     */
+    public int getTotalEmployees() {
+        return totalEmployees;
+    }
+
+    public int getEmployeesCountByRole(String role) {
+        Integer count = employeesByRole.get(role);
+        return count != null ? count : 0;
+    }
+
+    public Map<String, Integer> getEmployeesByRole() {
+        return employeesByRole;
+    }
+
+    /**
+     * Every patient record is a case
+     */
+    public int getTotalPatients() {
+        return totalPatients;
+    }
+
+    /**
+     * Patients still waiting for a prescription (pending doctor review)
+     */
+    public int getPatientsWithoutPrescriptions() {
+        return patientsWithoutPrescriptions;
+    }
+
+    public int getTotalPrescriptions() {
+        return totalPrescriptions;
+    }
+
+    public int getPrescriptionsCountByStatus(String status) {
+        Integer count = prescriptionsByStatus.get(status);
+        return count != null ? count : 0;
+    }
+
+    public Map<String, Integer> getPrescriptionsByStatus() {
+        return prescriptionsByStatus;
+    }
+
+    public int getTotalMedicines() {
+        return totalMedicines;
+    }
+
+    public int getLowStockMedicines() {
+        return lowStockMedicines;
+    }
+
+    public int getExpiringSoonMedicines() {
+        return expiringSoonMedicines;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.h_cas.models;
+
+/**
+ * DispenseResult is the outcome of dispensing a prescription tag: whether it went
+ * through and, if it did, the stock left afterwards.
+ */
+public class DispenseResult {
+
+    public enum Status {
+        DISPENSED,
+        // The tag is unknown or was already dispensed
+        TAG_NOT_AVAILABLE,
+        // The prescribed medicine is not in the inventory
+        NOT_IN_INVENTORY,
+        // Less stock than the quantity to dispense
+        INSUFFICIENT_STOCK,
+        // A database error; nothing was written
+        FAILED
+    }
+
+    private final Status status;
+    private final int remainingStock;
+    private final String unit;
+
+    public DispenseResult(Status status, int remainingStock, String unit) {
+        this.status = status;
+        this.remainingStock = remainingStock;
+        this.unit = unit;
+    }
+
+    public static DispenseResult failed(Status status) {
+        return new DispenseResult(status, 0, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isDispensed() {
+        return status == Status.DISPENSED;
+    }
+
+    /**
+     * Stock of the medicine after the dispense (for a failed dispense, 0)
+     */
+    public int getRemainingStock() {
+        return remainingStock;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.h_cas.models;
+
+/**
+ * DrugInteraction is one entry of the interaction table: two medications (or
+ * medication classes) that should not be taken together without precautions.
+ */
+public class DrugInteraction {
+
+    /**
+     * Severity, least severe first
+     */
+    public enum Severity {
+        MINOR("Minor"),
+        MODERATE("Moderate"),
+        MAJOR("Major");
+
+        private final String label;
+
+        Severity(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * The severity labelled label (any case), or null
+         */
+        public static Severity fromLabel(String label) {
+            for (Severity severity : values()) {
+                if (severity.label.equalsIgnoreCase(label)) {
+                    return severity;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String drugA;
+    private final String drugB;
+    private final Severity severity;
+    private final String effect;
+    private final String recommendation;
+
+    public DrugInteraction(String drugA, String drugB, Severity severity, String effect, String recommendation) {
+        this.drugA = drugA;
+        this.drugB = drugB;
+        this.severity = severity;
+        this.effect = effect;
+        this.recommendation = recommendation;
+    }
+
+    public String getDrugA() {
+        return drugA;
+    }
+
+    public String getDrugB() {
+        return drugB;
+    }
+
+    /**
+     * "Drug A + Drug B", for display
+     */
+    public String getCombination() {
+        return drugA + " + " + drugB;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getEffect() {
+        return effect;
+    }
+
+    public String getRecommendation() {
+        return recommendation;
+    }
+}
@@ -4,7 +4,7 @@ package com.example.h_cas.models;
  * Employee model class representing healthcare staff members in the H-CAS system.
  * Contains all necessary information for employee management.
  */
-public class Employee {
+public class Employee implements Cloneable {
     
     private String employeeId;
     private String firstName;
@@ -46,6 +46,26 @@ public class Employee {
         this.isActive = true;
     }
 
+    // Copy constructor
+    public Employee(Employee other) {
+        this.employeeId = other.employeeId;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.email = other.email;
+        this.phone = other.phone;
+        this.address = other.address;
+        this.role = other.role;
+        this.username = other.username;
+        this.password = other.password;
+        this.createdDate = other.createdDate;
+        this.isActive = other.isActive;
+        this.licenseNumber = other.licenseNumber;
+        this.specialization = other.specialization;
+        this.experience = other.experience;
+        this.department = other.department;
+        this.profilePictureUrl = other.profilePictureUrl;
+    }
+
     // Getters and Setters
     public String getEmployeeId() {
         return employeeId;
@@ -245,6 +265,17 @@ public class Employee {
     public int hashCode() {
         return employeeId != null ? employeeId.hashCode() : 0;
     }
+
+    /**
+     * A copy of every field, so it can be edited without changing this instance
+     */
+    public Employee copy() {
+        try {
+            return (Employee) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
 
 
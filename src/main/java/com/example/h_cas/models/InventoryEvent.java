@@ -0,0 +1,150 @@
+package com.example.h_cas.models;
+
+/**
+ * InventoryEvent is one row of the inventory ledger: a stock movement of a medicine.
+ * The ledger is append-only; quantity is the signed change in stock (negative for
+ * dispenses and disposals).
+ */
+public class InventoryEvent {
+    public static final String TYPE_RECEIVE = "RECEIVE";
+    public static final String TYPE_DISPENSE = "DISPENSE";
+    public static final String TYPE_DISPOSE = "DISPOSE";
+    public static final String TYPE_ADJUST = "ADJUST";
+
+    private long eventId;
+    private String medicineId; // null if the medicine is not in the inventory
+    private String medicineName;
+    private String dosage;
+    private String unit;
+    private String expiryDate; // of the medicine at the time of the event
+    private String eventType;
+    private int quantity;
+    private Integer stockAfter; // null if unknown
+    private String reference; // prescription id for dispenses
+    private String actor;
+    private String note;
+    private String timestamp; // yyyy-MM-dd HH:mm:ss
+
+    // Default constructor
+    public InventoryEvent() {}
+
+    /**
+     * An event for medicine, copying its identity, unit and expiry and taking its
+     * current stock as the stock after the event
+     */
+    public InventoryEvent(String eventType, Medicine medicine, int quantity) {
+        this.eventType = eventType;
+        this.medicineId = medicine.getMedicineId();
+        this.medicineName = medicine.getMedicineName();
+        this.dosage = medicine.getDosage();
+        this.unit = medicine.getUnit();
+        this.expiryDate = medicine.getExpiryDate();
+        this.quantity = quantity;
+        this.stockAfter = medicine.getStockQuantity();
+    }
+
+    // Getters and Setters
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getMedicineId() {
+        return medicineId;
+    }
+
+    public void setMedicineId(String medicineId) {
+        this.medicineId = medicineId;
+    }
+
+    public String getMedicineName() {
+        return medicineName;
+    }
+
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+
+    public String getDosage() {
+        return dosage;
+    }
+
+    public void setDosage(String dosage) {
+        this.dosage = dosage;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public String getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(String expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public Integer getStockAfter() {
+        return stockAfter;
+    }
+
+    public void setStockAfter(Integer stockAfter) {
+        this.stockAfter = stockAfter;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public void setActor(String actor) {
+        this.actor = actor;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+}
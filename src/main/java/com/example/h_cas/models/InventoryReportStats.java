@@ -0,0 +1,79 @@
+package com.example.h_cas.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * InventoryReportStats holds the current stock value per category and the RFID
+ * dispenses per category over a report period.
+ */
+public class InventoryReportStats {
+    private final Map<String, Double> stockValueByCategory;
+    private final Map<String, Integer> unitsByCategory;
+    private final Map<String, Integer> dispensesByCategory;
+    private final double totalStockValue;
+    private final int totalUnits;
+    private final int totalDispenses;
+
+    public InventoryReportStats(Map<String, Double> stockValueByCategory, Map<String, Integer> unitsByCategory,
+                                Map<String, Integer> dispensesByCategory) {
+        this.stockValueByCategory = Collections.unmodifiableMap(new HashMap<>(stockValueByCategory));
+        this.unitsByCategory = Collections.unmodifiableMap(new HashMap<>(unitsByCategory));
+        this.dispensesByCategory = Collections.unmodifiableMap(new HashMap<>(dispensesByCategory));
+
+        double value = 0;
+        for (double categoryValue : stockValueByCategory.values()) {
+            value += categoryValue;
+        }
+        int units = 0;
+        for (int categoryUnits : unitsByCategory.values()) {
+            units += categoryUnits;
+        }
+        int dispenses = 0;
+        for (int categoryDispenses : dispensesByCategory.values()) {
+            dispenses += categoryDispenses;
+        }
+        this.totalStockValue = value;
+        this.totalUnits = units;
+        this.totalDispenses = dispenses;
+    }
+
+    // Getters
+
+    /**
+     * Sum of price * stock quantity over every medicine in stock
+     */
+    public double getTotalStockValue() {
+        return totalStockValue;
+    }
+
+    public int getTotalUnits() {
+        return totalUnits;
+    }
+
+    /**
+     * Prescriptions dispensed from RFID tags during the period
+     */
+    public int getTotalDispenses() {
+        return totalDispenses;
+    }
+
+    /**
+     * Stock value per medicine category ("" for uncategorised medicines)
+     */
+    public Map<String, Double> getStockValueByCategory() {
+        return stockValueByCategory;
+    }
+
+    public Map<String, Integer> getUnitsByCategory() {
+        return unitsByCategory;
+    }
+
+    /**
+     * Dispenses per category of the dispensed medication ("" when it is not in the inventory)
+     */
+    public Map<String, Integer> getDispensesByCategory() {
+        return dispensesByCategory;
+    }
+}
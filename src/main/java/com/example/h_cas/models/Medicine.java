@@ -3,7 +3,7 @@ package com.example.h_cas.models;
 /**
  * Medicine model representing available medicines in the pharmacy inventory.
  */
-public class Medicine {
+public class Medicine implements Cloneable {
     private String medicineId;
     private String medicineName;
     private String dosage;
@@ -150,6 +150,17 @@ public class Medicine {
                 ", unit='" + unit + '\'' +
                 '}';
     }
+
+    /**
+     * A copy of every field, so it can be edited without changing this instance
+     */
+    public Medicine copy() {
+        try {
+            return (Medicine) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
 
 
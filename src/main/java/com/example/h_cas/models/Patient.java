@@ -4,7 +4,7 @@ package com.example.h_cas.models;
  * Patient model representing a patient entity stored in the local database.
  * Enhanced with comprehensive patient information fields required for healthcare management.
  */
-public class Patient {
+public class Patient implements Cloneable {
 
     // Basic Information
     private String patientId;
@@ -250,6 +250,17 @@ public class Patient {
     public void setCreatedDate(String createdDate) {
         this.createdDate = createdDate;
     }
+
+    /**
+     * A copy of every field, so it can be edited without changing this instance
+     */
+    public Patient copy() {
+        try {
+            return (Patient) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
 
 
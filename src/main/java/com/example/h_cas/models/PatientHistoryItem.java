@@ -0,0 +1,57 @@
+package com.example.h_cas.models;
+
+/**
+ * PatientHistoryItem summarises a patient's prescriptions: how many they have
+ * received and the details of the most recent one.
+ */
+public class PatientHistoryItem {
+    private Patient patient;
+    private int prescriptionCount;
+    private String lastPrescriptionDate;
+    private String lastMedication;
+    private String lastDoctor;
+
+    // Default constructor
+    public PatientHistoryItem() {}
+
+    // Getters and Setters
+    public Patient getPatient() {
+        return patient;
+    }
+
+    public void setPatient(Patient patient) {
+        this.patient = patient;
+    }
+
+    public int getPrescriptionCount() {
+        return prescriptionCount;
+    }
+
+    public void setPrescriptionCount(int prescriptionCount) {
+        this.prescriptionCount = prescriptionCount;
+    }
+
+    public String getLastPrescriptionDate() {
+        return lastPrescriptionDate;
+    }
+
+    public void setLastPrescriptionDate(String lastPrescriptionDate) {
+        this.lastPrescriptionDate = lastPrescriptionDate;
+    }
+
+    public String getLastMedication() {
+        return lastMedication;
+    }
+
+    public void setLastMedication(String lastMedication) {
+        this.lastMedication = lastMedication;
+    }
+
+    public String getLastDoctor() {
+        return lastDoctor;
+    }
+
+    public void setLastDoctor(String lastDoctor) {
+        this.lastDoctor = lastDoctor;
+    }
+}
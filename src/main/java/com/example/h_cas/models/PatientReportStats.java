@@ -0,0 +1,52 @@
+package com.example.h_cas.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PatientReportStats summarises patient registrations over a report period.
+ */
+public class PatientReportStats {
+    private final int totalPatients;
+    private final int malePatients;
+    private final int femalePatients;
+    private final int averageAge;
+    private final Map<String, Integer> patientsByAgeBand;
+
+    public PatientReportStats(int totalPatients, int malePatients, int femalePatients, int averageAge,
+                              Map<String, Integer> patientsByAgeBand) {
+        this.totalPatients = totalPatients;
+        this.malePatients = malePatients;
+        this.femalePatients = femalePatients;
+        this.averageAge = averageAge;
+        this.patientsByAgeBand = Collections.unmodifiableMap(new HashMap<>(patientsByAgeBand));
+    }
+
+    // Getters
+    public int getTotalPatients() {
+        return totalPatients;
+    }
+
+    public int getMalePatients() {
+        return malePatients;
+    }
+
+    public int getFemalePatients() {
+        return femalePatients;
+    }
+
+    /**
+     * Average over the patients with a numeric age, in whole years
+     */
+    public int getAverageAge() {
+        return averageAge;
+    }
+
+    /**
+     * Patients per age band ("0-17", "18-39", "40-64", "65+" and "Unknown")
+     */
+    public Map<String, Integer> getPatientsByAgeBand() {
+        return patientsByAgeBand;
+    }
+}
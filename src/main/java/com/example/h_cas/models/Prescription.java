@@ -3,7 +3,7 @@ package com.example.h_cas.models;
 /**
  * Prescription model representing a prescription created by a doctor for a patient.
  */
-public class Prescription {
+public class Prescription implements Cloneable {
     private String prescriptionId;
     private String patientId;
     private String patientName;
@@ -129,6 +129,17 @@ public class Prescription {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    /**
+     * A copy of every field, so it can be edited without changing this instance
+     */
+    public Prescription copy() {
+        try {
+            return (Prescription) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
 
 
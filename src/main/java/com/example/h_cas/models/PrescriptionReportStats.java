@@ -0,0 +1,65 @@
+package com.example.h_cas.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PrescriptionReportStats summarises the prescriptions written over a report period.
+ */
+public class PrescriptionReportStats {
+    private final int totalPrescriptions;
+    private final Map<String, Integer> prescriptionsByStatus;
+    private final Map<String, Integer> prescriptionsByDoctor;
+    private final Map<String, Integer> prescriptionsByMedication;
+
+    public PrescriptionReportStats(Map<String, Integer> prescriptionsByStatus,
+                                   Map<String, Integer> prescriptionsByDoctor,
+                                   Map<String, Integer> prescriptionsByMedication) {
+        this.prescriptionsByStatus = Collections.unmodifiableMap(new HashMap<>(prescriptionsByStatus));
+        this.prescriptionsByDoctor = Collections.unmodifiableMap(new HashMap<>(prescriptionsByDoctor));
+        this.prescriptionsByMedication = Collections.unmodifiableMap(new HashMap<>(prescriptionsByMedication));
+        int total = 0;
+        for (int count : prescriptionsByStatus.values()) {
+            total += count;
+        }
+        this.totalPrescriptions = total;
+    }
+
+    // Getters
+    public int getTotalPrescriptions() {
+        return totalPrescriptions;
+    }
+
+    /**
+     * Prescriptions whose status is "Dispensed" (any case)
+     */
+    public int getDispensedCount() {
+        int dispensed = 0;
+        for (Map.Entry<String, Integer> entry : prescriptionsByStatus.entrySet()) {
+            if ("Dispensed".equalsIgnoreCase(entry.getKey())) {
+                dispensed += entry.getValue();
+            }
+        }
+        return dispensed;
+    }
+
+    /**
+     * Every prescription that is not dispensed yet
+     */
+    public int getPendingCount() {
+        return totalPrescriptions - getDispensedCount();
+    }
+
+    public Map<String, Integer> getPrescriptionsByStatus() {
+        return prescriptionsByStatus;
+    }
+
+    public Map<String, Integer> getPrescriptionsByDoctor() {
+        return prescriptionsByDoctor;
+    }
+
+    public Map<String, Integer> getPrescriptionsByMedication() {
+        return prescriptionsByMedication;
+    }
+}
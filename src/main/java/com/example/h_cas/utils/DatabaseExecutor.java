@@ -2,22 +2,80 @@ package com.example.h_cas.utils;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * DatabaseExecutor provides a thread pool for executing database operations
- * off the main thread to prevent UI blocking.
+ * DatabaseExecutor runs background work off the main thread on a small set of
+ * dedicated pools, so a slow network call or image download never delays a screen
+ * load or a database write:
+ * <ul>
+ *   <li>{@link Pool#DB_READ} - queries for screens (WAL allows concurrent readers)</li>
+ *   <li>{@link Pool#DB_WRITE} - a single writer, so writes apply in submission order</li>
+ *   <li>{@link Pool#NETWORK} - Firebase setup and sync</li>
+ *   <li>{@link Pool#IMAGE_IO} - image downloads and decoding</li>
+ *   <li>{@link Pool#TAG_IO} - blocking RFID tag writes and the encoding of the next tag</li>
+ * </ul>
+ * Each pool has a bounded queue ordered by {@link Priority} (FIFO within a priority)
+ * and keeps queue-time, run-time and rejection counters, see {@link #getStats(Pool)}.
+ * A full queue never drops {@link Priority#UI} work or writes; anything else it drops
+ * is reported through the onRejected callback it was submitted with.
  */
 public class DatabaseExecutor {
-    private static final int THREAD_POOL_SIZE = 3;
+    private static final String TAG = "DatabaseExecutor";
+
+    /**
+     * The pools work can be submitted to
+     */
+    public enum Pool {
+        DB_READ("db-read", 3, 128, Process.THREAD_PRIORITY_DEFAULT),
+        DB_WRITE("db-write", 1, 512, Process.THREAD_PRIORITY_BACKGROUND),
+        NETWORK("network", 2, 64, Process.THREAD_PRIORITY_BACKGROUND),
+        IMAGE_IO("image-io", 2, 32, Process.THREAD_PRIORITY_BACKGROUND),
+        TAG_IO("tag-io", 2, 16, Process.THREAD_PRIORITY_DEFAULT);
+
+        final String threadName;
+        final int threads;
+        final int queueCapacity;
+        final int threadPriority;
+
+        Pool(String threadName, int threads, int queueCapacity, int threadPriority) {
+            this.threadName = threadName;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.threadPriority = threadPriority;
+        }
+    }
+
+    /**
+     * Queue priority within a pool; UI work runs before anything queued at a lower priority
+     */
+    public enum Priority {
+        UI,
+        DEFAULT,
+        BACKGROUND
+    }
+
     private static DatabaseExecutor instance;
-    private final ExecutorService executorService;
+    private final PoolExecutor[] pools = new PoolExecutor[Pool.values().length];
     private final Handler mainHandler;
 
     private DatabaseExecutor() {
-        executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        for (Pool pool : Pool.values()) {
+            pools[pool.ordinal()] = new PoolExecutor(pool);
+        }
         mainHandler = new Handler(Looper.getMainLooper());
     }
 
@@ -29,10 +87,49 @@ public class DatabaseExecutor {
     }
 
     /**
-     * Execute a database operation on a background thread
+     * Execute a database read on a background thread
      */
     public void execute(Runnable task) {
-        executorService.execute(task);
+        execute(Pool.DB_READ, Priority.DEFAULT, null, task);
+    }
+
+    /**
+     * Execute a database read for a screen. It is queued ahead of background work and
+     * dropped if owner is destroyed before it starts.
+     */
+    public void execute(LifecycleOwner owner, Runnable task) {
+        execute(Pool.DB_READ, Priority.UI, owner, task);
+    }
+
+    /**
+     * Execute a task on the given pool
+     *
+     * @param owner if not null, the task is cancelled when owner is destroyed before it starts
+     */
+    public void execute(Pool pool, Priority priority, LifecycleOwner owner, Runnable task) {
+        execute(pool, priority, owner, task, null);
+    }
+
+    /**
+     * Execute a task on the given pool
+     *
+     * @param owner      if not null, the task is cancelled when owner is destroyed before it starts
+     * @param onRejected if not null, run on the main thread if the pool's queue is full and
+     *                   the task is dropped without running
+     */
+    public void execute(Pool pool, Priority priority, LifecycleOwner owner, Runnable task, Runnable onRejected) {
+        PrioritizedTask prioritized = new PrioritizedTask(pools[pool.ordinal()], priority, task, onRejected);
+        if (owner != null) {
+            prioritized.bindTo(owner);
+        }
+        pools[pool.ordinal()].execute(prioritized);
+    }
+
+    /**
+     * Execute a task on the given pool after a delay
+     */
+    public void schedule(Pool pool, Priority priority, Runnable task, long delayMs) {
+        mainHandler.postDelayed(() -> execute(pool, priority, null, task), delayMs);
     }
 
     /**
@@ -42,13 +139,357 @@ public class DatabaseExecutor {
         mainHandler.post(task);
     }
 
+    /**
+     * Counters for one pool since the app started
+     */
+    public PoolStats getStats(Pool pool) {
+        return pools[pool.ordinal()].snapshot();
+    }
+
     /**
      * Shutdown the executor (call this when app is closing)
      */
     public void shutdown() {
-        executorService.shutdown();
+        for (PoolExecutor pool : pools) {
+            pool.shutdown();
+        }
     }
-}
 
+    /**
+     * A point-in-time copy of one pool's counters
+     */
+    public static final class PoolStats {
+        private final Pool pool;
+        private final int queueDepth;
+        private final int activeCount;
+        private final long completed;
+        private final long rejected;
+        private final long cancelled;
+        private final long totalQueueTimeMs;
+        private final long maxQueueTimeMs;
+        private final long totalRunTimeMs;
+
+        PoolStats(Pool pool, int queueDepth, int activeCount, long completed, long rejected, long cancelled,
+                  long totalQueueTimeMs, long maxQueueTimeMs, long totalRunTimeMs) {
+            this.pool = pool;
+            this.queueDepth = queueDepth;
+            this.activeCount = activeCount;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.cancelled = cancelled;
+            this.totalQueueTimeMs = totalQueueTimeMs;
+            this.maxQueueTimeMs = maxQueueTimeMs;
+            this.totalRunTimeMs = totalRunTimeMs;
+        }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
 
+        public int getActiveCount() {
+            return activeCount;
+        }
 
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        public long getRejectedCount() {
+            return rejected;
+        }
+
+        public long getCancelledCount() {
+            return cancelled;
+        }
+
+        public long getAverageQueueTimeMs() {
+            return completed > 0 ? totalQueueTimeMs / completed : 0;
+        }
+
+        public long getMaxQueueTimeMs() {
+            return maxQueueTimeMs;
+        }
+
+        public long getAverageRunTimeMs() {
+            return completed > 0 ? totalRunTimeMs / completed : 0;
+        }
+
+        @Override
+        public String toString() {
+            return pool + ": queued=" + queueDepth + " active=" + activeCount + " completed=" + completed +
+                   " rejected=" + rejected + " cancelled=" + cancelled +
+                   " avgQueue=" + getAverageQueueTimeMs() + "ms maxQueue=" + maxQueueTimeMs + "ms" +
+                   " avgRun=" + getAverageRunTimeMs() + "ms";
+        }
+    }
+
+    /**
+     * A fixed-size pool with a bounded priority queue and counters.
+     * When the queue is full, UI work is queued past the bound, and a write blocks its
+     * submitting thread until the writer frees a slot (backpressure rather than losing a
+     * write or running a second writer). The main thread and the writer itself must not
+     * block on the queue, so their writes are queued past the bound too. Other work is
+     * dropped, counted and reported to its onRejected callback.
+     */
+    private static final class PoolExecutor extends ThreadPoolExecutor {
+        private final Pool pool;
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong totalQueueTimeMs = new AtomicLong();
+        private final AtomicLong maxQueueTimeMs = new AtomicLong();
+        private final AtomicLong totalRunTimeMs = new AtomicLong();
+
+        PoolExecutor(Pool pool) {
+            super(pool.threads, pool.threads, 0L, TimeUnit.MILLISECONDS,
+                  new BoundedPriorityQueue(pool.queueCapacity), new PoolThreadFactory(pool));
+            this.pool = pool;
+            setRejectedExecutionHandler(new CountingRejectionHandler());
+        }
+
+        void recordRun(long queueTimeMs, long runTimeMs) {
+            completed.incrementAndGet();
+            totalQueueTimeMs.addAndGet(queueTimeMs);
+            totalRunTimeMs.addAndGet(runTimeMs);
+            long max;
+            while (queueTimeMs > (max = maxQueueTimeMs.get()) && !maxQueueTimeMs.compareAndSet(max, queueTimeMs)) {
+                // Retry until the larger value sticks
+            }
+        }
+
+        void recordCancelled(PrioritizedTask task) {
+            cancelled.incrementAndGet();
+            remove(task);
+        }
+
+        PoolStats snapshot() {
+            return new PoolStats(pool, getQueue().size(), getActiveCount(), completed.get(), rejected.get(),
+                                 cancelled.get(), totalQueueTimeMs.get(), maxQueueTimeMs.get(),
+                                 totalRunTimeMs.get());
+        }
+
+        private final class CountingRejectionHandler implements RejectedExecutionHandler {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                PrioritizedTask prioritized = (PrioritizedTask) task;
+                BoundedPriorityQueue queue = (BoundedPriorityQueue) executor.getQueue();
+                if (executor.isShutdown()) {
+                    rejected.incrementAndGet();
+                    prioritized.reject();
+                    return;
+                }
+                boolean onMainThread = Looper.myLooper() == Looper.getMainLooper();
+                boolean onOwnThread = PoolThreadFactory.CURRENT.get() == pool;
+                if (prioritized.priority == Priority.UI ||
+                    (pool == Pool.DB_WRITE && (onMainThread || onOwnThread))) {
+                    // A screen is waiting on it, or the thread that would wait is the main
+                    // thread or the one that frees a slot
+                    Log.w(TAG, pool + " queue full (" + pool.queueCapacity + "), queued past the bound");
+                    queue.offerPastCapacity(task);
+                } else if (pool == Pool.DB_WRITE) {
+                    Log.w(TAG, "Write queue full, waiting for a free slot");
+                    try {
+                        queue.putWhenSpace(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        queue.offerPastCapacity(task);
+                    }
+                } else {
+                    Log.w(TAG, pool + " queue full (" + pool.queueCapacity + "), task dropped");
+                    rejected.incrementAndGet();
+                    prioritized.reject();
+                }
+            }
+        }
+    }
+
+    /**
+     * PriorityBlockingQueue is unbounded; refusing offers past capacity makes the pool
+     * hand overflow to its rejection handler instead of growing without limit
+     */
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+        private final int capacity;
+        // Signalled whenever a task leaves the queue
+        private final Object space = new Object();
+
+        BoundedPriorityQueue(int capacity) {
+            super(capacity);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            return size() < capacity && super.offer(task);
+        }
+
+        /**
+         * Queue a task the pool must not drop; the pool's threads are all running by the
+         * time the bound is reached, so one of them picks it up
+         */
+        void offerPastCapacity(Runnable task) {
+            super.offer(task);
+        }
+
+        /**
+         * Queue a task, waiting while the queue is full. Holding the monitor between a
+         * refused offer and the wait means a slot freed in between is not missed.
+         */
+        void putWhenSpace(Runnable task) throws InterruptedException {
+            synchronized (space) {
+                while (!offer(task)) {
+                    space.wait();
+                }
+            }
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            return freed(super.take());
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return freed(super.poll(timeout, unit));
+        }
+
+        @Override
+        public Runnable poll() {
+            return freed(super.poll());
+        }
+
+        @Override
+        public boolean remove(Object task) {
+            return freed(super.remove(task) ? task : null) != null;
+        }
+
+        private <T> T freed(T task) {
+            if (task != null) {
+                synchronized (space) {
+                    space.notifyAll();
+                }
+            }
+            return task;
+        }
+    }
+
+    private static final class PoolThreadFactory implements ThreadFactory {
+        // The pool whose thread is running, null on any other thread
+        static final ThreadLocal<Pool> CURRENT = new ThreadLocal<>();
+
+        private final Pool pool;
+        private final AtomicInteger count = new AtomicInteger();
+
+        PoolThreadFactory(Pool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(pool.threadPriority);
+                CURRENT.set(pool);
+                runnable.run();
+            }, "hcas-" + pool.threadName + "-" + count.incrementAndGet());
+        }
+    }
+
+    /**
+     * A queued task: ordered by priority, then submission order, and timed when it runs
+     */
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        private final PoolExecutor pool;
+        private final Priority priority;
+        private final Runnable task;
+        private final Runnable onRejected;
+        private final long sequence = SEQUENCE.getAndIncrement();
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private Runnable unbind;
+
+        private static final int QUEUED = 0;
+        private static final int STARTED = 1;
+        private static final int CANCELLED = 2;
+
+        PrioritizedTask(PoolExecutor pool, Priority priority, Runnable task, Runnable onRejected) {
+            this.pool = pool;
+            this.priority = priority;
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+
+        /**
+         * Cancel the task if owner is destroyed before it starts. Lifecycle observers
+         * may only be touched on the main thread.
+         */
+        void bindTo(LifecycleOwner owner) {
+            Handler mainHandler = getInstance().mainHandler;
+            LifecycleEventObserver observer = (source, event) -> {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    cancel();
+                }
+            };
+            unbind = () -> mainHandler.post(() -> owner.getLifecycle().removeObserver(observer));
+            mainHandler.post(() -> {
+                if (state.get() != QUEUED) {
+                    return;
+                }
+                if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                    cancel();
+                } else {
+                    owner.getLifecycle().addObserver(observer);
+                }
+            });
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                pool.recordCancelled(this);
+            }
+        }
+
+        /**
+         * The pool dropped the task; tell the submitter unless its owner already cancelled it
+         */
+        void reject() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                if (unbind != null) {
+                    unbind.run();
+                }
+                if (onRejected != null) {
+                    getInstance().mainHandler.post(onRejected);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, STARTED)) {
+                return;
+            }
+            if (unbind != null) {
+                unbind.run();
+            }
+
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long end = System.nanoTime();
+                pool.recordRun(TimeUnit.NANOSECONDS.toMillis(start - enqueuedAt),
+                               TimeUnit.NANOSECONDS.toMillis(end - start));
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
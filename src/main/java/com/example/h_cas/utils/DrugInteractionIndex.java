@@ -0,0 +1,406 @@
+package com.example.h_cas.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.h_cas.models.DrugInteraction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DrugInteractionIndex answers "does this medication interact with any of these" from
+ * memory. The interaction table is loaded once from the bundled
+ * {@value #ASSET_NAME} asset (see the file header for its format):
+ *
+ * - Every medication and medication class gets an int id. Brand and alternate names
+ *   are mapped to the id of the medication they stand for.
+ * - A medication expands to its own id plus the ids of its classes, so an entry such
+ *   as "anticoagulants | NSAIDs" covers every pair of members.
+ * - Interacting pairs are kept in an open-addressing table of long keys (both ids
+ *   packed, smaller first), with no boxing on lookup.
+ *
+ * Checking a medication against a regimen of k medications is k name lookups plus a
+ * few pair probes per medication. The index is immutable once built and safe to share
+ * between threads.
+ */
+public final class DrugInteractionIndex {
+    private static final String TAG = "DrugInteractionIndex";
+
+    static final String ASSET_NAME = "drug_interactions.txt";
+
+    // Words dropped when matching a medication name ("Amoxicillin 500mg capsule")
+    private static final Set<String> DOSAGE_WORDS = new HashSet<>(Arrays.asList(
+        "mg", "mcg", "g", "ml", "iu", "unit", "units", "tab", "tabs", "tablet", "tablets", "cap", "caps",
+        "capsule", "capsules", "syrup", "suspension", "drops", "cream", "ointment", "injection", "inj",
+        "solution", "sr", "xr", "er", "forte", "oral"));
+
+    private static DrugInteractionIndex instance;
+
+    private final Map<String, Integer> ids;
+    private final int[][] expansions;
+    private final PairTable pairs;
+    private final DrugInteraction[] interactions;
+
+    private DrugInteractionIndex(Map<String, Integer> ids, int[][] expansions, PairTable pairs,
+                                 DrugInteraction[] interactions) {
+        this.ids = ids;
+        this.expansions = expansions;
+        this.pairs = pairs;
+        this.interactions = interactions;
+    }
+
+    /**
+     * The index of the bundled table, loaded on first use. The first call reads the
+     * asset; make it off the main thread. If the asset cannot be read the index is
+     * empty and every check finds nothing.
+     */
+    public static synchronized DrugInteractionIndex getInstance(Context context) {
+        if (instance == null) {
+            long start = System.nanoTime();
+            try (Reader reader = new InputStreamReader(context.getApplicationContext().getAssets().open(ASSET_NAME),
+                                                       StandardCharsets.UTF_8)) {
+                instance = parse(reader);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not load " + ASSET_NAME, e);
+                instance = new Builder().build();
+            }
+            Log.d(TAG, "Loaded " + instance.size() + " interactions in " +
+                       (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+        return instance;
+    }
+
+    /**
+     * Build an index from a table in the asset format
+     */
+    public static DrugInteractionIndex parse(Reader table) throws IOException {
+        Builder builder = new Builder();
+        BufferedReader reader = new BufferedReader(table);
+        String section = "";
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                section = line.substring(1, line.length() - 1);
+                continue;
+            }
+
+            if ("interactions".equals(section)) {
+                String[] fields = line.split("\\|");
+                DrugInteraction.Severity severity =
+                    fields.length == 5 ? DrugInteraction.Severity.fromLabel(fields[2].trim()) : null;
+                if (severity == null) {
+                    Log.w(TAG, ASSET_NAME + ":" + lineNumber + ": skipping malformed interaction");
+                    continue;
+                }
+                builder.addInteraction(fields[0].trim(), fields[1].trim(), severity, fields[3].trim(),
+                                       fields[4].trim());
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            if (equals <= 0) {
+                Log.w(TAG, ASSET_NAME + ":" + lineNumber + ": skipping malformed line");
+                continue;
+            }
+            String name = line.substring(0, equals).trim();
+            String value = line.substring(equals + 1).trim();
+            if ("synonyms".equals(section)) {
+                builder.addSynonym(name, value);
+            } else if ("classes".equals(section)) {
+                for (String drugClass : value.split(",")) {
+                    builder.addClass(name, drugClass.trim());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Interactions of medication with each of otherMedications, most severe first. Each
+     * result names the two medications as given, so it reads as the prescriber wrote
+     * them. Medications that are not in the table match nothing.
+     */
+    public List<DrugInteraction> check(String medication, Collection<String> otherMedications) {
+        int[] expanded = expand(medication);
+        if (expanded == null || otherMedications.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<DrugInteraction> found = new ArrayList<>();
+        for (String other : otherMedications) {
+            int[] otherExpanded = expand(other);
+            if (otherExpanded == null) {
+                continue;
+            }
+            // The most severe entry that covers this pair of medications
+            DrugInteraction worst = null;
+            for (int a : expanded) {
+                for (int b : otherExpanded) {
+                    int entry = pairs.get(pairKey(a, b));
+                    if (entry >= 0 && (worst == null ||
+                                       interactions[entry].getSeverity().compareTo(worst.getSeverity()) > 0)) {
+                        worst = interactions[entry];
+                    }
+                }
+            }
+            if (worst != null) {
+                found.add(new DrugInteraction(medication, other, worst.getSeverity(), worst.getEffect(),
+                                              worst.getRecommendation()));
+            }
+        }
+        Collections.sort(found, (x, y) -> y.getSeverity().compareTo(x.getSeverity()));
+        return found;
+    }
+
+    /**
+     * Interactions between two medications, most severe first
+     */
+    public List<DrugInteraction> check(String medication, String otherMedication) {
+        return check(medication, Collections.singletonList(otherMedication));
+    }
+
+    /**
+     * Whether medication (or a brand name of it) is in the table
+     */
+    public boolean isKnown(String medication) {
+        return expand(medication) != null;
+    }
+
+    /**
+     * Every entry of the table, most severe first
+     */
+    public List<DrugInteraction> getInteractions() {
+        List<DrugInteraction> all = new ArrayList<>(Arrays.asList(interactions));
+        Collections.sort(all, (x, y) -> y.getSeverity().compareTo(x.getSeverity()));
+        return all;
+    }
+
+    public int size() {
+        return interactions.length;
+    }
+
+    /**
+     * The ids to check for a medication as written: the longest leading run of words
+     * that names a medication, or failing that any single word that does
+     */
+    private int[] expand(String medication) {
+        String[] words = words(medication);
+        for (int length = words.length; length > 0; length--) {
+            Integer id = ids.get(join(words, 0, length));
+            if (id != null) {
+                return expansions[id];
+            }
+        }
+        for (int i = 1; i < words.length; i++) {
+            Integer id = ids.get(words[i]);
+            if (id != null) {
+                return expansions[id];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lower-cased words of a name, without punctuation, strengths and dosage forms
+     */
+    static String[] words(String name) {
+        if (name == null) {
+            return new String[0];
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}-]+")) {
+            if (!word.isEmpty() && !DOSAGE_WORDS.contains(word) && !containsDigit(word)) {
+                words.add(word);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    static String normalize(String name) {
+        String[] words = words(name);
+        return join(words, 0, words.length);
+    }
+
+    private static boolean containsDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String join(String[] words, int from, int to) {
+        if (to - from == 1) {
+            return words[from];
+        }
+        StringBuilder joined = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                joined.append(' ');
+            }
+            joined.append(words[i]);
+        }
+        return joined.toString();
+    }
+
+    private static long pairKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Collects names, classes and interactions, then freezes them into an index. Ids are
+     * assigned from 1 in order of first appearance.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        // Class ids of each id
+        private final List<Set<Integer>> classes = new ArrayList<>();
+        private final Map<Long, Integer> pairs = new HashMap<>();
+        private final List<DrugInteraction> interactions = new ArrayList<>();
+
+        public Builder() {
+            // Id 0 is never assigned, so a packed key is never 0
+            classes.add(null);
+        }
+
+        /**
+         * Match alias as medication
+         */
+        public Builder addSynonym(String alias, String medication) {
+            String key = normalize(alias);
+            if (!key.isEmpty()) {
+                ids.put(key, id(medication));
+            }
+            return this;
+        }
+
+        /**
+         * Check medication as a member of drugClass too
+         */
+        public Builder addClass(String medication, String drugClass) {
+            classes.get(id(medication)).add(id(drugClass));
+            return this;
+        }
+
+        /**
+         * Add an entry; a pair listed twice keeps its more severe entry
+         */
+        public Builder addInteraction(String a, String b, DrugInteraction.Severity severity, String effect,
+                                      String recommendation) {
+            long key = pairKey(id(a), id(b));
+            DrugInteraction interaction = new DrugInteraction(displayName(a), displayName(b), severity, effect,
+                                                              recommendation);
+            Integer existing = pairs.get(key);
+            if (existing == null) {
+                pairs.put(key, interactions.size());
+                interactions.add(interaction);
+            } else if (severity.compareTo(interactions.get(existing).getSeverity()) > 0) {
+                interactions.set(existing, interaction);
+            }
+            return this;
+        }
+
+        public DrugInteractionIndex build() {
+            int[][] expansions = new int[classes.size()][];
+            for (int id = 1; id < classes.size(); id++) {
+                Set<Integer> expanded = new LinkedHashSet<>();
+                expanded.add(id);
+                expanded.addAll(classes.get(id));
+                expansions[id] = new int[expanded.size()];
+                int i = 0;
+                for (int member : expanded) {
+                    expansions[id][i++] = member;
+                }
+            }
+            PairTable table = new PairTable(pairs.size());
+            for (Map.Entry<Long, Integer> pair : pairs.entrySet()) {
+                table.put(pair.getKey(), pair.getValue());
+            }
+            return new DrugInteractionIndex(new HashMap<>(ids), expansions, table,
+                                            interactions.toArray(new DrugInteraction[0]));
+        }
+
+        private int id(String name) {
+            String key = normalize(name);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = classes.size();
+                ids.put(key, id);
+                classes.add(new HashSet<>());
+            }
+            return id;
+        }
+
+        private static String displayName(String name) {
+            return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    /**
+     * Open-addressing map from non-zero long keys to int values, with linear probing and
+     * a load factor of at most one half
+     */
+    private static final class PairTable {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        PairTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(long key, int value) {
+            int slot = slot(key);
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        /**
+         * The value for key, or -1
+         */
+        int get(long key) {
+            int slot = slot(key);
+            long stored;
+            while ((stored = keys[slot]) != 0) {
+                if (stored == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
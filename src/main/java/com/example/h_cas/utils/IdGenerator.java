@@ -0,0 +1,241 @@
+package com.example.h_cas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * IdGenerator issues record ids ("PRE", "PAT", "EMP", "MED" followed by 18 digits) that
+ * stay unique when several tablets write to the same Firebase tree. Each id packs
+ * <pre>
+ *   40 bits  milliseconds since {@link #EPOCH_MILLIS} (until 2059)
+ *   10 bits  this device's node id
+ *    9 bits  sequence within the millisecond
+ * </pre>
+ * into a number below 10^18, written zero-padded so ids of one prefix sort by creation
+ * time as text as well as numbers: they can serve as keyset cursors, and new rows land
+ * at the end of an id index instead of at random pages. All digits also keep the ids in
+ * the compact numeric form of {@link PrescriptionTagCodec}.
+ *
+ * Issuing is lock-free: one compare-and-set on the last issued value per id. An id is
+ * never below the previous one, even when the clock is set back or more than 512 ids
+ * are asked for within a millisecond; the sequence then carries into the time bits and
+ * borrows from the next milliseconds until the clock catches up.
+ *
+ * That also holds across restarts. A high-water mark a little ahead of the last id is
+ * kept in preferences and written before any id passes it, and a restarted generator
+ * starts above it, so a clock set back while the app was closed cannot re-issue an id.
+ * The mark is written at most once per {@link #RESERVE_MILLIS} of ids.
+ *
+ * Node ids are handed out one per installation by the Firebase registry (see
+ * FirebaseHelper.claimIdNode), so no two registered devices share one. Until an
+ * installation has claimed its id (a new install that has not been online yet) it uses
+ * a random provisional one; {@link #setNodeId} also assigns one by hand.
+ */
+public final class IdGenerator {
+    private static final String TAG = "IdGenerator";
+
+    private static final String PREFS_NAME = "IdGeneratorPrefs";
+    private static final String KEY_NODE_ID = "node_id";
+    private static final String KEY_NODE_REGISTERED = "node_registered";
+    private static final String KEY_INSTALLATION_ID = "installation_id";
+    private static final String KEY_HIGH_WATER = "high_water_millis";
+
+    public static final String PREFIX_PRESCRIPTION = "PRE";
+    public static final String PREFIX_PATIENT = "PAT";
+    public static final String PREFIX_EMPLOYEE = "EMP";
+    public static final String PREFIX_MEDICINE = "MED";
+
+    // 2025-01-01T00:00:00Z
+    public static final long EPOCH_MILLIS = 1_735_689_600_000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 9;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int DIGITS = 18;
+
+    // How far past the last id the persisted high-water mark is set
+    static final long RESERVE_MILLIS = 60_000;
+
+    private static volatile IdGenerator instance;
+
+    private final int nodeId;
+
+    // Time and sequence of the last id, (millis << SEQUENCE_BITS) | sequence
+    private final AtomicLong last = new AtomicLong();
+
+    // Persisted high-water mark in millis since EPOCH_MILLIS; ids stay below it
+    private final AtomicLong reserved = new AtomicLong();
+    private final LongConsumer persistMark;
+
+    IdGenerator(int nodeId) {
+        this(nodeId, 0, mark -> {
+        });
+    }
+
+    /**
+     * @param highWaterMillis the mark persisted by a previous run; ids start above it
+     * @param persistMark     durably stores a new mark before ids up to it are issued
+     */
+    IdGenerator(int nodeId, long highWaterMillis, LongConsumer persistMark) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be 0.." + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.persistMark = persistMark;
+        last.set(highWaterMillis << SEQUENCE_BITS);
+        reserved.set(highWaterMillis);
+    }
+
+    public static IdGenerator getInstance(Context context) {
+        if (instance == null) {
+            synchronized (IdGenerator.class) {
+                if (instance == null) {
+                    SharedPreferences prefs = prefs(context);
+                    instance = create(prefs, loadNodeId(prefs));
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static IdGenerator create(SharedPreferences prefs, int nodeId) {
+        return new IdGenerator(nodeId, prefs.getLong(KEY_HIGH_WATER, 0),
+                               mark -> prefs.edit().putLong(KEY_HIGH_WATER, mark).commit());
+    }
+
+    private static int loadNodeId(SharedPreferences prefs) {
+        int nodeId = prefs.getInt(KEY_NODE_ID, -1);
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            nodeId = new SecureRandom().nextInt(MAX_NODE_ID + 1);
+            prefs.edit().putInt(KEY_NODE_ID, nodeId).commit();
+            Log.d(TAG, "Assigned provisional node id " + nodeId);
+        }
+        return nodeId;
+    }
+
+    /**
+     * Assign this device's node id, from the Firebase registry or an admin-managed
+     * device list. Ids issued from now on use it.
+     */
+    public static void setNodeId(Context context, int nodeId) {
+        synchronized (IdGenerator.class) {
+            SharedPreferences prefs = prefs(context);
+            IdGenerator generator = create(prefs, nodeId);
+            prefs.edit().putInt(KEY_NODE_ID, nodeId).putBoolean(KEY_NODE_REGISTERED, true).commit();
+            if (instance != null) {
+                // Stay above the ids already issued under the old node id
+                generator.last.set(Math.max(generator.last.get(), instance.last.get()));
+            }
+            instance = generator;
+            Log.d(TAG, "Assigned node id " + nodeId);
+        }
+    }
+
+    /**
+     * Whether this installation's node id came from the registry (or was set by hand)
+     * rather than being the random provisional one
+     */
+    public static boolean isNodeRegistered(Context context) {
+        return prefs(context).getBoolean(KEY_NODE_REGISTERED, false);
+    }
+
+    /**
+     * A random id for this installation, the key it claims its node id under
+     */
+    public static String getInstallationId(Context context) {
+        SharedPreferences prefs = prefs(context);
+        synchronized (IdGenerator.class) {
+            String id = prefs.getString(KEY_INSTALLATION_ID, null);
+            if (id == null) {
+                id = UUID.randomUUID().toString();
+                prefs.edit().putString(KEY_INSTALLATION_ID, id).commit();
+            }
+            return id;
+        }
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * A new id: prefix followed by 18 digits
+     */
+    public String next(String prefix) {
+        return format(prefix, nextValue());
+    }
+
+    /**
+     * A new id as a number
+     */
+    public long nextValue() {
+        long current;
+        long next;
+        do {
+            current = last.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            next = Math.max(now, current + 1);
+        } while (!last.compareAndSet(current, next));
+        long millis = next >>> SEQUENCE_BITS;
+        if (millis >= reserved.get()) {
+            reserve(millis);
+        }
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Persist a mark past millis before an id at millis is handed out
+     */
+    private void reserve(long millis) {
+        synchronized (reserved) {
+            if (millis >= reserved.get()) {
+                long mark = Math.max(millis, System.currentTimeMillis() - EPOCH_MILLIS) + RESERVE_MILLIS;
+                persistMark.accept(mark);
+                reserved.set(mark);
+            }
+        }
+    }
+
+    /**
+     * prefix followed by value zero-padded to 18 digits
+     */
+    public static String format(String prefix, long value) {
+        String digits = Long.toString(value);
+        StringBuilder id = new StringBuilder(prefix.length() + DIGITS).append(prefix);
+        for (int pad = DIGITS - digits.length(); pad > 0; pad--) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    /**
+     * When an id of this format was issued, in epoch milliseconds, or -1 for other ids
+     * (such as the older prefix-plus-timestamp ones)
+     */
+    public static long timestampOf(String id) {
+        if (id == null || id.length() <= DIGITS) {
+            return -1;
+        }
+        String digits = id.substring(id.length() - DIGITS);
+        for (int i = 0; i < DIGITS; i++) {
+            if (!Character.isDigit(digits.charAt(i))) {
+                return -1;
+            }
+        }
+        if (Character.isDigit(id.charAt(id.length() - DIGITS - 1))) {
+            return -1;
+        }
+        return (Long.parseLong(digits) >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+}
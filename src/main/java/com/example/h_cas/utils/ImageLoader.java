@@ -0,0 +1,546 @@
+package com.example.h_cas.utils;
+
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImageLoader loads profile pictures into image views through two cache tiers:
+ * <ul>
+ *   <li>memory - decoded bitmaps in an LruCache sized from the app's memory class
+ *       (a smaller share on low-RAM devices), keyed by URL and target size</li>
+ *   <li>disk - the downloaded bytes under the cache directory, keyed by a hash of the
+ *       URL and trimmed oldest-first past {@link #DISK_CACHE_BYTES}</li>
+ * </ul>
+ * Images are decoded with {@code inSampleSize} so a bitmap is never much larger than
+ * the view it is shown in. Downloads and decodes run on the IMAGE_IO pool; requests for
+ * the same image at the same size share one load, and a view that is given another
+ * image or {@link #cancel cancelled} stops waiting for the old one, which is abandoned
+ * (mid-download if need be) once no view wants it.
+ *
+ * Uploads go through {@link #prepareUpload}: the picture is scaled to at most
+ * {@link #UPLOAD_MAX_EDGE_PX} and re-encoded as JPEG at {@link #UPLOAD_JPEG_QUALITY}.
+ */
+public final class ImageLoader {
+    private static final String TAG = "ImageLoader";
+
+    private static final String DISK_CACHE_DIR = "images";
+    public static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+
+    // Used when a view has neither been laid out nor has a fixed size
+    private static final int DEFAULT_SIZE_DP = 128;
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    // Large enough for a profile picture shown full width, far below a camera original
+    public static final int UPLOAD_MAX_EDGE_PX = 1024;
+    public static final int UPLOAD_JPEG_QUALITY = 80;
+
+    /**
+     * Outcome of {@link #prepareUpload}, called on the main thread
+     */
+    public interface UploadListener {
+        void onReady(byte[] jpeg);
+
+        void onFailed(Exception error);
+    }
+
+    private static volatile ImageLoader instance;
+
+    private final ContentResolver contentResolver;
+    private final File diskDir;
+    private final int defaultSizePx;
+    private final LruCache<String, Bitmap> memory;
+
+    // Loads in progress by memory key, and the load each view waits for
+    // (only touched on the main thread)
+    private final Map<String, Request> inFlight = new HashMap<>();
+    private final Map<ImageView, Request> viewRequests = new WeakHashMap<>();
+
+    // One download per URL at a time; a second load of it waits and reads the disk tier
+    private final Map<String, Object> downloadLocks = new ConcurrentHashMap<>();
+    // Bytes just uploaded, written to the disk tier before anything downloads them
+    private final Map<String, byte[]> seeds = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    private ImageLoader(Context context) {
+        contentResolver = context.getContentResolver();
+        diskDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        defaultSizePx = Math.round(DEFAULT_SIZE_DP * context.getResources().getDisplayMetrics().density);
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = activityManager.isLowRamDevice();
+        int memoryClassMb = activityManager.getMemoryClass();
+        int cacheKb = memoryClassMb * 1024 / (lowRam ? 16 : 8);
+        memory = new LruCache<String, Bitmap>(cacheKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+        };
+        Log.d(TAG, "Memory cache " + cacheKb + "KB (memory class " + memoryClassMb + "MB" +
+                   (lowRam ? ", low RAM" : "") + ")");
+    }
+
+    public static ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ImageLoader.class) {
+                if (instance == null) {
+                    instance = new ImageLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Show the image at url in view, at the view's size. On the main thread.
+     *
+     * @param fallbackRes shown if url is empty or the image cannot be loaded; 0 keeps
+     *                    whatever the view shows
+     */
+    public void load(String url, ImageView view, @DrawableRes int fallbackRes) {
+        cancel(view);
+        if (url == null || url.isEmpty()) {
+            showFallback(view, fallbackRes);
+            return;
+        }
+
+        int width = targetSize(view, true);
+        int height = targetSize(view, false);
+        String key = url + "@" + width + "x" + height;
+        Bitmap cached = memory.get(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        Request request = inFlight.get(key);
+        if (request == null) {
+            request = new Request(key, url, width, height);
+            inFlight.put(key, request);
+            // If the pool drops it (only once it is shut down) the views get their fallback
+            Request submitted = request;
+            DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.IMAGE_IO, DatabaseExecutor.Priority.UI,
+                                                   null, request, () -> deliver(submitted, null));
+        } else {
+            coalesced.incrementAndGet();
+        }
+        request.targets.add(new Target(view, fallbackRes));
+        viewRequests.put(view, request);
+    }
+
+    /**
+     * Stop waiting for the image view was last given. On the main thread.
+     */
+    public void cancel(ImageView view) {
+        Request request = viewRequests.remove(view);
+        if (request == null) {
+            return;
+        }
+        for (int i = request.targets.size() - 1; i >= 0; i--) {
+            ImageView target = request.targets.get(i).view.get();
+            if (target == null || target == view) {
+                request.targets.remove(i);
+            }
+        }
+        if (request.targets.isEmpty() && request.cancelled.compareAndSet(false, true)) {
+            inFlight.remove(request.key);
+            abandoned.incrementAndGet();
+        }
+    }
+
+    /**
+     * Keep bytes that were just uploaded as the disk copy of url, so showing the new
+     * picture does not download it again
+     */
+    public void put(String url, byte[] bytes) {
+        if (url == null || bytes == null) {
+            return;
+        }
+        seeds.put(url, bytes);
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.IMAGE_IO, DatabaseExecutor.Priority.BACKGROUND,
+                                               null, () -> {
+            Object lock = downloadLocks.computeIfAbsent(url, k -> new Object());
+            synchronized (lock) {
+                try {
+                    writeSeed(url, diskFile(url));
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not cache uploaded image", e);
+                } finally {
+                    downloadLocks.remove(url, lock);
+                }
+            }
+        });
+    }
+
+    /**
+     * Scale and re-encode the picture at uri for upload, off the main thread
+     *
+     * @param owner if not null, nothing is delivered once owner is destroyed
+     */
+    public void prepareUpload(Uri uri, LifecycleOwner owner, UploadListener listener) {
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.IMAGE_IO, DatabaseExecutor.Priority.UI, owner, () -> {
+            try {
+                byte[] jpeg = encodeForUpload(decodeForUpload(uri));
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> listener.onReady(jpeg));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Could not prepare " + uri + " for upload", e);
+                DatabaseExecutor.getInstance().executeOnMainThread(() -> listener.onFailed(e));
+            }
+        });
+    }
+
+    /**
+     * Scale and re-encode bitmap (e.g. a camera result) for upload, off the main thread
+     */
+    public void prepareUpload(Bitmap bitmap, LifecycleOwner owner, UploadListener listener) {
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.IMAGE_IO, DatabaseExecutor.Priority.UI, owner, () -> {
+            byte[] jpeg = encodeForUpload(bitmap);
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> listener.onReady(jpeg));
+        });
+    }
+
+    /**
+     * Cache counters since the app started
+     */
+    public String getStats() {
+        return "memoryHits=" + memoryHits.get() + " diskHits=" + diskHits.get() + " downloads=" + downloads.get() +
+               " downloadedKB=" + bytesDownloaded.get() / 1024 + " coalesced=" + coalesced.get() +
+               " abandoned=" + abandoned.get() + " memory=" + memory.size() + "/" + memory.maxSize() + "KB";
+    }
+
+    /**
+     * One load of an image at one size, shared by every view that asked for it
+     */
+    private final class Request implements Runnable {
+        final String key;
+        final String url;
+        final int width;
+        final int height;
+        final List<Target> targets = new ArrayList<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Request(String key, String url, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            if (!cancelled.get()) {
+                try {
+                    File file = fetch(url, cancelled);
+                    if (file != null && !cancelled.get()) {
+                        bitmap = decodeSampled(file, width, height);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not load " + url + ": " + e.getMessage());
+                }
+            }
+            if (bitmap != null) {
+                memory.put(key, bitmap);
+            }
+            Bitmap result = bitmap;
+            DatabaseExecutor.getInstance().executeOnMainThread(() -> deliver(this, result));
+        }
+    }
+
+    private static final class Target {
+        final WeakReference<ImageView> view;
+        final int fallbackRes;
+
+        Target(ImageView view, int fallbackRes) {
+            this.view = new WeakReference<>(view);
+            this.fallbackRes = fallbackRes;
+        }
+    }
+
+    private void deliver(Request request, Bitmap bitmap) {
+        if (inFlight.get(request.key) == request) {
+            inFlight.remove(request.key);
+        }
+        if (request.cancelled.get()) {
+            return;
+        }
+        for (Target target : request.targets) {
+            ImageView view = target.view.get();
+            // Skip views that have since been given another image
+            if (view == null || viewRequests.get(view) != request) {
+                continue;
+            }
+            viewRequests.remove(view);
+            if (bitmap != null) {
+                view.setImageBitmap(bitmap);
+            } else {
+                showFallback(view, target.fallbackRes);
+            }
+        }
+    }
+
+    private static void showFallback(ImageView view, int fallbackRes) {
+        if (fallbackRes != 0) {
+            view.setImageResource(fallbackRes);
+        }
+    }
+
+    /**
+     * The view's width or height in pixels: as laid out, else as fixed in its layout
+     */
+    private int targetSize(ImageView view, boolean width) {
+        int measured = width ? view.getWidth() : view.getHeight();
+        if (measured > 0) {
+            return measured;
+        }
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int fixed = params == null ? 0 : width ? params.width : params.height;
+        return fixed > 0 ? fixed : defaultSizePx;
+    }
+
+    /**
+     * The disk copy of url, downloading it if there is none; null if cancelled first
+     */
+    private File fetch(String url, AtomicBoolean cancelled) throws IOException {
+        File file = diskFile(url);
+        if (file.exists()) {
+            diskHits.incrementAndGet();
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+
+        Object lock = downloadLocks.computeIfAbsent(url, k -> new Object());
+        synchronized (lock) {
+            try {
+                if (file.exists() || writeSeed(url, file)) {
+                    diskHits.incrementAndGet();
+                    return file;
+                }
+                return download(url, file, cancelled) ? file : null;
+            } finally {
+                downloadLocks.remove(url, lock);
+            }
+        }
+    }
+
+    private boolean download(String url, File file, AtomicBoolean cancelled) throws IOException {
+        File partial = new File(diskDir, file.getName() + ".part");
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        boolean complete = false;
+        long total = 0;
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            try (InputStream in = connection.getInputStream(); OutputStream out = new FileOutputStream(partial)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (cancelled.get()) {
+                        return false;
+                    }
+                    out.write(buffer, 0, read);
+                    total += read;
+                }
+            }
+            complete = partial.renameTo(file);
+            if (!complete) {
+                throw new IOException("Could not store " + file);
+            }
+        } finally {
+            connection.disconnect();
+            if (!complete) {
+                partial.delete();
+            }
+        }
+        downloads.incrementAndGet();
+        bytesDownloaded.addAndGet(total);
+        trimDisk();
+        return true;
+    }
+
+    /**
+     * Write the uploaded bytes for url, if any are waiting; called under url's lock
+     */
+    private boolean writeSeed(String url, File file) throws IOException {
+        byte[] seed = seeds.remove(url);
+        if (seed == null) {
+            return false;
+        }
+        File partial = new File(diskDir, file.getName() + ".part");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            out.write(seed);
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Could not store " + file);
+        }
+        trimDisk();
+        return true;
+    }
+
+    private File diskFile(String url) throws IOException {
+        if (!diskDir.isDirectory() && !diskDir.mkdirs()) {
+            throw new IOException("Could not create " + diskDir);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(diskDir, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Delete the least recently used files until the disk tier fits its budget
+     */
+    private synchronized void trimDisk() {
+        File[] files = diskDir.listFiles(file -> !file.getName().endsWith(".part"));
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (size <= DISK_CACHE_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private static Bitmap decodeSampled(File file, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            // Not an image; drop it so the next load downloads it again
+            file.delete();
+            throw new IOException("Not an image");
+        }
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    /**
+     * The largest power of two that keeps both sides at least as big as requested
+     */
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sample = 1;
+        while (width / (sample * 2) >= targetWidth && height / (sample * 2) >= targetHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private Bitmap decodeForUpload(Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image");
+        }
+        int longest = Math.max(options.outWidth, options.outHeight);
+        options.inSampleSize = sampleSize(longest, longest, UPLOAD_MAX_EDGE_PX, UPLOAD_MAX_EDGE_PX);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap;
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Could not decode " + uri);
+        }
+
+        // Re-encoding drops the EXIF tags, so apply the camera's rotation to the pixels
+        int orientation;
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            orientation = in != null ? new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                                                                               ExifInterface.ORIENTATION_NORMAL)
+                                     : ExifInterface.ORIENTATION_NORMAL;
+        }
+        int degrees = orientation == ExifInterface.ORIENTATION_ROTATE_90 ? 90
+                    : orientation == ExifInterface.ORIENTATION_ROTATE_180 ? 180
+                    : orientation == ExifInterface.ORIENTATION_ROTATE_270 ? 270 : 0;
+        if (degrees == 0) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(degrees);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    static byte[] encodeForUpload(Bitmap bitmap) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        Bitmap scaled = bitmap;
+        if (longest > UPLOAD_MAX_EDGE_PX) {
+            float scale = (float) UPLOAD_MAX_EDGE_PX / longest;
+            scaled = Bitmap.createScaledBitmap(bitmap, Math.round(bitmap.getWidth() * scale),
+                                               Math.round(bitmap.getHeight() * scale), true);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scaled.compress(Bitmap.CompressFormat.JPEG, UPLOAD_JPEG_QUALITY, out);
+        return out.toByteArray();
+    }
+}
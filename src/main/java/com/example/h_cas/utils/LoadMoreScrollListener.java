@@ -0,0 +1,37 @@
+package com.example.h_cas.utils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * LoadMoreScrollListener asks for the next page of a paginated list when the user
+ * scrolls within a few rows of the end of the loaded items.
+ */
+public abstract class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+    private static final int VISIBLE_THRESHOLD = 5;
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0) {
+            return; // Only load when scrolling down
+        }
+
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        int totalItems = layoutManager.getItemCount();
+        if (lastVisible >= totalItems - VISIBLE_THRESHOLD) {
+            onLoadMore();
+        }
+    }
+
+    /**
+     * Called when more items should be loaded. Implementations must ignore the call
+     * while a page is already loading or when there are no more pages.
+     */
+    protected abstract void onLoadMore();
+}
@@ -0,0 +1,219 @@
+package com.example.h_cas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Base64;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * PasswordHasher stores employee passwords as salted PBKDF2-HMAC-SHA256 hashes,
+ * written as {@code pbkdf2_sha256$<iterations>$<salt>$<hash>} so each hash carries the
+ * work factor it was made with. PBKDF2 is computed over {@link Mac} because the
+ * SHA-256 variant of the platform's SecretKeyFactory only exists from API 26.
+ *
+ * The iteration count is tuned once per device so a hash takes about
+ * {@link #TARGET_HASH_MILLIS}, the time a login may spend on it; it is kept in
+ * preferences. Hashes made with fewer iterations (by the schema migration, or on a
+ * slower device) still verify, and {@link #needsRehash} tells the caller to replace
+ * them after the next successful login.
+ */
+public final class PasswordHasher {
+    private static final String TAG = "PasswordHasher";
+
+    private static final String PREFS_NAME = "CredentialPrefs";
+    private static final String KEY_ITERATIONS = "pbkdf2_iterations";
+
+    private static final String ALGORITHM = "pbkdf2_sha256";
+    private static final String MAC = "HmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    // Floor for any new hash, and the count the schema migration uses so that opening
+    // the database does not wait on a fully tuned hash per employee
+    public static final int MIN_ITERATIONS = 10_000;
+    private static final int MAX_ITERATIONS = 2_000_000;
+    public static final long TARGET_HASH_MILLIS = 100;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile PasswordHasher instance;
+
+    private final int iterations;
+
+    // Checked against when the username is unknown, so a login takes as long either way
+    private volatile String dummyHash;
+
+    private PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * The hasher tuned for this device; the first call on a new install runs the
+     * calibration, so make it off the main thread
+     */
+    public static PasswordHasher getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PasswordHasher.class) {
+                if (instance == null) {
+                    instance = new PasswordHasher(loadIterations(context.getApplicationContext()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static int loadIterations(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int iterations = prefs.getInt(KEY_ITERATIONS, 0);
+        if (iterations < MIN_ITERATIONS) {
+            iterations = calibrate(TARGET_HASH_MILLIS);
+            prefs.edit().putInt(KEY_ITERATIONS, iterations).apply();
+        }
+        return iterations;
+    }
+
+    /**
+     * The iteration count that makes one hash take about targetMillis on this device
+     */
+    public static int calibrate(long targetMillis) {
+        int sample = 2_000;
+        byte[] salt = new byte[SALT_BYTES];
+        long best = Long.MAX_VALUE;
+        // Best of several runs, so a GC pause or a cold JIT does not lower the count
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration", salt, sample);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long iterations = targetMillis * 1_000_000L * sample / Math.max(1, best);
+        iterations = Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations / 1_000 * 1_000));
+        Log.d(TAG, "Tuned to " + iterations + " iterations for " + targetMillis + "ms");
+        return (int) iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * A new salted hash of password with this device's iteration count
+     */
+    public String hash(String password) {
+        return hash(password, iterations);
+    }
+
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return ALGORITHM + "$" + iterations + "$" + encode(salt) + "$" + encode(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * Whether password matches stored, a hash or a plaintext password not yet migrated.
+     * Takes a full hash's time even when there is nothing stored to check against.
+     */
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            verifyHash(password, dummyHash());
+            return false;
+        }
+        if (!isHash(stored)) {
+            verifyHash(password, dummyHash());
+            return MessageDigest.isEqual(bytes(password), bytes(stored));
+        }
+        return verifyHash(password, stored);
+    }
+
+    /**
+     * Whether stored should be replaced by a new hash once the password is known:
+     * it is plaintext, or made with fewer iterations than this device uses
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHash(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        return parts.length != 4 || parseIterations(parts[1]) < iterations;
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && stored.startsWith(ALGORITHM + "$");
+    }
+
+    private static boolean verifyHash(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        int iterations = parseIterations(parts[1]);
+        if (iterations <= 0) {
+            return false;
+        }
+        try {
+            byte[] salt = Base64.decode(parts[2], Base64.NO_WRAP);
+            byte[] expected = Base64.decode(parts[3], Base64.NO_WRAP);
+            return MessageDigest.isEqual(pbkdf2(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = hash("", iterations);
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private static int parseIterations(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * PBKDF2 (RFC 8018) with HMAC-SHA256, for a 32-byte key: a single block
+     */
+    static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        try {
+            byte[] key = bytes(password);
+            Mac mac = Mac.getInstance(MAC);
+            // HMAC pads its key with zeros, so an empty key is the same as one zero byte
+            mac.init(new SecretKeySpec(key.length > 0 ? key : new byte[1], MAC));
+            mac.update(salt);
+            mac.update(new byte[]{0, 0, 0, 1});
+            byte[] block = mac.doFinal();
+            byte[] result = block.clone();
+            for (int i = 1; i < iterations; i++) {
+                mac.update(block);
+                mac.doFinal(block, 0);
+                for (int j = 0; j < HASH_BYTES; j++) {
+                    result[j] ^= block[j];
+                }
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    }
+}
@@ -0,0 +1,543 @@
+package com.example.h_cas.utils;
+
+import com.example.h_cas.models.RFIDData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PrescriptionTagCodec is the compact binary form of a prescription carried on an RFID
+ * tag, so a reader can show and check it without a database or network round trip.
+ * It is sized for an NTAG213, the smallest tag in use: 144 bytes of user memory, of
+ * which {@link #NTAG213_PAYLOAD_BYTES} are left for the payload after NDEF framing.
+ *
+ * Layout, version 2 (varints are unsigned LEB128, text is a varint byte length followed
+ * by UTF-8):
+ * <pre>
+ *   version       u8, {@link #VERSION}
+ *   flags         u8, {@link #FLAG_DATE} | {@link #FLAG_INSTRUCTIONS}
+ *   prescription  id
+ *   patient id    id
+ *   patient name  text
+ *   medication    coded, from {@link #MEDICATIONS}
+ *   dosage        text
+ *   frequency     coded, from {@link #FREQUENCIES}
+ *   duration      varint: 0 = text follows, else ((count &lt;&lt; 2) | unit) + 1 over {@link #DURATION_UNITS}
+ *   doctor name   text
+ *   date          varint seconds since 2020-01-01 00:00:00 wall clock, if FLAG_DATE
+ *   instructions  text, if FLAG_INSTRUCTIONS
+ *   crc           u16 big-endian, CRC-16/CCITT-FALSE of every byte before it
+ * </pre>
+ * An id is a varint 0 followed by text, or 1 followed by a text prefix, a digit count and
+ * the number as a varint ("PRE1700000000000"). A coded field is a varint 0 followed by
+ * text, or the 1-based index of a dictionary entry. A compact form is only used when it
+ * decodes to exactly the original string; anything else is stored as text.
+ *
+ * The dictionaries are part of the format: entries may only be appended, and removing
+ * or reordering one needs a new version. Version 1 (the length-prefixed fields written
+ * before this codec) is not decoded; such tags are looked up by id instead.
+ *
+ * If a prescription does not fit, the instructions are cut first and then the doctor
+ * and patient names; cut text ends in "…". Ids, medication, dosage, frequency and
+ * duration are never cut.
+ */
+public final class PrescriptionTagCodec {
+
+    public static final int VERSION = 2;
+
+    // NTAG213 user memory (144) less the NDEF TLV (2 + terminator), the short record
+    // header (3) and the "h-cas:rx" type (8)
+    public static final int NTAG213_PAYLOAD_BYTES = 130;
+
+    static final int FLAG_DATE = 1;
+    static final int FLAG_INSTRUCTIONS = 1 << 1;
+
+    // Append only, see the class comment
+    static final String[] MEDICATIONS = {
+        "Paracetamol", "Amoxicillin", "Ibuprofen", "Metformin", "Lisinopril",
+        "Amlodipine", "Losartan", "Atorvastatin", "Simvastatin", "Omeprazole",
+        "Cetirizine", "Loratadine", "Salbutamol", "Azithromycin", "Cefalexin",
+        "Ciprofloxacin", "Co-Amoxiclav", "Mefenamic Acid", "Aspirin", "Clopidogrel",
+        "Metoprolol", "Furosemide", "Hydrochlorothiazide", "Gliclazide", "Insulin",
+        "Prednisone", "Dexamethasone", "Ranitidine", "Loperamide", "Oral Rehydration Salts",
+        "Ferrous Sulfate", "Folic Acid", "Vitamin B Complex", "Ascorbic Acid", "Zinc Sulfate",
+        "Multivitamins", "Carbocisteine", "Ambroxol", "Guaifenesin", "Dextromethorphan",
+        "Diphenhydramine", "Tramadol", "Diclofenac", "Naproxen", "Metronidazole",
+        "Doxycycline", "Cotrimoxazole", "Fluconazole", "Clotrimazole", "Mupirocin"
+    };
+
+    // Append only, see the class comment
+    static final String[] FREQUENCIES = {
+        "Once daily", "Twice daily", "Three times daily", "Four times daily",
+        "Every 4 hours", "Every 6 hours", "Every 8 hours", "Every 12 hours",
+        "Once a day", "Twice a day", "Three times a day", "Four times a day",
+        "At bedtime", "As needed", "Before meals", "After meals", "Once weekly",
+        "Every other day", "Immediately", "Morning and evening"
+    };
+
+    static final String[] DURATION_UNITS = {"day", "week", "month"};
+
+    private static final String ELLIPSIS = "\u2026";
+    private static final int MIN_CUT_NAME_CHARS = 8;
+    private static final long EPOCH_DAYS_2020 = daysFromCivil(2020, 1, 1);
+
+    private static final Map<String, Integer> MEDICATION_CODES = index(MEDICATIONS);
+    private static final Map<String, Integer> FREQUENCY_CODES = index(FREQUENCIES);
+    private static final int[] CRC_TABLE = crcTable();
+
+    /**
+     * A payload that is not a valid version 2 prescription: unknown version, bad
+     * checksum or malformed field
+     */
+    public static final class InvalidPayloadException extends IOException {
+        InvalidPayloadException(String message) {
+            super(message);
+        }
+    }
+
+    private PrescriptionTagCodec() {
+    }
+
+    /**
+     * Encode to fit an NTAG213
+     *
+     * @throws IllegalArgumentException if the prescription cannot fit even with its
+     *                                  free text cut
+     */
+    public static byte[] encode(RFIDData prescription) {
+        return encode(prescription, NTAG213_PAYLOAD_BYTES);
+    }
+
+    /**
+     * Encode in at most maxBytes, cutting free text as needed
+     *
+     * @throws IllegalArgumentException if the prescription cannot fit even with its
+     *                                  free text cut
+     */
+    public static byte[] encode(RFIDData prescription, int maxBytes) {
+        String patientName = orEmpty(prescription.getPatientName());
+        String doctorName = orEmpty(prescription.getDoctorName());
+        String instructions = orEmpty(prescription.getInstructions());
+
+        byte[] payload = encode(prescription, patientName, doctorName, instructions);
+        if (payload.length <= maxBytes) {
+            return payload;
+        }
+
+        // Without instructions, then with as much of them as the room left allows
+        byte[] bare = encode(prescription, patientName, doctorName, "");
+        if (bare.length <= maxBytes) {
+            for (int room = maxBytes - bare.length - 1; room > 0; room--) {
+                String cut = cut(instructions, room);
+                if (cut.isEmpty()) {
+                    break;
+                }
+                payload = encode(prescription, patientName, doctorName, cut);
+                if (payload.length <= maxBytes) {
+                    return payload;
+                }
+            }
+            return bare;
+        }
+
+        // Then the longer of the two names, a little at a time
+        while (bare.length > maxBytes) {
+            boolean cutDoctor = doctorName.length() >= patientName.length();
+            String longer = cutDoctor ? doctorName : patientName;
+            if (longer.length() <= MIN_CUT_NAME_CHARS) {
+                throw new IllegalArgumentException("Prescription " + prescription.getPrescriptionId() +
+                                                   " needs " + bare.length + " bytes, tag holds " + maxBytes);
+            }
+            String shorter = cut(longer, utf8Length(longer) - (bare.length - maxBytes) - 1);
+            if (shorter.length() < MIN_CUT_NAME_CHARS) {
+                shorter = longer.substring(0, MIN_CUT_NAME_CHARS - 1) + ELLIPSIS;
+            }
+            if (cutDoctor) {
+                doctorName = shorter;
+            } else {
+                patientName = shorter;
+            }
+            bare = encode(prescription, patientName, doctorName, "");
+        }
+        return bare;
+    }
+
+    private static byte[] encode(RFIDData prescription, String patientName, String doctorName,
+                                 String instructions) {
+        long dateSeconds = toEpochSeconds(prescription.getPrescriptionDate());
+        int flags = (dateSeconds >= 0 ? FLAG_DATE : 0) | (!instructions.isEmpty() ? FLAG_INSTRUCTIONS : 0);
+
+        Writer out = new Writer();
+        out.write(VERSION);
+        out.write(flags);
+        out.id(orEmpty(prescription.getPrescriptionId()));
+        out.id(orEmpty(prescription.getPatientId()));
+        out.text(patientName);
+        out.coded(orEmpty(prescription.getMedicineName()), MEDICATION_CODES);
+        out.text(orEmpty(prescription.getDosage()));
+        out.coded(orEmpty(prescription.getFrequency()), FREQUENCY_CODES);
+        out.duration(orEmpty(prescription.getDuration()));
+        out.text(doctorName);
+        if (dateSeconds >= 0) {
+            out.varint(dateSeconds);
+        }
+        if (!instructions.isEmpty()) {
+            out.text(instructions);
+        }
+        int crc = crc16(out.buffer(), 0, out.size());
+        out.write(crc >>> 8);
+        out.write(crc);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode and verify a payload. The tag id and dispensing state are not on the tag and
+     * are left unset.
+     */
+    public static RFIDData decode(byte[] payload) throws InvalidPayloadException {
+        if (payload == null || payload.length < 4) {
+            throw new InvalidPayloadException("Payload too short");
+        }
+        if ((payload[0] & 0xFF) != VERSION) {
+            throw new InvalidPayloadException("Unsupported version " + (payload[0] & 0xFF));
+        }
+        int end = payload.length - 2;
+        int stored = ((payload[end] & 0xFF) << 8) | (payload[end + 1] & 0xFF);
+        if (crc16(payload, 0, end) != stored) {
+            throw new InvalidPayloadException("Checksum mismatch");
+        }
+
+        Reader in = new Reader(payload, end);
+        in.pos = 1;
+        int flags = in.read();
+        RFIDData prescription = new RFIDData();
+        prescription.setPrescriptionId(in.id());
+        prescription.setPatientId(in.id());
+        prescription.setPatientName(in.text());
+        prescription.setMedicineName(in.coded(MEDICATIONS));
+        prescription.setDosage(in.text());
+        prescription.setFrequency(in.coded(FREQUENCIES));
+        prescription.setDuration(in.duration());
+        prescription.setDoctorName(in.text());
+        if ((flags & FLAG_DATE) != 0) {
+            prescription.setPrescriptionDate(fromEpochSeconds(in.varint()));
+        }
+        if ((flags & FLAG_INSTRUCTIONS) != 0) {
+            prescription.setInstructions(in.text());
+        }
+        if (in.pos != end) {
+            throw new InvalidPayloadException((end - in.pos) + " unexpected bytes");
+        }
+        return prescription;
+    }
+
+    /**
+     * Whether payload is a well-formed prescription with a matching checksum
+     */
+    public static boolean isValid(byte[] payload) {
+        try {
+            decode(payload);
+            return true;
+        } catch (InvalidPayloadException e) {
+            return false;
+        }
+    }
+
+    // Duration "<count> <unit>[s]" in canonical form, or -1
+    private static int durationCode(String duration) {
+        int space = duration.indexOf(' ');
+        if (space <= 0) {
+            return -1;
+        }
+        long count;
+        try {
+            count = Long.parseLong(duration.substring(0, space));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (count < 0 || count > 0xFFFF) {
+            return -1;
+        }
+        for (int unit = 0; unit < DURATION_UNITS.length; unit++) {
+            int code = ((int) count << 2) | unit;
+            if (duration.equals(durationText(code))) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    private static String durationText(int code) {
+        int count = code >>> 2;
+        int unit = code & 3;
+        if (unit >= DURATION_UNITS.length) {
+            return null;
+        }
+        return count + " " + DURATION_UNITS[unit] + (count == 1 ? "" : "s");
+    }
+
+    /**
+     * "yyyy-MM-dd HH:mm:ss" as seconds since 2020-01-01 on the same wall clock, or -1 if
+     * it is not in that form or is earlier
+     */
+    static long toEpochSeconds(String date) {
+        if (date == null || date.length() != 19) {
+            return -1;
+        }
+        try {
+            long days = daysFromCivil(Integer.parseInt(date.substring(0, 4)), Integer.parseInt(date.substring(5, 7)),
+                                      Integer.parseInt(date.substring(8, 10))) - EPOCH_DAYS_2020;
+            long seconds = days * 86400 + Integer.parseInt(date.substring(11, 13)) * 3600L +
+                           Integer.parseInt(date.substring(14, 16)) * 60L + Integer.parseInt(date.substring(17, 19));
+            // Only if it prints back the same, which also rejects out-of-range fields
+            return seconds >= 0 && date.equals(fromEpochSeconds(seconds)) ? seconds : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String fromEpochSeconds(long seconds) {
+        long days = seconds / 86400 + EPOCH_DAYS_2020;
+        int secondOfDay = (int) (seconds % 86400);
+        // civil_from_days (H. Hinnant)
+        long era = Math.floorDiv(days + 719468, 146097);
+        long dayOfEra = days + 719468 - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return String.format(Locale.US, "%04d-%02d-%02d %02d:%02d:%02d", year, month, day,
+                             secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60);
+    }
+
+    // days_from_civil (H. Hinnant): days since 1970-01-01 of a proleptic Gregorian date
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * CRC-16/CCITT-FALSE (poly 0x1021, init 0xFFFF)
+     */
+    static int crc16(byte[] bytes, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    private static int[] crcTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            table[i] = crc & 0xFFFF;
+        }
+        return table;
+    }
+
+    private static Map<String, Integer> index(String[] dictionary) {
+        Map<String, Integer> codes = new HashMap<>(dictionary.length * 2);
+        for (int i = 0; i < dictionary.length; i++) {
+            codes.put(dictionary[i], i);
+        }
+        return codes;
+    }
+
+    /**
+     * text cut to at most maxBytes of UTF-8 including the ellipsis, or "" if nothing fits
+     */
+    private static String cut(String text, int maxBytes) {
+        int budget = maxBytes - utf8Length(ELLIPSIS);
+        if (budget <= 0) {
+            return "";
+        }
+        int bytes = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int codePoint = text.codePointAt(end);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (bytes + size > budget) {
+                break;
+            }
+            bytes += size;
+            end += Character.charCount(codePoint);
+        }
+        return end > 0 ? text.substring(0, end) + ELLIPSIS : "";
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+        Writer() {
+            super(NTAG213_PAYLOAD_BYTES);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void text(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void id(String id) {
+            int digits = 0;
+            while (digits < id.length() && Character.isDigit(id.charAt(id.length() - 1 - digits))) {
+                digits++;
+            }
+            if (digits > 0 && digits <= 18) {
+                String prefix = id.substring(0, id.length() - digits);
+                String number = id.substring(prefix.length());
+                if (number.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    varint(1);
+                    text(prefix);
+                    varint(digits);
+                    varint(Long.parseLong(number));
+                    return;
+                }
+            }
+            varint(0);
+            text(id);
+        }
+
+        void coded(String value, Map<String, Integer> codes) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                varint(code + 1);
+            } else {
+                varint(0);
+                text(value);
+            }
+        }
+
+        void duration(String duration) {
+            int code = durationCode(duration);
+            if (code >= 0) {
+                varint(code + 1L);
+            } else {
+                varint(0);
+                text(duration);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private final int end;
+        int pos;
+
+        Reader(byte[] bytes, int end) {
+            this.bytes = bytes;
+            this.end = end;
+        }
+
+        int read() throws InvalidPayloadException {
+            if (pos >= end) {
+                throw new InvalidPayloadException("Truncated at byte " + pos);
+            }
+            return bytes[pos++] & 0xFF;
+        }
+
+        long varint() throws InvalidPayloadException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new InvalidPayloadException("Varint too long at byte " + pos);
+        }
+
+        int length() throws InvalidPayloadException {
+            long length = varint();
+            if (length > end - pos) {
+                throw new InvalidPayloadException("Length " + length + " overruns payload at byte " + pos);
+            }
+            return (int) length;
+        }
+
+        String text() throws InvalidPayloadException {
+            int length = length();
+            String text = new String(bytes, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return text;
+        }
+
+        String id() throws InvalidPayloadException {
+            long kind = varint();
+            if (kind == 0) {
+                return text();
+            }
+            if (kind != 1) {
+                throw new InvalidPayloadException("Unknown id kind " + kind);
+            }
+            String prefix = text();
+            long digits = varint();
+            long number = varint();
+            if (digits < 1 || digits > 18 || number < 0) {
+                throw new InvalidPayloadException("Bad numeric id");
+            }
+            StringBuilder id = new StringBuilder(prefix);
+            String value = Long.toString(number);
+            for (long pad = digits - value.length(); pad > 0; pad--) {
+                id.append('0');
+            }
+            return id.append(value).toString();
+        }
+
+        String coded(String[] dictionary) throws InvalidPayloadException {
+            long code = varint();
+            if (code == 0) {
+                return text();
+            }
+            if (code > dictionary.length) {
+                throw new InvalidPayloadException("Unknown dictionary code " + code);
+            }
+            return dictionary[(int) code - 1];
+        }
+
+        String duration() throws InvalidPayloadException {
+            long code = varint();
+            if (code == 0) {
+                return text();
+            }
+            String duration = code - 1 <= Integer.MAX_VALUE ? durationText((int) (code - 1)) : null;
+            if (duration == null) {
+                throw new InvalidPayloadException("Unknown duration code " + code);
+            }
+            return duration;
+        }
+    }
+}
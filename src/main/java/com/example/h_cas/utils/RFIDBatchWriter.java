@@ -0,0 +1,246 @@
+package com.example.h_cas.utils;
+
+import android.app.Activity;
+import android.nfc.NdefMessage;
+import android.nfc.NfcAdapter;
+import android.nfc.Tag;
+import android.nfc.TagLostException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.Prescription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RFIDBatchWriter registers every prescription of one encounter on its own tag in one
+ * pass at the nurse station:
+ *
+ * 1. Each prescription is packed into an NDEF message
+ *    ({@link RFIDHelper#createPrescriptionMessage}).
+ * 2. Tags are written one after another on the TAG_IO pool. While tag i is being
+ *    written, the message for tag i + 1 is encoded on the pool's other thread, so the
+ *    next tag is ready the moment the current one is done.
+ * 3. Once every tag is written, the tag assignments are saved in a single transaction
+ *    on DB_WRITE. If a tag write fails, nothing is saved; the tags already written
+ *    carry no registration and can be reused.
+ *
+ * Each prescription needs its own tag. A tag already written in this batch is never
+ * written again, since that would overwrite an earlier prescription's payload.
+ *
+ * Listener calls are made on the main thread.
+ */
+public final class RFIDBatchWriter {
+    private static final String TAG = "RFIDBatchWriter";
+
+    /**
+     * Batch progress, called on the main thread
+     */
+    public interface Listener {
+        /**
+         * Tag index (0-based) of total was written
+         */
+        void onTagWritten(int index, int total, String tagId, Prescription prescription);
+
+        /**
+         * Every tag was written and registered; tagIds are in encounter order
+         */
+        void onBatchComplete(List<String> tagIds, long elapsedMs);
+
+        void onBatchFailed(String error);
+    }
+
+    /**
+     * Writes a message to the next tag presented whose id is not in usedTagIds (the tags
+     * of this batch so far) and returns its id. Blocks until the write is done.
+     */
+    public interface TagWriter {
+        String write(NdefMessage message, Set<String> usedTagIds) throws IOException;
+    }
+
+    private final HCasDatabaseHelper databaseHelper;
+    private final RFIDHelper rfidHelper;
+    private final TagWriter tagWriter;
+
+    public RFIDBatchWriter(HCasDatabaseHelper databaseHelper, RFIDHelper rfidHelper, TagWriter tagWriter) {
+        this.databaseHelper = databaseHelper;
+        this.rfidHelper = rfidHelper;
+        this.tagWriter = tagWriter;
+    }
+
+    /**
+     * Write and register the prescriptions of one encounter, one tag each
+     */
+    public void write(List<Prescription> encounter, Listener listener) {
+        List<Prescription> prescriptions = new ArrayList<>(encounter);
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.TAG_IO, DatabaseExecutor.Priority.UI, null,
+                                               () -> writeTags(prescriptions, listener));
+    }
+
+    private void writeTags(List<Prescription> prescriptions, Listener listener) {
+        DatabaseExecutor executor = DatabaseExecutor.getInstance();
+        if (prescriptions.isEmpty()) {
+            executor.executeOnMainThread(() -> listener.onBatchComplete(new ArrayList<>(), 0));
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        int total = prescriptions.size();
+        Map<String, Prescription> assignments = new LinkedHashMap<>();
+        FutureTask<NdefMessage> next = encode(prescriptions.get(0));
+        try {
+            for (int i = 0; i < total; i++) {
+                NdefMessage message = await(next);
+                if (i + 1 < total) {
+                    next = encode(prescriptions.get(i + 1));
+                }
+
+                String tagId = tagWriter.write(message, Collections.unmodifiableSet(assignments.keySet()));
+                Prescription prescription = prescriptions.get(i);
+                Prescription earlier = assignments.get(tagId);
+                if (earlier != null) {
+                    // The writer broke its contract; the earlier payload is gone from the tag
+                    throw new IOException("Card " + tagId + " was already written for " + earlier.getMedication());
+                }
+                assignments.put(tagId, prescription);
+                int index = i;
+                executor.executeOnMainThread(() -> listener.onTagWritten(index, total, tagId, prescription));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Tag write failed after " + assignments.size() + " of " + total + " tags", e);
+            String error = "Tag " + (assignments.size() + 1) + " of " + total + " could not be written: " +
+                           e.getMessage();
+            executor.executeOnMainThread(() -> listener.onBatchFailed(error));
+            return;
+        }
+
+        executor.execute(DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.UI, null, () -> {
+            boolean saved = databaseHelper.writePrescriptionsToRFID(assignments);
+            long elapsedMs = SystemClock.elapsedRealtime() - start;
+            Log.d(TAG, "Encounter of " + total + " tags " + (saved ? "registered" : "failed") +
+                       " in " + elapsedMs + "ms");
+            executor.executeOnMainThread(() -> {
+                if (saved) {
+                    listener.onBatchComplete(new ArrayList<>(assignments.keySet()), elapsedMs);
+                } else {
+                    listener.onBatchFailed("Could not register the tags; a tag may already be in use");
+                }
+            });
+        });
+    }
+
+    /**
+     * Writes to real tags in NFC reader mode. A tag of the batch that is still in the
+     * field, or presented again, is passed over and the writer keeps waiting for a new
+     * one; a tag taken away mid-write is retried on the next tag presented.
+     */
+    public static final class ReaderModeTagWriter implements TagWriter, NfcAdapter.ReaderCallback {
+        // How long to wait for the next card before the batch fails
+        private static final long CARD_TIMEOUT_MS = 60_000;
+
+        private final RFIDHelper rfidHelper;
+        private final BlockingQueue<Tag> presented = new LinkedBlockingQueue<>();
+        private NfcAdapter nfcAdapter;
+
+        public ReaderModeTagWriter(RFIDHelper rfidHelper) {
+            this.rfidHelper = rfidHelper;
+        }
+
+        /**
+         * Start reading tags while activity is in the foreground. Returns false if the
+         * device has no enabled NFC reader.
+         */
+        public boolean start(Activity activity) {
+            nfcAdapter = NfcAdapter.getDefaultAdapter(activity);
+            if (nfcAdapter == null || !nfcAdapter.isEnabled()) {
+                return false;
+            }
+            nfcAdapter.enableReaderMode(activity, this, RFIDScanPipeline.READER_FLAGS, null);
+            return true;
+        }
+
+        /**
+         * Stop reading; call once the batch has completed or failed
+         */
+        public void stop(Activity activity) {
+            if (nfcAdapter != null) {
+                nfcAdapter.disableReaderMode(activity);
+                nfcAdapter = null;
+            }
+            presented.clear();
+        }
+
+        /**
+         * Reader mode callback, on an NFC binder thread
+         */
+        @Override
+        public void onTagDiscovered(Tag tag) {
+            presented.offer(tag);
+        }
+
+        @Override
+        public String write(NdefMessage message, Set<String> usedTagIds) throws IOException {
+            long deadline = SystemClock.elapsedRealtime() + CARD_TIMEOUT_MS;
+            while (true) {
+                Tag tag;
+                try {
+                    tag = presented.poll(deadline - SystemClock.elapsedRealtime(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for a card", e);
+                }
+                if (tag == null) {
+                    throw new IOException("No new card was presented within " + CARD_TIMEOUT_MS / 1000 + "s");
+                }
+
+                String tagId = RFIDScanPipeline.toTagId(tag.getId());
+                if (tagId == null || usedTagIds.contains(tagId)) {
+                    continue; // The previous card is still in the field
+                }
+                try {
+                    rfidHelper.writeToTag(tag, message);
+                    return tagId;
+                } catch (TagLostException e) {
+                    Log.w(TAG, "Card " + tagId + " was taken away mid-write, waiting for it again");
+                }
+            }
+        }
+    }
+
+    /**
+     * Start encoding on TAG_IO, alongside the tag write in progress
+     */
+    private FutureTask<NdefMessage> encode(Prescription prescription) {
+        FutureTask<NdefMessage> task = new FutureTask<>(() -> rfidHelper.createPrescriptionMessage(prescription));
+        DatabaseExecutor.getInstance().execute(DatabaseExecutor.Pool.TAG_IO, DatabaseExecutor.Priority.UI, null, task);
+        return task;
+    }
+
+    /**
+     * The encoded message. If the encode is still queued (both TAG_IO threads busy, or
+     * the queue was full) it runs here instead of waiting behind other work.
+     */
+    private static NdefMessage await(FutureTask<NdefMessage> task) throws IOException {
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encode prescription", e.getCause());
+        }
+    }
+}
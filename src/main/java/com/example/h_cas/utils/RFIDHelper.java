@@ -1,6 +1,9 @@
 package com.example.h_cas.utils;
 
 import android.content.Context;
+import android.nfc.FormatException;
+import android.nfc.NdefMessage;
+import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
 import android.nfc.Tag;
 import android.nfc.tech.Ndef;
@@ -9,16 +12,28 @@ import android.nfc.tech.NfcA;
 import android.nfc.tech.NfcB;
 import android.nfc.tech.NfcF;
 import android.nfc.tech.NfcV;
+import android.util.Log;
 import android.widget.Toast;
 
+import com.example.h_cas.models.Prescription;
+import com.example.h_cas.models.RFIDData;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * RFIDHelper handles RFID card scanning and writing operations
  */
 public class RFIDHelper {
-    
+
+    // NFC Forum external type of the record that carries a prescription on a tag
+    // ("h-cas:rx"); kept short because the type is stored on every tag
+    public static final String PRESCRIPTION_RECORD_DOMAIN = "h-cas";
+    public static final String PRESCRIPTION_RECORD_TYPE = "rx";
+    private static final byte[] PRESCRIPTION_RECORD_TYPE_BYTES =
+        (PRESCRIPTION_RECORD_DOMAIN + ":" + PRESCRIPTION_RECORD_TYPE).getBytes(StandardCharsets.US_ASCII);
+
     private Context context;
     private NfcAdapter nfcAdapter;
     private RFIDScanListener scanListener;
@@ -98,7 +113,95 @@ public class RFIDHelper {
             return false;
         }
     }
-    
+
+    /**
+     * Pack a prescription into a single-record NDEF message in the
+     * {@link PrescriptionTagCodec} format. It is cut to fit an NTAG213 where possible; a
+     * prescription too long even then is written whole and needs a larger tag.
+     */
+    public NdefMessage createPrescriptionMessage(Prescription prescription) {
+        RFIDData onTag = new RFIDData(null, prescription.getPatientId(), prescription.getPatientName(),
+                                      prescription.getPrescriptionId(), prescription.getMedication(),
+                                      prescription.getDosage(), prescription.getFrequency(),
+                                      prescription.getDuration());
+        onTag.setInstructions(prescription.getInstructions());
+        onTag.setDoctorName(prescription.getDoctorName());
+        onTag.setPrescriptionDate(prescription.getCreatedDate());
+
+        byte[] payload;
+        try {
+            payload = PrescriptionTagCodec.encode(onTag);
+        } catch (IllegalArgumentException e) {
+            payload = PrescriptionTagCodec.encode(onTag, Integer.MAX_VALUE);
+        }
+        return new NdefMessage(NdefRecord.createExternal(PRESCRIPTION_RECORD_DOMAIN, PRESCRIPTION_RECORD_TYPE,
+                                                         payload));
+    }
+
+    /**
+     * The prescription carried by an NDEF message, checked against its checksum, or null
+     * if the message has no prescription record in a format this version reads. The
+     * tag id is set to rfidTagId; the dispensing state is not on the tag.
+     */
+    public static RFIDData readPrescription(NdefMessage message, String rfidTagId) {
+        if (message == null) {
+            return null;
+        }
+        for (NdefRecord record : message.getRecords()) {
+            if (record.getTnf() == NdefRecord.TNF_EXTERNAL_TYPE &&
+                Arrays.equals(record.getType(), PRESCRIPTION_RECORD_TYPE_BYTES)) {
+                try {
+                    RFIDData prescription = PrescriptionTagCodec.decode(record.getPayload());
+                    prescription.setRfidTagId(rfidTagId);
+                    return prescription;
+                } catch (PrescriptionTagCodec.InvalidPayloadException e) {
+                    Log.w("RFIDHelper", "Unreadable prescription on tag " + rfidTagId + ": " + e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write an NDEF message to a tag in the field, formatting it first if it is blank.
+     * Blocks for the duration of the write; call off the main thread.
+     */
+    public void writeToTag(Tag tag, NdefMessage message) throws IOException {
+        Ndef ndef = Ndef.get(tag);
+        try {
+            if (ndef != null) {
+                ndef.connect();
+                try {
+                    if (!ndef.isWritable()) {
+                        throw new IOException("Tag is read-only");
+                    }
+                    if (ndef.getMaxSize() < message.getByteArrayLength()) {
+                        throw new IOException("Tag holds " + ndef.getMaxSize() + " bytes, payload needs " +
+                                              message.getByteArrayLength());
+                    }
+                    ndef.writeNdefMessage(message);
+                } finally {
+                    ndef.close();
+                }
+                return;
+            }
+
+            NdefFormatable formatable = NdefFormatable.get(tag);
+            if (formatable == null) {
+                throw new IOException("Tag does not support NDEF");
+            }
+            formatable.connect();
+            try {
+                formatable.format(message);
+            } finally {
+                formatable.close();
+            }
+        } catch (FormatException e) {
+            throw new IOException("Could not write NDEF message", e);
+        }
+    }
+
     /**
      * Get RFID card type from detected tag
      */
@@ -0,0 +1,309 @@
+package com.example.h_cas.utils;
+
+import android.app.Activity;
+import android.nfc.NfcAdapter;
+import android.nfc.Tag;
+import android.nfc.tech.Ndef;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.h_cas.database.HCasDatabaseHelper;
+import com.example.h_cas.models.RFIDData;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RFIDScanPipeline turns raw tag reads into prescription lookups for the dispensing
+ * window:
+ *
+ * 1. Reads come from NFC reader mode (or from {@link RFIDScanReplay}) on any thread.
+ * 2. Repeated reads of the same tag id within {@link #DEBOUNCE_WINDOW_MS} are dropped;
+ *    a tag held against the reader is rediscovered several times a second.
+ * 3. The prescription is looked up on the DB_READ pool at UI priority. The helper
+ *    answers from its index of undispensed tags and only queries on a miss. A tag that
+ *    is not registered on this device but carries a valid {@link PrescriptionTagCodec}
+ *    payload (e.g. written at another station) is delivered from the tag itself.
+ * 4. The listener is called on the main thread, and the time from the read to the end
+ *    of the listener call is recorded (scan-to-dialog latency when the listener shows
+ *    the prescription).
+ */
+public final class RFIDScanPipeline implements NfcAdapter.ReaderCallback {
+    private static final String TAG = "RFIDScanPipeline";
+
+    // Reads of one tag closer together than this are one tap. The window slides, so a
+    // tag left on the reader stays suppressed until it has been away this long.
+    public static final long DEBOUNCE_WINDOW_MS = 2000;
+
+    // Tag ids remembered by the debouncer; a burst at the window is far smaller
+    private static final int MAX_RECENT_TAGS = 64;
+
+    // Latencies kept for the percentile in ScanStats
+    private static final int LATENCY_SAMPLES = 256;
+
+    static final int READER_FLAGS = NfcAdapter.FLAG_READER_NFC_A | NfcAdapter.FLAG_READER_NFC_B |
+                                            NfcAdapter.FLAG_READER_NFC_F | NfcAdapter.FLAG_READER_NFC_V;
+
+    // How often the platform checks that a tag is still present, in ms
+    private static final int PRESENCE_CHECK_DELAY_MS = 250;
+
+    /**
+     * Scan outcomes, called on the main thread
+     */
+    public interface Listener {
+        void onPrescriptionScanned(RFIDData prescription);
+
+        /**
+         * The tag has no undispensed prescription (unknown or already dispensed)
+         */
+        void onUnknownTag(String tagId);
+
+        /**
+         * The tag has no undispensed prescription on this device, but carries one on the
+         * tag itself. It can be shown, not dispensed here.
+         */
+        default void onTagOnlyPrescription(RFIDData prescription) {
+            onUnknownTag(prescription.getRfidTagId());
+        }
+    }
+
+    private final HCasDatabaseHelper databaseHelper;
+    private final Listener listener;
+    private final Map<String, Long> lastReadNanos = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_RECENT_TAGS;
+        }
+    };
+
+    private NfcAdapter nfcAdapter;
+    private volatile boolean active;
+
+    // Counters, guarded by this
+    private long reads;
+    private long debounced;
+    private long found;
+    private long unknown;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+
+    public RFIDScanPipeline(HCasDatabaseHelper databaseHelper, Listener listener) {
+        this.databaseHelper = databaseHelper;
+        this.listener = listener;
+    }
+
+    /**
+     * Start delivering scans, reading tags in NFC reader mode while activity is in the
+     * foreground. Call from onResume(). Returns false if the device has no enabled NFC
+     * reader; scans fed through {@link #onTagRead} are still delivered.
+     */
+    public boolean start(Activity activity) {
+        active = true;
+        nfcAdapter = NfcAdapter.getDefaultAdapter(activity);
+        if (nfcAdapter == null || !nfcAdapter.isEnabled()) {
+            return false;
+        }
+        Bundle extras = new Bundle();
+        extras.putInt(NfcAdapter.EXTRA_READER_PRESENCE_CHECK_DELAY, PRESENCE_CHECK_DELAY_MS);
+        nfcAdapter.enableReaderMode(activity, this, READER_FLAGS, extras);
+        return true;
+    }
+
+    /**
+     * Stop reading and drop lookups still in flight. Call from onPause().
+     */
+    public void stop(Activity activity) {
+        active = false;
+        if (nfcAdapter != null) {
+            nfcAdapter.disableReaderMode(activity);
+            nfcAdapter = null;
+        }
+    }
+
+    /**
+     * Reader mode callback, on an NFC binder thread
+     */
+    @Override
+    public void onTagDiscovered(Tag tag) {
+        long readAtNanos = SystemClock.elapsedRealtimeNanos();
+        String tagId = toTagId(tag.getId());
+        // The platform reads the NDEF message during discovery, so this costs no tag I/O
+        Ndef ndef = Ndef.get(tag);
+        RFIDData onTag = ndef != null ? RFIDHelper.readPrescription(ndef.getCachedNdefMessage(), tagId) : null;
+        onTagRead(tagId, onTag, readAtNanos);
+    }
+
+    /**
+     * Feed one tag read, taken at readAtNanos on the {@link SystemClock#elapsedRealtimeNanos}
+     * clock. Safe to call from any thread.
+     */
+    public void onTagRead(String tagId, long readAtNanos) {
+        onTagRead(tagId, null, readAtNanos);
+    }
+
+    /**
+     * Feed one tag read along with the prescription decoded from the tag, if any
+     */
+    public void onTagRead(String tagId, RFIDData onTag, long readAtNanos) {
+        if (!active || tagId == null) {
+            return;
+        }
+        synchronized (this) {
+            reads++;
+            Long last = lastReadNanos.put(tagId, readAtNanos);
+            if (last != null && readAtNanos - last < DEBOUNCE_WINDOW_MS * 1_000_000L) {
+                debounced++;
+                return;
+            }
+        }
+
+        DatabaseExecutor executor = DatabaseExecutor.getInstance();
+        executor.execute(DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.UI, null, () -> {
+            RFIDData prescription = databaseHelper.readPrescriptionFromRFID(tagId);
+            if (prescription != null && onTag != null &&
+                !onTag.getPrescriptionId().equals(prescription.getPrescriptionId())) {
+                Log.w(TAG, "Tag " + tagId + " carries " + onTag.getPrescriptionId() + " but is registered to " +
+                           prescription.getPrescriptionId());
+            }
+            executor.executeOnMainThread(() -> deliver(tagId, prescription, onTag, readAtNanos));
+        });
+    }
+
+    /**
+     * Let the next read of tagId through the debouncer, e.g. after its dialog was closed
+     */
+    public synchronized void forget(String tagId) {
+        lastReadNanos.remove(tagId);
+    }
+
+    private void deliver(String tagId, RFIDData prescription, RFIDData onTag, long readAtNanos) {
+        if (!active) {
+            return;
+        }
+        if (prescription != null) {
+            listener.onPrescriptionScanned(prescription);
+        } else if (onTag != null) {
+            listener.onTagOnlyPrescription(onTag);
+        } else {
+            listener.onUnknownTag(tagId);
+        }
+        recordLatency(prescription != null, SystemClock.elapsedRealtimeNanos() - readAtNanos);
+    }
+
+    private synchronized void recordLatency(boolean wasFound, long latencyNanos) {
+        long delivered = found + unknown;
+        latencies[(int) (delivered % LATENCY_SAMPLES)] = latencyNanos;
+        if (wasFound) {
+            found++;
+        } else {
+            unknown++;
+        }
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    public synchronized ScanStats getStats() {
+        int samples = (int) Math.min(found + unknown, LATENCY_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        long p95 = samples > 0 ? sorted[(int) Math.ceil(samples * 0.95) - 1] : 0;
+        return new ScanStats(reads, debounced, found, unknown, totalLatencyNanos, maxLatencyNanos, p95);
+    }
+
+    public synchronized void resetStats() {
+        reads = debounced = found = unknown = 0;
+        totalLatencyNanos = maxLatencyNanos = 0;
+    }
+
+    /**
+     * Tag UID as colon-separated upper-case hex, the format tags are written with
+     * (e.g. 04:A2:3B:19)
+     */
+    public static String toTagId(byte[] uid) {
+        if (uid == null || uid.length == 0) {
+            return null;
+        }
+        StringBuilder tagId = new StringBuilder(uid.length * 3);
+        for (byte b : uid) {
+            if (tagId.length() > 0) {
+                tagId.append(':');
+            }
+            tagId.append(String.format("%02X", b & 0xFF));
+        }
+        return tagId.toString();
+    }
+
+    /**
+     * A point-in-time copy of the pipeline counters
+     */
+    public static final class ScanStats {
+        private final long reads;
+        private final long debounced;
+        private final long found;
+        private final long unknown;
+        private final long totalLatencyNanos;
+        private final long maxLatencyNanos;
+        private final long p95LatencyNanos;
+
+        ScanStats(long reads, long debounced, long found, long unknown, long totalLatencyNanos,
+                  long maxLatencyNanos, long p95LatencyNanos) {
+            this.reads = reads;
+            this.debounced = debounced;
+            this.found = found;
+            this.unknown = unknown;
+            this.totalLatencyNanos = totalLatencyNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+            this.p95LatencyNanos = p95LatencyNanos;
+        }
+
+        public long getReadCount() {
+            return reads;
+        }
+
+        public long getDebouncedCount() {
+            return debounced;
+        }
+
+        public long getFoundCount() {
+            return found;
+        }
+
+        public long getUnknownCount() {
+            return unknown;
+        }
+
+        /**
+         * Scans that reached the listener
+         */
+        public long getDeliveredCount() {
+            return found + unknown;
+        }
+
+        public double getAverageLatencyMs() {
+            long delivered = getDeliveredCount();
+            return delivered > 0 ? totalLatencyNanos / 1e6 / delivered : 0;
+        }
+
+        public double getMaxLatencyMs() {
+            return maxLatencyNanos / 1e6;
+        }
+
+        /**
+         * 95th percentile over the last 256 delivered scans
+         */
+        public double getP95LatencyMs() {
+            return p95LatencyNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                                 "reads=%d debounced=%d found=%d unknown=%d avg=%.1fms p95=%.1fms max=%.1fms",
+                                 reads, debounced, found, unknown, getAverageLatencyMs(),
+                                 getP95LatencyMs(), getMaxLatencyMs());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.h_cas.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RFIDScanReplay feeds a recorded burst of tag reads through an {@link RFIDScanPipeline}
+ * with the original timing, then logs the pipeline's counters and scan-to-dialog
+ * latency. It is used for the simulated scan on devices without a reader and to
+ * measure the pipeline against a busy dispensing window.
+ *
+ * A recording has one read per line, "offsetMs tagId", with offsets relative to the
+ * first read; blank lines and lines starting with # are ignored.
+ */
+public final class RFIDScanReplay {
+    private static final String TAG = "RFIDScanReplay";
+
+    // Time left after the last read for its lookup to be delivered
+    private static final long SETTLE_MS = 1000;
+
+    /**
+     * One recorded read
+     */
+    public static final class Read {
+        final long offsetMs;
+        final String tagId;
+
+        public Read(long offsetMs, String tagId) {
+            this.offsetMs = offsetMs;
+            this.tagId = tagId;
+        }
+    }
+
+    private RFIDScanReplay() {
+    }
+
+    /**
+     * Parse a recording; malformed lines are skipped
+     */
+    public static List<Read> parse(String recording) {
+        List<Read> reads = new ArrayList<>();
+        for (String line : recording.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 2);
+            try {
+                reads.add(new Read(Long.parseLong(parts[0]), parts[1].trim()));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                Log.w(TAG, "Skipping malformed read: " + line);
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * A synthetic burst: each tag is tapped in turn, intervalMs apart, and read
+     * readsPerTap times 100 ms apart as a tag held to the reader is
+     */
+    public static List<Read> burst(List<String> tagIds, int readsPerTap, long intervalMs) {
+        List<Read> reads = new ArrayList<>();
+        for (int i = 0; i < tagIds.size(); i++) {
+            for (int r = 0; r < readsPerTap; r++) {
+                reads.add(new Read(i * intervalMs + r * 100L, tagIds.get(i)));
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * Replay reads into pipeline on the main thread, resetting its counters first.
+     * onFinished (may be null) runs on the main thread once the last read has settled.
+     */
+    public static void replay(RFIDScanPipeline pipeline, List<Read> reads, Runnable onFinished) {
+        List<Read> ordered = new ArrayList<>(reads);
+        Collections.sort(ordered, (a, b) -> Long.compare(a.offsetMs, b.offsetMs));
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        pipeline.resetStats();
+        long lastOffsetMs = 0;
+        for (Read read : ordered) {
+            handler.postDelayed(() -> pipeline.onTagRead(read.tagId, SystemClock.elapsedRealtimeNanos()),
+                                read.offsetMs);
+            lastOffsetMs = read.offsetMs;
+        }
+        handler.postDelayed(() -> {
+            Log.d(TAG, "Replayed " + ordered.size() + " reads: " + pipeline.getStats());
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }, lastOffsetMs + SETTLE_MS);
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.h_cas.utils;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.pdf.PdfDocument;
+import android.util.Log;
+
+import com.example.h_cas.database.RowCallback;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ReportExporter writes a report as CSV or as a paginated PDF. Detail rows are pulled
+ * from a database cursor one at a time and written as they arrive. A CSV is streamed
+ * straight to its file, so heap use does not grow with the size of the report.
+ * PdfDocument keeps every finished page until the document is written out, so a PDF is
+ * written in parts of at most {@link #PDF_PAGES_PER_PART} pages; heap use is bounded by
+ * one part.
+ *
+ * An export runs on {@link DatabaseExecutor.Pool#DB_READ} at background priority.
+ * Listener callbacks are delivered on the main thread; progress is posted every
+ * {@link #PROGRESS_INTERVAL} rows. A cancelled or failed export leaves a partial file
+ * behind, which the caller should delete.
+ */
+public final class ReportExporter {
+    private static final String TAG = "ReportExporter";
+
+    // Rows written between two progress callbacks
+    private static final int PROGRESS_INTERVAL = 100;
+
+    // Pages held in memory before a PDF part is written out (about 5,000 rows)
+    public static final int PDF_PAGES_PER_PART = 100;
+
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        PDF("application/pdf", "pdf");
+
+        private final String mimeType;
+        private final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * The report to export: a short summary block followed by detail rows streamed
+     * from the database. Methods are called on the export thread.
+     */
+    public interface Source {
+        String getTitle();
+
+        /**
+         * Lines printed above the detail rows (statistics, period, generation date)
+         */
+        List<String> getSummary();
+
+        /**
+         * Column headers of the detail rows; empty for a summary-only report
+         */
+        String[] getColumns();
+
+        /**
+         * Number of detail rows expected, for progress; 0 if unknown
+         */
+        int getExpectedRows();
+
+        /**
+         * Feed the detail rows to sink in order, stopping as soon as it returns false
+         */
+        void forEachRow(RowCallback<String[]> sink);
+    }
+
+    /**
+     * Where the output goes. A CSV is always one part; a PDF has one part per
+     * {@link #PDF_PAGES_PER_PART} pages.
+     */
+    public interface Destination {
+        /**
+         * Open part (1-based) for writing; the exporter closes it
+         */
+        OutputStream openPart(int part) throws IOException;
+    }
+
+    /**
+     * Export progress and outcome, called on the main thread
+     */
+    public interface Listener {
+        void onProgress(int rowsWritten, int expectedRows);
+
+        void onComplete(int rowsWritten, int parts);
+
+        void onCancelled();
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Handle to a running export
+     */
+    public static final class Task {
+        private volatile boolean cancelled;
+
+        /**
+         * Stop the export after the current row; the listener gets onCancelled
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Files for the parts of an export: the first part is the given file, later ones get
+     * "_part2", "_part3"... before the extension
+     */
+    public static final class FileDestination implements Destination {
+        private final File first;
+        private final List<File> files = new ArrayList<>();
+
+        public FileDestination(File first) {
+            this.first = first;
+        }
+
+        @Override
+        public synchronized OutputStream openPart(int part) throws IOException {
+            File file = first;
+            if (part > 1) {
+                String name = first.getName();
+                int dot = name.lastIndexOf('.');
+                String stem = dot > 0 ? name.substring(0, dot) : name;
+                String extension = dot > 0 ? name.substring(dot) : "";
+                file = new File(first.getParentFile(), stem + "_part" + part + extension);
+            }
+            files.add(file);
+            return new FileOutputStream(file);
+        }
+
+        /**
+         * The parts opened so far, in order
+         */
+        public synchronized List<File> getFiles() {
+            return new ArrayList<>(files);
+        }
+
+        /**
+         * Delete every part, e.g. after a cancelled or failed export
+         */
+        public synchronized void delete() {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private ReportExporter() {
+    }
+
+    /**
+     * Start exporting source to destination; every part opened is closed when the export ends
+     */
+    public static Task export(Source source, Format format, Destination destination, Listener listener) {
+        Task task = new Task();
+        DatabaseExecutor executor = DatabaseExecutor.getInstance();
+        executor.execute(DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.BACKGROUND, null, () -> {
+            RowSink sink = null;
+            int parts;
+            try (ReportWriter writer = format == Format.PDF ? new PdfReportWriter(destination)
+                                                            : new CsvReportWriter(destination)) {
+                writer.begin(source.getTitle(), source.getSummary(), source.getColumns());
+                sink = new RowSink(writer, task, source.getExpectedRows(), listener);
+                source.forEachRow(sink);
+                if (sink.failure != null) {
+                    throw sink.failure;
+                }
+                if (!task.isCancelled()) {
+                    writer.finish();
+                }
+                parts = writer.getParts();
+            } catch (Exception e) {
+                Log.e(TAG, "Report export failed", e);
+                executor.executeOnMainThread(() -> listener.onError(e));
+                return;
+            }
+
+            int written = sink.written;
+            int finishedParts = parts;
+            executor.executeOnMainThread(() -> {
+                if (task.isCancelled()) {
+                    listener.onCancelled();
+                } else {
+                    listener.onComplete(written, finishedParts);
+                }
+            });
+        });
+        return task;
+    }
+
+    /**
+     * Writes each streamed row and reports progress; stops the scan on cancel or error
+     */
+    private static final class RowSink implements RowCallback<String[]> {
+        private final ReportWriter writer;
+        private final Task task;
+        private final int expectedRows;
+        private final Listener listener;
+        int written;
+        IOException failure;
+
+        RowSink(ReportWriter writer, Task task, int expectedRows, Listener listener) {
+            this.writer = writer;
+            this.task = task;
+            this.expectedRows = expectedRows;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean onRow(String[] cells) {
+            if (task.isCancelled()) {
+                return false;
+            }
+            try {
+                writer.writeRow(cells);
+            } catch (IOException e) {
+                failure = e;
+                return false;
+            }
+            written++;
+            if (written % PROGRESS_INTERVAL == 0) {
+                int progress = written;
+                DatabaseExecutor.getInstance().executeOnMainThread(
+                    () -> listener.onProgress(progress, Math.max(expectedRows, progress)));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One output format. finish() completes the document; close() releases it either way.
+     */
+    private interface ReportWriter extends Closeable {
+        void begin(String title, List<String> summary, String[] columns) throws IOException;
+
+        void writeRow(String[] cells) throws IOException;
+
+        void finish() throws IOException;
+
+        int getParts();
+    }
+
+    /**
+     * RFC 4180 CSV through an 8 KB buffer, so rows reach the descriptor in chunks
+     */
+    private static final class CsvReportWriter implements ReportWriter {
+        private final Writer writer;
+
+        CsvReportWriter(Destination destination) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(destination.openPart(1), StandardCharsets.UTF_8), 8192);
+        }
+
+        @Override
+        public void begin(String title, List<String> summary, String[] columns) throws IOException {
+            writeLine(new String[]{title});
+            for (String line : summary) {
+                writeLine(new String[]{line});
+            }
+            if (columns.length > 0) {
+                writer.write("\n");
+                writeLine(columns);
+            }
+        }
+
+        @Override
+        public void writeRow(String[] cells) throws IOException {
+            writeLine(cells);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public int getParts() {
+            return 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private void writeLine(String[] cells) throws IOException {
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(cells[i]));
+            }
+            writer.write("\n");
+        }
+
+        private static String escape(String cell) {
+            if (cell == null) {
+                return "";
+            }
+            if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0
+                    && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+                return cell;
+            }
+            return "\"" + cell.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /**
+     * A4 pages drawn with PdfDocument. A page is finished as soon as it is full. Once a
+     * part has {@link #PDF_PAGES_PER_PART} pages it is serialized to its stream and the
+     * next page starts a new document in the next part; finish() writes the last one.
+     * Page numbers run on across parts.
+     */
+    private static final class PdfReportWriter implements ReportWriter {
+        // A4 in PostScript points
+        private static final int PAGE_WIDTH = 595;
+        private static final int PAGE_HEIGHT = 842;
+        private static final int MARGIN = 36;
+        private static final float LINE_HEIGHT = 14f;
+        private static final float CELL_PADDING = 4f;
+
+        private final Destination destination;
+        private PdfDocument document = new PdfDocument();
+        private int part = 1;
+        private int partPages;
+        private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint headerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private String title;
+        private String[] columns;
+        private PdfDocument.Page page;
+        private Canvas canvas;
+        private int pageNumber;
+        private float y;
+
+        PdfReportWriter(Destination destination) {
+            this.destination = destination;
+            titlePaint.setTextSize(16f);
+            titlePaint.setFakeBoldText(true);
+            headerPaint.setTextSize(9f);
+            headerPaint.setFakeBoldText(true);
+            textPaint.setTextSize(9f);
+        }
+
+        @Override
+        public void begin(String title, List<String> summary, String[] columns) throws IOException {
+            this.title = title;
+            this.columns = new String[0];
+            startPage();
+            canvas.drawText(title, MARGIN, y + titlePaint.getTextSize(), titlePaint);
+            y += LINE_HEIGHT * 2;
+            for (String line : summary) {
+                drawWrapped(line, textPaint);
+            }
+            this.columns = columns;
+            if (columns.length > 0) {
+                y += LINE_HEIGHT;
+                ensureLine();
+                drawCells(columns, headerPaint);
+            }
+        }
+
+        @Override
+        public void writeRow(String[] cells) throws IOException {
+            ensureLine();
+            drawCells(cells, textPaint);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            finishPage();
+            writePart();
+        }
+
+        @Override
+        public int getParts() {
+            return part;
+        }
+
+        @Override
+        public void close() {
+            document.close();
+        }
+
+        /**
+         * Serialize the pages of the current part and release them
+         */
+        private void writePart() throws IOException {
+            try (OutputStream out = destination.openPart(part)) {
+                document.writeTo(out);
+            } finally {
+                document.close();
+            }
+        }
+
+        private void startPage() throws IOException {
+            if (partPages == PDF_PAGES_PER_PART) {
+                writePart();
+                document = new PdfDocument();
+                part++;
+                partPages = 0;
+            }
+            partPages++;
+            pageNumber++;
+            page = document.startPage(new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageNumber).create());
+            canvas = page.getCanvas();
+            y = MARGIN;
+            canvas.drawText(title + " - page " + pageNumber, MARGIN, PAGE_HEIGHT - MARGIN / 2f, textPaint);
+        }
+
+        private void finishPage() {
+            if (page != null) {
+                document.finishPage(page);
+                page = null;
+            }
+        }
+
+        /**
+         * Move to a new page (repeating the column headers) if the next line does not fit
+         */
+        private void ensureLine() throws IOException {
+            if (y + LINE_HEIGHT <= PAGE_HEIGHT - MARGIN) {
+                return;
+            }
+            finishPage();
+            startPage();
+            if (columns.length > 0) {
+                drawCells(columns, headerPaint);
+            }
+        }
+
+        private void drawCells(String[] cells, Paint paint) {
+            float columnWidth = (PAGE_WIDTH - 2f * MARGIN) / Math.max(columns.length, 1);
+            float baseline = y + paint.getTextSize();
+            for (int i = 0; i < cells.length && i < Math.max(columns.length, 1); i++) {
+                String cell = cells[i] != null ? cells[i] : "";
+                int fits = paint.breakText(cell, true, columnWidth - CELL_PADDING, null);
+                canvas.drawText(cell, 0, fits, MARGIN + i * columnWidth, baseline, paint);
+            }
+            y += LINE_HEIGHT;
+        }
+
+        private void drawWrapped(String text, Paint paint) throws IOException {
+            if (text.isEmpty()) {
+                y += LINE_HEIGHT;
+                return;
+            }
+            float width = PAGE_WIDTH - 2f * MARGIN;
+            int start = 0;
+            do {
+                ensureLine();
+                int fits = Math.max(1, paint.breakText(text, start, text.length(), true, width, null));
+                canvas.drawText(text, start, start + fits, MARGIN, y + paint.getTextSize(), paint);
+                y += LINE_HEIGHT;
+                start += fits;
+            } while (start < text.length());
+        }
+    }
+}
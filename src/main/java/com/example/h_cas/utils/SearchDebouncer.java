@@ -0,0 +1,134 @@
+package com.example.h_cas.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.widget.EditText;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.List;
+
+/**
+ * SearchDebouncer runs a list's search as the user types. The query runs once typing
+ * has paused for {@link #DELAY_MS}, on the DB_READ pool at UI priority, and only the
+ * results of the newest query are delivered: a slower earlier query that finishes late
+ * is dropped instead of overwriting what the user is looking at.
+ */
+public final class SearchDebouncer<T> implements TextWatcher {
+    private static final String TAG = "SearchDebouncer";
+
+    // Long enough to skip the keystrokes of a word being typed, short enough to feel live
+    public static final long DELAY_MS = 250;
+
+    /**
+     * Runs the search on a background thread; query is trimmed and may be empty
+     */
+    public interface Query<T> {
+        List<T> run(String query);
+    }
+
+    /**
+     * Search outcomes, called on the main thread
+     */
+    public interface Listener<T> {
+        void onResults(String query, List<T> results);
+
+        default void onSearchFailed(String query, RuntimeException error) {
+            Log.e(TAG, "Search for \"" + query + "\" failed", error);
+        }
+    }
+
+    private final LifecycleOwner owner;
+    private final Query<T> query;
+    private final Listener<T> listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private EditText input;
+
+    // Incremented for every scheduled query; results of older ones are dropped
+    // (only touched on the main thread)
+    private long generation;
+    private Runnable pending;
+
+    public SearchDebouncer(LifecycleOwner owner, Query<T> query, Listener<T> listener) {
+        this.owner = owner;
+        this.query = query;
+        this.listener = listener;
+    }
+
+    /**
+     * Search whenever the text of input changes
+     */
+    public void attachTo(EditText input) {
+        this.input = input;
+        input.addTextChangedListener(this);
+    }
+
+    /**
+     * The trimmed text of the attached input, "" if there is none
+     */
+    public String getText() {
+        return input != null && input.getText() != null ? input.getText().toString().trim() : "";
+    }
+
+    /**
+     * Run the search for the current text now, e.g. on refresh. Call on the main thread.
+     */
+    public void searchNow() {
+        cancel();
+        run(getText(), generation);
+    }
+
+    /**
+     * Drop the pending search and the results of any search still running
+     */
+    public void cancel() {
+        generation++;
+        if (pending != null) {
+            mainHandler.removeCallbacks(pending);
+            pending = null;
+        }
+    }
+
+    @Override
+    public void afterTextChanged(Editable text) {
+        cancel();
+        String typed = text.toString().trim();
+        long current = generation;
+        pending = () -> run(typed, current);
+        mainHandler.postDelayed(pending, DELAY_MS);
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence text, int start, int before, int count) {
+    }
+
+    private void run(String typed, long scheduled) {
+        pending = null;
+        DatabaseExecutor executor = DatabaseExecutor.getInstance();
+        executor.execute(owner, () -> {
+            List<T> results;
+            try {
+                results = query.run(typed);
+            } catch (RuntimeException e) {
+                executor.executeOnMainThread(() -> {
+                    if (scheduled == generation) {
+                        listener.onSearchFailed(typed, e);
+                    }
+                });
+                return;
+            }
+            executor.executeOnMainThread(() -> {
+                if (scheduled == generation) {
+                    listener.onResults(typed, results);
+                }
+            });
+        });
+    }
+}
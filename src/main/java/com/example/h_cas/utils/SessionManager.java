@@ -0,0 +1,240 @@
+package com.example.h_cas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+import android.util.Log;
+
+import com.example.h_cas.models.Employee;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+
+/**
+ * SessionManager holds the signed-in employee, so screens read the profile from memory
+ * instead of querying it again by username, and a short-lived signed session token.
+ *
+ * The token is {@code base64(employeeId \n username \n role \n expiresAt)} and an
+ * HMAC-SHA256 of it under a key that never leaves the Android keystore. It lasts
+ * {@link #SESSION_TTL_MS} and is re-signed on use once half of that has passed, so an
+ * active session stays open and an idle one expires. Only the token is persisted; the
+ * profile is kept in memory and read again by id after the process is restarted.
+ */
+public final class SessionManager {
+    private static final String TAG = "SessionManager";
+
+    private static final String PREFS_NAME = "SessionPrefs";
+    private static final String KEY_TOKEN = "session_token";
+    private static final String KEY_ALIAS = "hcas_session_key";
+    private static final String MAC = "HmacSHA256";
+
+    public static final long SESSION_TTL_MS = 30 * 60 * 1000L;
+
+    /**
+     * What a valid token says about whom it was issued to
+     */
+    public static final class Claims {
+        public final String employeeId;
+        public final String username;
+        public final String role;
+        public final long expiresAt;
+
+        Claims(String employeeId, String username, String role, long expiresAt) {
+            this.employeeId = employeeId;
+            this.username = username;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static volatile SessionManager instance;
+
+    private final SharedPreferences prefs;
+    private Employee employee;
+    private Claims claims;
+    private String token;
+
+    private SessionManager(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static SessionManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SessionManager.class) {
+                if (instance == null) {
+                    instance = new SessionManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Open a session for an employee who has just authenticated
+     */
+    public synchronized void start(Employee signedIn) {
+        employee = copyOf(signedIn);
+        issue(new Claims(signedIn.getEmployeeId(), signedIn.getUsername(), signedIn.getRole(), 0));
+    }
+
+    /**
+     * A copy of the signed-in employee (without the password), or null when there is no
+     * valid session or the profile is not in memory, e.g. after a restart
+     */
+    public synchronized Employee getEmployee() {
+        if (getClaims() == null || employee == null) {
+            return null;
+        }
+        return copyOf(employee);
+    }
+
+    /**
+     * The signed-in employee if their username is username, otherwise null
+     */
+    public synchronized Employee getEmployee(String username) {
+        Employee current = getEmployee();
+        return current != null && username != null && username.equals(current.getUsername()) ? current : null;
+    }
+
+    /**
+     * Keep updated as the session's profile if it is the signed-in employee, e.g. after
+     * their row was written or read again following a restart
+     */
+    public synchronized void updateEmployee(Employee updated) {
+        Claims current = getClaims();
+        if (updated != null && current != null && current.employeeId != null &&
+            current.employeeId.equals(updated.getEmployeeId())) {
+            employee = copyOf(updated);
+        }
+    }
+
+    /**
+     * The claims of the current session, restored from the stored token if needed, or
+     * null when there is none or it has expired or does not verify
+     */
+    public synchronized Claims getClaims() {
+        long now = System.currentTimeMillis();
+        if (claims == null) {
+            String stored = prefs.getString(KEY_TOKEN, null);
+            Claims restored = stored != null ? verify(stored) : null;
+            if (restored == null) {
+                return null;
+            }
+            claims = restored;
+            token = stored;
+        }
+        if (now >= claims.expiresAt) {
+            end();
+            return null;
+        }
+        if (claims.expiresAt - now < SESSION_TTL_MS / 2) {
+            issue(claims);
+        }
+        return claims;
+    }
+
+    /**
+     * The current signed token, or null when there is no valid session
+     */
+    public synchronized String getToken() {
+        return getClaims() != null ? token : null;
+    }
+
+    /**
+     * Sign out: forget the profile and the token
+     */
+    public synchronized void end() {
+        employee = null;
+        claims = null;
+        token = null;
+        prefs.edit().remove(KEY_TOKEN).apply();
+    }
+
+    private void issue(Claims subject) {
+        Claims renewed = new Claims(subject.employeeId, subject.username, subject.role,
+                                    System.currentTimeMillis() + SESSION_TTL_MS);
+        String payload = encode(String.join("\n", nonNull(renewed.employeeId), nonNull(renewed.username),
+                                            nonNull(renewed.role), Long.toString(renewed.expiresAt))
+                                      .getBytes(StandardCharsets.UTF_8));
+        byte[] signature = sign(payload);
+        claims = renewed;
+        token = signature != null ? payload + "." + encode(signature) : null;
+        if (token != null) {
+            prefs.edit().putString(KEY_TOKEN, token).apply();
+        } else {
+            // Without a key the session lives in memory only and is not restored
+            prefs.edit().remove(KEY_TOKEN).apply();
+        }
+    }
+
+    private Claims verify(String stored) {
+        int dot = stored.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String payload = stored.substring(0, dot);
+        byte[] expected = sign(payload);
+        try {
+            if (expected == null || !MessageDigest.isEqual(expected, decode(stored.substring(dot + 1)))) {
+                return null;
+            }
+            String[] fields = new String(decode(payload), StandardCharsets.UTF_8).split("\n", -1);
+            if (fields.length != 4) {
+                return null;
+            }
+            return new Claims(fields[0], fields[1], fields[2], Long.parseLong(fields[3]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(signingKey());
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException | IOException e) {
+            Log.w(TAG, "Session key unavailable", e);
+            return null;
+        }
+    }
+
+    private static Key signingKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
+        keyStore.load(null);
+        Key key = keyStore.getKey(KEY_ALIAS, null);
+        if (key != null) {
+            return key;
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256, "AndroidKeyStore");
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_SIGN).build());
+        return generator.generateKey();
+    }
+
+    private static Employee copyOf(Employee source) {
+        Employee copy = new Employee(source);
+        copy.setPassword(null);
+        return copy;
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.NO_WRAP | Base64.URL_SAFE | Base64.NO_PADDING);
+    }
+
+    private static byte[] decode(String text) {
+        return Base64.decode(text, Base64.NO_WRAP | Base64.URL_SAFE | Base64.NO_PADDING);
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.h_cas.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * StartupOrchestrator runs the app's startup work as named tasks on the
+ * {@link DatabaseExecutor} pools. A task starts as soon as the tasks it depends on have
+ * finished, so independent work (opening the database, initializing Firebase) runs in
+ * parallel and the first screen only waits for what it actually needs, see
+ * {@link #whenDone}. A task that fails is logged and still counts as finished; tasks
+ * that depend on it must cope with what it left undone.
+ *
+ * Each task records a span (start and end, in milliseconds since the process started),
+ * and {@link #markFirstScreen} records when the first real screen drew. Together they
+ * are logged under the "Startup" tag as the cold-start report. StartupBenchmarkTest
+ * checks the path to the dashboard against {@link #TARGET_COLD_START_MS}.
+ */
+public final class StartupOrchestrator {
+    private static final String TAG = "Startup";
+
+    // Cold start to first drawn dashboard on a mid-range tablet
+    public static final long TARGET_COLD_START_MS = 800;
+
+    private static final class Task {
+        final String name;
+        final DatabaseExecutor.Pool pool;
+        final DatabaseExecutor.Priority priority;
+        final Runnable work;
+        final String[] dependsOn;
+        final List<Task> dependents = new ArrayList<>();
+        final List<Runnable> callbacks = new ArrayList<>();
+        int waitingFor;
+        long queuedMs = -1;
+        long startMs = -1;
+        long endMs = -1;
+        String thread;
+        Throwable error;
+
+        Task(String name, DatabaseExecutor.Pool pool, DatabaseExecutor.Priority priority, Runnable work,
+             String[] dependsOn) {
+            this.name = name;
+            this.pool = pool;
+            this.priority = priority;
+            this.work = work;
+            this.dependsOn = dependsOn;
+        }
+
+        boolean isDone() {
+            return endMs >= 0;
+        }
+    }
+
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private boolean started;
+    private long firstScreenMs = -1;
+    private String firstScreen;
+
+    /**
+     * Add a task; dependencies must be added before {@link #start()}, in any order
+     */
+    public synchronized StartupOrchestrator add(String name, DatabaseExecutor.Pool pool,
+                                                DatabaseExecutor.Priority priority, Runnable work,
+                                                String... dependsOn) {
+        if (started) {
+            throw new IllegalStateException("Startup already started");
+        }
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup task " + name);
+        }
+        tasks.put(name, new Task(name, pool, priority, work, dependsOn));
+        return this;
+    }
+
+    /**
+     * Submit every task whose dependencies are met; the rest follow as those finish.
+     * Throws if a task depends on an unknown task or the dependencies form a cycle
+     * (a task depending on itself included), since those tasks would never run.
+     */
+    public void start() {
+        List<Task> ready = new ArrayList<>();
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            for (Task task : tasks.values()) {
+                for (String dependency : task.dependsOn) {
+                    if (!tasks.containsKey(dependency)) {
+                        throw new IllegalArgumentException(task.name + " depends on unknown task " + dependency);
+                    }
+                }
+            }
+            Map<String, Boolean> visited = new HashMap<>();
+            for (String name : tasks.keySet()) {
+                checkForCycle(name, visited, new ArrayList<>());
+            }
+
+            started = true;
+            for (Task task : tasks.values()) {
+                for (String dependency : task.dependsOn) {
+                    Task required = tasks.get(dependency);
+                    required.dependents.add(task);
+                    task.waitingFor++;
+                }
+            }
+            for (Task task : tasks.values()) {
+                if (task.waitingFor == 0) {
+                    ready.add(task);
+                }
+            }
+        }
+        for (Task task : ready) {
+            submit(task);
+        }
+    }
+
+    /**
+     * Depth-first walk of name's dependencies. visited maps a task to false while it is
+     * on path and to true once everything it depends on has been checked.
+     */
+    private void checkForCycle(String name, Map<String, Boolean> visited, List<String> path) {
+        Boolean checked = visited.get(name);
+        if (Boolean.TRUE.equals(checked)) {
+            return;
+        }
+        path.add(name);
+        if (checked != null) {
+            throw new IllegalArgumentException("Startup tasks depend on each other: " +
+                                               String.join(" -> ", path.subList(path.indexOf(name), path.size())));
+        }
+        visited.put(name, false);
+        for (String dependency : tasks.get(name).dependsOn) {
+            checkForCycle(dependency, visited, path);
+        }
+        visited.put(name, true);
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Run callback on the main thread once task (and so everything it depends on) has
+     * finished; right away if it already has
+     */
+    public void whenDone(String name, Runnable callback) {
+        synchronized (this) {
+            Task task = tasks.get(name);
+            if (task == null) {
+                throw new IllegalArgumentException("Unknown startup task " + name);
+            }
+            if (!task.isDone()) {
+                task.callbacks.add(callback);
+                return;
+            }
+        }
+        DatabaseExecutor.getInstance().executeOnMainThread(callback);
+    }
+
+    /**
+     * Record that the first screen after the splash has drawn, and log the report.
+     * Only the first call counts.
+     */
+    public void markFirstScreen(String screen) {
+        synchronized (this) {
+            if (firstScreenMs >= 0) {
+                return;
+            }
+            firstScreenMs = now();
+            firstScreen = screen;
+        }
+        Log.d(TAG, report());
+    }
+
+    /**
+     * When task finished, in milliseconds since the process started; -1 until it has
+     */
+    public synchronized long getFinishedMs(String name) {
+        Task task = tasks.get(name);
+        if (task == null) {
+            throw new IllegalArgumentException("Unknown startup task " + name);
+        }
+        return task.endMs;
+    }
+
+    /**
+     * The spans of every task so far and the time to the first screen
+     */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        if (firstScreenMs >= 0) {
+            report.append(String.format(Locale.US, "Cold start to %s: %dms (target %dms)%n",
+                                        firstScreen, firstScreenMs, TARGET_COLD_START_MS));
+        }
+        for (Task task : tasks.values()) {
+            report.append(String.format(Locale.US, "  %-18s", task.name));
+            if (task.startMs < 0) {
+                report.append(task.queuedMs >= 0 ? "queued at " + task.queuedMs + "ms" : "waiting");
+            } else if (!task.isDone()) {
+                report.append(String.format(Locale.US, "%5dms -> running (%s)", task.startMs, task.thread));
+            } else {
+                report.append(String.format(Locale.US, "%5dms -> %5dms = %4dms, queued %dms (%s)%s",
+                                            task.startMs, task.endMs, task.endMs - task.startMs,
+                                            task.startMs - task.queuedMs, task.thread,
+                                            task.error != null ? " FAILED: " + task.error : ""));
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    private void submit(Task task) {
+        synchronized (this) {
+            task.queuedMs = now();
+        }
+        // A task the pool drops fails like one that threw, so whatever waits on it still runs
+        DatabaseExecutor.getInstance().execute(task.pool, task.priority, null, () -> run(task), () -> {
+            synchronized (this) {
+                task.startMs = now();
+                task.thread = "not run";
+            }
+            RejectedExecutionException error = new RejectedExecutionException(task.pool + " queue full");
+            Log.e(TAG, "Startup task " + task.name + " failed", error);
+            finish(task, error);
+        });
+    }
+
+    private void run(Task task) {
+        synchronized (this) {
+            task.startMs = now();
+            task.thread = Thread.currentThread().getName();
+        }
+        Throwable error = null;
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            error = e;
+            Log.e(TAG, "Startup task " + task.name + " failed", e);
+        }
+        finish(task, error);
+    }
+
+    private void finish(Task task, Throwable error) {
+        List<Task> ready = new ArrayList<>();
+        List<Runnable> callbacks;
+        synchronized (this) {
+            task.endMs = now();
+            task.error = error;
+            for (Task dependent : task.dependents) {
+                if (--dependent.waitingFor == 0) {
+                    ready.add(dependent);
+                }
+            }
+            callbacks = new ArrayList<>(task.callbacks);
+            task.callbacks.clear();
+        }
+        for (Task dependent : ready) {
+            submit(dependent);
+        }
+        for (Runnable callback : callbacks) {
+            DatabaseExecutor.getInstance().executeOnMainThread(callback);
+        }
+    }
+
+    /**
+     * Milliseconds since this process started
+     */
+    private static long now() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.h_cas;
+
+/**
+ * JUnit category for host tests that time code on the JVM. The default unit test run
+ * leaves them out, since timings are unreliable on a loaded machine; run them with
+ * ./gradlew testDebugUnitTest -Pbenchmark
+ */
+public interface Benchmark {
+}
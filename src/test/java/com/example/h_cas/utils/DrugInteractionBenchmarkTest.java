@@ -0,0 +1,117 @@
+package com.example.h_cas.utils;
+
+import com.example.h_cas.Benchmark;
+import com.example.h_cas.models.DrugInteraction;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DrugInteractionBenchmarkTest builds a synthetic {@link DrugInteractionIndex} of 50k
+ * interacting pairs and times checking a new prescription against a patient's active
+ * regimen, the check made when a prescription is saved. The index is built through its
+ * Builder, which needs nothing from Android, so this runs on the host JVM, in the
+ * {@link Benchmark} run; the figures are in the assertion messages.
+ */
+@Category(Benchmark.class)
+public class DrugInteractionBenchmarkTest {
+    // Interacting pairs in the table
+    private static final int PAIR_COUNT = 50_000;
+    // Distinct medications; one in five also belongs to a class
+    private static final int DRUG_COUNT = 5_000;
+    // Active prescriptions each new one is checked against
+    private static final int REGIMEN_SIZE = 12;
+    private static final int CHECKS = 20_000;
+    // The save-time warning budget on the tablet; the host is far quicker
+    private static final long BUDGET_NANOS = 5_000_000;
+
+    private static final DrugInteraction.Severity[] SEVERITIES = DrugInteraction.Severity.values();
+
+    @Test
+    public void checkAgainstActiveRegimen() {
+        int pairCount = PAIR_COUNT;
+        int drugCount = DRUG_COUNT;
+        int regimenSize = REGIMEN_SIZE;
+        int checks = CHECKS;
+        Random random = new Random(7);
+        int classCount = Math.max(1, drugCount / 50);
+
+        long start = System.nanoTime();
+        DrugInteractionIndex.Builder builder = new DrugInteractionIndex.Builder();
+        for (int drug = 0; drug < drugCount; drug++) {
+            builder.addSynonym("brand " + name(drug), name(drug));
+            if (drug % 5 == 0) {
+                builder.addClass(name(drug), "class " + name(random.nextInt(classCount)));
+            }
+        }
+        for (int pair = 0; pair < pairCount; pair++) {
+            String a = random.nextInt(20) == 0 ? "class " + name(random.nextInt(classCount))
+                                               : name(random.nextInt(drugCount));
+            builder.addInteraction(a, name(random.nextInt(drugCount)), SEVERITIES[random.nextInt(SEVERITIES.length)],
+                                   "Synthetic effect", "Synthetic recommendation");
+        }
+        DrugInteractionIndex index = builder.build();
+        long buildNanos = System.nanoTime() - start;
+
+        // Prescriptions as typed: mixed case, with strength and form, some by brand name
+        List<List<String>> regimens = new ArrayList<>();
+        List<String> newMedications = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            List<String> regimen = new ArrayList<>(regimenSize);
+            for (int j = 0; j < regimenSize; j++) {
+                regimen.add(asTyped(random, random.nextInt(drugCount)));
+            }
+            regimens.add(regimen);
+            newMedications.add(asTyped(random, random.nextInt(drugCount)));
+        }
+
+        long found = 0;
+        for (int i = 0; i < 1000; i++) {
+            found += index.check(newMedications.get(i & 255), regimens.get(i & 255)).size();
+        }
+        long[] samples = new long[checks];
+        for (int i = 0; i < checks; i++) {
+            long checkStart = System.nanoTime();
+            found += index.check(newMedications.get(i & 255), regimens.get(i & 255)).size();
+            samples[i] = System.nanoTime() - checkStart;
+        }
+        Arrays.sort(samples);
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+
+        String result = String.format(Locale.US,
+            "%d pairs over %d drugs built in %dms; check vs %d active: avg %.1fus p99 %.1fus max %.1fus " +
+            "(%d interactions found)",
+            index.size(), drugCount, buildNanos / 1_000_000, regimenSize, total / 1e3 / checks,
+            samples[(int) Math.ceil(checks * 0.99) - 1] / 1e3, samples[checks - 1] / 1e3, found);
+
+        assertTrue(result, found > 0);
+        assertTrue(result, samples[(int) Math.ceil(checks * 0.99) - 1] < BUDGET_NANOS);
+    }
+
+    // Letters only: words with digits are read as strengths and ignored
+    private static String name(int drug) {
+        StringBuilder name = new StringBuilder("drug");
+        do {
+            name.append((char) ('a' + drug % 26));
+            drug /= 26;
+        } while (drug > 0);
+        return name.toString();
+    }
+
+    private static String asTyped(Random random, int drug) {
+        String name = random.nextBoolean() ? name(drug) : "brand " + name(drug);
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1) + " " + (5 + random.nextInt(500)) +
+               "mg tablet";
+    }
+}
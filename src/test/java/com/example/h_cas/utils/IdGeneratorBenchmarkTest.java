@@ -0,0 +1,101 @@
+package com.example.h_cas.utils;
+
+import com.example.h_cas.Benchmark;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * IdGeneratorBenchmarkTest issues ids from several threads at once, as the UI, sync and
+ * import paths do, and reports the throughput together with a check of the guarantees
+ * callers rely on: no id is issued twice, across threads and across two devices' node
+ * ids, and each thread sees its ids strictly increase. The generator is plain Java, so
+ * this runs on the host JVM, in the {@link Benchmark} run; the figures are in the
+ * assertion messages. Uniqueness on its own is covered by {@link IdGeneratorTest}.
+ */
+@Category(Benchmark.class)
+public class IdGeneratorBenchmarkTest {
+    // Concurrent threads per simulated device (two devices run)
+    private static final int THREADS = 4;
+    // Ids each thread issues
+    private static final int IDS_PER_THREAD = 250_000;
+
+    @Test
+    public void concurrentThroughput() throws InterruptedException {
+        int threads = THREADS;
+        int idsPerThread = IDS_PER_THREAD;
+        IdGenerator[] devices = {new IdGenerator(1), new IdGenerator(2)};
+        long[][] issued = new long[devices.length * threads][idsPerThread];
+        boolean[] ordered = new boolean[issued.length];
+        CountDownLatch ready = new CountDownLatch(issued.length);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(issued.length);
+
+        for (int t = 0; t < issued.length; t++) {
+            IdGenerator generator = devices[t % devices.length];
+            long[] ids = issued[t];
+            int index = t;
+            new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextValue();
+                }
+                boolean increasing = true;
+                for (int i = 1; i < ids.length; i++) {
+                    increasing &= ids[i] > ids[i - 1];
+                }
+                ordered[index] = increasing;
+                done.countDown();
+            }, "id-bench-" + t).start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[issued.length * idsPerThread];
+        for (int t = 0; t < issued.length; t++) {
+            System.arraycopy(issued[t], 0, all, t * idsPerThread, idsPerThread);
+        }
+        Arrays.sort(all);
+        int duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+        int unordered = 0;
+        for (boolean increasing : ordered) {
+            if (!increasing) {
+                unordered++;
+            }
+        }
+        // How far a burst pushed the time bits ahead of the clock
+        long aheadMs = IdGenerator.timestampOf(IdGenerator.format("X", all[all.length - 1])) -
+                       System.currentTimeMillis();
+
+        String result = String.format(Locale.US,
+            "%d ids from %d threads on %d nodes in %dms (%.1fM ids/s, %.0fns each); " +
+            "%d duplicates, %d threads out of order, ids ran %dms ahead of the clock",
+            all.length, issued.length, devices.length, elapsed / 1_000_000,
+            all.length * 1e3 / elapsed, (double) elapsed / all.length, duplicates, unordered,
+            Math.max(0, aheadMs));
+
+        assertEquals(result, 0, duplicates);
+        assertEquals(result, 0, unordered);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.h_cas.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Uniqueness and ordering guarantees of {@link IdGenerator}
+ */
+public class IdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 20_000;
+
+    @Test
+    public void concurrentIdsAreUniqueAcrossThreadsAndNodes() throws Exception {
+        IdGenerator[] nodes = {new IdGenerator(1), new IdGenerator(2)};
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                IdGenerator generator = nodes[t % nodes.length];
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextValue();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue("duplicate " + ids[i], seen.add(ids[i]));
+                    if (i > 0) {
+                        assertTrue("not increasing at " + i, ids[i] > ids[i - 1]);
+                    }
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void idsNeverPassThePersistedMark() {
+        AtomicLong mark = new AtomicLong(-1);
+        IdGenerator generator = new IdGenerator(3, 0, mark::set);
+        for (int i = 0; i < 100_000; i++) {
+            long millis = millisOf(generator.nextValue());
+            assertTrue(millis + " issued past mark " + mark.get(), millis < mark.get());
+        }
+    }
+
+    @Test
+    public void restartAfterClockSetBackStaysAboveEarlierIds() throws Exception {
+        // The first run's clock was an hour ahead, so its ids are an hour in the future
+        long hourAhead = System.currentTimeMillis() - IdGenerator.EPOCH_MILLIS + TimeUnit.HOURS.toMillis(1);
+        AtomicLong mark = new AtomicLong();
+        IdGenerator firstRun = new IdGenerator(4, hourAhead, mark::set);
+        long lastIssued = 0;
+        for (int i = 0; i < 10_000; i++) {
+            lastIssued = firstRun.nextValue();
+        }
+
+        // Restarted on the corrected clock, from the persisted mark
+        IdGenerator restarted = new IdGenerator(4, mark.get(), mark::set);
+        long first = restarted.nextValue();
+        assertTrue(first + " <= " + lastIssued, first > lastIssued);
+
+        // Without the mark the same node would go back to the clock and repeat the range
+        assertTrue(new IdGenerator(4).nextValue() < lastIssued);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodeIdOutOfRangeIsRefused() {
+        new IdGenerator(IdGenerator.MAX_NODE_ID + 1);
+    }
+
+    @Test
+    public void formattedIdsSortByTimeAsText() throws Exception {
+        IdGenerator generator = new IdGenerator(5);
+        String earlier = generator.next(IdGenerator.PREFIX_PATIENT);
+        Thread.sleep(2);
+        String later = generator.next(IdGenerator.PREFIX_PATIENT);
+
+        assertEquals(IdGenerator.PREFIX_PATIENT.length() + 18, earlier.length());
+        assertTrue(earlier.compareTo(later) < 0);
+        long issuedAt = IdGenerator.timestampOf(later);
+        assertTrue(Math.abs(System.currentTimeMillis() - issuedAt) < 5_000);
+        assertEquals(-1, IdGenerator.timestampOf("PRE1760000000000"));
+    }
+
+    private static long millisOf(long value) {
+        return IdGenerator.timestampOf(IdGenerator.format("X", value)) - IdGenerator.EPOCH_MILLIS;
+    }
+}
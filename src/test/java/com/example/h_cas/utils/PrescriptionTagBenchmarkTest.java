@@ -0,0 +1,149 @@
+package com.example.h_cas.utils;
+
+import com.example.h_cas.Benchmark;
+import com.example.h_cas.models.RFIDData;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PrescriptionTagBenchmarkTest measures {@link PrescriptionTagCodec} on a synthetic set of
+ * prescriptions: encoded size against the same fields written as length-prefixed text,
+ * how many fit an NTAG213 without cutting, and encode and decode time per prescription.
+ * The codec is plain Java, so this runs on the host JVM, in the {@link Benchmark} run;
+ * the figures are in the assertion messages.
+ */
+@Category(Benchmark.class)
+public class PrescriptionTagBenchmarkTest {
+    private static final int COUNT = 10_000;
+    private static final int ITERATIONS = 20;
+    // Share of prescriptions that must fit an NTAG213 without cutting any text
+    private static final int MIN_FIT_WHOLE_PERCENT = 90;
+
+    private static final String[] FIRST_NAMES = {"Juan", "Maria", "Jose", "Ana", "Pedro", "Rosario", "Miguel",
+                                                 "Cristina", "Ramon", "Luzviminda"};
+    private static final String[] LAST_NAMES = {"Dela Cruz", "Santos", "Reyes", "Garcia", "Mendoza", "Bautista",
+                                                "Villanueva", "Fernandez", "Castillo", "Aquino"};
+    private static final String[] DOSAGES = {"500mg", "250mg", "10mg", "1 tablet", "5ml", "2 puffs"};
+    private static final String[] FREE_TEXT = {"Take with food", "Avoid alcohol while taking this medicine",
+                                               "", "", "Do not crush or chew; swallow whole with a glass of water"};
+
+    @Test
+    public void encodeAndDecode() {
+        int count = COUNT;
+        int iterations = ITERATIONS;
+        // encode throws if one cannot fit even cut, and decodeAll if one does not round-trip
+        List<RFIDData> prescriptions = sample(count, new Random(42));
+
+        long encodedBytes = 0;
+        long textBytes = 0;
+        int maxBytes = 0;
+        int fitWhole = 0;
+        List<byte[]> payloads = new ArrayList<>(count);
+        for (RFIDData prescription : prescriptions) {
+            byte[] payload = PrescriptionTagCodec.encode(prescription, Integer.MAX_VALUE);
+            encodedBytes += payload.length;
+            textBytes += textSize(prescription);
+            maxBytes = Math.max(maxBytes, payload.length);
+            if (payload.length <= PrescriptionTagCodec.NTAG213_PAYLOAD_BYTES) {
+                fitWhole++;
+            }
+            payloads.add(PrescriptionTagCodec.encode(prescription));
+        }
+
+        // Warm up, then time
+        long sink = encodeAll(prescriptions) + decodeAll(payloads);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += encodeAll(prescriptions);
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += decodeAll(payloads);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        long operations = (long) count * iterations;
+        String result = String.format(Locale.US,
+            "%d prescriptions: avg %.1f bytes (text %.1f), max %d, %d%% fit NTAG213 uncut; " +
+            "encode %.2fus, decode %.2fus (sink %d)",
+            count, encodedBytes / (double) count, textBytes / (double) count, maxBytes,
+            fitWhole * 100 / count, encodeNanos / 1e3 / operations, decodeNanos / 1e3 / operations, sink % 10);
+
+        assertTrue(result, encodedBytes < textBytes);
+        assertTrue(result, fitWhole * 100 / count >= MIN_FIT_WHOLE_PERCENT);
+    }
+
+    private static long encodeAll(List<RFIDData> prescriptions) {
+        long bytes = 0;
+        for (RFIDData prescription : prescriptions) {
+            bytes += PrescriptionTagCodec.encode(prescription).length;
+        }
+        return bytes;
+    }
+
+    private static long decodeAll(List<byte[]> payloads) {
+        long fields = 0;
+        for (byte[] payload : payloads) {
+            try {
+                fields += PrescriptionTagCodec.decode(payload).getDosage().length();
+            } catch (PrescriptionTagCodec.InvalidPayloadException e) {
+                throw new IllegalStateException("Benchmark payload did not decode", e);
+            }
+        }
+        return fields;
+    }
+
+    // The same fields as DataOutput.writeUTF strings behind a version byte
+    private static int textSize(RFIDData prescription) {
+        String[] fields = {prescription.getPrescriptionId(), prescription.getPatientId(),
+                           prescription.getPatientName(), prescription.getMedicineName(), prescription.getDosage(),
+                           prescription.getFrequency(), prescription.getDuration(), prescription.getDoctorName(),
+                           prescription.getPrescriptionDate(), prescription.getInstructions()};
+        int size = 1;
+        for (String field : fields) {
+            size += 2 + (field != null ? field.getBytes(StandardCharsets.UTF_8).length : 0);
+        }
+        return size;
+    }
+
+    /**
+     * Prescriptions shaped like the app's: ids from timestamps, mostly dictionary
+     * medication and frequency, and one in ten of each written freehand
+     */
+    static List<RFIDData> sample(int count, Random random) {
+        List<RFIDData> prescriptions = new ArrayList<>(count);
+        long millis = 1_760_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            millis += 1 + random.nextInt(600_000);
+            String medication = random.nextInt(10) == 0
+                ? "Compounded Cream " + (char) ('A' + random.nextInt(26))
+                : PrescriptionTagCodec.MEDICATIONS[random.nextInt(PrescriptionTagCodec.MEDICATIONS.length)];
+            String frequency = random.nextInt(10) == 0
+                ? "Every " + (2 + random.nextInt(5)) + " hours while awake"
+                : PrescriptionTagCodec.FREQUENCIES[random.nextInt(PrescriptionTagCodec.FREQUENCIES.length)];
+            int days = 1 + random.nextInt(30);
+            String patientId = String.format(Locale.US, "PAT%06d", random.nextInt(1_000_000));
+            RFIDData prescription = new RFIDData(null, patientId,
+                                                 FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " +
+                                                 LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                                                 "PRE" + millis, medication,
+                                                 DOSAGES[random.nextInt(DOSAGES.length)], frequency,
+                                                 days + (days == 1 ? " day" : " days"));
+            prescription.setDoctorName("Dr. " + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            prescription.setPrescriptionDate(PrescriptionTagCodec.fromEpochSeconds(random.nextInt(200_000_000)));
+            prescription.setInstructions(FREE_TEXT[random.nextInt(FREE_TEXT.length)]);
+            prescriptions.add(prescription);
+        }
+        return prescriptions;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.h_cas.utils;
+
+import com.example.h_cas.models.RFIDData;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round trips and checksum checks for {@link PrescriptionTagCodec}
+ */
+public class PrescriptionTagCodecTest {
+
+    @Test
+    public void everyFieldRoundTrips() throws Exception {
+        for (RFIDData prescription : PrescriptionTagBenchmarkTest.sample(2_000, new Random(7))) {
+            RFIDData decoded = PrescriptionTagCodec.decode(PrescriptionTagCodec.encode(prescription, Integer.MAX_VALUE));
+            assertSameFields(prescription, decoded);
+        }
+    }
+
+    @Test
+    public void freehandFieldsRoundTripAsText() throws Exception {
+        RFIDData prescription = prescription("RX-2025/07", "walk-in", "Compounded Cream B", "Every 5 hours",
+                                             "1 days");
+        prescription.setPrescriptionDate("2025-7-1 08:00");
+
+        RFIDData decoded = PrescriptionTagCodec.decode(PrescriptionTagCodec.encode(prescription, Integer.MAX_VALUE));
+
+        assertEquals("RX-2025/07", decoded.getPrescriptionId());
+        assertEquals("walk-in", decoded.getPatientId());
+        assertEquals("Compounded Cream B", decoded.getMedicineName());
+        assertEquals("Every 5 hours", decoded.getFrequency());
+        // Not the canonical "1 day", so it stays text
+        assertEquals("1 days", decoded.getDuration());
+        // Not in the stored form, so it is left off the tag
+        assertEquals(null, decoded.getPrescriptionDate());
+    }
+
+    @Test
+    public void idsWithLeadingZerosKeepThem() throws Exception {
+        RFIDData prescription = prescription("PRE0001700000000000", "PAT000042", "Paracetamol", "Once daily",
+                                             "7 days");
+
+        RFIDData decoded = PrescriptionTagCodec.decode(PrescriptionTagCodec.encode(prescription));
+
+        assertEquals("PRE0001700000000000", decoded.getPrescriptionId());
+        assertEquals("PAT000042", decoded.getPatientId());
+    }
+
+    @Test
+    public void ntag213PayloadsKeepTheFieldsThatAreNeverCut() throws Exception {
+        for (RFIDData prescription : PrescriptionTagBenchmarkTest.sample(2_000, new Random(11))) {
+            byte[] payload = PrescriptionTagCodec.encode(prescription);
+            assertTrue(payload.length + " bytes", payload.length <= PrescriptionTagCodec.NTAG213_PAYLOAD_BYTES);
+
+            RFIDData decoded = PrescriptionTagCodec.decode(payload);
+            assertEquals(prescription.getPrescriptionId(), decoded.getPrescriptionId());
+            assertEquals(prescription.getPatientId(), decoded.getPatientId());
+            assertEquals(prescription.getMedicineName(), decoded.getMedicineName());
+            assertEquals(prescription.getDosage(), decoded.getDosage());
+            assertEquals(prescription.getFrequency(), decoded.getFrequency());
+            assertEquals(prescription.getDuration(), decoded.getDuration());
+            assertEquals(prescription.getPrescriptionDate(), decoded.getPrescriptionDate());
+        }
+    }
+
+    @Test
+    public void longInstructionsAreCutFirst() throws Exception {
+        RFIDData prescription = prescription("PRE1760000000000", "PAT000001", "Paracetamol", "Twice daily",
+                                             "7 days");
+        prescription.setInstructions(repeat("Take after meals with plenty of water. ", 10));
+
+        byte[] payload = PrescriptionTagCodec.encode(prescription);
+        assertTrue(payload.length + " bytes", payload.length <= PrescriptionTagCodec.NTAG213_PAYLOAD_BYTES);
+
+        RFIDData decoded = PrescriptionTagCodec.decode(payload);
+        String instructions = decoded.getInstructions();
+        assertTrue(instructions, instructions.endsWith("\u2026"));
+        assertTrue(instructions, prescription.getInstructions().startsWith(
+            instructions.substring(0, instructions.length() - 1)));
+        assertEquals(prescription.getPatientName(), decoded.getPatientName());
+        assertEquals(prescription.getDoctorName(), decoded.getDoctorName());
+    }
+
+    @Test
+    public void longNamesAreCutOnceInstructionsAreGone() throws Exception {
+        RFIDData prescription = prescription("PRE1760000000000", "PAT000001", "Paracetamol", "Twice daily",
+                                             "7 days");
+        prescription.setPatientName(repeat("Maria Luzviminda Villanueva ", 3));
+        prescription.setDoctorName(repeat("Dr. Cristina Bautista Castillo ", 3));
+        prescription.setInstructions("Take with food");
+
+        byte[] payload = PrescriptionTagCodec.encode(prescription);
+        assertTrue(payload.length + " bytes", payload.length <= PrescriptionTagCodec.NTAG213_PAYLOAD_BYTES);
+
+        RFIDData decoded = PrescriptionTagCodec.decode(payload);
+        assertEquals(null, decoded.getInstructions());
+        assertTrue(decoded.getDoctorName(), decoded.getDoctorName().endsWith("\u2026"));
+        assertEquals(prescription.getDosage(), decoded.getDosage());
+        assertEquals(prescription.getDuration(), decoded.getDuration());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uncuttableFieldsThatDoNotFitAreRefused() {
+        RFIDData prescription = prescription("PRE1760000000000", "PAT000001", "Paracetamol", "Twice daily",
+                                             "7 days");
+        // Dosage is never cut
+        prescription.setDosage(repeat("500mg ", 30));
+        PrescriptionTagCodec.encode(prescription);
+    }
+
+    @Test
+    public void everySingleBitFlipIsDetected() {
+        byte[] payload = PrescriptionTagCodec.encode(PrescriptionTagBenchmarkTest.sample(1, new Random(3)).get(0));
+        assertTrue(PrescriptionTagCodec.isValid(payload));
+
+        for (int i = 0; i < payload.length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                byte[] corrupted = payload.clone();
+                corrupted[i] ^= 1 << bit;
+                assertFalse("byte " + i + " bit " + bit, PrescriptionTagCodec.isValid(corrupted));
+            }
+        }
+    }
+
+    @Test
+    public void corruptedBodyFailsTheChecksum() {
+        byte[] payload = PrescriptionTagCodec.encode(PrescriptionTagBenchmarkTest.sample(1, new Random(5)).get(0));
+        payload[payload.length / 2] ^= 0x5A;
+        try {
+            PrescriptionTagCodec.decode(payload);
+            fail("Corrupted payload decoded");
+        } catch (PrescriptionTagCodec.InvalidPayloadException e) {
+            assertEquals("Checksum mismatch", e.getMessage());
+        }
+    }
+
+    @Test
+    public void truncatedPayloadsAreInvalid() {
+        byte[] payload = PrescriptionTagCodec.encode(PrescriptionTagBenchmarkTest.sample(1, new Random(9)).get(0));
+        for (int length = 0; length < payload.length; length++) {
+            assertFalse("length " + length, PrescriptionTagCodec.isValid(Arrays.copyOf(payload, length)));
+        }
+        assertFalse(PrescriptionTagCodec.isValid(null));
+    }
+
+    @Test
+    public void checksumIsCcittFalse() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x29B1, PrescriptionTagCodec.crc16(check, 0, check.length));
+    }
+
+    @Test
+    public void datesRoundTripThroughEpochSeconds() {
+        for (String date : new String[]{"2020-01-01 00:00:00", "2024-02-29 23:59:59", "2031-12-31 12:30:05"}) {
+            assertEquals(date, PrescriptionTagCodec.fromEpochSeconds(PrescriptionTagCodec.toEpochSeconds(date)));
+        }
+        assertEquals(-1, PrescriptionTagCodec.toEpochSeconds("2019-12-31 23:59:59"));
+        assertEquals(-1, PrescriptionTagCodec.toEpochSeconds("2025-02-30 00:00:00"));
+    }
+
+    private static RFIDData prescription(String prescriptionId, String patientId, String medication,
+                                         String frequency, String duration) {
+        RFIDData prescription = new RFIDData(null, patientId, "Juan Santos", prescriptionId, medication, "500mg",
+                                             frequency, duration);
+        prescription.setDoctorName("Dr. Reyes");
+        prescription.setPrescriptionDate("2025-07-01 08:00:00");
+        return prescription;
+    }
+
+    private static void assertSameFields(RFIDData expected, RFIDData actual) {
+        String id = expected.getPrescriptionId();
+        assertEquals(id, expected.getPrescriptionId(), actual.getPrescriptionId());
+        assertEquals(id, expected.getPatientId(), actual.getPatientId());
+        assertEquals(id, expected.getPatientName(), actual.getPatientName());
+        assertEquals(id, expected.getMedicineName(), actual.getMedicineName());
+        assertEquals(id, expected.getDosage(), actual.getDosage());
+        assertEquals(id, expected.getFrequency(), actual.getFrequency());
+        assertEquals(id, expected.getDuration(), actual.getDuration());
+        assertEquals(id, expected.getDoctorName(), actual.getDoctorName());
+        assertEquals(id, expected.getPrescriptionDate(), actual.getPrescriptionDate());
+        // Empty instructions are left off the tag
+        assertEquals(id, orEmpty(expected.getInstructions()), orEmpty(actual.getInstructions()));
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
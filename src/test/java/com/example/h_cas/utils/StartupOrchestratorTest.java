@@ -0,0 +1,52 @@
+package com.example.h_cas.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Dependency checks of {@link StartupOrchestrator#start()}: tasks that could never run
+ * are refused before anything is submitted
+ */
+public class StartupOrchestratorTest {
+    private static final Runnable NOTHING = () -> {
+    };
+
+    @Test
+    public void selfDependencyIsRefused() {
+        StartupOrchestrator startup = new StartupOrchestrator()
+            .add("database", DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.UI, NOTHING, "database");
+
+        assertRefused(startup, "Startup tasks depend on each other: database -> database");
+    }
+
+    @Test
+    public void cycleIsRefused() {
+        StartupOrchestrator startup = new StartupOrchestrator()
+            .add("session", DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.UI, NOTHING, "database")
+            .add("database", DatabaseExecutor.Pool.DB_WRITE, DatabaseExecutor.Priority.UI, NOTHING, "sync")
+            .add("firebase", DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.DEFAULT, NOTHING)
+            .add("sync", DatabaseExecutor.Pool.NETWORK, DatabaseExecutor.Priority.DEFAULT, NOTHING,
+                 "firebase", "session");
+
+        assertRefused(startup, "Startup tasks depend on each other: session -> database -> sync -> session");
+    }
+
+    @Test
+    public void unknownDependencyIsRefused() {
+        StartupOrchestrator startup = new StartupOrchestrator()
+            .add("session", DatabaseExecutor.Pool.DB_READ, DatabaseExecutor.Priority.UI, NOTHING, "database");
+
+        assertRefused(startup, "session depends on unknown task database");
+    }
+
+    private static void assertRefused(StartupOrchestrator startup, String message) {
+        try {
+            startup.start();
+            fail("Started");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}